@@ -0,0 +1,256 @@
+package utils;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorSha256Kernel - SHA-256 of several nonces at once in SIMD lanes
+ *
+ * SHA-256 works on 32-bit words with add, xor, and, not and rotate - all
+ * of which exist as vector instructions. Lane i of every IntVector holds
+ * the state of nonce (first + i), so one pass through the 64 rounds
+ * hashes 4, 8 or 16 nonces (128-, 256- or 512-bit vectors):
+ *
+ *   lane:     0        1        2        3     ...
+ *   a:     a(n+0)   a(n+1)   a(n+2)   a(n+3)
+ *   ...
+ *   W[t]:  W(n+0)   W(n+1)   W(n+2)   W(n+3)
+ *
+ * The 64-byte blocks of the prefix that come before the nonce are the
+ * same for every nonce, so they are hashed once (the "midstate") and only
+ * the remaining blocks are hashed per lane.
+ *
+ * Lanes must hash messages of the same length. That holds for consecutive
+ * nonces except where the digit count changes (999 -> 1000); such a batch
+ * is finished one nonce at a time.
+ *
+ * Uses the incubating jdk.incubator.vector module: compile and run with
+ * --add-modules jdk.incubator.vector. It lives in its own source root
+ * (src-vector) so src compiles without that flag, and is loaded
+ * reflectively by Sha256Kernel.best(), so everything else works when
+ * this class or the module is missing.
+ */
+final class VectorSha256Kernel implements Sha256Kernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private static final int[] H0 = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
+            0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    VectorSha256Kernel() {
+    }
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public String name() {
+        return "vector x" + lanes();
+    }
+
+    @Override
+    public void hashNonces(byte[] prefix, long firstNonce, int count, byte[] suffix, int[] digests) {
+        int lanes = lanes();
+
+        // Midstate: hash the prefix's complete blocks once
+        int prefixBlocks = prefix.length / 64;
+        int[] midstate = H0.clone();
+        int[] w = new int[64];
+        for (int b = 0; b < prefixBlocks; b++) {
+            for (int t = 0; t < 16; t++) {
+                w[t] = ScalarSha256Kernel.readInt(prefix, 64 * b + 4 * t);
+            }
+            compress(midstate, w);
+        }
+
+        // Per-lane tail: rest of prefix + nonce + suffix + padding
+        int rest = prefix.length - 64 * prefixBlocks;
+        int maxTail = (rest + ScalarSha256Kernel.MAX_NONCE_DIGITS + suffix.length + 9 + 63) / 64 * 64;
+        byte[][] tails = new byte[lanes][maxTail];
+
+        // Lane-major scratch: word t of every lane at schedule[t * lanes ..]
+        // (plain int arrays, so no IntVector ever escapes to the heap)
+        int[] schedule = new int[64 * lanes];
+        int[] state = new int[8 * lanes];
+
+        for (int done = 0; done < count; done += lanes) {
+            int n = Math.min(lanes, count - done);
+            int tailLength = -1;
+            boolean uniform = n == lanes;
+            for (int lane = 0; lane < n; lane++) {
+                int length = fillTail(tails[lane], prefix, rest, firstNonce + done + lane, suffix);
+                if (tailLength < 0) {
+                    tailLength = length;
+                } else if (length != tailLength) {
+                    uniform = false;
+                }
+            }
+
+            if (!uniform) {
+                // Digit count changes inside this batch (or it is the last,
+                // partial one): one nonce at a time
+                for (int lane = 0; lane < n; lane++) {
+                    int[] single = midstate.clone();
+                    int length = fillTail(tails[lane], prefix, rest, firstNonce + done + lane, suffix);
+                    for (int offset = 0; offset < length; offset += 64) {
+                        for (int t = 0; t < 16; t++) {
+                            w[t] = ScalarSha256Kernel.readInt(tails[lane], offset + 4 * t);
+                        }
+                        compress(single, w);
+                    }
+                    System.arraycopy(single, 0, digests, 8 * (done + lane), 8);
+                }
+                continue;
+            }
+
+            for (int i = 0; i < 8; i++) {
+                for (int lane = 0; lane < lanes; lane++) {
+                    state[i * lanes + lane] = midstate[i];
+                }
+            }
+            for (int offset = 0; offset < tailLength; offset += 64) {
+                for (int t = 0; t < 16; t++) {
+                    for (int lane = 0; lane < lanes; lane++) {
+                        schedule[t * lanes + lane] = ScalarSha256Kernel.readInt(tails[lane], offset + 4 * t);
+                    }
+                }
+                compress(state, schedule, lanes);
+            }
+            for (int i = 0; i < 8; i++) {
+                for (int lane = 0; lane < lanes; lane++) {
+                    digests[8 * (done + lane) + i] = state[i * lanes + lane];
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the padded final blocks for one nonce
+     *
+     * @return Length of the tail, a multiple of 64
+     */
+    private static int fillTail(byte[] tail, byte[] prefix, int rest, long nonce, byte[] suffix) {
+        System.arraycopy(prefix, prefix.length - rest, tail, 0, rest);
+        int position = ScalarSha256Kernel.writeDecimal(nonce, tail, rest);
+        System.arraycopy(suffix, 0, tail, position, suffix.length);
+        position += suffix.length;
+        long bitLength = 8L * (prefix.length - rest + position);
+
+        // Padding: 0x80, zeros, then the message length in bits (8 bytes)
+        int length = (position + 9 + 63) / 64 * 64;
+        tail[position] = (byte) 0x80;
+        for (int i = position + 1; i < length - 8; i++) {
+            tail[i] = 0;
+        }
+        for (int i = 0; i < 8; i++) {
+            tail[length - 1 - i] = (byte) (bitLength >>> (8 * i));
+        }
+        return length;
+    }
+
+    // One block, all lanes; w holds words 0..15 of each lane, 16..63 are filled in
+    private static void compress(int[] state, int[] w, int lanes) {
+        for (int t = 16; t < 64; t++) {
+            IntVector x = IntVector.fromArray(SPECIES, w, (t - 15) * lanes);
+            IntVector y = IntVector.fromArray(SPECIES, w, (t - 2) * lanes);
+            IntVector s0 = x.lanewise(VectorOperators.ROR, 7)
+                    .lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.ROR, 18))
+                    .lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHR, 3));
+            IntVector s1 = y.lanewise(VectorOperators.ROR, 17)
+                    .lanewise(VectorOperators.XOR, y.lanewise(VectorOperators.ROR, 19))
+                    .lanewise(VectorOperators.XOR, y.lanewise(VectorOperators.LSHR, 10));
+            IntVector.fromArray(SPECIES, w, (t - 16) * lanes).add(s0)
+                    .add(IntVector.fromArray(SPECIES, w, (t - 7) * lanes)).add(s1)
+                    .intoArray(w, t * lanes);
+        }
+
+        IntVector a = IntVector.fromArray(SPECIES, state, 0);
+        IntVector b = IntVector.fromArray(SPECIES, state, lanes);
+        IntVector c = IntVector.fromArray(SPECIES, state, 2 * lanes);
+        IntVector d = IntVector.fromArray(SPECIES, state, 3 * lanes);
+        IntVector e = IntVector.fromArray(SPECIES, state, 4 * lanes);
+        IntVector f = IntVector.fromArray(SPECIES, state, 5 * lanes);
+        IntVector g = IntVector.fromArray(SPECIES, state, 6 * lanes);
+        IntVector h = IntVector.fromArray(SPECIES, state, 7 * lanes);
+        for (int t = 0; t < 64; t++) {
+            IntVector s1 = e.lanewise(VectorOperators.ROR, 6)
+                    .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 11))
+                    .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 25));
+            IntVector ch = e.and(f).lanewise(VectorOperators.XOR, e.not().and(g));
+            IntVector t1 = h.add(s1).add(ch).add(K[t]).add(IntVector.fromArray(SPECIES, w, t * lanes));
+            IntVector s0 = a.lanewise(VectorOperators.ROR, 2)
+                    .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 13))
+                    .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 22));
+            IntVector maj = a.and(b).lanewise(VectorOperators.XOR, a.and(c))
+                    .lanewise(VectorOperators.XOR, b.and(c));
+            IntVector t2 = s0.add(maj);
+            h = g;
+            g = f;
+            f = e;
+            e = d.add(t1);
+            d = c;
+            c = b;
+            b = a;
+            a = t1.add(t2);
+        }
+        a.add(IntVector.fromArray(SPECIES, state, 0)).intoArray(state, 0);
+        b.add(IntVector.fromArray(SPECIES, state, lanes)).intoArray(state, lanes);
+        c.add(IntVector.fromArray(SPECIES, state, 2 * lanes)).intoArray(state, 2 * lanes);
+        d.add(IntVector.fromArray(SPECIES, state, 3 * lanes)).intoArray(state, 3 * lanes);
+        e.add(IntVector.fromArray(SPECIES, state, 4 * lanes)).intoArray(state, 4 * lanes);
+        f.add(IntVector.fromArray(SPECIES, state, 5 * lanes)).intoArray(state, 5 * lanes);
+        g.add(IntVector.fromArray(SPECIES, state, 6 * lanes)).intoArray(state, 6 * lanes);
+        h.add(IntVector.fromArray(SPECIES, state, 7 * lanes)).intoArray(state, 7 * lanes);
+    }
+
+    // One block, one message (midstate and ragged batches)
+    private static void compress(int[] state, int[] w) {
+        for (int t = 16; t < 64; t++) {
+            int s0 = Integer.rotateRight(w[t - 15], 7) ^ Integer.rotateRight(w[t - 15], 18) ^ (w[t - 15] >>> 3);
+            int s1 = Integer.rotateRight(w[t - 2], 17) ^ Integer.rotateRight(w[t - 2], 19) ^ (w[t - 2] >>> 10);
+            w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+        }
+        int a = state[0], b = state[1], c = state[2], d = state[3];
+        int e = state[4], f = state[5], g = state[6], h = state[7];
+        for (int t = 0; t < 64; t++) {
+            int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            int ch = (e & f) ^ (~e & g);
+            int t1 = h + s1 + ch + K[t] + w[t];
+            int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            int maj = (a & b) ^ (a & c) ^ (b & c);
+            int t2 = s0 + maj;
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+}
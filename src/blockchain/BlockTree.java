@@ -0,0 +1,149 @@
+package blockchain;
+
+import models.Block;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BlockTree - Every known block, arranged by parent links
+ *
+ * A plain list can only hold one chain. Competing blocks at the same
+ * height (two miners finding a block at about the same time) need a tree:
+ *
+ *     G - 1 - 2 - 3a - 4a      <- active chain (most cumulative work)
+ *                \
+ *                 3b           <- side branch, kept in case it overtakes
+ *
+ * Each node records its parent and the total work of the chain ending in
+ * it. Blocks whose parent has not arrived yet wait in the orphan pool and
+ * are attached as soon as the parent shows up.
+ *
+ * Nodes are looked up by readers without a lock (Blockchain's snapshot
+ * readers validate against them), so that map is concurrent. The orphan
+ * pool is only touched by the writer, under Blockchain's lock.
+ */
+final class BlockTree {
+
+    // Orphans kept at most; the oldest are dropped beyond this
+    static final int MAX_ORPHANS = 1000;
+
+    /**
+     * One block in the tree
+     */
+    static final class Node {
+        // Replaced by its header-only copy when a pruning node drops the body
+        volatile Block block;
+        final Node parent;
+        final int height;
+        final BigInteger cumulativeWork;
+
+        Node(Block block, Node parent, BigInteger work) {
+            this.block = block;
+            this.parent = parent;
+            this.height = parent == null ? 0 : parent.height + 1;
+            this.cumulativeWork = parent == null ? work : parent.cumulativeWork.add(work);
+        }
+    }
+
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+    // Orphans by their own hash (insertion order = arrival order)
+    private final LinkedHashMap<String, Block> orphans = new LinkedHashMap<>();
+
+    // Orphans grouped by the parent hash they are waiting for
+    private final Map<String, List<Block>> orphansByParent = new HashMap<>();
+
+    // Safe without the chain lock: nodes is a concurrent map
+    Node get(String hash) {
+        return nodes.get(hash);
+    }
+
+    // Reads the orphan pool too, so only under the chain lock
+    boolean contains(String hash) {
+        return nodes.containsKey(hash) || orphans.containsKey(hash);
+    }
+
+    Node add(Block block, Node parent, BigInteger work) {
+        Node node = new Node(block, parent, work);
+        nodes.put(block.getHash(), node);
+        return node;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Forget side-branch blocks at or below a height
+     *
+     * Used by pruning: branches forking that low can never become active,
+     * so keeping their (full) blocks would only waste memory.
+     *
+     * @param height Highest height to clear
+     * @param active The active chain, whose blocks are kept
+     * @return How many blocks were removed
+     */
+    int removeSideBlocksUpTo(int height, ChainSnapshot active) {
+        int removed = 0;
+        for (Iterator<Node> it = nodes.values().iterator(); it.hasNext(); ) {
+            Node node = it.next();
+            if (node.height <= height && !active.contains(node.block)) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // ============================================================
+    // ORPHAN POOL
+    // ============================================================
+
+    void addOrphan(Block block) {
+        if (orphans.containsKey(block.getHash())) {
+            return;
+        }
+        orphans.put(block.getHash(), block);
+        orphansByParent.computeIfAbsent(block.getPreviousHash(), k -> new ArrayList<>()).add(block);
+
+        if (orphans.size() > MAX_ORPHANS) {
+            Block oldest = orphans.values().iterator().next();
+            removeOrphan(oldest);
+        }
+    }
+
+    /**
+     * Take every orphan waiting for the given parent out of the pool
+     */
+    List<Block> takeOrphansOf(String parentHash) {
+        List<Block> children = orphansByParent.remove(parentHash);
+        if (children == null) {
+            return List.of();
+        }
+        for (Block child : children) {
+            orphans.remove(child.getHash());
+        }
+        return children;
+    }
+
+    int orphanCount() {
+        return orphans.size();
+    }
+
+    private void removeOrphan(Block block) {
+        orphans.remove(block.getHash());
+        List<Block> siblings = orphansByParent.get(block.getPreviousHash());
+        if (siblings != null) {
+            siblings.remove(block);
+            if (siblings.isEmpty()) {
+                orphansByParent.remove(block.getPreviousHash());
+            }
+        }
+    }
+}
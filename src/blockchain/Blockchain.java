@@ -1,13 +1,29 @@
 package blockchain;
 
 import models.Block;
+import models.BlockHeader;
+import models.BlockTemplate;
 import models.Transaction;
+import profiling.BlockValidationEvent;
+import profiling.ExportEvent;
+import profiling.MempoolDrainEvent;
+import utils.BloomFilter;
+import utils.Target;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Blockchain class - Core implementation of a blockchain data structure
@@ -17,36 +33,198 @@ import java.util.List;
  * - Managing pending transactions
  * - Mining new blocks with proof-of-work
  * - Validating blockchain integrity
+ * - Choosing between competing branches (most cumulative work wins)
+ *
+ * THREADING - one writer, any number of readers:
+ * - Methods that change the chain or the pending pool are synchronized,
+ *   so a background miner (see minePendingTransactionsAsync) can add its
+ *   block from its own thread.
+ * - The active chain is published as an immutable ChainSnapshot through a
+ *   volatile field. Readers (explorers, exporters, validators) call
+ *   snapshot() and work on that without taking any lock; they never block
+ *   the writer or each other, and never see a half-applied change - a
+ *   reorganization becomes visible all at once.
+ * - Block lookups by hash go through a concurrent map.
+ *
+ * PRUNING (optional, see enablePruning):
+ * A long-running node keeps every header but only the most recent blocks'
+ * transactions. Before dropping older ones it checkpoints the derived
+ * state (balances) as of the pruned height, so it can still validate new
+ * blocks and answer queries about recent ones with bounded memory.
+ *
+ * SIGNATURES:
+ * Signed transactions are verified (see SignatureVerifier) before they
+ * enter the pending pool and before a block carrying them is accepted -
+ * in parallel, and outside the lock, so a slow batch never holds up
+ * readers or the miner. A transaction verified for the pool is not
+ * verified again when its block arrives. Unsigned transactions are
+ * rejected unless the chain opts out with setRequireSignatures(false).
+ *
+ * Final: the consensus engine is handed this chain at the end of its
+ * constructor, which is only safe if no subclass constructor still has
+ * to run.
  */
-public class Blockchain {
+public final class Blockchain {
+
+    /**
+     * Result of offering a block to the chain
+     */
+    public enum BlockStatus {
+        CONNECTED,   // Became the new tip (possibly through a reorganization)
+        SIDE_CHAIN,  // Valid, stored on a branch with less work than the tip
+        ORPHAN,      // Parent unknown; held until the parent arrives
+        DUPLICATE,   // Already known
+        INVALID      // Failed validation
+    }
+
+    // All blocks of the blockchain (the chain itself), as an immutable snapshot
+    // This is the ACTIVE chain: the branch of the block tree with most work
+    // Replaced (never modified) by the writer; volatile so readers see the latest
+    private volatile ChainSnapshot chain;
 
-    // List to store all blocks in the blockchain (the chain itself)
-    private List<Block> chain;
+    // Every known block (all branches), with parent links and cumulative work
+    private BlockTree blockTree;
 
     // Temporary storage for transactions waiting to be added to a block
-    private List<Transaction> pendingTransactions;
+    // Keyed by transaction ID so blocks can remove/return them in O(1) each
+    private Map<String, Transaction> pendingTransactions;
+
+    // Notified when blocks are connected to / disconnected from the active chain
+    private List<ChainListener> listeners;
+
+    // Who may add blocks and how their seals are checked
+    // (proof-of-work mining unless another engine is given)
+    private final ConsensusEngine consensus;
+
+    // Network this chain belongs to (null for a custom genesis)
+    private final NetworkParams network;
 
     // Mining difficulty - number of leading zeros required in block hash
     // Higher difficulty = more computational work required
+    // This sets the genesis target; later blocks may move away from it
+    // through retargeting (see ProofOfWork.nextBits). 0 without proof-of-work
     private int difficulty;
 
+    // Block being mined in the background, if any (see minePendingTransactionsAsync)
+    private MiningJob miningJob;
+
+    // Lookups by transaction ID / address; built on first use (see getIndex)
+    private ChainIndex index;
+
+    // Balances of the active chain; built on first use (see getState)
+    private ChainState state;
+
+    // Pruning: blocks whose transactions are kept below the tip (0 = keep all),
+    // and how many more blocks must be buried before pruning again
+    private int pruneDepth;
+    private int checkpointInterval;
+
+    // Highest block whose transactions were dropped (-1 = none); nothing at
+    // or below it can be disconnected any more
+    private volatile int prunedHeight = -1;
+
+    // State as of prunedHeight, taken just before pruning
+    private volatile StateSnapshot checkpoint;
+
+    // Checks transaction signatures and remembers which ones passed
+    private final SignatureVerifier verifier = new SignatureVerifier();
+
+    // False-positive rate of the Bloom filter built for each new block
+    private volatile double filterFalsePositiveRate = BloomFilter.DEFAULT_FALSE_POSITIVE_RATE;
+
+    // Copy of the active chain outside the heap, if enabled (see enableOffHeapStorage)
+    private volatile OffHeapBlockStore store;
+
+    // Where new blocks get their timestamps (replaced for reproducible runs, see setClock)
+    private volatile Clock clock = Clock.systemUTC();
+
+    // Log of submitted transactions and mining calls, while recording (see startRecording)
+    private volatile WorkloadRecorder recorder;
+
     /**
      * Constructor - Initialize blockchain with specified difficulty
      *
+     * Joins the fixed-difficulty network for that difficulty (see
+     * NetworkParams.fixed): every chain created with the same difficulty
+     * has the same genesis block, and for difficulties 1 to 6 it is
+     * precomputed, so nothing is mined at startup.
+     *
      * @param difficulty The mining difficulty (e.g., 4 means hash must start with "0000")
      */
     public Blockchain(int difficulty) {
+        this(NetworkParams.fixed(difficulty));
+    }
+
+    /**
+     * Constructor - Initialize blockchain on a network
+     *
+     * Consensus rules and the (precomputed) genesis block come from the
+     * network, so all its nodes start from the same block.
+     *
+     * @param network e.g. NetworkParams.MAIN
+     */
+    public Blockchain(NetworkParams network) {
+        this(network.createConsensus(), network.getGenesisTimestamp(), network);
+    }
+
+    /**
+     * Constructor - Initialize blockchain with a fixed genesis timestamp
+     *
+     * Mining is deterministic for a given block, so nodes that share the
+     * difficulty and genesis timestamp end up with the same genesis hash
+     * and can exchange blocks with each other.
+     *
+     * @param difficulty The mining difficulty
+     * @param genesisTimestamp Timestamp recorded in the genesis block
+     */
+    public Blockchain(int difficulty, long genesisTimestamp) {
+        this(difficulty, genesisTimestamp, 0, 0);
+    }
+
+    /**
+     * Constructor - Initialize blockchain with automatic retargeting
+     *
+     * Every retargetInterval blocks the mining target is adjusted so blocks
+     * keep coming about every targetBlockTime (see ProofOfWork).
+     *
+     * @param difficulty Leading zeros required of the genesis block
+     * @param genesisTimestamp Timestamp recorded in the genesis block
+     * @param targetBlockTime Desired time between blocks in milliseconds
+     * @param retargetInterval Blocks between adjustments (0 disables retargeting)
+     */
+    public Blockchain(int difficulty, long genesisTimestamp, long targetBlockTime, int retargetInterval) {
+        this(new ProofOfWork(difficulty, targetBlockTime, retargetInterval), genesisTimestamp);
+    }
+
+    /**
+     * Constructor - Initialize blockchain with any consensus engine
+     *
+     * @param consensus Engine that seals and verifies blocks (one per chain)
+     * @param genesisTimestamp Timestamp recorded in the genesis block
+     */
+    public Blockchain(ConsensusEngine consensus, long genesisTimestamp) {
+        this(consensus, genesisTimestamp, null);
+    }
+
+    private Blockchain(ConsensusEngine consensus, long genesisTimestamp, NetworkParams network) {
         // Initialize empty chain
-        this.chain = new ArrayList<>();
+        this.chain = ChainSnapshot.empty();
+        this.blockTree = new BlockTree();
+        this.listeners = new CopyOnWriteArrayList<>();
 
-        // Initialize empty pending transactions list
-        this.pendingTransactions = new ArrayList<>();
+        // Initialize empty pending transactions pool
+        this.pendingTransactions = new LinkedHashMap<>();
 
-        // Set mining difficulty
-        this.difficulty = difficulty;
+        // Set consensus rules (and mining difficulty, for proof-of-work)
+        this.consensus = consensus;
+        this.network = network;
+        this.difficulty = consensus instanceof ProofOfWork ? ((ProofOfWork) consensus).getDifficulty() : 0;
 
         // Create the first block (genesis block) to start the chain
-        createGenesisBlock();
+        createGenesisBlock(genesisTimestamp);
+
+        // Last: the engine only ever sees a complete chain
+        consensus.attach(this);
     }
 
     /**
@@ -55,27 +233,112 @@ public class Blockchain {
      * The genesis block is special - it has no previous block to reference
      * It serves as the foundation/anchor of the entire blockchain
      */
-    private void createGenesisBlock() {
+    private void createGenesisBlock(long genesisTimestamp) {
         System.out.println("[INFO] Creating Genesis Block...");
 
         // Genesis block has no transactions
         List<Transaction> genesisTransactions = new ArrayList<>();
 
-        // Create genesis block with:
-        // - Index 0 (first block)
-        // - Previous hash "0" (no previous block exists)
-        // - Empty transaction list
-        Block genesisBlock = new Block(0, "0", genesisTransactions);
-
-        // Mine the genesis block to give it a valid hash
-        genesisBlock.mineBlock(difficulty);
+        Block genesisBlock;
+        if (network != null) {
+            // The network's own genesis (precomputed: rebuilt and checked, not mined)
+            genesisBlock = network.createGenesisBlock(consensus);
+        } else {
+            // Create genesis block with:
+            // - Index 0 (first block)
+            // - Previous hash "0" (no previous block exists)
+            // - Empty transaction list
+            // Seal the genesis block to give it a valid hash (mine it, for proof-of-work)
+            genesisBlock = consensus.sealGenesis(new BlockTemplate(0, "0", genesisTimestamp, genesisTransactions));
+        }
 
-        // Add genesis block to the chain
-        chain.add(genesisBlock);
+        // Add genesis block to the chain (root of the block tree)
+        chain = chain.append(genesisBlock);
+        blockTree.add(genesisBlock, null, blockWork(genesisBlock));
 
         System.out.println("✓ Genesis Block Created!\n");
     }
 
+    // ==================== CHECKPOINT BOOTSTRAP ====================
+
+    /**
+     * Start a node from a trusted checkpoint instead of replaying from genesis
+     *
+     * A new node normally validates every block since genesis - startup
+     * time grows with the chain. Given a checkpoint it trusts (height, block
+     * hash and the state at that block, e.g. from createCheckpoint on a
+     * node it runs), it only needs:
+     *
+     * 1. The headers from block 1 to the checkpoint (genesis comes from the
+     *    network). They are not checked for proof-of-work: each must link
+     *    to the one before, and the last must have the checkpoint's hash -
+     *    which the whole header chain is then pinned to. That is one hash
+     *    per header, no transactions.
+     * 2. The state from the checkpoint, instead of all the transactions.
+     *
+     * The node then behaves like a pruning node whose pruned height is the
+     * checkpoint: blocks after it arrive through addBlock and are validated
+     * in full, and nothing at or below it can be reorganized away.
+     *
+     * @param network Network the checkpoint belongs to
+     * @param checkpoint Trusted state as of its block
+     * @param headers Headers of blocks 1 to checkpoint.getHeight()
+     * @throws IllegalArgumentException if the headers do not lead from this
+     *         network's genesis to the checkpoint
+     */
+    public static Blockchain fromCheckpoint(NetworkParams network, StateSnapshot checkpoint,
+                                            List<BlockHeader> headers) {
+        Blockchain blockchain = new Blockchain(network);
+        blockchain.loadCheckpoint(checkpoint, headers);
+        return blockchain;
+    }
+
+    private synchronized void loadCheckpoint(StateSnapshot trusted, List<BlockHeader> headers) {
+        int height = trusted.getHeight();
+        if (headers.size() != height) {
+            throw new IllegalArgumentException("Need the " + height + " headers up to the checkpoint, got "
+                    + headers.size());
+        }
+        BlockHeader previous = BlockHeader.of(chain.genesis());
+        for (BlockHeader header : headers) {
+            if (!header.follows(previous)) {
+                throw new IllegalArgumentException(header + " does not follow " + previous + " of " + network);
+            }
+            previous = header;
+        }
+        if (!previous.getHash().equals(trusted.getBlockHash())) {
+            throw new IllegalArgumentException("Headers do not lead to checkpoint " + trusted);
+        }
+
+        ChainSnapshot active = chain;
+        BlockTree.Node node = blockTree.get(active.genesis().getHash());
+        for (BlockHeader header : headers) {
+            Block block = Block.fromHeader(header);
+            node = blockTree.add(block, node, blockWork(block));
+            active = active.append(block);
+        }
+        chain = active;
+        prunedHeight = height;
+        checkpoint = trusted;
+        state = new ChainState(this, trusted);
+
+        System.out.println("[INFO] Bootstrapped from checkpoint: " + trusted
+                + "; blocks after it are validated as usual");
+    }
+
+    /**
+     * State as of an active block, to start other nodes from (fromCheckpoint)
+     *
+     * @param height Height of the block; transactions above it must not be pruned
+     */
+    public synchronized StateSnapshot createCheckpoint(int height) {
+        if (height < Math.max(prunedHeight, 0) || height > chain.height()) {
+            throw new IllegalArgumentException("Checkpoint height " + height + " outside "
+                    + Math.max(prunedHeight, 0) + ".." + chain.height());
+        }
+        return getState().snapshotAt(chain, height);
+    }
+
     /**
      * Get the latest block in chain
      *
@@ -86,7 +349,17 @@ public class Blockchain {
      */
     public Block getLatestBlock() {
         // Return the last block in the chain
-        return chain.get(chain.size() - 1);
+        return chain.tip();
+    }
+
+    /**
+     * Current state of the active chain, for lock-free reading
+     *
+     * The snapshot never changes, however long it is held; call again to
+     * see newer blocks.
+     */
+    public ChainSnapshot snapshot() {
+        return chain;
     }
 
     /**
@@ -94,14 +367,78 @@ public class Blockchain {
      *
      * Transactions are not immediately added to the blockchain.
      * They wait in a "pending" state until a miner includes them in a block.
+     * A block being mined in the background is updated to include it.
+     * Its signature is checked first (before taking the lock).
      *
      * @param transaction The transaction to add to pending pool
+     * @return false if it was rejected (bad or missing signature)
      */
-    public void addTransaction(Transaction transaction) {
-        // Add to pending transactions list
-        pendingTransactions.add(transaction);
+    public boolean addTransaction(Transaction transaction) {
+        WorkloadRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.submitted(transaction);
+        }
+        if (!verifier.isValid(transaction)) {
+            System.out.println("[REJECTED] Invalid signature: " + transaction);
+            return false;
+        }
+        synchronized (this) {
+            // Add to pending transactions pool
+            pendingTransactions.put(transaction.getTransactionId(), transaction);
+            markMiningJobStale();
+            for (ChainListener listener : listeners) {
+                listener.transactionAdded(transaction);
+            }
+        }
 
         System.out.println("[+] Transaction added: " + transaction);
+        return true;
+    }
+
+    /**
+     * Add many transactions to the pending pool at once
+     *
+     * Same result as calling addTransaction for each, but the lock is
+     * taken once and one summary line is printed. Transactions already in
+     * the pool are skipped.
+     *
+     * Signatures are verified in parallel before the lock is taken;
+     * transactions that fail are left out.
+     *
+     * @param transactions Transactions to add, with their IDs already computed
+     * @return How many were new to the pool
+     */
+    public int addTransactions(Collection<Transaction> transactions) {
+        WorkloadRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.submitted(transactions);
+        }
+        List<Transaction> valid = verifier.filterValid(transactions);
+        int rejected = transactions.size() - valid.size();
+        int added = insertPending(valid);
+
+        System.out.println("[+] " + added + " transactions added ("
+                + (valid.size() - added) + " already pending"
+                + (rejected > 0 ? ", " + rejected + " rejected: invalid signature" : "") + ")");
+        return added;
+    }
+
+    // Put verified transactions into the pool; returns how many were new
+    private synchronized int insertPending(List<Transaction> transactions) {
+        int added = 0;
+        for (Transaction transaction : transactions) {
+            if (pendingTransactions.putIfAbsent(transaction.getTransactionId(), transaction) != null) {
+                continue;
+            }
+            added++;
+            for (ChainListener listener : listeners) {
+                listener.transactionAdded(transaction);
+            }
+        }
+        if (added > 0) {
+            markMiningJobStale();
+        }
+        return added;
     }
 
     /**
@@ -113,57 +450,622 @@ public class Blockchain {
      * 3. Performs proof-of-work to find valid hash
      * 4. Adds the mined block to the chain
      * 5. Clears the pending transactions
+     *
+     * The block is only the new tip if the result is CONNECTED: another
+     * thread may have moved the tip while we were mining (SIDE_CHAIN), or
+     * the block may fail validation (INVALID).
+     *
+     * @return What addBlock did with the mined block, or null if there was
+     *         nothing to mine
+     */
+    public BlockStatus minePendingTransactions() {
+        WorkloadRecorder recorder = this.recorder;
+        long startedNanos = recorder == null ? 0 : recorder.elapsedNanos();
+        BlockTemplate template;
+        Block parent;
+        synchronized (this) {
+            // Check if there are any transactions to mine
+            if (pendingTransactions.isEmpty()) {
+                System.out.println("[WARNING] No pending transactions to mine!");
+                if (recorder != null) {
+                    recorder.mined(startedNanos, null);
+                }
+                return null;
+            }
+
+            // Print mining header
+            System.out.println("\n" + "=".repeat(60));
+            System.out.println("MINING NEW BLOCK");
+            System.out.println("=".repeat(60));
+            System.out.println("[INFO] Transactions in block: " + pendingTransactions.size());
+
+            // Create the block template with:
+            // - Index: next position in chain (current size)
+            // - Previous hash: hash of the latest block (creates the "chain" link)
+            // - Transactions: copy of all pending transactions
+            template = createBlockTemplate();
+            parent = getLatestBlock();
+        }
+
+        // Seal the block - for proof-of-work, mine it (outside the lock, so
+        // readers and other writers are not held up while we search)
+        Block newBlock = consensus.seal(template, parent);
+
+        // Add the successfully mined block to the blockchain
+        // (this also removes its transactions from the pending pool)
+        BlockStatus status = addBlock(newBlock);
+        if (recorder != null) {
+            // Only a connected block changed the chain; a replay must not expect one otherwise
+            recorder.mined(startedNanos, status == BlockStatus.CONNECTED ? newBlock : null);
+        }
+
+        if (status == BlockStatus.CONNECTED) {
+            System.out.println("[SUCCESS] Block #" + newBlock.getIndex() + " added to chain!");
+        } else {
+            System.out.println("[REJECTED] Mined block #" + newBlock.getIndex() + " was not added to the chain: "
+                    + status);
+        }
+        System.out.println("=".repeat(60) + "\n");
+        return status;
+    }
+
+    /**
+     * Mine pending transactions in the background
+     *
+     * Same as minePendingTransactions, but the proof-of-work runs on the
+     * miner's threads and this method returns at once. While the job runs
+     * it is kept up to date:
+     * - a new transaction arrives -> the job is marked stale, and the
+     *   template is rebuilt to include it at the miner's next check.
+     *   Rebuilding copies the whole pending pool, so a burst of
+     *   transactions costs one rebuild per check, not one per transaction
+     * - another block becomes the tip -> the template is rebuilt on top of
+     *   it at once (or the job is cancelled if nothing is left to mine)
+     *
+     * The mined block is added to the chain (on the miner thread) before
+     * the returned future completes. Cancelling the future stops mining.
+     * Only one background job runs at a time; starting another one
+     * cancels the previous job.
+     *
+     * @param miner Threads to mine on
+     * @return The mined block, once it is the chain's tip; fails with
+     *         CancellationException if cancelled, or IllegalStateException
+     *         if the chain did not connect the block (e.g. a rival block
+     *         took the tip just before it was found: SIDE_CHAIN)
      */
-    public void minePendingTransactions() {
-        // Check if there are any transactions to mine
+    public synchronized CompletableFuture<Block> minePendingTransactionsAsync(Miner miner) {
+        if (!(consensus instanceof ProofOfWork)) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Background mining needs proof-of-work, not " + consensus.getName()));
+        }
         if (pendingTransactions.isEmpty()) {
             System.out.println("[WARNING] No pending transactions to mine!");
+            return CompletableFuture.failedFuture(new IllegalStateException("No pending transactions"));
+        }
+        if (miningJob != null) {
+            miningJob.cancel();
+        }
+
+        MiningJob job = miner.submit(createBlockTemplate(), getNextBits());
+        job.setRefresher(() -> rebuildMiningJob(job));
+        miningJob = job;
+        CompletableFuture<Block> added = job.result().thenApply(block -> {
+            BlockStatus status = addBlock(block);
+            if (status != BlockStatus.CONNECTED) {
+                throw new IllegalStateException("Mined block #" + block.getIndex() + " was not connected: " + status);
+            }
+            return block;
+        });
+        // Cancelling what we hand out must also stop the threads
+        added.whenComplete((block, error) -> job.cancel());
+        return added;
+    }
+
+    /**
+     * Template with every pending transaction, on top of the current tip
+     *
+     * What minePendingTransactions seals; also handed out to outside
+     * miners (see pool.MiningPool), together with getNextBits().
+     */
+    public synchronized BlockTemplate createBlockTemplate() {
+        ChainSnapshot current = chain;
+        return new BlockTemplate(current.size(), current.tip().getHash(), clock.millis(),
+                new ArrayList<>(pendingTransactions.values()));
+    }
+
+    // The tip moved: put the background job on top of it right away
+    private void refreshMiningJob() {
+        if (miningJob != null) {
+            rebuildMiningJob(miningJob);
+        }
+    }
+
+    // New transactions: the job picks them up at its next check (see rebuildMiningJob)
+    private void markMiningJobStale() {
+        if (miningJob != null) {
+            miningJob.markStale();
+        }
+    }
+
+    // Bring a background job in step with the tip and the pending pool
+    private synchronized void rebuildMiningJob(MiningJob job) {
+        if (job != miningJob || job.isDone()) {
+            if (job == miningJob) {
+                miningJob = null;
+            }
+            return;
+        }
+        if (pendingTransactions.isEmpty()) {
+            job.cancel();
+            miningJob = null;
             return;
         }
+        job.updateTemplate(createBlockTemplate(), getNextBits());
+    }
 
-        // Print mining header
-        System.out.println("\n" + "=".repeat(60));
-        System.out.println("MINING NEW BLOCK");
-        System.out.println("=".repeat(60));
-        System.out.println("[INFO] Transactions in block: " + pendingTransactions.size());
-
-        // Create new block with:
-        // - Index: next position in chain (current size)
-        // - Previous hash: hash of the latest block (creates the "chain" link)
-        // - Transactions: copy of all pending transactions
-        Block newBlock = new Block(
-                chain.size(),                              // Index of new block
-                getLatestBlock().getHash(),                // Link to previous block
-                new ArrayList<>(pendingTransactions)       // Copy of pending transactions
-        );
-
-        // Perform proof-of-work mining
-        // This finds a nonce that makes the block hash start with required zeros
-        newBlock.mineBlock(difficulty);
+    /**
+     * Add a block mined here or elsewhere (e.g. received from a peer)
+     *
+     * The block is checked (untampered hash, valid proof-of-work, index one
+     * above its parent) and placed in the block tree:
+     * - Parent unknown: kept as an orphan until the parent arrives
+     * - Parent known: attached; if its branch now has more cumulative work
+     *   than the active chain, the active chain switches to it
+     *
+     * Switching only touches the blocks between the fork point and the two
+     * tips, so its cost is proportional to the reorganization depth, not
+     * the chain length. The pending pool is updated along the way:
+     * transactions of abandoned blocks return to it, transactions of newly
+     * connected blocks leave it.
+     *
+     * The block's signatures are verified first, in parallel and without
+     * holding the lock (transactions already verified for the pending pool
+     * are not checked again). A block with a bad signature is INVALID.
+     * Its Bloom filter is rebuilt there too when the chain is configured
+     * with a non-default rate (see setFilterFalsePositiveRate).
+     *
+     * @param block The block to add
+     * @return What happened to the block
+     */
+    public BlockStatus addBlock(Block block) {
+        // Not under the lock yet, so only the (concurrent) tree nodes are
+        // consulted; a known orphan is verified again, from the cache
+        if (!block.isPruned() && blockTree.get(block.getHash()) == null) {
+            int invalid = verifier.firstInvalid(block.getTransactions());
+            if (invalid >= 0) {
+                System.out.println("[REJECTED] Block #" + block.getIndex() + ": invalid signature on "
+                        + block.getTransactions().get(invalid));
+                return BlockStatus.INVALID;
+            }
+            double rate = filterFalsePositiveRate;
+            if (rate != BloomFilter.DEFAULT_FALSE_POSITIVE_RATE) {
+                block = block.withFilterRate(rate);
+            }
+        }
+        return addVerifiedBlock(block);
+    }
 
-        // Add the successfully mined block to the blockchain
-        chain.add(newBlock);
+    private synchronized BlockStatus addVerifiedBlock(Block block) {
+        if (blockTree.contains(block.getHash())) {
+            return BlockStatus.DUPLICATE;
+        }
+        if (!block.getHash().equals(block.calculateHash()) || !consensus.checkSeal(block)) {
+            return BlockStatus.INVALID;
+        }
 
-        // Clear pending transactions since they're now in a block
-        pendingTransactions.clear();
+        BlockTree.Node parent = blockTree.get(block.getPreviousHash());
+        if (parent == null) {
+            blockTree.addOrphan(block);
+            return BlockStatus.ORPHAN;
+        }
 
-        System.out.println("[SUCCESS] Block #" + newBlock.getIndex() + " added to chain!");
-        System.out.println("=".repeat(60) + "\n");
+        BlockStatus status = attach(block, parent);
+
+        // Blocks that were waiting for this one can now be attached too
+        List<Block> waiting = new ArrayList<>(blockTree.takeOrphansOf(block.getHash()));
+        while (!waiting.isEmpty()) {
+            Block orphan = waiting.remove(waiting.size() - 1);
+            BlockTree.Node orphanParent = blockTree.get(orphan.getPreviousHash());
+            if (attach(orphan, orphanParent) == BlockStatus.CONNECTED) {
+                status = BlockStatus.CONNECTED;
+            }
+            waiting.addAll(blockTree.takeOrphansOf(orphan.getHash()));
+        }
+        if (status == BlockStatus.CONNECTED) {
+            refreshMiningJob();
+            pruneIfDue();
+        }
+        return status;
+    }
+
+    // Insert a validated block under its parent and apply fork choice
+    private BlockStatus attach(Block block, BlockTree.Node parent) {
+        if (block.getIndex() != parent.height + 1 || !consensus.verifySeal(block, parent.block)) {
+            return BlockStatus.INVALID;
+        }
+        if (forksBelowPrunedHeight(parent)) {
+            System.out.println("[PRUNE] Rejected block #" + block.getIndex()
+                    + ": its branch forks below pruned height " + prunedHeight);
+            return BlockStatus.INVALID;
+        }
+        BlockTree.Node node = blockTree.add(block, parent, blockWork(block));
+        BlockTree.Node tip = blockTree.get(getLatestBlock().getHash());
+        if (node.cumulativeWork.compareTo(tip.cumulativeWork) <= 0) {
+            return BlockStatus.SIDE_CHAIN;
+        }
+        switchActiveChain(node);
+        return BlockStatus.CONNECTED;
+    }
+
+    /**
+     * Make the branch ending in newTip the active chain
+     *
+     * 1. Walk back from newTip until reaching a block on the active chain
+     *    (the fork point)
+     * 2. Disconnect active blocks above the fork point, tip first
+     * 3. Connect the new branch from the fork point upwards
+     * 4. Publish the result as one new snapshot, so readers see either the
+     *    old chain or the new one - never a half-switched chain
+     */
+    private void switchActiveChain(BlockTree.Node newTip) {
+        ChainSnapshot active = chain;
+        List<Block> branch = new ArrayList<>();
+        BlockTree.Node cursor = newTip;
+        while (!active.contains(cursor.block)) {
+            branch.add(cursor.block);
+            cursor = cursor.parent;
+        }
+        int forkHeight = cursor.height;
+
+        int depth = active.height() - forkHeight;
+        if (depth > 0) {
+            System.out.println("[REORG] Switching branches at height " + forkHeight
+                    + ": " + depth + " block(s) out, " + branch.size() + " in");
+        }
+        while (active.height() > forkHeight) {
+            active = disconnectTip(active);
+        }
+        for (int i = branch.size() - 1; i >= 0; i--) {
+            active = connectTip(active, branch.get(i));
+        }
+        ChainSnapshot previous = chain;
+        chain = active;
+        for (ChainListener listener : listeners) {
+            listener.activeChainChanged(previous, active, forkHeight);
+        }
+    }
+
+    private ChainSnapshot connectTip(ChainSnapshot active, Block block) {
+        MempoolDrainEvent event = new MempoolDrainEvent();
+        event.begin();
+        int removed = 0;
+        for (Transaction transaction : block.getTransactions()) {
+            if (pendingTransactions.remove(transaction.getTransactionId()) != null) {
+                removed++;
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.blockIndex = block.getIndex();
+            event.removed = removed;
+            event.remaining = pendingTransactions.size();
+            event.commit();
+        }
+        for (ChainListener listener : listeners) {
+            listener.blockConnected(block);
+        }
+        return active.append(block);
+    }
+
+    private ChainSnapshot disconnectTip(ChainSnapshot active) {
+        Block block = active.tip();
+        for (Transaction transaction : block.getTransactions()) {
+            pendingTransactions.put(transaction.getTransactionId(), transaction);
+        }
+        for (ChainListener listener : listeners) {
+            listener.blockDisconnected(block);
+        }
+        return active.removeLast();
+    }
+
+    // Switching to the branch under parent would disconnect pruned blocks
+    private boolean forksBelowPrunedHeight(BlockTree.Node parent) {
+        if (prunedHeight < 0) {
+            return false;
+        }
+        ChainSnapshot active = chain;
+        BlockTree.Node cursor = parent;
+        while (cursor.height >= prunedHeight && !active.contains(cursor.block)) {
+            cursor = cursor.parent;
+        }
+        return cursor.height < prunedHeight;
+    }
+
+    // ==================== PRUNING ====================
+
+    /**
+     * Turn this into a pruning node: drop transactions of old blocks
+     *
+     * Whenever checkpointInterval more blocks are buried deeper than
+     * keepDepth:
+     * 1. Checkpoint the state (balances, transaction count) as of the block
+     *    keepDepth below the tip - see getLatestCheckpoint
+     * 2. Tell listeners (blockPruned), so indexes can drop their entries
+     * 3. Swap every block up to that height for its header-only copy
+     *    (Block.withoutTransactions) - in the active chain and block tree
+     * 4. Forget side branches that fork that low
+     *
+     * Headers and Merkle roots stay, so the whole chain still validates and
+     * new blocks are checked exactly as before. The price: blocks at or
+     * below the pruned height can no longer be disconnected, so a branch
+     * that forks there is rejected; their transactions are not served to
+     * peers or found by getIndex(); and balances come from getState().
+     *
+     * Memory then stays around (keepDepth + checkpointInterval) full blocks
+     * plus one header per block, however long the node runs.
+     *
+     * @param keepDepth Most recent blocks whose transactions are always kept
+     * @param checkpointInterval Blocks between pruning rounds (and checkpoints)
+     */
+    public synchronized void enablePruning(int keepDepth, int checkpointInterval) {
+        if (keepDepth < 1 || checkpointInterval < 1) {
+            throw new IllegalArgumentException("keepDepth and checkpointInterval must be positive");
+        }
+        if (pruneDepth > 0) {
+            throw new IllegalStateException("Pruning is already enabled");
+        }
+        // Balances must be collected before any transactions are dropped
+        getState();
+        this.pruneDepth = keepDepth;
+        this.checkpointInterval = checkpointInterval;
+        System.out.println("[INFO] Pruning enabled: keeping transactions of the last " + keepDepth
+                + " blocks, checkpoint every " + checkpointInterval + " blocks");
+        pruneIfDue();
+    }
+
+    private void pruneIfDue() {
+        if (pruneDepth == 0) {
+            return;
+        }
+        ChainSnapshot active = chain;
+        int target = active.height() - pruneDepth;
+        if (target - prunedHeight < checkpointInterval) {
+            return;
+        }
+
+        StateSnapshot state = this.state.snapshotAt(active, target);
+        int from = prunedHeight + 1;
+        for (int height = from; height <= target; height++) {
+            for (ChainListener listener : listeners) {
+                listener.blockPruned(active.get(height));
+            }
+        }
+        ChainSnapshot pruned = active.replaceRange(from, target + 1, Block::withoutTransactions);
+        for (int height = from; height <= target; height++) {
+            Block block = pruned.get(height);
+            blockTree.get(block.getHash()).block = block;
+        }
+        chain = pruned;
+        prunedHeight = target;
+        checkpoint = state;
+
+        int sideBlocks = blockTree.size() > pruned.size() ? blockTree.removeSideBlocksUpTo(target, pruned) : 0;
+        System.out.println("[PRUNE] Dropped transactions of blocks #" + from + "-#" + target
+                + (sideBlocks > 0 ? " and " + sideBlocks + " side-branch block(s)" : "")
+                + "; checkpoint " + state);
+    }
+
+    /**
+     * Keep a copy of the active chain outside the Java heap
+     *
+     * Every block, from genesis on, goes into an OffHeapBlockStore as it is
+     * connected (and out again if a reorganization disconnects it). With
+     * pruning enabled too, the heap only holds recent blocks and headers
+     * while full blocks stay available off-heap (see getFullBlock) - e.g.
+     * for peers that sync from this node.
+     *
+     * @param file Path prefix for memory-mapped files, or null for direct memory
+     * @return The store, for reading blocks through views
+     */
+    public synchronized OffHeapBlockStore enableOffHeapStorage(Path file) {
+        if (store != null) {
+            throw new IllegalStateException("Off-heap storage is already enabled");
+        }
+        OffHeapBlockStore created = new OffHeapBlockStore(file);
+        // Pruned blocks are stored as headers only: their bodies are already gone
+        addChainListener(created, 0);
+        store = created;
+        System.out.println("[INFO] Off-heap storage enabled: " + created);
+        return created;
+    }
+
+    /**
+     * Start recording this chain's workload to a file
+     *
+     * Every addTransaction, addTransactions and minePendingTransactions
+     * call is logged with its time until stopRecording (see
+     * WorkloadRecorder); WorkloadReplayer runs the log again. Start on a
+     * new chain: a replay begins from the genesis block.
+     *
+     * @param file Log to write (replaced if it exists)
+     */
+    public synchronized WorkloadRecorder startRecording(Path file) throws IOException {
+        if (recorder != null) {
+            throw new IllegalStateException("Already recording to " + recorder.getFile());
+        }
+        recorder = new WorkloadRecorder(file, network == null ? null : network.getName(), chain.get(0).getHash(),
+                verifier.isRequireSignatures());
+        System.out.println("[INFO] Recording workload to " + file);
+        return recorder;
+    }
+
+    /**
+     * Stop recording and finish the log (no-op if not recording)
+     */
+    public synchronized void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        recorder.close();
+        System.out.println("[INFO] Workload recorded: " + recorder.getEventCount() + " events in "
+                + recorder.getFile());
+        recorder = null;
+    }
+
+    /**
+     * Source of the timestamps of blocks mined here
+     *
+     * The system clock by default. Replaced by WorkloadReplayer with one
+     * that returns the recorded timestamps, so the same transactions
+     * mine into blocks with the same hashes.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * The off-heap copy of the chain, or null if not enabled
+     */
+    public OffHeapBlockStore getOffHeapStore() {
+        return store;
+    }
+
+    /**
+     * Block by hash with its transactions
+     *
+     * Same as getBlockByHash, except that a pruned block on the active
+     * chain is rebuilt from the off-heap store when there is one.
+     *
+     * @return The block, or null if unknown or if its transactions are gone
+     */
+    public Block getFullBlock(String hash) {
+        Block block = getBlockByHash(hash);
+        if (block == null || !block.isPruned()) {
+            return block;
+        }
+        OffHeapBlockStore current = store;
+        if (current == null || block.getIndex() >= current.size()) {
+            return null;
+        }
+        OffHeapBlockStore.BlockView stored = current.getBlock(block.getIndex());
+        return stored.isPruned() || !stored.getHash().equals(hash) ? null : stored.toBlock();
+    }
+
+    /**
+     * Lowest height from which every block of the active chain can still
+     * be had in full (from the heap, or from the off-heap store)
+     */
+    public int getFirstFullBlockHeight() {
+        OffHeapBlockStore current = store;
+        return (current != null ? current.getLastPrunedHeight() : prunedHeight) + 1;
+    }
+
+    /**
+     * Highest block whose transactions were dropped (-1 if none)
+     */
+    public int getPrunedHeight() {
+        return prunedHeight;
+    }
+
+    /**
+     * State as of getPrunedHeight(), or null if nothing was pruned yet
+     */
+    public StateSnapshot getLatestCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Check whether a hash belongs to a block on the active chain
+     * (as opposed to a side branch or an unknown block)
+     */
+    public boolean isInActiveChain(String hash) {
+        BlockTree.Node node = blockTree.get(hash);
+        return node != null && chain.contains(node.block);
+    }
+
+    // How much a block counts for fork choice (total work, for proof-of-work)
+    private BigInteger blockWork(Block block) {
+        return consensus.weight(block);
+    }
+
+    /**
+     * Compact target the next block on the active chain must meet
+     */
+    public int getNextBits() {
+        return consensus.nextBits(getLatestBlock());
+    }
+
+    /**
+     * TEST-ONLY: overwrite a block of the active chain without any checks
+     *
+     * Blocks are immutable, so simulating an attacker who edits stored data
+     * means swapping in a forged block (see
+     * Block.withTamperedTransactionForTesting). Used by the tampering demo
+     * to show that isChainValid catches it; real code never calls this.
+     *
+     * @param index Height of the block to replace
+     * @param forged The replacement
+     */
+    public synchronized void replaceBlockForTesting(int index, Block forged) {
+        chain = chain.replace(index, forged);
+    }
+
+    /**
+     * Register a listener for active-chain changes
+     */
+    public void addChainListener(ChainListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChainListener(ChainListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Register a listener that first catches up on blocks already in the chain
+     *
+     * The active blocks from fromHeight up to the tip are passed to
+     * blockConnected, then the listener is registered - all under the chain
+     * lock, so it sees every block exactly once and in order. Useful for
+     * indexes and streams that start from an older height.
+     *
+     * @param listener The listener to register
+     * @param fromHeight First height to replay (0 = from genesis)
+     */
+    public synchronized void addChainListener(ChainListener listener, int fromHeight) {
+        ChainSnapshot current = chain;
+        for (int height = Math.max(0, fromHeight); height < current.size(); height++) {
+            listener.blockConnected(current.get(height));
+        }
+        listeners.add(listener);
     }
 
     /**
      * Validate blockchain integrity
      *
-     * Checks three critical properties for each block:
+     * Checks four critical properties for each block:
      * 1. Hash integrity - hash matches the calculated hash
      * 2. Chain linkage - previous hash matches actual previous block's hash
-     * 3. Proof-of-work - hash meets difficulty requirement
+     * 3. Proof-of-work - hash meets the target recorded in the block, and
+     *    that target is the one the retarget schedule expects
+     * 4. Signatures - every transaction passes the SignatureVerifier
+     *    (cached results are reused, so this is cheap for verified blocks)
      *
      * If any block fails validation, the entire chain is invalid
      *
+     * Works on a snapshot, so it can run while blocks are being added.
+     *
      * @return true if blockchain is valid, false otherwise
      */
     public boolean isChainValid() {
+        return isChainValid(chain);
+    }
+
+    private boolean isChainValid(ChainSnapshot chain) {
         System.out.println("\n" + "=".repeat(60));
         System.out.println("BLOCKCHAIN VALIDATION");
         System.out.println("=".repeat(60));
@@ -175,31 +1077,23 @@ public class Blockchain {
 
             System.out.println("[CHECK] Validating Block #" + i + "...");
 
-            // Validation Check 1: Hash Integrity
-            // Recalculate the hash and compare with stored hash
-            // If they don't match, the block data has been tampered with
-            if (!currentBlock.getHash().equals(currentBlock.calculateHash())) {
-                System.out.println("  ❌ Current hash is invalid!");
-                return false;
-            }
-
-            // Validation Check 2: Chain Linkage
-            // Verify that the current block's previousHash matches the actual previous block's hash
-            // This ensures the chain hasn't been broken or reordered
-            if (!currentBlock.getPreviousHash().equals(previousBlock.getHash())) {
-                System.out.println("  ❌ Previous hash doesn't match!");
-                return false;
+            // Timed for Flight Recorder, one event per block (no-op unless recording)
+            BlockValidationEvent event = new BlockValidationEvent();
+            event.begin();
+            String failure = validateBlock(currentBlock, previousBlock);
+            event.end();
+            if (event.shouldCommit()) {
+                event.blockIndex = i;
+                event.transactionCount = currentBlock.getTransactions().size();
+                event.valid = failure == null;
+                event.failure = failure;
+                event.commit();
             }
 
-            // Validation Check 3: Proof-of-Work
-            // Create the target string (e.g., "0000" for difficulty 4)
-            // Verify the hash starts with the required number of zeros
-            String target = new String(new char[difficulty]).replace('\0', '0');
-            if (!currentBlock.getHash().substring(0, difficulty).equals(target)) {
-                System.out.println("  ❌ Proof-of-work not satisfied!");
+            if (failure != null) {
+                System.out.println("  ❌ " + failure);
                 return false;
             }
-
             System.out.println("  ✓ Block #" + i + " is valid!");
         }
 
@@ -208,6 +1102,39 @@ public class Blockchain {
         return true;
     }
 
+    // The checks isChainValid runs on one block; null if it passes, else what failed
+    private String validateBlock(Block currentBlock, Block previousBlock) {
+        // Validation Check 1: Hash Integrity
+        // Recalculate the hash and compare with stored hash
+        // If they don't match, the block data has been tampered with
+        if (!currentBlock.getHash().equals(currentBlock.calculateHash())) {
+            return "Current hash is invalid!";
+        }
+
+        // Validation Check 2: Chain Linkage
+        // Verify that the current block's previousHash matches the actual previous block's hash
+        // This ensures the chain hasn't been broken or reordered
+        if (!currentBlock.getPreviousHash().equals(previousBlock.getHash())) {
+            return "Previous hash doesn't match!";
+        }
+
+        // Validation Check 3: Seal
+        // For proof-of-work: the hash meets the block's own target, which
+        // in turn must be what the retarget schedule prescribes
+        // For proof-of-stake: the block names the right proposer for its round
+        if (!consensus.verifySeal(currentBlock, previousBlock)) {
+            return "Seal not valid (" + consensus.getName() + ")!";
+        }
+
+        // Validation Check 4: Signatures
+        // Every signed transaction was signed by the owner of its sender
+        // address (pruned blocks have no transactions left to check)
+        if (!verifier.allValid(currentBlock.getTransactions())) {
+            return "Invalid transaction signature!";
+        }
+        return null;
+    }
+
     /**
      * Export blockchain to JSON file
      *
@@ -219,29 +1146,44 @@ public class Blockchain {
      * @param filename The path/name of the output JSON file
      */
     public void exportToJSON(String filename) {
-        try {
+        ExportEvent event = new ExportEvent();
+        event.begin();
+        boolean succeeded = false;
+
+        // One snapshot for everything, so the fields agree with each other
+        ChainSnapshot snapshot = this.chain;
+
+        // Create file writer for output; closed even if writing fails
+        try (FileWriter writer = new FileWriter(filename)) {
             // Create Gson object with pretty printing for readable JSON
             Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
-            // Create file writer for output
-            FileWriter writer = new FileWriter(filename);
-
             // Create wrapper object containing all blockchain data
             BlockchainData data = new BlockchainData();
-            data.chain = this.chain;              // All blocks
-            data.difficulty = this.difficulty;     // Mining difficulty
-            data.chainLength = this.chain.size();  // Number of blocks
-            data.isValid = this.isChainValid();    // Validation status
+            data.chain = new ArrayList<>(snapshot.asList()); // All blocks
+            data.difficulty = this.difficulty;              // Mining difficulty
+            data.chainLength = snapshot.size();             // Number of blocks
+            data.isValid = isChainValid(snapshot);          // Validation status
 
             // Convert to JSON and write to file
             gson.toJson(data, writer);
-            writer.close();
-
-            System.out.println("[SUCCESS] Blockchain exported to: " + filename);
+            succeeded = true;
         } catch (IOException e) {
             System.out.println("[ERROR] Failed to export blockchain");
             e.printStackTrace();
         }
+        if (succeeded) {
+            System.out.println("[SUCCESS] Blockchain exported to: " + filename);
+        }
+
+        // Report the export to Flight Recorder (nothing happens unless recording)
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = filename;
+            event.blocks = snapshot.size();
+            event.succeeded = succeeded;
+            event.commit();
+        }
     }
 
     /**
@@ -251,11 +1193,17 @@ public class Blockchain {
      * including statistics and details of each block
      */
     public void printChain() {
+        ChainSnapshot chain = this.chain;
         System.out.println("\n" + "=".repeat(60));
         System.out.println("BLOCKCHAIN SUMMARY");
         System.out.println("=".repeat(60));
         System.out.println("Total Blocks: " + chain.size());
-        System.out.println("Difficulty: " + difficulty);
+        System.out.println("Consensus: " + consensus.getName());
+        if (consensus instanceof ProofOfWork) {
+            System.out.println("Difficulty: " + difficulty);
+            System.out.printf("Next Target: %08x (%.2fx genesis)%n", getNextBits(),
+                    Target.relativeDifficulty(getNextBits()) / Target.relativeDifficulty(chain.get(0).getBits()));
+        }
         System.out.println();
 
         // Iterate through all blocks and print details
@@ -268,8 +1216,107 @@ public class Blockchain {
     }
 
     // Getter methods for accessing blockchain data
-    public List<Block> getChain() { return chain; }
+    // getChain() is an unmodifiable view of the current snapshot
+    public List<Block> getChain() { return chain.asList(); }
     public int getDifficulty() { return difficulty; }
+    public ConsensusEngine getConsensus() { return consensus; }
+    public SignatureVerifier getSignatureVerifier() { return verifier; }
+
+    /**
+     * Whether unsigned transactions are rejected (default: true); see
+     * SignatureVerifier.setRequireSignatures. Demos and tests that use
+     * plain Transaction(sender, recipient, amount) objects opt out with false.
+     */
+    public void setRequireSignatures(boolean requireSignatures) {
+        verifier.setRequireSignatures(requireSignatures);
+    }
+
+    /**
+     * False-positive rate of the Bloom filters built for new blocks
+     * (see Block.getFilter and ChainSnapshot.getHistory)
+     *
+     * Lower rates let scans skip more blocks, at more bits per block.
+     * Blocks already in the chain keep their filters.
+     *
+     * @param rate Between 0 and 1 exclusive (default 0.01)
+     */
+    public void setFilterFalsePositiveRate(double rate) {
+        if (!(rate > 0 && rate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + rate);
+        }
+        this.filterFalsePositiveRate = rate;
+    }
+    public NetworkParams getNetwork() { return network; }
+    public synchronized List<Transaction> getPendingTransactions() { return new ArrayList<>(pendingTransactions.values()); }
+    public synchronized int getPendingCount() { return pendingTransactions.size(); }
+    public synchronized Transaction getPendingTransaction(String transactionId) { return pendingTransactions.get(transactionId); }
+    public synchronized int getOrphanCount() { return blockTree.orphanCount(); }
+    public int getKnownBlockCount() { return blockTree.size(); }
+
+    /**
+     * Look up any known block (active chain or side branch) by hash
+     *
+     * @return The block, or null if it is unknown or still an orphan
+     */
+    public Block getBlockByHash(String hash) {
+        BlockTree.Node node = blockTree.get(hash);
+        return node == null ? null : node.block;
+    }
+
+    /**
+     * Index of the active chain by transaction ID and address
+     *
+     * Built from the whole chain on first use, then kept up to date as
+     * blocks are connected and disconnected. Shared by all callers.
+     */
+    public synchronized ChainIndex getIndex() {
+        if (index == null) {
+            index = new ChainIndex(this);
+        }
+        return index;
+    }
+
+    // The index if someone already built it, without building it
+    synchronized ChainIndex getIndexIfBuilt() {
+        return index;
+    }
+
+    /**
+     * Balances of the active chain
+     *
+     * Built from the whole chain on first use, then kept up to date as
+     * blocks are connected and disconnected. Shared by all callers.
+     */
+    public synchronized ChainState getState() {
+        if (state == null) {
+            if (prunedHeight >= 0) {
+                throw new IllegalStateException("Transactions up to #" + prunedHeight + " are pruned");
+            }
+            state = new ChainState(this);
+        }
+        return state;
+    }
+
+    /**
+     * Wait for a transaction to be mined and buried under more blocks,
+     * without polling the chain
+     *
+     * @param transactionId ID returned by Transaction.getTransactionId()
+     * @param confirmations Blocks required, counting the one that contains it
+     * @param timeout How long to wait before failing with a TimeoutException
+     * @return Future with the transaction's location; cancel it to stop waiting
+     */
+    public CompletableFuture<ChainIndex.Location> awaitConfirmations(String transactionId, int confirmations,
+                                                                     Duration timeout) {
+        return getIndex().awaitConfirmations(transactionId, confirmations, timeout);
+    }
+
+    /**
+     * Total proof-of-work of the active chain
+     */
+    public BigInteger getCumulativeWork() {
+        return blockTree.get(getLatestBlock().getHash()).cumulativeWork;
+    }
 
     /**
      * Inner class for JSON export structure
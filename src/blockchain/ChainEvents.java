@@ -0,0 +1,318 @@
+package blockchain;
+
+import models.Block;
+import models.Transaction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ChainEvents - Push streams of chain activity (java.util.concurrent.Flow)
+ *
+ * Instead of polling getChain().size(), subscribe:
+ *
+ *   events.blocks().subscribe(subscriber);          // blocks from now on
+ *   events.blocksFrom(120).subscribe(subscriber);   // catch up from height 120
+ *   events.transactions().subscribe(subscriber);    // accepted into the pool
+ *   events.reorgs().subscribe(subscriber);          // branch switches
+ *
+ * Every subscriber gets exactly as many items as it request()s, on a
+ * delivery thread (never the miner's). The chain itself never waits for a
+ * subscriber, and a slow one cannot make memory grow without bound:
+ *
+ * - Blocks are not buffered at all. Each subscription is a cursor (the
+ *   next height to deliver); when it has demand it reads the next block
+ *   straight from the current chain snapshot. A subscriber that falls far
+ *   behind - or resumes after a disconnect - simply catches up from the
+ *   chain. If a reorganization replaces blocks it has already received,
+ *   the cursor moves back to the fork point and the new branch follows,
+ *   so a block whose height is not above the previous one means "replaced".
+ *   Blocks pruned from memory are read back in full from off-heap storage
+ *   (Blockchain.getFullBlock); only if their body is gone everywhere does
+ *   the subscriber get the header-only block (isPruned() is true). If the
+ *   fork point itself can no longer be found - the replaced branch was
+ *   pruned away - the subscriber gets onError and should resubscribe
+ *   with blocksFrom.
+ * - Transactions and reorgs are not stored in the chain, so each
+ *   subscriber has a bounded buffer. When it is full, new items for that
+ *   subscriber are dropped (and counted) rather than blocking the chain.
+ */
+public final class ChainEvents implements ChainListener, AutoCloseable {
+
+    // Per-subscriber buffer for transactions and reorgs
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final Blockchain blockchain;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    private final Set<BlockSubscription> blockSubscriptions = ConcurrentHashMap.newKeySet();
+    private final SubmissionPublisher<Transaction> transactions;
+    private final SubmissionPublisher<ChainReorg> reorgs;
+    private final LongAdder droppedTransactions = new LongAdder();
+    private final LongAdder droppedReorgs = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * Publish events of a chain, delivering on threads of our own
+     */
+    public ChainEvents(Blockchain blockchain) {
+        this(blockchain, null, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param blockchain Chain to follow
+     * @param executor Runs deliveries to subscribers; null for threads of our own
+     * @param bufferSize Buffered transactions / reorgs per subscriber
+     */
+    public ChainEvents(Blockchain blockchain, Executor executor, int bufferSize) {
+        this.blockchain = blockchain;
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ownedExecutor = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "chain-events-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor = ownedExecutor;
+        } else {
+            ownedExecutor = null;
+        }
+        this.executor = executor;
+        this.transactions = new SubmissionPublisher<>(executor, bufferSize);
+        this.reorgs = new SubmissionPublisher<>(executor, bufferSize);
+        blockchain.addChainListener(this);
+    }
+
+    /**
+     * Blocks added to the active chain from now on
+     */
+    public Flow.Publisher<Block> blocks() {
+        return subscriber -> subscribeBlocks(subscriber, -1);
+    }
+
+    /**
+     * Every active block from a height on: the ones already in the chain
+     * first, then new ones as they arrive
+     *
+     * @param height First height to deliver (e.g. last one received + 1)
+     */
+    public Flow.Publisher<Block> blocksFrom(int height) {
+        if (height < 0) {
+            throw new IllegalArgumentException("height must not be negative");
+        }
+        return subscriber -> subscribeBlocks(subscriber, height);
+    }
+
+    /**
+     * Transactions accepted into the pending pool from now on
+     */
+    public Flow.Publisher<Transaction> transactions() {
+        return transactions::subscribe;
+    }
+
+    /**
+     * Switches of the active chain to another branch
+     */
+    public Flow.Publisher<ChainReorg> reorgs() {
+        return reorgs::subscribe;
+    }
+
+    public long getDroppedTransactionCount() {
+        return droppedTransactions.sum();
+    }
+
+    public long getDroppedReorgCount() {
+        return droppedReorgs.sum();
+    }
+
+    /**
+     * Stop publishing; every subscriber receives onComplete
+     */
+    @Override
+    public void close() {
+        closed = true;
+        blockchain.removeChainListener(this);
+        for (BlockSubscription subscription : blockSubscriptions) {
+            subscription.signal();
+        }
+        transactions.close();
+        reorgs.close();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    // ==================== CHAIN LISTENER ====================
+    // Called by the Blockchain under its lock: hand off, never wait
+
+    @Override
+    public void activeChainChanged(ChainSnapshot previous, ChainSnapshot current, int forkHeight) {
+        for (BlockSubscription subscription : blockSubscriptions) {
+            subscription.signal();
+        }
+        if (forkHeight < previous.height() && reorgs.hasSubscribers()) {
+            List<Block> disconnected = new ArrayList<>();
+            for (int height = previous.height(); height > forkHeight; height--) {
+                disconnected.add(previous.get(height));
+            }
+            List<Block> connected = new ArrayList<>(current.asList().subList(forkHeight + 1, current.size()));
+            reorgs.offer(new ChainReorg(forkHeight, disconnected, connected), (subscriber, reorg) -> {
+                droppedReorgs.increment();
+                return false;
+            });
+        }
+    }
+
+    @Override
+    public void transactionAdded(Transaction transaction) {
+        if (transactions.hasSubscribers()) {
+            transactions.offer(transaction, (subscriber, tx) -> {
+                droppedTransactions.increment();
+                return false;
+            });
+        }
+    }
+
+    // ==================== BLOCK SUBSCRIPTIONS ====================
+
+    private void subscribeBlocks(Flow.Subscriber<? super Block> subscriber, int fromHeight) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        ChainSnapshot snapshot = blockchain.snapshot();
+        int start = fromHeight < 0 ? snapshot.size() : fromHeight;
+        // Remember the block below the start, so a reorg before the first
+        // delivery is noticed too
+        Block below = start > 0 && start <= snapshot.size() ? snapshot.get(start - 1) : null;
+        BlockSubscription subscription = new BlockSubscription(subscriber, start, below);
+        blockSubscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * A cursor over the active chain, driven by the subscriber's demand
+     *
+     * signal() schedules a drain; the wip counter makes sure only one drain
+     * runs at a time and that a signal arriving during a drain is not lost.
+     */
+    private final class BlockSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Block> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        // Only touched inside drain()
+        private int nextHeight;
+        private Block last;
+
+        BlockSubscription(Flow.Subscriber<? super Block> subscriber, int nextHeight, Block last) {
+            this.subscriber = subscriber;
+            this.nextHeight = nextHeight;
+            this.last = last;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("request(" + n + "): demand must be positive");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            blockSubscriptions.remove(this);
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!cancelled) {
+                    deliver();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() {
+            while (!cancelled) {
+                if (error != null) {
+                    cancel();
+                    subscriber.onError(error);
+                    return;
+                }
+                if (closed) {
+                    cancel();
+                    subscriber.onComplete();
+                    return;
+                }
+                ChainSnapshot snapshot = blockchain.snapshot();
+                if (last != null && !snapshot.contains(last)) {
+                    // Blocks we delivered were replaced: continue from the fork point
+                    Block cursor = last;
+                    while (cursor != null && !snapshot.contains(cursor)) {
+                        cursor = blockchain.getBlockByHash(cursor.getPreviousHash());
+                    }
+                    if (cursor == null) {
+                        // The replaced branch was pruned: the fork point is unknown
+                        error = new IllegalStateException("Delivered block " + last
+                                + " was replaced and its branch pruned; resubscribe with blocksFrom");
+                        continue;
+                    }
+                    last = cursor;
+                    nextHeight = cursor.getIndex() + 1;
+                }
+                if (nextHeight >= snapshot.size() || demand.get() == 0) {
+                    return;
+                }
+                Block block = snapshot.get(nextHeight);
+                if (block.isPruned()) {
+                    Block full = blockchain.getFullBlock(block.getHash());
+                    if (full != null) {
+                        block = full;
+                    }
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                last = block;
+                nextHeight++;
+                try {
+                    subscriber.onNext(block);
+                } catch (RuntimeException e) {
+                    // A subscriber that throws is treated as cancelled
+                    cancel();
+                    return;
+                }
+            }
+        }
+    }
+}
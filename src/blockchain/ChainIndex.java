@@ -0,0 +1,338 @@
+package blockchain;
+
+import models.Block;
+import models.Transaction;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChainIndex - Lookups by transaction ID and by address on the active chain
+ *
+ * Finding a transaction in the chain itself means scanning every block.
+ * The index keeps two maps up to date instead, as a ChainListener:
+ *
+ *   transaction ID -> block that contains it (and its position)
+ *   address        -> every transaction sent or received, oldest first
+ *
+ * Connected blocks are added and disconnected ones removed again, so after
+ * a reorganization the index describes the new active chain. On a pruning
+ * node, entries of pruned blocks are dropped too (oldest first), so the
+ * index only covers the blocks whose transactions are still kept.
+ *
+ * Updates come from the Blockchain's writer thread; lookups can come from
+ * any thread at the same time and never wait for a lock held during mining
+ * or validation.
+ *
+ * CONFIRMATION FUTURES:
+ * awaitConfirmations(id, n) returns a future that completes once the
+ * transaction is n blocks deep (n = 1: in the tip block). Waiters are kept
+ * in two hash maps:
+ *
+ *   transaction ID -> waiters for it        (not mined yet, or mined)
+ *   height         -> mined waiters that are done once the tip gets there
+ *
+ * so a new block only looks up its own transactions and its own height -
+ * the cost does not depend on how many waiters there are. If a reorg
+ * removes the block again, its waiters go back to waiting.
+ */
+public final class ChainIndex implements ChainListener {
+
+    /**
+     * Where a transaction sits in the chain
+     */
+    public static final class Location {
+        private final Block block;
+        private final int position;
+
+        Location(Block block, int position) {
+            this.block = block;
+            this.position = position;
+        }
+
+        public Block getBlock() { return block; }
+        public int getPosition() { return position; }
+        public int getHeight() { return block.getIndex(); }
+        public Transaction getTransaction() { return block.getTransactions().get(position); }
+    }
+
+    private final Map<String, Location> transactions = new ConcurrentHashMap<>();
+
+    // Each history is guarded by its own lock; entries are in chain order
+    // (new blocks add at the end, reorgs and pruning remove at either end)
+    private final Map<String, Deque<Location>> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * Someone waiting for a transaction to be confirmed
+     */
+    private static final class Waiter {
+        final String transactionId;
+        final int confirmations;
+        final CompletableFuture<Location> future = new CompletableFuture<>();
+        Location location;   // where it was mined; null while not in the chain
+
+        Waiter(String transactionId, int confirmations) {
+            this.transactionId = transactionId;
+            this.confirmations = confirmations;
+        }
+
+        // Tip height at which this waiter is done
+        int targetHeight() {
+            return location.getHeight() + confirmations - 1;
+        }
+    }
+
+    // Guards the waiter maps and tipHeight; held for the index updates too,
+    // so a new waiter sees either all of a block or none of it
+    private final Object waiterLock = new Object();
+    private final Map<String, List<Waiter>> waitersByTransaction = new HashMap<>();
+    private final Map<Integer, List<Waiter>> waitersByHeight = new HashMap<>();
+    private int tipHeight = -1;
+
+    /**
+     * Index the whole active chain and follow it from now on
+     * (one per chain: see Blockchain.getIndex)
+     */
+    ChainIndex(Blockchain blockchain) {
+        blockchain.addChainListener(this, 0);
+    }
+
+    /**
+     * Where a transaction was mined, or null if it is not in the active chain
+     */
+    public Location findTransaction(String transactionId) {
+        return transactions.get(transactionId);
+    }
+
+    /**
+     * Every mined transaction sent or received by an address, oldest first
+     */
+    public List<Location> getHistory(String address) {
+        Deque<Location> history = addresses.get(address);
+        if (history == null) {
+            return List.of();
+        }
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    public int getTransactionCount() {
+        return transactions.size();
+    }
+
+    /**
+     * Completes once the transaction is in a block of the active chain
+     */
+    public CompletableFuture<Location> awaitInclusion(String transactionId) {
+        return awaitConfirmations(transactionId, 1);
+    }
+
+    /**
+     * Completes once the transaction is the given number of blocks deep
+     *
+     * Already-confirmed transactions complete right away. Cancel the future
+     * to stop waiting; the waiter is forgotten either way. Completion runs
+     * on a pool thread, never on the thread that added the block.
+     *
+     * @param transactionId ID of the transaction to wait for
+     * @param confirmations 1 = mined in the tip block, 6 = five blocks on top of it, ...
+     * @return Future with the location of the transaction
+     */
+    public CompletableFuture<Location> awaitConfirmations(String transactionId, int confirmations) {
+        if (confirmations < 1) {
+            throw new IllegalArgumentException("confirmations must be at least 1");
+        }
+        Waiter waiter = new Waiter(transactionId, confirmations);
+        Location ready = null;
+        synchronized (waiterLock) {
+            waitersByTransaction.computeIfAbsent(transactionId, id -> new ArrayList<>(1)).add(waiter);
+            waiter.location = transactions.get(transactionId);
+            if (waiter.location != null && schedule(waiter)) {
+                ready = waiter.location;
+            }
+        }
+        waiter.future.whenComplete((location, error) -> forget(waiter));
+        if (ready != null) {
+            complete(waiter, ready);
+        }
+        return waiter.future;
+    }
+
+    /**
+     * awaitConfirmations that gives up with a TimeoutException after a while
+     */
+    public CompletableFuture<Location> awaitConfirmations(String transactionId, int confirmations, Duration timeout) {
+        return awaitConfirmations(transactionId, confirmations).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Futures that have not completed yet
+     */
+    public int getWaiterCount() {
+        synchronized (waiterLock) {
+            int count = 0;
+            for (List<Waiter> waiters : waitersByTransaction.values()) {
+                count += waiters.size();
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public void blockConnected(Block block) {
+        List<Waiter> ready = new ArrayList<>();
+        synchronized (waiterLock) {
+            tipHeight = block.getIndex();
+            List<Transaction> txs = block.getTransactions();
+            for (int i = 0; i < txs.size(); i++) {
+                Transaction tx = txs.get(i);
+                Location location = new Location(block, i);
+                transactions.put(tx.getTransactionId(), location);
+                append(tx.getSender(), location);
+                if (!tx.getRecipient().equals(tx.getSender())) {
+                    append(tx.getRecipient(), location);
+                }
+
+                List<Waiter> waiting = waitersByTransaction.get(tx.getTransactionId());
+                if (waiting != null) {
+                    for (Waiter waiter : waiting) {
+                        waiter.location = location;
+                        if (schedule(waiter)) {
+                            ready.add(waiter);
+                        }
+                    }
+                }
+            }
+            // Waiters mined further down that this block makes deep enough
+            List<Waiter> due = waitersByHeight.remove(block.getIndex());
+            if (due != null) {
+                ready.addAll(due);
+            }
+        }
+        for (Waiter waiter : ready) {
+            complete(waiter, waiter.location);
+        }
+    }
+
+    @Override
+    public void blockDisconnected(Block block) {
+        synchronized (waiterLock) {
+            tipHeight = block.getIndex() - 1;
+            // Disconnected blocks are always the tip, so their entries are the
+            // last ones in every history they appear in
+            for (Transaction tx : block.getTransactions()) {
+                transactions.remove(tx.getTransactionId());
+                truncate(tx.getSender(), block);
+                truncate(tx.getRecipient(), block);
+
+                // Mined waiters go back to waiting for the transaction
+                List<Waiter> waiting = waitersByTransaction.get(tx.getTransactionId());
+                if (waiting != null) {
+                    for (Waiter waiter : waiting) {
+                        if (waiter.location != null && waiter.location.block == block) {
+                            unschedule(waiter);
+                            waiter.location = null;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void blockPruned(Block block) {
+        synchronized (waiterLock) {
+            // Pruned blocks are the oldest indexed ones, so their entries are
+            // the first ones in every history they appear in
+            for (Transaction tx : block.getTransactions()) {
+                transactions.remove(tx.getTransactionId());
+                dropOldest(tx.getSender(), block);
+                dropOldest(tx.getRecipient(), block);
+            }
+        }
+    }
+
+    // Waiter was just mined: true if already deep enough, else file it by height
+    private boolean schedule(Waiter waiter) {
+        int target = waiter.targetHeight();
+        if (target <= tipHeight) {
+            return true;
+        }
+        waitersByHeight.computeIfAbsent(target, height -> new ArrayList<>()).add(waiter);
+        return false;
+    }
+
+    private void unschedule(Waiter waiter) {
+        List<Waiter> atHeight = waitersByHeight.get(waiter.targetHeight());
+        if (atHeight != null) {
+            atHeight.remove(waiter);
+            if (atHeight.isEmpty()) {
+                waitersByHeight.remove(waiter.targetHeight());
+            }
+        }
+    }
+
+    // Done, cancelled or timed out: drop every reference to the waiter
+    private void forget(Waiter waiter) {
+        synchronized (waiterLock) {
+            List<Waiter> waiting = waitersByTransaction.get(waiter.transactionId);
+            if (waiting != null) {
+                waiting.remove(waiter);
+                if (waiting.isEmpty()) {
+                    waitersByTransaction.remove(waiter.transactionId);
+                }
+            }
+            if (waiter.location != null) {
+                unschedule(waiter);
+            }
+        }
+    }
+
+    // Off the caller's thread: dependent stages must not run under the chain lock
+    private static void complete(Waiter waiter, Location location) {
+        waiter.future.completeAsync(() -> location);
+    }
+
+    private void append(String address, Location location) {
+        Deque<Location> history = addresses.computeIfAbsent(address, a -> new ArrayDeque<>());
+        synchronized (history) {
+            history.addLast(location);
+        }
+    }
+
+    private void truncate(String address, Block block) {
+        Deque<Location> history = addresses.get(address);
+        if (history == null) {
+            return;
+        }
+        synchronized (history) {
+            while (!history.isEmpty() && history.peekLast().block == block) {
+                history.removeLast();
+            }
+        }
+    }
+
+    private void dropOldest(String address, Block block) {
+        Deque<Location> history = addresses.get(address);
+        if (history == null) {
+            return;
+        }
+        synchronized (history) {
+            while (!history.isEmpty() && history.peekFirst().block == block) {
+                history.removeFirst();
+            }
+            if (history.isEmpty()) {
+                // Only the writer adds entries, so nothing can race this
+                addresses.remove(address);
+            }
+        }
+    }
+}
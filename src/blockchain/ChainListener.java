@@ -0,0 +1,64 @@
+package blockchain;
+
+import models.Block;
+import models.Transaction;
+
+/**
+ * ChainListener - Callback for changes to the active chain
+ *
+ * Anything derived from the chain (relay pools, indexes, balances, ...)
+ * can keep itself current by applying each connected block and undoing
+ * each disconnected one, instead of rescanning the chain from genesis.
+ *
+ * During a reorganization the listener first sees the abandoned blocks
+ * disconnected from the tip downwards, then the new branch connected from
+ * the fork point upwards.
+ *
+ * Callbacks run on the thread that changed the Blockchain and must not
+ * modify the Blockchain themselves.
+ */
+public interface ChainListener {
+
+    /**
+     * A block became the new tip of the active chain
+     */
+    default void blockConnected(Block block) {
+    }
+
+    /**
+     * A block was removed from the tip of the active chain by a reorganization
+     */
+    default void blockDisconnected(Block block) {
+    }
+
+    /**
+     * The active chain has changed and the new one is now visible to readers
+     *
+     * Called once per change, after all the blockConnected and
+     * blockDisconnected calls for it, so blockchain.snapshot() already
+     * returns current. A plain extension has forkHeight == previous.height();
+     * anything lower is a reorganization.
+     *
+     * @param previous The active chain before the change
+     * @param current The active chain after the change
+     * @param forkHeight Height of the last block both chains share
+     */
+    default void activeChainChanged(ChainSnapshot previous, ChainSnapshot current, int forkHeight) {
+    }
+
+    /**
+     * A pruning node is about to drop the transactions of an active block
+     *
+     * The block passed in still has them. It is deep enough that it can no
+     * longer be disconnected, so anything kept only to answer questions
+     * about it (e.g. index entries) can be let go.
+     */
+    default void blockPruned(Block block) {
+    }
+
+    /**
+     * A transaction was accepted into the pending pool
+     */
+    default void transactionAdded(Transaction transaction) {
+    }
+}
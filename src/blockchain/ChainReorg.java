@@ -0,0 +1,38 @@
+package blockchain;
+
+import models.Block;
+import java.util.List;
+
+/**
+ * ChainReorg - The active chain switched to a different branch
+ *
+ *   before:  ... - F - a1 - a2          disconnected = [a2, a1]
+ *   after:   ... - F - b1 - b2 - b3     connected    = [b1, b2, b3]
+ *
+ * F is the fork point: the last block both branches share.
+ */
+public final class ChainReorg {
+
+    private final int forkHeight;
+    private final List<Block> disconnected;
+    private final List<Block> connected;
+
+    ChainReorg(int forkHeight, List<Block> disconnected, List<Block> connected) {
+        this.forkHeight = forkHeight;
+        this.disconnected = List.copyOf(disconnected);
+        this.connected = List.copyOf(connected);
+    }
+
+    public int getForkHeight() { return forkHeight; }
+
+    // Abandoned blocks, old tip first
+    public List<Block> getDisconnected() { return disconnected; }
+
+    // Blocks of the new branch, lowest first
+    public List<Block> getConnected() { return connected; }
+
+    @Override
+    public String toString() {
+        return "ChainReorg{fork=" + forkHeight + ", out=" + disconnected.size() + ", in=" + connected.size() + "}";
+    }
+}
@@ -0,0 +1,258 @@
+package blockchain;
+
+import models.Block;
+import models.Transaction;
+import utils.BloomFilter;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.UnaryOperator;
+
+/**
+ * ChainSnapshot - An immutable view of the active chain at one moment
+ *
+ * Blockchain publishes a new snapshot (through a volatile field) every
+ * time its active chain changes. A reader grabs the current one and can
+ * then take as long as it likes: the snapshot never changes underneath it,
+ * no lock is taken, and the writer never waits for readers.
+ *
+ * Making a new snapshot must be cheap, so blocks are kept in fixed-size
+ * chunks that consecutive snapshots share:
+ *
+ *   chunks: [ 0..1023 ][ 1024..2047 ][ 2048..   ]      size = 2050
+ *
+ * - append: writes the new block into the first free slot and shares
+ *   everything else. A slot that has never been written is not visible to
+ *   any existing snapshot (each reads only below its own size), so it can
+ *   be filled in place - appending is O(1).
+ * - removeLast: same arrays, size - 1. O(1).
+ * - append after removeLast (a reorganization) finds its slot already
+ *   used by an older snapshot, so it copies that one chunk first
+ *   (copy-on-write) instead of overwriting what the older snapshot sees.
+ *
+ * Only the Blockchain (the single writer) creates new snapshots.
+ *
+ * SCANS: findTransaction and getHistory answer from the blocks themselves,
+ * without a ChainIndex (which costs memory for every transaction ever
+ * mined). Each block's Bloom filter is checked first, so only the few
+ * blocks that may hold the address or ID are actually searched.
+ */
+public final class ChainSnapshot implements Iterable<Block> {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Block[][] chunks;
+    private final int size;
+
+    private ChainSnapshot(Block[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    static ChainSnapshot empty() {
+        return new ChainSnapshot(new Block[1][], 0);
+    }
+
+    /**
+     * Snapshot with one more block on top
+     */
+    ChainSnapshot append(Block block) {
+        int chunkIndex = size >>> CHUNK_BITS;
+        int offset = size & CHUNK_MASK;
+
+        Block[][] top = chunks;
+        if (chunkIndex == top.length) {
+            // Older snapshots keep the old (shorter) top-level array
+            top = Arrays.copyOf(top, 2 * top.length);
+        }
+        Block[] chunk = top[chunkIndex];
+        if (chunk == null) {
+            // Slot never used: nobody can see it yet
+            chunk = new Block[CHUNK_SIZE];
+            top[chunkIndex] = chunk;
+        } else if (chunk[offset] != null) {
+            // Slot still visible to an older (longer) snapshot: copy on write
+            chunk = chunk.clone();
+            top = top.clone();
+            top[chunkIndex] = chunk;
+        }
+        chunk[offset] = block;
+        return new ChainSnapshot(top, size + 1);
+    }
+
+    /**
+     * Snapshot without the top block
+     */
+    ChainSnapshot removeLast() {
+        if (size == 0) {
+            throw new IllegalStateException("Chain is empty");
+        }
+        return new ChainSnapshot(chunks, size - 1);
+    }
+
+    /**
+     * Snapshot with one block swapped (copies the affected chunk)
+     */
+    ChainSnapshot replace(int index, Block block) {
+        checkIndex(index);
+        Block[][] top = chunks.clone();
+        Block[] chunk = top[index >>> CHUNK_BITS].clone();
+        chunk[index & CHUNK_MASK] = block;
+        top[index >>> CHUNK_BITS] = chunk;
+        return new ChainSnapshot(top, size);
+    }
+
+    /**
+     * Snapshot with every block in [from, to) passed through a function
+     *
+     * Each affected chunk is copied once, however many of its blocks change,
+     * so rewriting a long range (pruning) costs one copy per 1024 blocks.
+     */
+    ChainSnapshot replaceRange(int from, int to, UnaryOperator<Block> function) {
+        if (from >= to) {
+            return this;
+        }
+        checkIndex(from);
+        checkIndex(to - 1);
+        Block[][] top = chunks.clone();
+        for (int chunkIndex = from >>> CHUNK_BITS; chunkIndex <= (to - 1) >>> CHUNK_BITS; chunkIndex++) {
+            Block[] chunk = top[chunkIndex].clone();
+            int first = Math.max(from, chunkIndex << CHUNK_BITS);
+            int last = Math.min(to, (chunkIndex + 1) << CHUNK_BITS);
+            for (int height = first; height < last; height++) {
+                chunk[height & CHUNK_MASK] = function.apply(chunk[height & CHUNK_MASK]);
+            }
+            top[chunkIndex] = chunk;
+        }
+        return new ChainSnapshot(top, size);
+    }
+
+    /**
+     * Block at a height (0 = genesis)
+     */
+    public Block get(int index) {
+        checkIndex(index);
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * Number of blocks, genesis included
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Height of the tip (size - 1)
+     */
+    public int height() {
+        return size - 1;
+    }
+
+    public Block tip() {
+        return get(size - 1);
+    }
+
+    public Block genesis() {
+        return get(0);
+    }
+
+    /**
+     * Whether this block is at its height in this snapshot
+     *
+     * Compared by hash, so a block still matches after a pruning node has
+     * swapped it for its header-only copy.
+     */
+    public boolean contains(Block block) {
+        int index = block.getIndex();
+        if (index < 0 || index >= size) {
+            return false;
+        }
+        Block atHeight = get(index);
+        return atHeight == block || atHeight.getHash().equals(block.getHash());
+    }
+
+    /**
+     * Find a transaction by scanning the chain, newest block first
+     *
+     * Blocks whose filter rules the ID out are skipped, as are pruned
+     * blocks (their transactions are gone).
+     *
+     * @return Where it is, or null if it is in no block of this snapshot
+     */
+    public ChainIndex.Location findTransaction(String transactionId) {
+        long hash = BloomFilter.hash(transactionId);
+        for (int height = size - 1; height >= 0; height--) {
+            Block block = get(height);
+            if (block.isPruned() || !block.getFilter().mightContain(hash)) {
+                continue;
+            }
+            List<Transaction> transactions = block.getTransactions();
+            for (int i = 0; i < transactions.size(); i++) {
+                if (transactions.get(i).getTransactionId().equals(transactionId)) {
+                    return new ChainIndex.Location(block, i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every transaction sent or received by an address, oldest first,
+     * found by scanning the chain (blocks whose filter rules the address
+     * out, and pruned blocks, are skipped)
+     */
+    public List<ChainIndex.Location> getHistory(String address) {
+        long hash = BloomFilter.hash(address);
+        List<ChainIndex.Location> history = new ArrayList<>();
+        for (int height = 0; height < size; height++) {
+            Block block = get(height);
+            if (block.isPruned() || !block.getFilter().mightContain(hash)) {
+                continue;
+            }
+            List<Transaction> transactions = block.getTransactions();
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction tx = transactions.get(i);
+                if (tx.getSender().equals(address) || tx.getRecipient().equals(address)) {
+                    history.add(new ChainIndex.Location(block, i));
+                }
+            }
+        }
+        return history;
+    }
+
+    /**
+     * This snapshot as an unmodifiable, random-access List
+     */
+    public List<Block> asList() {
+        return new BlockList();
+    }
+
+    @Override
+    public Iterator<Block> iterator() {
+        return asList().iterator();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Height " + index + ", chain size " + size);
+        }
+    }
+
+    private final class BlockList extends AbstractList<Block> implements RandomAccess {
+        @Override
+        public Block get(int index) {
+            return ChainSnapshot.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
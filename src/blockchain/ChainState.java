@@ -0,0 +1,107 @@
+package blockchain;
+
+import models.Block;
+import models.Transaction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ChainState - Balances of the active chain, kept current as a ChainListener
+ *
+ * Every connected block adds its transfers, every disconnected one takes
+ * them back, so balances never need a rescan of the chain:
+ *
+ *   sender    -= amount
+ *   recipient += amount
+ *
+ * (There are no coinbase rewards or overdraft checks in this simulation,
+ * so balances may go negative.)
+ *
+ * snapshotAt(h) produces a checkpoint of the state as of an older height
+ * h by undoing the blocks above it - which is how a pruning node captures
+ * the state of the blocks it is about to drop (see Blockchain.enablePruning).
+ *
+ * Updates come from the Blockchain's writer thread; getBalance can be
+ * called from any thread.
+ */
+public final class ChainState implements ChainListener {
+
+    private final Map<String, Double> balances = new ConcurrentHashMap<>();
+    private volatile long transactionCount;
+
+    /**
+     * Apply the whole active chain and follow it from now on
+     * (one per chain: see Blockchain.getState)
+     */
+    ChainState(Blockchain blockchain) {
+        blockchain.addChainListener(this, 0);
+    }
+
+    /**
+     * Start from a checkpoint instead of genesis, and apply only the
+     * blocks above it (for a node bootstrapped from that checkpoint)
+     */
+    ChainState(Blockchain blockchain, StateSnapshot checkpoint) {
+        balances.putAll(checkpoint.getBalances());
+        transactionCount = checkpoint.getTransactionCount();
+        blockchain.addChainListener(this, checkpoint.getHeight() + 1);
+    }
+
+    /**
+     * Balance of an address on the active chain
+     */
+    public double getBalance(String address) {
+        return balances.getOrDefault(address, 0.0);
+    }
+
+    /**
+     * Transactions in the active chain
+     */
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * Checkpoint of the state as of an active block at or below the tip
+     *
+     * Called by the writer, with the chain this state currently reflects.
+     *
+     * @param active The active chain (must not have changed since the last callback)
+     * @param height Height to take the checkpoint at
+     * @return Balances and counts after the block at that height
+     * @throws IllegalStateException if a block above height has been pruned
+     */
+    StateSnapshot snapshotAt(ChainSnapshot active, int height) {
+        Map<String, Double> state = new HashMap<>(balances);
+        long count = transactionCount;
+        for (int i = active.height(); i > height; i--) {
+            Block block = active.get(i);
+            if (block.isPruned()) {
+                throw new IllegalStateException("Block #" + i + " is pruned; cannot rewind state past it");
+            }
+            apply(state, block, -1);
+            count -= block.getTransactions().size();
+        }
+        return new StateSnapshot(height, active.get(height).getHash(), state, count);
+    }
+
+    @Override
+    public void blockConnected(Block block) {
+        apply(balances, block, 1);
+        transactionCount += block.getTransactions().size();
+    }
+
+    @Override
+    public void blockDisconnected(Block block) {
+        apply(balances, block, -1);
+        transactionCount -= block.getTransactions().size();
+    }
+
+    private static void apply(Map<String, Double> balances, Block block, int direction) {
+        for (Transaction tx : block.getTransactions()) {
+            balances.merge(tx.getSender(), -direction * tx.getAmount(), Double::sum);
+            balances.merge(tx.getRecipient(), direction * tx.getAmount(), Double::sum);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package blockchain;
+
+import models.Block;
+import models.BlockTemplate;
+import java.math.BigInteger;
+
+/**
+ * ConsensusEngine - The rules for who may add a block, and how to check it
+ *
+ * Everything else about a Blockchain (linking, Merkle roots, fork choice,
+ * the pending pool) is the same whatever the consensus; what differs is:
+ *
+ * - sealing:      turning a block template into a block the
+ *                 network will accept (proof-of-work: find a nonce;
+ *                 proof-of-stake: stamp it with the round's proposer)
+ * - verification: checking that seal on a received block
+ * - weight:       how much a block counts for fork choice
+ *
+ * Implementations: ProofOfWork (the original mining) and ProofOfStake.
+ *
+ * An engine serves exactly one Blockchain. sealGenesis() is called first,
+ * while the chain is being built; attach() follows once the chain, genesis
+ * included, is complete.
+ */
+public interface ConsensusEngine {
+
+    /**
+     * Short name for logs, e.g. "proof-of-work"
+     */
+    String getName();
+
+    /**
+     * Bind to the chain this engine serves (called once, by Blockchain)
+     */
+    void attach(Blockchain blockchain);
+
+    /**
+     * Seal the genesis block
+     *
+     * @param genesis Genesis template (index 0, previous hash "0")
+     * @return The sealed genesis block
+     */
+    Block sealGenesis(BlockTemplate genesis);
+
+    /**
+     * Value the bits field of the block after parent must have
+     * (proof-of-work: the compact target; 0 when not used)
+     */
+    int nextBits(Block parent);
+
+    /**
+     * Seal a new block on top of parent; may take a long time (mining)
+     *
+     * Called without the chain lock held.
+     *
+     * @param template Index, previous hash and transactions of the new block
+     * @param parent Block it builds on
+     * @return The sealed block
+     */
+    Block seal(BlockTemplate template, Block parent);
+
+    /**
+     * Cheap checks that need no other block; run before a block is stored,
+     * so worthless blocks cannot fill the orphan pool
+     */
+    boolean checkSeal(Block block);
+
+    /**
+     * Full check of a block's seal, given the block it builds on
+     */
+    boolean verifySeal(Block block, Block parent);
+
+    /**
+     * How much the block adds to its branch for fork choice
+     * (the branch with the highest total wins)
+     */
+    BigInteger weight(Block block);
+}
@@ -0,0 +1,154 @@
+package blockchain;
+
+import models.BlockTemplate;
+import utils.Sha256Kernel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Miner - A fixed set of mining threads that work through MiningJobs
+ *
+ * BlockTemplate.mineBlock blocks the caller until a hash is found and
+ * cannot be stopped. A Miner instead runs the search on its own threads:
+ *
+ *   MiningJob job = miner.submit(template, bits);
+ *   job.result().thenAccept(block -> ...);   // or job.cancel()
+ *
+ * All threads work on the oldest job that is neither finished nor
+ * suspended, each on its own slice of the nonce space (as in
+ * BlockTemplate.mineBlockToTarget with worker = thread number). Between
+ * chunks of CHECK_INTERVAL hashes every thread looks again at which job
+ * to run, so cancelling, suspending or swapping a template takes effect
+ * within a few milliseconds - without starting or stopping any thread.
+ *
+ * Hashing goes through a Sha256Kernel, which hashes a whole chunk of
+ * nonces per call (several at once with the vector kernel).
+ */
+public final class Miner implements AutoCloseable {
+
+    // Hashes tried between two checks for cancellation / new templates
+    static final int CHECK_INTERVAL = 4096;
+
+    private final Thread[] workers;
+    private final Sha256Kernel kernel;
+
+    // Submitted jobs in order; guarded by this
+    private final Deque<MiningJob> jobs = new ArrayDeque<>();
+    private boolean closed;
+
+    /**
+     * Start a miner with the fastest kernel available
+     *
+     * @param threads Number of mining threads (usually one per core)
+     */
+    public Miner(int threads) {
+        this(threads, Sha256Kernel.best());
+    }
+
+    /**
+     * Start a miner with a specific hashing kernel
+     *
+     * @param threads Number of mining threads (usually one per core)
+     * @param kernel e.g. Sha256Kernel.scalar() to rule out the vector kernel
+     */
+    public Miner(int threads, Sha256Kernel kernel) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.kernel = kernel;
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int worker = i;
+            workers[i] = new Thread(() -> run(worker), "miner-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Start mining a block
+     *
+     * @param template Template to mine; its nonce, extraNonce and bits are ignored
+     * @param bits Compact target the hash must meet
+     * @return The job, already queued
+     */
+    public synchronized MiningJob submit(BlockTemplate template, int bits) {
+        if (closed) {
+            throw new IllegalStateException("Miner is closed");
+        }
+        MiningJob job = new MiningJob(this, kernel, template, bits, workers.length);
+        jobs.add(job);
+        notifyAll();
+        return job;
+    }
+
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    public Sha256Kernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Stop all threads; unfinished jobs are cancelled
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (MiningJob job : jobs) {
+                job.cancel();
+            }
+            jobs.clear();
+            notifyAll();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // A job was resumed: let idle threads pick it up
+    synchronized void wake() {
+        notifyAll();
+    }
+
+    private void run(int worker) {
+        while (true) {
+            MiningJob job = null;
+            synchronized (this) {
+                while (!closed) {
+                    job = nextJob();
+                    if (job != null) {
+                        break;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            job.mine(worker);
+        }
+    }
+
+    // Oldest runnable job; finished ones are dropped on the way
+    private MiningJob nextJob() {
+        jobs.removeIf(MiningJob::isDone);
+        for (MiningJob job : jobs) {
+            if (!job.isSuspended()) {
+                return job;
+            }
+        }
+        return null;
+    }
+}
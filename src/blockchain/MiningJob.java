@@ -0,0 +1,237 @@
+package blockchain;
+
+import models.Block;
+import models.BlockTemplate;
+import profiling.MiningEvent;
+import utils.Sha256Kernel;
+import utils.Target;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MiningJob - One block being mined by a Miner
+ *
+ * Life cycle:
+ *
+ *   running <-> suspended
+ *      |
+ *      +--> done (block found, or cancelled)
+ *
+ * - cancel(): stop for good; result() completes with a CancellationException
+ * - suspend()/resume(): pause and continue; each thread keeps its place in
+ *   its nonce range, so no hash is tried twice
+ * - updateTemplate(): mine a different block (e.g. on top of a new tip or
+ *   with more transactions) on the same threads; the nonce ranges start over
+ * - markStale(): ask for a new template without building it now; thread 0
+ *   calls the refresher at its next check, so however many times the job
+ *   is marked in between, the template is rebuilt at most once per
+ *   CHECK_INTERVAL hashes
+ *
+ * A thread that finds a hash just before a template swap still completes
+ * the job with the older block - it is a valid block all the same.
+ */
+public final class MiningJob {
+
+    /**
+     * What is being mined; replaced as a whole, never modified
+     */
+    private static final class Template {
+        final BlockTemplate block;
+        final int bits;
+        final int[] target;
+
+        Template(BlockTemplate block, int bits) {
+            this.block = block;
+            this.bits = bits;
+            this.target = Target.toWords(Target.decodeCompact(bits));
+        }
+    }
+
+    /**
+     * Where one thread is in its slice of the search space
+     */
+    private static final class Progress {
+        final Template template;
+        final long rangeStart;
+        final long rangeEnd;
+        long nonce;
+        int extraNonce;
+        long timestamp;
+
+        // Kernel input for the current extraNonce / timestamp, and its output
+        byte[] prefix;
+        byte[] suffix;
+        final int[] digests = new int[8 * Miner.CHECK_INTERVAL];
+
+        Progress(Template template, int worker, int workers) {
+            this.template = template;
+            long rangeSize = Long.divideUnsigned(-1L, workers);
+            this.rangeStart = rangeSize * worker;
+            this.rangeEnd = rangeStart + rangeSize;
+            this.nonce = rangeStart;
+            this.timestamp = template.block.getTimestamp();
+            encode();
+        }
+
+        // Nonces left before the range runs out, capped at one chunk
+        int chunk() {
+            long remaining = rangeEnd - nonce;
+            return Long.compareUnsigned(remaining, Miner.CHECK_INTERVAL) < 0 ? (int) remaining : Miner.CHECK_INTERVAL;
+        }
+
+        // Same order as BlockTemplate.mineBlockToTarget: nonce, then extraNonce + timestamp
+        void advance(int count) {
+            nonce += count;
+            if (nonce == rangeEnd) {
+                nonce = rangeStart;
+                extraNonce++;
+                timestamp = Math.max(timestamp, new Date().getTime());
+                encode();
+            }
+        }
+
+        private void encode() {
+            BlockTemplate block = template.block;
+            prefix = Block.hashPrefix(block.getIndex(), block.getPreviousHash(), timestamp)
+                    .getBytes(StandardCharsets.UTF_8);
+            suffix = Block.hashSuffix(extraNonce, template.bits, block.getMerkleRoot())
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final Miner miner;
+    private final Sha256Kernel kernel;
+    private final CompletableFuture<Block> result = new CompletableFuture<>();
+    private final LongAdder hashes = new LongAdder();
+
+    // Flight Recorder event for the whole job, committed by the thread that finds the block
+    private final MiningEvent event = new MiningEvent();
+
+    // One slot per thread, only ever touched by that thread
+    private final Progress[] progress;
+
+    private volatile Template template;
+    private volatile boolean suspended;
+
+    // Set by markStale, cleared by thread 0 just before it runs the refresher
+    private volatile boolean stale;
+    private volatile Runnable refresher;
+
+    MiningJob(Miner miner, Sha256Kernel kernel, BlockTemplate template, int bits, int workers) {
+        this.miner = miner;
+        this.kernel = kernel;
+        this.template = new Template(template, bits);
+        this.progress = new Progress[workers];
+        event.begin();
+    }
+
+    /**
+     * Completes with the mined block, or exceptionally if cancelled
+     */
+    public CompletableFuture<Block> result() {
+        return result;
+    }
+
+    public void cancel() {
+        result.cancel(false);
+    }
+
+    public void suspend() {
+        suspended = true;
+    }
+
+    public void resume() {
+        suspended = false;
+        miner.wake();
+    }
+
+    /**
+     * Mine a different block from now on
+     *
+     * @param template New block to mine
+     * @param bits Compact target for the new block
+     */
+    public void updateTemplate(BlockTemplate template, int bits) {
+        this.template = new Template(template, bits);
+    }
+
+    /**
+     * What to run (on mining thread 0) when the job has been marked stale;
+     * it is expected to call updateTemplate
+     */
+    public void setRefresher(Runnable refresher) {
+        this.refresher = refresher;
+    }
+
+    /**
+     * The template is out of date; rebuild it at the next check
+     *
+     * Cheap enough to call for every new transaction: it only sets a flag.
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * Hashes tried so far, over all threads and templates
+     */
+    public long getHashCount() {
+        return hashes.sum();
+    }
+
+    // Hash up to CHECK_INTERVAL nonces on behalf of one thread
+    void mine(int worker) {
+        if (suspended || result.isDone()) {
+            return;
+        }
+        Runnable refresher = this.refresher;
+        if (worker == 0 && stale && refresher != null) {
+            // Cleared first: a markStale during the rebuild asks for another one
+            stale = false;
+            refresher.run();
+        }
+        Template current = template;
+        Progress p = progress[worker];
+        if (p == null || p.template != current) {
+            p = new Progress(current, worker, progress.length);
+            progress[worker] = p;
+        }
+
+        int count = p.chunk();
+        kernel.hashNonces(p.prefix, p.nonce, count, p.suffix, p.digests);
+        for (int i = 0; i < count; i++) {
+            if (Target.meets(p.digests, i, current.target)) {
+                hashes.add(i + 1);
+                BlockTemplate block = current.block;
+                if (result.complete(block.toBlock(p.timestamp, p.nonce + i, p.extraNonce, current.bits))) {
+                    record(block, current.bits);
+                }
+                return;
+            }
+        }
+        hashes.add(count);
+        p.advance(count);
+    }
+
+    private void record(BlockTemplate block, int bits) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.blockIndex = block.getIndex();
+            event.difficulty = Target.relativeDifficulty(bits);
+            event.attempts = hashes.sum();
+            event.transactionCount = block.getTransactions().size();
+            event.threads = progress.length;
+            event.commit();
+        }
+    }
+}
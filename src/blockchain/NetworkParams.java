@@ -0,0 +1,167 @@
+package blockchain;
+
+import models.Block;
+import models.BlockTemplate;
+import utils.Target;
+import java.util.List;
+
+/**
+ * NetworkParams - Everything nodes must agree on before they can talk
+ *
+ * Two nodes can only exchange blocks if they have the same genesis block
+ * and the same consensus rules. Mining the genesis at startup, with the
+ * current time, gave every node its own genesis (and cost seconds of CPU
+ * at difficulty 5+). A network instead fixes:
+ *
+ * - the proof-of-work rules (difficulty, retargeting)
+ * - the genesis timestamp
+ * - the genesis nonce, found once, offline, and recorded here
+ *
+ * so creating the genesis block is one hash: rebuild it from the recorded
+ * fields and check it against the recorded hash. Every node on the same
+ * network starts from exactly the same block.
+ *
+ * Networks:
+ *   MAIN      difficulty 5, retarget every 20 blocks to 10 s per block
+ *   TEST      difficulty 3, retarget every 20 blocks to 1 s per block
+ *   fixed(d)  difficulty d, no retargeting (what new Blockchain(d) uses);
+ *             precomputed for d = 1 to 6, mined once at startup otherwise
+ */
+public final class NetworkParams {
+
+    // Genesis time of the fixed-difficulty networks (2023-11-14 22:13:20 UTC)
+    public static final long FIXED_GENESIS_TIMESTAMP = 1_700_000_000_000L;
+
+    // Genesis nonces and hashes of fixed(1) .. fixed(6), mined at FIXED_GENESIS_TIMESTAMP
+    private static final long[] FIXED_GENESIS_NONCES = {21, 106, 4_398, 32_674, 540_352, 74_629_178};
+    private static final String[] FIXED_GENESIS_HASHES = {
+            "0fcffeb796ad2f291451e51bfed7ca5ce49fda2e67de8bf5e610ad18af51ed07",
+            "0003e8f9b1735d54b3b205314cd116735cc7d809f2753d846d106ca3f1e834b2",
+            "0007d4b104e27cf17f2064a5640a8eb2cecf2402674409a723eac106f9069cc2",
+            "00006721b4c4335c0b26452eba51ac8fd3296aa37ef99aaa8b184d96eff2b907",
+            "00000fd9b7953f6cad666dcd0b9ca424e44c28eaefcfc1d23cea7e33cad4abd3",
+            "0000003ce226ee697966477eb716fde55732b59e46877ac651350cd7006b3708"
+    };
+
+    public static final NetworkParams MAIN = new NetworkParams("main", 5, 10_000, 20,
+            1_704_067_200_000L, 1_230_690,
+            "0000093e2106c388eb60e96eb1f28d464f37c06700892260ba6d8cd69a5ef46b");
+
+    public static final NetworkParams TEST = new NetworkParams("test", 3, 1_000, 20,
+            1_704_153_600_000L, 1_263,
+            "0009950377c634faa65f3d5192dd2ec35ce2d22fa935509b556f1d27dc0db7e8");
+
+    private final String name;
+    private final int difficulty;
+    private final long targetBlockTime;
+    private final int retargetInterval;
+    private final long genesisTimestamp;
+
+    // Recorded genesis seal; -1 / null when it has to be mined at startup
+    private final long genesisNonce;
+    private final String genesisHash;
+
+    private NetworkParams(String name, int difficulty, long targetBlockTime, int retargetInterval,
+                          long genesisTimestamp, long genesisNonce, String genesisHash) {
+        this.name = name;
+        this.difficulty = difficulty;
+        this.targetBlockTime = targetBlockTime;
+        this.retargetInterval = retargetInterval;
+        this.genesisTimestamp = genesisTimestamp;
+        this.genesisNonce = genesisNonce;
+        this.genesisHash = genesisHash;
+    }
+
+    /**
+     * Network with a fixed difficulty and no retargeting
+     *
+     * Same difficulty, same network: the genesis timestamp is fixed too.
+     *
+     * @param difficulty Leading zeros required of every block
+     */
+    public static NetworkParams fixed(int difficulty) {
+        if (difficulty >= 1 && difficulty <= FIXED_GENESIS_NONCES.length) {
+            return new NetworkParams("fixed-" + difficulty, difficulty, 0, 0, FIXED_GENESIS_TIMESTAMP,
+                    FIXED_GENESIS_NONCES[difficulty - 1], FIXED_GENESIS_HASHES[difficulty - 1]);
+        }
+        return new NetworkParams("fixed-" + difficulty, difficulty, 0, 0, FIXED_GENESIS_TIMESTAMP, -1, null);
+    }
+
+    /**
+     * Network by name, as returned by getName ("main", "test", "fixed-4")
+     *
+     * @throws IllegalArgumentException if no network has that name
+     */
+    public static NetworkParams forName(String name) {
+        if (name.equals(MAIN.name)) {
+            return MAIN;
+        }
+        if (name.equals(TEST.name)) {
+            return TEST;
+        }
+        if (name.startsWith("fixed-")) {
+            try {
+                return fixed(Integer.parseInt(name.substring("fixed-".length())));
+            } catch (NumberFormatException e) {
+                // Fall through to the error below
+            }
+        }
+        throw new IllegalArgumentException("Unknown network: " + name);
+    }
+
+    /**
+     * Fresh consensus engine with this network's rules (one per chain)
+     */
+    public ProofOfWork createConsensus() {
+        return new ProofOfWork(difficulty, targetBlockTime, retargetInterval);
+    }
+
+    /**
+     * Build the genesis block
+     *
+     * Precomputed: rebuilt from the recorded nonce and checked against the
+     * recorded hash (one hash, no mining). Otherwise mined by the engine -
+     * still deterministic, as the timestamp is fixed.
+     *
+     * @throws IllegalStateException if the rebuilt block does not have the
+     *         recorded hash (the hashing rules changed since it was recorded)
+     */
+    Block createGenesisBlock(ConsensusEngine consensus) {
+        if (genesisHash == null) {
+            return consensus.sealGenesis(new BlockTemplate(0, "0", genesisTimestamp, List.of()));
+        }
+        // Same target as BlockTemplate.mineBlock(difficulty) would record
+        int bits = Target.encodeCompact(Target.fromLeadingZeros(difficulty));
+        Block genesis = new Block(0, "0", genesisTimestamp, genesisNonce, 0, bits, List.of());
+        if (!genesis.getHash().equals(genesisHash) || !genesis.hasValidProofOfWork()) {
+            throw new IllegalStateException("Genesis block of network " + name
+                    + " does not match its recorded hash " + genesisHash);
+        }
+        return genesis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public long getGenesisTimestamp() {
+        return genesisTimestamp;
+    }
+
+    /**
+     * Recorded genesis hash, or null if the genesis is mined at startup
+     */
+    public String getGenesisHash() {
+        return genesisHash;
+    }
+
+    @Override
+    public String toString() {
+        return "Network " + name + " (difficulty " + difficulty
+                + (retargetInterval > 0 ? ", retarget every " + retargetInterval + " blocks" : "") + ")";
+    }
+}
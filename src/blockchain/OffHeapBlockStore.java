@@ -0,0 +1,570 @@
+package blockchain;
+
+import models.Block;
+import models.BlockHeader;
+import models.Transaction;
+import utils.StringUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * OffHeapBlockStore - The active chain kept outside the Java heap
+ *
+ * Every Block and Transaction on the heap is a handful of objects
+ * (strings, arrays, lists) that the garbage collector has to trace on
+ * every full collection. Millions of them make the heap large and the
+ * pauses long. This store keeps the same data as bytes in memory-mapped
+ * files (or, without a file, in direct buffers) - memory the collector
+ * never looks at:
+ *
+ *   headers   one 144-byte record per height
+ *             index | flags | txCount | pad | firstTx | timestamp | nonce
+ *             | extraNonce | bits | hash | previousHash | merkleRoot
+ *             (ints 4, longs 8, hashes 32 raw bytes; "0" = 32 zero bytes)
+ *   txindex   one 8-byte offset per transaction, in chain order
+ *   tx        one record per transaction:
+ *             id (32) | amount | timeStamp | sender, recipient, publicKey,
+ *             signature lengths (2 each) | their UTF-8 / raw bytes
+ *
+ * Each region grows in fixed-size chunks; no record crosses a chunk.
+ *
+ * VIEWS: getBlock returns a BlockView - a height and a reference to the
+ * store, nothing else - whose getters (the same names as Block's) decode
+ * the field they are asked for, every time. TransactionView works the
+ * same way. toBlock()/toTransaction() turn a view back into a real object.
+ *
+ * As a ChainListener (see Blockchain.enableOffHeapStorage) the store
+ * follows the active chain: connected blocks are appended, disconnected
+ * ones truncated, and pruned ones kept - so a pruning node can still
+ * serve old bodies from here.
+ *
+ * One writer (the Blockchain's thread), any number of readers. A view of
+ * a block that a reorganization later removes reads whatever replaces it.
+ *
+ * Why NIO buffers and not MemorySegment: the project builds on JDK 21+,
+ * and on JDK 21 the Foreign Function & Memory API (java.lang.foreign) is
+ * still a preview feature - compiling and running with it needs
+ * --enable-preview; it is final only from JDK 22. FileChannel.map and
+ * ByteBuffer.allocateDirect work on every supported JDK without flags.
+ * Their price is the int index: one buffer covers at most 2 GB, which is
+ * why each region is a list of chunks and reserve() moves a record that
+ * would straddle two of them. Chunks also let a region grow without
+ * remapping what is already stored.
+ */
+public final class OffHeapBlockStore implements ChainListener, AutoCloseable {
+
+    public static final int HEADER_SIZE = 144;
+
+    // Header record field offsets
+    private static final int H_INDEX = 0;
+    private static final int H_FLAGS = 4;
+    private static final int H_TX_COUNT = 8;
+    private static final int H_FIRST_TX = 16;
+    private static final int H_TIMESTAMP = 24;
+    private static final int H_NONCE = 32;
+    private static final int H_EXTRA_NONCE = 40;
+    private static final int H_BITS = 44;
+    private static final int H_HASH = 48;
+    private static final int H_PREVIOUS_HASH = 80;
+    private static final int H_MERKLE_ROOT = 112;
+
+    // Transaction record field offsets (variable-length part from T_DATA)
+    private static final int T_ID = 0;
+    private static final int T_AMOUNT = 32;
+    private static final int T_TIMESTAMP = 40;
+    private static final int T_LENGTHS = 48;
+    private static final int T_DATA = 56;
+
+    // Header flag: stored without its transactions (it was already pruned)
+    private static final int FLAG_PRUNED = 1;
+
+    private static final int HEADER_CHUNK = HEADER_SIZE << 16;   // 65,536 headers (9 MB)
+    private static final int INDEX_CHUNK = 8 << 20;              // 1M transactions (8 MB)
+    private static final int RECORD_CHUNK = 64 << 20;            // 64 MB
+
+    private final Region headers;
+    private final Region txIndex;
+    private final Region records;
+
+    // Blocks / transactions / record bytes stored; volatile so readers see complete records
+    private volatile int blockCount;
+    private long transactionCount;
+    private long recordEnd;
+
+    // Highest block stored without its transactions (-1 = none)
+    private volatile int lastPrunedHeight = -1;
+
+    /**
+     * Store in direct (off-heap) memory; gone when the store is
+     */
+    public OffHeapBlockStore() {
+        this(null);
+    }
+
+    /**
+     * Store in memory-mapped files next to basePath (.headers, .txindex, .tx)
+     *
+     * The files are rewritten from the start; the operating system pages
+     * them in and out, so the store can be larger than RAM.
+     *
+     * @param basePath Path prefix of the three files, or null for direct memory
+     */
+    public OffHeapBlockStore(Path basePath) {
+        this.headers = new Region(basePath, ".headers", HEADER_CHUNK);
+        this.txIndex = new Region(basePath, ".txindex", INDEX_CHUNK);
+        this.records = new Region(basePath, ".tx", RECORD_CHUNK);
+    }
+
+    // ==================== WRITING ====================
+
+    /**
+     * Store a block on top of the others
+     *
+     * @throws IllegalArgumentException if its index is not the next height
+     */
+    public void append(Block block) {
+        int height = blockCount;
+        if (block.getIndex() != height) {
+            throw new IllegalArgumentException("Expected block #" + height + ", got " + block);
+        }
+        List<Transaction> transactions = block.getTransactions();
+        long firstTx = transactionCount;
+        for (int i = 0; i < transactions.size(); i++) {
+            long offset = writeTransaction(transactions.get(i));
+            long indexPosition = (firstTx + i) * 8;
+            txIndex.ensure(indexPosition + 8);
+            txIndex.buffer(indexPosition).putLong(txIndex.offset(indexPosition), offset);
+        }
+
+        long position = (long) height * HEADER_SIZE;
+        headers.ensure(position + HEADER_SIZE);
+        ByteBuffer buffer = headers.buffer(position);
+        int at = headers.offset(position);
+        buffer.putInt(at + H_INDEX, block.getIndex());
+        buffer.putInt(at + H_FLAGS, block.isPruned() ? FLAG_PRUNED : 0);
+        buffer.putInt(at + H_TX_COUNT, transactions.size());
+        buffer.putLong(at + H_FIRST_TX, firstTx);
+        buffer.putLong(at + H_TIMESTAMP, block.getTimestamp());
+        buffer.putLong(at + H_NONCE, block.getNonce());
+        buffer.putInt(at + H_EXTRA_NONCE, block.getExtraNonce());
+        buffer.putInt(at + H_BITS, block.getBits());
+        writeHash(buffer, at + H_HASH, block.getHash());
+        writeHash(buffer, at + H_PREVIOUS_HASH, block.getPreviousHash());
+        writeHash(buffer, at + H_MERKLE_ROOT, block.getMerkleRoot());
+
+        transactionCount = firstTx + transactions.size();
+        if (block.isPruned()) {
+            lastPrunedHeight = height;
+        }
+        blockCount = height + 1;
+    }
+
+    /**
+     * Forget every block from a height up (after a reorganization)
+     */
+    public void truncate(int height) {
+        if (height < 0 || height > blockCount) {
+            throw new IllegalArgumentException("Height " + height + ", store has " + blockCount + " blocks");
+        }
+        if (height == blockCount) {
+            return;
+        }
+        long position = (long) height * HEADER_SIZE;
+        long firstTx = headers.buffer(position).getLong(headers.offset(position) + H_FIRST_TX);
+        blockCount = height;
+        transactionCount = firstTx;
+        recordEnd = firstTx == 0 ? 0 : recordEndOf(firstTx - 1);
+    }
+
+    // Append one transaction record; returns where it starts
+    private long writeTransaction(Transaction transaction) {
+        byte[] sender = transaction.getSender().getBytes(StandardCharsets.UTF_8);
+        byte[] recipient = transaction.getRecipient().getBytes(StandardCharsets.UTF_8);
+        byte[] publicKey = transaction.isSigned() ? StringUtil.hexToBytes(transaction.getPublicKey()) : new byte[0];
+        byte[] signature = transaction.isSigned() ? StringUtil.hexToBytes(transaction.getSignature()) : new byte[0];
+        if (Math.max(sender.length, recipient.length) > 0xffff) {
+            throw new IllegalArgumentException("Address longer than 65,535 bytes: " + transaction);
+        }
+        int length = T_DATA + sender.length + recipient.length + publicKey.length + signature.length;
+
+        long start = records.reserve(recordEnd, length);
+        ByteBuffer buffer = records.buffer(start);
+        int at = records.offset(start);
+        buffer.put(at + T_ID, StringUtil.hexToBytes(transaction.getTransactionId()));
+        buffer.putDouble(at + T_AMOUNT, transaction.getAmount());
+        buffer.putLong(at + T_TIMESTAMP, transaction.getTimeStamp());
+        buffer.putShort(at + T_LENGTHS, (short) sender.length);
+        buffer.putShort(at + T_LENGTHS + 2, (short) recipient.length);
+        buffer.putShort(at + T_LENGTHS + 4, (short) publicKey.length);
+        buffer.putShort(at + T_LENGTHS + 6, (short) signature.length);
+        int data = at + T_DATA;
+        buffer.put(data, sender);
+        buffer.put(data += sender.length, recipient);
+        buffer.put(data += recipient.length, publicKey);
+        buffer.put(data + publicKey.length, signature);
+        recordEnd = start + length;
+        return start;
+    }
+
+    // First byte after a transaction's record
+    private long recordEndOf(long transaction) {
+        long position = transaction * 8;
+        long start = txIndex.buffer(position).getLong(txIndex.offset(position));
+        ByteBuffer buffer = records.buffer(start);
+        int at = records.offset(start) + T_LENGTHS;
+        int length = T_DATA;
+        for (int field = 0; field < 4; field++) {
+            length += Short.toUnsignedInt(buffer.getShort(at + 2 * field));
+        }
+        return start + length;
+    }
+
+    // ==================== READING ====================
+
+    /**
+     * View of the block at a height (nothing is decoded until asked for)
+     */
+    public BlockView getBlock(int height) {
+        if (height < 0 || height >= blockCount) {
+            throw new IndexOutOfBoundsException("Height " + height + ", store has " + blockCount + " blocks");
+        }
+        return new BlockView(this, height);
+    }
+
+    public int size() {
+        return blockCount;
+    }
+
+    /**
+     * Highest block stored as a header only (it was pruned before the
+     * store was enabled), or -1; everything above it is stored in full
+     */
+    public int getLastPrunedHeight() {
+        return lastPrunedHeight;
+    }
+
+    // Bytes of off-heap memory (or file) holding the chain
+    public long getStoredBytes() {
+        return (long) blockCount * HEADER_SIZE + transactionCount * 8 + recordEnd;
+    }
+
+    // ==================== CHAIN LISTENER ====================
+
+    @Override
+    public void blockConnected(Block block) {
+        append(block);
+    }
+
+    @Override
+    public void blockDisconnected(Block block) {
+        truncate(block.getIndex());
+    }
+
+    // blockPruned: nothing to do - the body stays here
+
+    @Override
+    public void close() {
+        headers.close();
+        txIndex.close();
+        records.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OffHeapBlockStore[%,d blocks, %,d transactions, %,d KB]",
+                blockCount, transactionCount, getStoredBytes() / 1024);
+    }
+
+    private static void writeHash(ByteBuffer buffer, int at, String hex) {
+        if (hex.equals("0")) {
+            buffer.put(at, new byte[32]);
+        } else {
+            buffer.put(at, StringUtil.hexToBytes(hex));
+        }
+    }
+
+    private static String readHash(ByteBuffer buffer, int at) {
+        byte[] bytes = new byte[32];
+        buffer.get(at, bytes);
+        for (byte b : bytes) {
+            if (b != 0) {
+                return StringUtil.bytesToHex(bytes);
+            }
+        }
+        return "0";
+    }
+
+    private static String readUtf8(ByteBuffer buffer, int at, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ==================== VIEWS ====================
+
+    /**
+     * A stored block, read field by field from the store
+     */
+    public static final class BlockView {
+        private final OffHeapBlockStore store;
+        private final int height;
+
+        private BlockView(OffHeapBlockStore store, int height) {
+            this.store = store;
+            this.height = height;
+        }
+
+        private ByteBuffer buffer() {
+            return store.headers.buffer((long) height * HEADER_SIZE);
+        }
+
+        private int at() {
+            return store.headers.offset((long) height * HEADER_SIZE);
+        }
+
+        public int getIndex() { return buffer().getInt(at() + H_INDEX); }
+        public long getTimestamp() { return buffer().getLong(at() + H_TIMESTAMP); }
+        public long getNonce() { return buffer().getLong(at() + H_NONCE); }
+        public int getExtraNonce() { return buffer().getInt(at() + H_EXTRA_NONCE); }
+        public int getBits() { return buffer().getInt(at() + H_BITS); }
+        public String getHash() { return readHash(buffer(), at() + H_HASH); }
+        public String getPreviousHash() { return readHash(buffer(), at() + H_PREVIOUS_HASH); }
+        public String getMerkleRoot() { return readHash(buffer(), at() + H_MERKLE_ROOT); }
+        public int getTransactionCount() { return buffer().getInt(at() + H_TX_COUNT); }
+
+        /**
+         * Whether the block was stored without its transactions
+         */
+        public boolean isPruned() {
+            return (buffer().getInt(at() + H_FLAGS) & FLAG_PRUNED) != 0;
+        }
+
+        public TransactionView getTransaction(int position) {
+            int count = getTransactionCount();
+            if (position < 0 || position >= count) {
+                throw new IndexOutOfBoundsException("Transaction " + position + " of " + count);
+            }
+            long indexPosition = (buffer().getLong(at() + H_FIRST_TX) + position) * 8;
+            long offset = store.txIndex.buffer(indexPosition).getLong(store.txIndex.offset(indexPosition));
+            return new TransactionView(store, offset);
+        }
+
+        // Unmodifiable list of views, created as they are read
+        public List<TransactionView> getTransactions() {
+            return new TransactionList(this, getTransactionCount());
+        }
+
+        /**
+         * Rebuild the Block (on the heap); its hash is recomputed and must match
+         *
+         * @throws IllegalStateException if the stored data no longer hashes to the stored hash
+         */
+        public Block toBlock() {
+            if (isPruned()) {
+                BlockHeader header = new BlockHeader(getIndex(), getPreviousHash(), getTimestamp(), getNonce(),
+                        getExtraNonce(), getBits(), getMerkleRoot());
+                return Block.fromHeader(header);
+            }
+            List<Transaction> transactions = new ArrayList<>(getTransactionCount());
+            for (TransactionView view : getTransactions()) {
+                transactions.add(view.toTransaction());
+            }
+            Block block = new Block(getIndex(), getPreviousHash(), getTimestamp(), getNonce(), getExtraNonce(),
+                    getBits(), transactions);
+            if (!block.getHash().equals(getHash())) {
+                throw new IllegalStateException("Stored block #" + height + " does not match its hash");
+            }
+            return block;
+        }
+
+        @Override
+        public String toString() {
+            return "BlockView #" + height + " [hash=" + getHash().substring(0, 16) + "..., txCount="
+                    + getTransactionCount() + "]";
+        }
+    }
+
+    private static final class TransactionList extends AbstractList<TransactionView> implements RandomAccess {
+        private final BlockView block;
+        private final int size;
+
+        TransactionList(BlockView block, int size) {
+            this.block = block;
+            this.size = size;
+        }
+
+        @Override
+        public TransactionView get(int index) {
+            return block.getTransaction(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A stored transaction, read field by field from the store
+     */
+    public static final class TransactionView {
+        private final OffHeapBlockStore store;
+        private final long offset;
+
+        private TransactionView(OffHeapBlockStore store, long offset) {
+            this.store = store;
+            this.offset = offset;
+        }
+
+        private ByteBuffer buffer() {
+            return store.records.buffer(offset);
+        }
+
+        private int at() {
+            return store.records.offset(offset);
+        }
+
+        private int length(int field) {
+            return Short.toUnsignedInt(buffer().getShort(at() + T_LENGTHS + 2 * field));
+        }
+
+        // Start of a variable-length field: sender 0, recipient 1, key 2, signature 3
+        private int dataStart(int field) {
+            int start = at() + T_DATA;
+            for (int previous = 0; previous < field; previous++) {
+                start += length(previous);
+            }
+            return start;
+        }
+
+        public String getTransactionId() { return readHash(buffer(), at() + T_ID); }
+        public double getAmount() { return buffer().getDouble(at() + T_AMOUNT); }
+        public long getTimeStamp() { return buffer().getLong(at() + T_TIMESTAMP); }
+        public String getSender() { return readUtf8(buffer(), dataStart(0), length(0)); }
+        public String getRecipient() { return readUtf8(buffer(), dataStart(1), length(1)); }
+        public boolean isSigned() { return length(3) > 0; }
+
+        public String getPublicKey() {
+            return isSigned() ? hex(dataStart(2), length(2)) : null;
+        }
+
+        public String getSignature() {
+            return isSigned() ? hex(dataStart(3), length(3)) : null;
+        }
+
+        private String hex(int start, int length) {
+            byte[] bytes = new byte[length];
+            buffer().get(start, bytes);
+            return StringUtil.bytesToHex(bytes);
+        }
+
+        /**
+         * Rebuild the Transaction (on the heap); it gets the same ID
+         */
+        public Transaction toTransaction() {
+            return new Transaction(getSender(), getRecipient(), getAmount(), getTimeStamp(),
+                    getPublicKey(), getSignature());
+        }
+
+        @Override
+        public String toString() {
+            return "TransactionView [from=" + getSender() + ", to=" + getRecipient() + ", amount=" + getAmount() + "]";
+        }
+    }
+
+    // ==================== REGIONS ====================
+
+    /**
+     * A growable run of bytes made of equal chunks, each a mapped part of a
+     * file or a direct buffer. Addressed by a long position; a record that
+     * would cross a chunk boundary is moved to the next chunk (reserve).
+     */
+    private static final class Region {
+        private final FileChannel channel;
+        private final int chunkSize;
+
+        // Replaced (never modified in place) when growing, so readers need no lock
+        private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+        Region(Path basePath, String suffix, int chunkSize) {
+            this.chunkSize = chunkSize;
+            if (basePath == null) {
+                this.channel = null;
+                return;
+            }
+            try {
+                this.channel = FileChannel.open(basePath.resolveSibling(basePath.getFileName() + suffix),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open block store " + basePath + suffix, e);
+            }
+        }
+
+        // Make sure every position below end is backed by a chunk
+        void ensure(long end) {
+            ByteBuffer[] current = chunks;
+            int needed = (int) ((end + chunkSize - 1) / chunkSize);
+            if (needed <= current.length) {
+                return;
+            }
+            ByteBuffer[] grown = Arrays.copyOf(current, needed);
+            for (int i = current.length; i < needed; i++) {
+                grown[i] = allocate(i);
+            }
+            chunks = grown;
+        }
+
+        // Where a record of this length starting at or after position goes
+        long reserve(long position, int length) {
+            if (length > chunkSize) {
+                throw new IllegalArgumentException("Record of " + length + " bytes is larger than a chunk");
+            }
+            if (position % chunkSize + length > chunkSize) {
+                position = (position / chunkSize + 1) * chunkSize;
+            }
+            ensure(position + length);
+            return position;
+        }
+
+        ByteBuffer buffer(long position) {
+            return chunks[(int) (position / chunkSize)];
+        }
+
+        int offset(long position) {
+            return (int) (position % chunkSize);
+        }
+
+        private ByteBuffer allocate(int chunk) {
+            if (channel == null) {
+                return ByteBuffer.allocateDirect(chunkSize);
+            }
+            try {
+                return channel.map(FileChannel.MapMode.READ_WRITE, (long) chunk * chunkSize, chunkSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot grow block store", e);
+            }
+        }
+
+        void close() {
+            chunks = new ByteBuffer[0];
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package blockchain;
+
+import models.Block;
+import models.BlockTemplate;
+import models.Transaction;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * ProofOfStake - Round-based consensus where stake, not hashing, decides
+ *
+ * Time is divided into rounds of roundMillis. For every round one
+ * proposer is drawn at random, weighted by stake: a validator holding 30%
+ * of all stake proposes about 30% of the blocks. No nonces are searched -
+ * sealing a block costs next to nothing.
+ *
+ * How a block is sealed:
+ *   nonce      = round number at the template's timestamp (the chain's
+ *                clock), and higher than the parent's
+ *   timestamp  = start of that round
+ *   extraNonce = proposer's position in the stake table
+ *   bits       = 0 (no target)
+ *
+ * The draw is seeded from the parent hash and the round, so every node
+ * computes the same proposer - verifying a block is a table lookup.
+ *
+ * STAKE: each address's balance (genesis allocation plus all transfers
+ * on the active chain). Stake is frozen per epoch of epochLength blocks:
+ * blocks in epoch e use the balances at the end of epoch e - 1, so a
+ * transfer cannot change who proposes the very next block.
+ *
+ * Simplifications of this simulation:
+ * - the node sealing a block does so on behalf of the round's proposer
+ *   (there are no validator keys to sign with), and does not wait for the
+ *   round to start - rounds just run ahead of the clock when blocks are
+ *   produced faster than one per round
+ * - stake tables come from the active chain, so a competing branch that
+ *   crosses an epoch boundary is judged by the active chain's stakes
+ */
+public class ProofOfStake implements ConsensusEngine, ChainListener {
+
+    /**
+     * Validators and their stake for one epoch, in address order
+     */
+    static final class StakeTable {
+        final String[] validators;
+        final double[] cumulative;   // cumulative[i] = stake of validators 0..i
+        final double total;
+
+        StakeTable(Map<String, Double> balances) {
+            TreeMap<String, Double> staked = new TreeMap<>();
+            balances.forEach((address, balance) -> {
+                if (balance > 0) {
+                    staked.put(address, balance);
+                }
+            });
+            validators = staked.keySet().toArray(new String[0]);
+            cumulative = new double[validators.length];
+            double sum = 0;
+            for (int i = 0; i < validators.length; i++) {
+                sum += staked.get(validators[i]);
+                cumulative[i] = sum;
+            }
+            total = sum;
+        }
+
+        // Stake-weighted draw: position of the validator owning point `at`
+        int pick(double at) {
+            int i = Arrays.binarySearch(cumulative, at);
+            i = i >= 0 ? i + 1 : -i - 1;
+            return Math.min(i, validators.length - 1);
+        }
+    }
+
+    private final Map<String, Double> genesisStakes;
+    private final long roundMillis;
+    private final int epochLength;
+
+    private Blockchain blockchain;
+    private long genesisTimestamp;
+
+    // Balances on the active chain and one stake table per epoch; the
+    // writer updates them (as a ChainListener), readers verify with them
+    private final Map<String, Double> balances = new HashMap<>();
+    private final List<StakeTable> epochs = new ArrayList<>();
+
+    /**
+     * @param genesisStakes Balance of each validator at genesis
+     * @param roundMillis Length of one round in milliseconds
+     * @param epochLength Blocks per epoch (stake is re-read once per epoch)
+     */
+    public ProofOfStake(Map<String, Double> genesisStakes, long roundMillis, int epochLength) {
+        if (roundMillis < 1 || epochLength < 1) {
+            throw new IllegalArgumentException("roundMillis and epochLength must be positive");
+        }
+        this.genesisStakes = new TreeMap<>(genesisStakes);
+        this.roundMillis = roundMillis;
+        this.epochLength = epochLength;
+        this.balances.putAll(genesisStakes);
+        this.epochs.add(new StakeTable(genesisStakes));
+        if (epochs.get(0).validators.length == 0) {
+            throw new IllegalArgumentException("At least one validator needs a positive stake");
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "proof-of-stake";
+    }
+
+    @Override
+    public void attach(Blockchain blockchain) {
+        if (this.blockchain != null) {
+            throw new IllegalStateException("Engine already serves another chain");
+        }
+        this.blockchain = blockchain;
+        blockchain.addChainListener(this);
+    }
+
+    @Override
+    public Block sealGenesis(BlockTemplate genesis) {
+        // Round 0 starts with the genesis block
+        genesisTimestamp = genesis.getTimestamp();
+        if (epochLength == 1) {
+            // Genesis is all of epoch 0 and is never "connected": add epoch 1 here
+            epochs.add(epochs.get(0));
+        }
+        return genesis.toBlock();
+    }
+
+    @Override
+    public int nextBits(Block parent) {
+        return 0;
+    }
+
+    @Override
+    public Block seal(BlockTemplate template, Block parent) {
+        // The template is stamped by the chain's clock, so a replayed or
+        // simulated clock decides the round, not the wall clock
+        long round = Math.max(parent.getNonce() + 1, (template.getTimestamp() - genesisTimestamp) / roundMillis);
+        int proposer = proposerIndex(parent, round);
+        return template.toBlock(roundStart(round), round, proposer, 0);
+    }
+
+    @Override
+    public boolean checkSeal(Block block) {
+        return block.getBits() == 0 && block.getNonce() >= 0 && block.getTimestamp() == roundStart(block.getNonce());
+    }
+
+    @Override
+    public boolean verifySeal(Block block, Block parent) {
+        return checkSeal(block)
+                && block.getNonce() > parent.getNonce()
+                && block.getExtraNonce() == proposerIndex(parent, block.getNonce());
+    }
+
+    // Every block counts the same: the longest branch wins
+    @Override
+    public BigInteger weight(Block block) {
+        return BigInteger.ONE;
+    }
+
+    /**
+     * Address of the validator that proposed a block
+     */
+    public String getProposer(Block block) {
+        StakeTable table = tableFor(block.getIndex());
+        int index = block.getExtraNonce();
+        return index >= 0 && index < table.validators.length ? table.validators[index] : null;
+    }
+
+    /**
+     * Stake each validator has for the block at a height
+     */
+    public Map<String, Double> getStakes(int height) {
+        StakeTable table = tableFor(height);
+        Map<String, Double> stakes = new TreeMap<>();
+        for (int i = 0; i < table.validators.length; i++) {
+            stakes.put(table.validators[i], table.cumulative[i] - (i == 0 ? 0 : table.cumulative[i - 1]));
+        }
+        return stakes;
+    }
+
+    public Map<String, Double> getGenesisStakes() {
+        return genesisStakes;
+    }
+
+    // Stake-weighted draw for (parent, round); same result on every node
+    private int proposerIndex(Block parent, long round) {
+        StakeTable table = tableFor(parent.getIndex() + 1);
+        long seed = parent.getHash().hashCode() * 0x9E3779B97F4A7C15L ^ round;
+        return table.pick(new SplittableRandom(seed).nextDouble() * table.total);
+    }
+
+    private long roundStart(long round) {
+        return genesisTimestamp + round * roundMillis;
+    }
+
+    private synchronized StakeTable tableFor(int height) {
+        int epoch = height / epochLength;
+        // An epoch we have not reached yet uses the latest table
+        return epochs.get(Math.min(epoch, epochs.size() - 1));
+    }
+
+    // ==================== BALANCES (ChainListener) ====================
+
+    @Override
+    public synchronized void blockConnected(Block block) {
+        apply(block, 1);
+        // Last block of an epoch: its balances become the next epoch's stake
+        if ((block.getIndex() + 1) % epochLength == 0) {
+            StakeTable next = new StakeTable(balances);
+            if (next.validators.length > 0) {
+                epochs.add(next);
+            } else {
+                // Everybody spent their stake; keep the old validators
+                epochs.add(epochs.get(epochs.size() - 1));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void blockDisconnected(Block block) {
+        apply(block, -1);
+        if ((block.getIndex() + 1) % epochLength == 0) {
+            epochs.remove(epochs.size() - 1);
+        }
+    }
+
+    private void apply(Block block, int direction) {
+        for (Transaction tx : block.getTransactions()) {
+            balances.merge(tx.getSender(), -direction * tx.getAmount(), Double::sum);
+            balances.merge(tx.getRecipient(), direction * tx.getAmount(), Double::sum);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package blockchain;
+
+import models.Block;
+import models.BlockTemplate;
+import utils.Target;
+import java.math.BigInteger;
+
+/**
+ * ProofOfWork - Consensus by mining (the original rules of this chain)
+ *
+ * - seal: search nonces until the block hash falls below the target
+ * - verify: the hash meets the block's own target, and that target is the
+ *   one the retarget schedule prescribes after the parent
+ * - weight: the expected number of hashes needed to find the block, so the
+ *   branch with the most total work wins
+ *
+ * Retargeting (optional): every retargetInterval blocks, the target is
+ * scaled by how long the last retargetInterval blocks actually took
+ * compared with how long they should have taken:
+ *
+ *   newTarget = oldTarget * actualTimespan / expectedTimespan
+ *
+ * Blocks came too fast -> smaller target -> harder to mine, and the
+ * other way round. This keeps block production steady as hashpower
+ * changes, in steps much finer than one leading zero (16x).
+ */
+public class ProofOfWork implements ConsensusEngine {
+
+    // Leading zeros required of the genesis block
+    private final int difficulty;
+
+    // Desired time between blocks in milliseconds (0 = never retarget)
+    private final long targetBlockTime;
+
+    // Number of blocks between target adjustments (0 = never retarget)
+    private final int retargetInterval;
+
+    private Blockchain blockchain;
+
+    /**
+     * Fixed target: every block needs `difficulty` leading zeros
+     */
+    public ProofOfWork(int difficulty) {
+        this(difficulty, 0, 0);
+    }
+
+    /**
+     * @param difficulty Leading zeros required of the genesis block
+     * @param targetBlockTime Desired time between blocks in milliseconds
+     * @param retargetInterval Blocks between adjustments (0 disables retargeting)
+     */
+    public ProofOfWork(int difficulty, long targetBlockTime, int retargetInterval) {
+        this.difficulty = difficulty;
+        this.targetBlockTime = targetBlockTime;
+        this.retargetInterval = retargetInterval;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    @Override
+    public String getName() {
+        return "proof-of-work";
+    }
+
+    @Override
+    public void attach(Blockchain blockchain) {
+        if (this.blockchain != null) {
+            throw new IllegalStateException("Engine already serves another chain");
+        }
+        this.blockchain = blockchain;
+    }
+
+    @Override
+    public Block sealGenesis(BlockTemplate genesis) {
+        return genesis.mineBlock(difficulty);
+    }
+
+    /**
+     * Compact target required of the block that follows parent
+     *
+     * 1. Not at a retarget height: same target as the parent
+     * 2. At a retarget height: look back retargetInterval blocks and
+     *    measure how long they took
+     * 3. Clamp that timespan to [expected / 4, expected * 4] so a few
+     *    blocks with odd timestamps cannot swing difficulty wildly
+     * 4. Scale the target by actual / expected, never easier than one
+     *    leading zero
+     *
+     * Only ancestors of parent are used, so every branch of the block tree
+     * gets its own (deterministic) schedule.
+     */
+    @Override
+    public int nextBits(Block parent) {
+        int height = parent.getIndex() + 1;
+        if (retargetInterval <= 0 || targetBlockTime <= 0 || height % retargetInterval != 0) {
+            return parent.getBits();
+        }
+
+        Block first = parent;
+        for (int i = 1; i < retargetInterval && first.getIndex() > 0; i++) {
+            first = blockchain.getBlockByHash(first.getPreviousHash());
+        }
+        long expected = targetBlockTime * (parent.getIndex() - first.getIndex());
+        if (expected <= 0) {
+            return parent.getBits();
+        }
+        long actual = parent.getTimestamp() - first.getTimestamp();
+        actual = Math.max(expected / 4, Math.min(expected * 4, actual));
+
+        BigInteger target = Target.decodeCompact(parent.getBits())
+                .multiply(BigInteger.valueOf(actual))
+                .divide(BigInteger.valueOf(expected));
+        BigInteger limit = Target.fromLeadingZeros(1);
+        if (target.compareTo(limit) > 0) {
+            target = limit;
+        }
+        return Target.encodeCompact(target);
+    }
+
+    @Override
+    public Block seal(BlockTemplate template, Block parent) {
+        // This finds a nonce that makes the block hash fall below the target
+        // the chain expects at this height
+        return template.mineBlockToTarget(nextBits(parent));
+    }
+
+    @Override
+    public boolean checkSeal(Block block) {
+        return block.hasValidProofOfWork();
+    }
+
+    @Override
+    public boolean verifySeal(Block block, Block parent) {
+        return block.hasValidProofOfWork() && block.getBits() == nextBits(parent);
+    }
+
+    // Expected number of hashes needed to find a block at its own target
+    @Override
+    public BigInteger weight(Block block) {
+        return Target.work(block.getBits());
+    }
+}
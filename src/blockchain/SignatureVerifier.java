@@ -0,0 +1,215 @@
+package blockchain;
+
+import models.Transaction;
+import utils.SignatureUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * SignatureVerifier - Checks transaction signatures, in parallel, at most once
+ *
+ * Checking a signature costs about a millisecond of CPU - thousands of
+ * times more than hashing the transaction. Two things keep that off the
+ * critical path:
+ *
+ * 1. PARALLEL BATCHES: a batch (a block, or transactions loaded in bulk)
+ *    is verified on all cores with a parallel stream, before the
+ *    blockchain's lock is taken. Signatures are independent of each other
+ *    and of the chain, so nothing is lost by checking them concurrently.
+ *
+ * 2. VERIFIED-SIGNATURE CACHE: a transaction is usually seen twice - when
+ *    it enters the pending pool, and again inside the block that includes
+ *    it (and a third time when the chain is validated). The IDs of
+ *    transactions whose signature checked out are remembered, so the
+ *    second and third checks are a set lookup. A signed transaction's ID
+ *    covers its key and signature, so a cached ID can only match the very
+ *    signature that was verified. The cache holds a bounded number of IDs
+ *    and forgets the oldest first.
+ *
+ * Only valid results are cached: a bad signature is cheap to resend, and
+ * caching it would let anyone fill the cache.
+ *
+ * What counts as valid:
+ * - signed: the sender is the address of the public key, and the
+ *   signature of getSigningData() checks out with that key
+ * - unsigned: never, unless the owner explicitly opts out with
+ *   setRequireSignatures(false) - meant for demos and tests that build
+ *   plain Transaction(sender, recipient, amount) objects
+ *
+ * Thread-safe: every method may be called from any thread.
+ */
+public class SignatureVerifier {
+
+    // IDs remembered as verified (about 100 bytes each)
+    public static final int DEFAULT_CACHE_SIZE = 100_000;
+
+    // Batches smaller than this are verified on the calling thread
+    private static final int PARALLEL_THRESHOLD = 16;
+
+    // Verified IDs; the ring remembers insertion order so the oldest can be evicted
+    private final Set<String> verified = ConcurrentHashMap.newKeySet();
+    private final AtomicReferenceArray<String> ring;
+    private final AtomicLong nextSlot = new AtomicLong();
+
+    private volatile boolean requireSignatures = true;
+
+    private final LongAdder signaturesChecked = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public SignatureVerifier() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize Verified transaction IDs to remember
+     */
+    public SignatureVerifier(int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.ring = new AtomicReferenceArray<>(cacheSize);
+    }
+
+    /**
+     * Whether unsigned transactions are rejected (default: true)
+     *
+     * Passing false is an opt-out for demos and tests that work with plain
+     * unsigned transactions; signed ones are verified either way. Applies
+     * to blocks and chain validation too: switching it back on makes a
+     * chain that already holds unsigned transactions fail validation.
+     */
+    public void setRequireSignatures(boolean requireSignatures) {
+        this.requireSignatures = requireSignatures;
+    }
+
+    public boolean isRequireSignatures() {
+        return requireSignatures;
+    }
+
+    /**
+     * Check one transaction (from the cache if it was verified before)
+     */
+    public boolean isValid(Transaction transaction) {
+        if (!transaction.isSigned()) {
+            if (requireSignatures) {
+                rejected.increment();
+                return false;
+            }
+            return true;
+        }
+        String id = transaction.getTransactionId();
+        if (verified.contains(id)) {
+            cacheHits.increment();
+            return true;
+        }
+
+        signaturesChecked.increment();
+        boolean valid = transaction.getSender().equals(SignatureUtil.addressOf(transaction.getPublicKey()))
+                && SignatureUtil.verify(transaction.getPublicKey(), transaction.getSigningData(),
+                        transaction.getSignature());
+        if (valid) {
+            remember(id);
+        } else {
+            rejected.increment();
+        }
+        return valid;
+    }
+
+    /**
+     * The valid transactions of a batch, in their original order
+     *
+     * Large batches are verified in parallel.
+     */
+    public List<Transaction> filterValid(Collection<Transaction> transactions) {
+        if (transactions.size() < PARALLEL_THRESHOLD) {
+            List<Transaction> valid = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                if (isValid(transaction)) {
+                    valid.add(transaction);
+                }
+            }
+            return valid;
+        }
+        return transactions.parallelStream().filter(this::isValid).collect(Collectors.toList());
+    }
+
+    /**
+     * Position of the first invalid transaction in a batch, or -1 if all are valid
+     *
+     * Large batches are verified in parallel; every transaction is checked
+     * (so the valid ones are cached even when an early one fails).
+     */
+    public int firstInvalid(List<Transaction> transactions) {
+        IntStream positions = IntStream.range(0, transactions.size());
+        if (transactions.size() >= PARALLEL_THRESHOLD) {
+            positions = positions.parallel();
+        }
+        OptionalInt first = positions.filter(i -> !isValid(transactions.get(i))).min();
+        return first.orElse(-1);
+    }
+
+    /**
+     * True if every transaction of the batch is valid
+     */
+    public boolean allValid(List<Transaction> transactions) {
+        return firstInvalid(transactions) < 0;
+    }
+
+    // Add an ID to the cache, evicting the oldest one once full
+    private void remember(String id) {
+        if (!verified.add(id)) {
+            return;
+        }
+        int slot = (int) (nextSlot.getAndIncrement() % ring.length());
+        String evicted = ring.getAndSet(slot, id);
+        if (evicted != null) {
+            verified.remove(evicted);
+        }
+    }
+
+    /**
+     * Forget every verified signature (the next checks are done in full)
+     */
+    public void clearCache() {
+        for (int slot = 0; slot < ring.length(); slot++) {
+            String id = ring.getAndSet(slot, null);
+            if (id != null) {
+                verified.remove(id);
+            }
+        }
+    }
+
+    public int getCacheSize() {
+        return verified.size();
+    }
+
+    // Signatures actually verified (cache misses)
+    public long getSignaturesChecked() {
+        return signaturesChecked.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SignatureVerifier[%,d checked, %,d cache hits, %,d rejected, %,d cached%s]",
+                getSignaturesChecked(), getCacheHits(), getRejected(), getCacheSize(),
+                requireSignatures ? ", signatures required" : "");
+    }
+}
@@ -0,0 +1,103 @@
+package blockchain;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * StateSnapshot - Derived state of the chain as of one block (a checkpoint)
+ *
+ * Balances can always be recomputed by replaying every transaction from
+ * genesis - unless the transactions are gone. A pruning node therefore
+ * records the state at the height it prunes up to before dropping
+ * anything: everything it no longer has the transactions for is summed
+ * up here.
+ *
+ * A snapshot from a node you trust (or your own, from an earlier run) is
+ * also a starting point: Blockchain.fromCheckpoint starts a new node from
+ * it without replaying the blocks it covers. toJson/fromJson carry it
+ * between processes.
+ *
+ * Immutable; safe to hand to any thread.
+ */
+public final class StateSnapshot {
+
+    private final int height;
+    private final String blockHash;
+    private final Map<String, Double> balances;
+    private final long transactionCount;
+
+    StateSnapshot(int height, String blockHash, Map<String, Double> balances, long transactionCount) {
+        this.height = height;
+        this.blockHash = blockHash;
+        // Zero balances are left out, so the result does not depend on whether
+        // the state was built forwards from genesis or rewound from the tip
+        TreeMap<String, Double> nonZero = new TreeMap<>();
+        balances.forEach((address, balance) -> {
+            if (balance != 0) {
+                nonZero.put(address, balance);
+            }
+        });
+        this.balances = Collections.unmodifiableMap(nonZero);
+        this.transactionCount = transactionCount;
+    }
+
+    /**
+     * Height of the block this state is as of (its transactions included)
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    public String getBlockHash() {
+        return blockHash;
+    }
+
+    /**
+     * Every non-zero balance, sorted by address
+     */
+    public Map<String, Double> getBalances() {
+        return balances;
+    }
+
+    public double getBalance(String address) {
+        return balances.getOrDefault(address, 0.0);
+    }
+
+    /**
+     * Transactions in blocks 0 to height
+     */
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * JSON form, for storing or shipping the checkpoint
+     */
+    public String toJson() {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(this);
+    }
+
+    /**
+     * Read a checkpoint written by toJson
+     *
+     * @throws JsonParseException if the text is not a complete checkpoint
+     */
+    public static StateSnapshot fromJson(String json) {
+        StateSnapshot parsed = new Gson().fromJson(json, StateSnapshot.class);
+        if (parsed == null || parsed.blockHash == null || parsed.balances == null || parsed.height < 0) {
+            throw new JsonParseException("Not a state snapshot");
+        }
+        // Through the constructor again, for an unmodifiable, sorted map
+        return new StateSnapshot(parsed.height, parsed.blockHash, parsed.balances, parsed.transactionCount);
+    }
+
+    @Override
+    public String toString() {
+        return "State @ #" + height + " [hash=" + blockHash.substring(0, 16) + "..., addresses="
+                + balances.size() + ", transactions=" + transactionCount + "]";
+    }
+}
@@ -0,0 +1,239 @@
+package blockchain;
+
+import models.Transaction;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * TransactionLoader - Bulk import of transactions from a file
+ *
+ * Reads a replay file line by line and feeds the pending pool in batches:
+ *
+ *   reader thread:  read batch 1 | read batch 2 | read batch 3 | ...
+ *   all cores:                   | parse + hash 1 | parse + hash 2 | ...
+ *   reader thread:                               | insert 1 | insert 2 | ...
+ *
+ * - Parsing and the SHA-256 transaction IDs (the expensive part) are
+ *   computed in parallel over each batch, while the next batch is read
+ * - Each batch goes into the pool with one Blockchain.addTransactions call
+ * - Signatures are verified in parallel too (see SignatureVerifier);
+ *   transactions that fail are skipped and counted
+ * - Duplicates (already pending, or already mined) are skipped and counted.
+ *   Mined ones are looked up in the chain's ChainIndex if one has been
+ *   built, otherwise by scanning the current ChainSnapshot - a load never
+ *   builds an index of every mined transaction just to check for them
+ * - Malformed lines are skipped and counted, not fatal
+ *
+ * Only one batch is in memory at a time besides the one being read, so
+ * files far larger than the heap can be streamed (the pool itself still
+ * has to hold what is loaded).
+ *
+ * Formats, chosen by file extension:
+ *   .csv                   sender,recipient,amount[,timestamp]  (header optional)
+ *   anything else (NDJSON) {"sender":"..","recipient":"..","amount":1.5,"timeStamp":...,
+ *                           "publicKey":"..","signature":".."}   (last two optional)
+ *
+ * With a timestamp the transaction gets the same ID it had originally.
+ * Signed transactions need NDJSON (and their original timestamp).
+ */
+public class TransactionLoader {
+
+    public static final int DEFAULT_BATCH_SIZE = 50_000;
+
+    /**
+     * What a load did
+     */
+    public static final class LoadReport {
+        private final long lines;
+        private final long added;
+        private final long duplicates;
+        private final long rejected;
+        private final long malformed;
+        private final long nanos;
+
+        LoadReport(long lines, long added, long duplicates, long rejected, long malformed, long nanos) {
+            this.lines = lines;
+            this.added = added;
+            this.duplicates = duplicates;
+            this.rejected = rejected;
+            this.malformed = malformed;
+            this.nanos = nanos;
+        }
+
+        public long getLines() { return lines; }
+        public long getAdded() { return added; }
+        public long getDuplicates() { return duplicates; }
+        public long getRejected() { return rejected; }
+        public long getMalformed() { return malformed; }
+        public double getSeconds() { return nanos / 1e9; }
+
+        // Lines processed per second
+        public double getThroughput() {
+            return lines / getSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d lines in %.2f s (%,.0f tx/s): %,d added, %,d duplicates, %,d bad signatures, %,d malformed",
+                    lines, getSeconds(), getThroughput(), added, duplicates, rejected, malformed);
+        }
+    }
+
+    private final Blockchain blockchain;
+    private final int batchSize;
+
+    public TransactionLoader(Blockchain blockchain) {
+        this(blockchain, DEFAULT_BATCH_SIZE);
+    }
+
+    public TransactionLoader(Blockchain blockchain, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.blockchain = blockchain;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Load every transaction in a CSV or NDJSON file into the pending pool
+     */
+    public LoadReport load(Path file) throws IOException {
+        boolean csv = file.getFileName().toString().toLowerCase().endsWith(".csv");
+        long start = System.nanoTime();
+        long lines = 0;
+        long parsed = 0;
+        long added = 0;
+        long rejected = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            CompletableFuture<List<Transaction>> inFlight = null;
+            boolean firstLine = true;
+            while (true) {
+                List<String> batch = new ArrayList<>(batchSize);
+                String line;
+                while (batch.size() < batchSize && (line = reader.readLine()) != null) {
+                    if (firstLine && csv && isCsvHeader(line)) {
+                        firstLine = false;
+                        continue;
+                    }
+                    firstLine = false;
+                    if (!line.isBlank()) {
+                        batch.add(line);
+                    }
+                }
+                lines += batch.size();
+
+                // Start hashing this batch, then insert the previous one meanwhile
+                CompletableFuture<List<Transaction>> next = batch.isEmpty() ? null
+                        : CompletableFuture.supplyAsync(() -> parseBatch(batch, csv));
+                if (inFlight != null) {
+                    List<Transaction> transactions = inFlight.join();
+                    parsed += transactions.size();
+                    List<Transaction> valid = blockchain.getSignatureVerifier().filterValid(transactions);
+                    rejected += transactions.size() - valid.size();
+                    added += insert(valid);
+                }
+                if (next == null) {
+                    break;
+                }
+                inFlight = next;
+            }
+        }
+        return new LoadReport(lines, added, parsed - rejected - added, rejected, lines - parsed, System.nanoTime() - start);
+    }
+
+    // Parse and hash in parallel; malformed lines are left out
+    private static List<Transaction> parseBatch(List<String> lines, boolean csv) {
+        return lines.parallelStream()
+                .map(line -> csv ? parseCsv(line) : parseJson(line))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Add a batch, minus transactions already mined (as of this batch's snapshot)
+    private int insert(List<Transaction> transactions) {
+        ChainIndex index = blockchain.getIndexIfBuilt();
+        ChainSnapshot snapshot = blockchain.snapshot();
+        List<Transaction> fresh = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            String id = transaction.getTransactionId();
+            if ((index != null ? index.findTransaction(id) : snapshot.findTransaction(id)) == null) {
+                fresh.add(transaction);
+            }
+        }
+        return blockchain.addTransactions(fresh);
+    }
+
+    private static boolean isCsvHeader(String line) {
+        String[] fields = line.split(",", -1);
+        return fields.length >= 3 && parseAmount(fields[2].trim()) == null;
+    }
+
+    static Transaction parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 3 && fields.length != 4) {
+            return null;
+        }
+        Double amount = parseAmount(fields[2].trim());
+        Long timestamp = fields.length == 4 ? parseTimestamp(fields[3].trim()) : null;
+        if (fields.length == 4 && timestamp == null) {
+            return null;
+        }
+        return create(fields[0].trim(), fields[1].trim(), amount, timestamp);
+    }
+
+    static Transaction parseJson(String line) {
+        try {
+            JsonObject object = JsonParser.parseString(line).getAsJsonObject();
+            JsonElement timestamp = object.has("timeStamp") ? object.get("timeStamp") : object.get("timestamp");
+            Transaction transaction = create(object.get("sender").getAsString(), object.get("recipient").getAsString(),
+                    object.get("amount").getAsDouble(), timestamp == null ? null : timestamp.getAsLong());
+            if (transaction == null || !object.has("signature")) {
+                return transaction;
+            }
+            return new Transaction(transaction.getSender(), transaction.getRecipient(), transaction.getAmount(),
+                    transaction.getTimeStamp(), object.get("publicKey").getAsString(),
+                    object.get("signature").getAsString());
+        } catch (RuntimeException e) {
+            // Not JSON, not an object, a field missing or of the wrong type
+            return null;
+        }
+    }
+
+    // The constructor computes the SHA-256 ID - this is the parallel part
+    private static Transaction create(String sender, String recipient, Double amount, Long timestamp) {
+        if (sender.isEmpty() || recipient.isEmpty() || amount == null || !(amount > 0) || amount.isInfinite()) {
+            return null;
+        }
+        return timestamp == null
+                ? new Transaction(sender, recipient, amount)
+                : new Transaction(sender, recipient, amount, timestamp);
+    }
+
+    private static Double parseAmount(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long parseTimestamp(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
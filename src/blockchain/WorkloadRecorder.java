@@ -0,0 +1,270 @@
+package blockchain;
+
+import models.Block;
+import models.Transaction;
+import utils.StringUtil;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * WorkloadRecorder - Log of what was asked of a Blockchain, and when
+ *
+ * Records every call that shapes the chain, in order, with its time:
+ *
+ *   submit        one addTransaction call (the transaction itself)
+ *   submit batch  one addTransactions call (all its transactions)
+ *   mine          one minePendingTransactions call (timestamp and hash
+ *                 of the block it produced, if any)
+ *
+ * WorkloadReplayer feeds the log back through a fresh chain. Transactions
+ * keep their own timestamps (and signatures), so they get the same IDs;
+ * each block is mined with the timestamp recorded for it (through an
+ * injected clock, see Blockchain.setClock), so it gets the same hash.
+ * A log made from an interactive session can then be replayed on every
+ * build and the reports compared.
+ *
+ * Blocks received from peers and background mining jobs are not recorded:
+ * they are not calls made on this node's behalf.
+ *
+ * Format (big-endian, written through a buffer):
+ *   header  int magic "WKLD", byte version, UTF network name ("" if none),
+ *           32-byte genesis hash, boolean signatures required (version 2)
+ *   event   byte type, varint microseconds since the previous event, then
+ *     submit        transaction
+ *     submit batch  varint count, that many transactions
+ *     mine          boolean mined [, long block timestamp, 32-byte hash]
+ *   transaction  UTF sender, UTF recipient, double amount, varint
+ *           timestamp minus the previous transaction's (zigzag), boolean
+ *           signed [, 16-bit length + public key, 16-bit length + signature]
+ *
+ * Thread-safe; a failed write stops the recording (the node carries on).
+ */
+public class WorkloadRecorder implements AutoCloseable {
+
+    static final int MAGIC = 0x574b4c44;
+    static final int VERSION = 2;
+
+    static final int SUBMIT = 1;
+    static final int SUBMIT_BATCH = 2;
+    static final int MINE = 3;
+
+    private final Path file;
+    private final DataOutputStream out;
+    private final long startNanos = System.nanoTime();
+
+    // Delta bases: time of the last event, timestamp of the last transaction
+    private long lastEventMicros;
+    private long lastTimeStamp;
+
+    private long events;
+    private boolean closed;
+
+    /**
+     * Start a log for a chain
+     *
+     * @param file Where to write (replaced if it exists)
+     * @param networkName Network the chain belongs to, or null for a custom genesis
+     * @param genesisHash Hash of the chain's genesis block, checked on replay
+     * @param requireSignatures Whether the chain rejects unsigned transactions,
+     *                          so the replay chain is set up the same way
+     */
+    public WorkloadRecorder(Path file, String networkName, String genesisHash, boolean requireSignatures)
+            throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(networkName == null ? "" : networkName);
+        out.write(StringUtil.hexToBytes(genesisHash));
+        out.writeBoolean(requireSignatures);
+    }
+
+    /**
+     * Time since recording started, for calls that record when they began
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public synchronized void submitted(Transaction transaction) {
+        if (beginEvent(SUBMIT, elapsedNanos())) {
+            write(() -> writeTransaction(transaction));
+        }
+    }
+
+    public synchronized void submitted(Collection<Transaction> transactions) {
+        if (beginEvent(SUBMIT_BATCH, elapsedNanos())) {
+            write(() -> {
+                writeVarLong(out, transactions.size());
+                for (Transaction transaction : transactions) {
+                    writeTransaction(transaction);
+                }
+            });
+        }
+    }
+
+    /**
+     * A mining call finished
+     *
+     * @param startedNanos elapsedNanos() when the call began
+     * @param block The block it added, or null if it added none (nothing to
+     *              mine, or the mined block did not become the tip)
+     */
+    public synchronized void mined(long startedNanos, Block block) {
+        if (beginEvent(MINE, startedNanos)) {
+            write(() -> {
+                out.writeBoolean(block != null);
+                if (block != null) {
+                    out.writeLong(block.getTimestamp());
+                    out.write(StringUtil.hexToBytes(block.getHash()));
+                }
+            });
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized long getEventCount() {
+        return events;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("[ERROR] Could not finish workload log " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadRecorder[" + file + ", " + getEventCount() + " events]";
+    }
+
+    // Event type and time; false if the recording has stopped
+    private boolean beginEvent(int type, long atNanos) {
+        if (closed) {
+            return false;
+        }
+        // Calls racing on other threads may finish out of order: never go back
+        long micros = Math.max(lastEventMicros, atNanos / 1_000);
+        long delta = micros - lastEventMicros;
+        lastEventMicros = micros;
+        events++;
+        return write(() -> {
+            out.writeByte(type);
+            writeVarLong(out, delta);
+        });
+    }
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    private boolean write(Action action) {
+        try {
+            action.run();
+            return true;
+        } catch (IOException e) {
+            System.out.println("[ERROR] Workload recording stopped: " + e.getMessage());
+            close();
+            return false;
+        }
+    }
+
+    private void writeTransaction(Transaction transaction) throws IOException {
+        out.writeUTF(transaction.getSender());
+        out.writeUTF(transaction.getRecipient());
+        out.writeDouble(transaction.getAmount());
+        writeVarLong(out, zigzag(transaction.getTimeStamp() - lastTimeStamp));
+        lastTimeStamp = transaction.getTimeStamp();
+        out.writeBoolean(transaction.isSigned());
+        if (transaction.isSigned()) {
+            writeBytes(out, transaction.getPublicKey());
+            writeBytes(out, transaction.getSignature());
+        }
+    }
+
+    // ============================================================
+    // FIELD HELPERS (shared with WorkloadReplayer)
+    // ============================================================
+
+    // Transaction back from the log; previousTimeStamp[0] is the delta base
+    static Transaction readTransaction(DataInputStream in, long[] previousTimeStamp) throws IOException {
+        String sender = in.readUTF();
+        String recipient = in.readUTF();
+        double amount = in.readDouble();
+        long timeStamp = previousTimeStamp[0] + unzigzag(readVarLong(in));
+        previousTimeStamp[0] = timeStamp;
+        if (!in.readBoolean()) {
+            return new Transaction(sender, recipient, amount, timeStamp);
+        }
+        String publicKey = readBytes(in);
+        String signature = readBytes(in);
+        return new Transaction(sender, recipient, amount, timeStamp, publicKey, signature);
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set on all but the last
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in workload log");
+    }
+
+    static String readHash(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[32];
+        in.readFully(bytes);
+        return StringUtil.bytesToHex(bytes);
+    }
+
+    // Small negative deltas (out-of-order timestamps) stay small
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeBytes(DataOutputStream out, String hex) throws IOException {
+        byte[] bytes = StringUtil.hexToBytes(hex);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return StringUtil.bytesToHex(bytes);
+    }
+}
@@ -0,0 +1,429 @@
+package blockchain;
+
+import models.Block;
+import models.Transaction;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WorkloadReplayer - Runs a recorded workload again, for comparable numbers
+ *
+ * Loads a log written by WorkloadRecorder and makes the same calls, in the
+ * same order, on a fresh chain of the same network:
+ *
+ *   Pace.FAST      one call after the other - throughput of this build
+ *   Pace.ORIGINAL  each call at its recorded time - latency under the
+ *                  load that was actually seen
+ *
+ * The chain's clock is replaced by one that reads the recorded timestamp
+ * of the block each mining call produced, so the replay mines exactly the
+ * same blocks: the report says how many mining calls reproduced their
+ * block's hash (anything less means the chain's behaviour changed, not
+ * just its speed) and ends on the final tip hash.
+ *
+ * The whole log is read before the replay starts, so reading it is not
+ * part of the timings. Blockchain still prints as it works; silence
+ * System.out around replay() to time the chain alone.
+ */
+public class WorkloadReplayer {
+
+    public enum Pace {
+        FAST,      // As fast as possible
+        ORIGINAL   // At the recorded times
+    }
+
+    // One recorded call
+    private static final class Event {
+        final int type;
+        final long offsetNanos;
+        final List<Transaction> transactions;
+        final boolean mined;
+        final long blockTimestamp;
+        final String blockHash;
+
+        Event(int type, long offsetNanos, List<Transaction> transactions, boolean mined, long blockTimestamp,
+              String blockHash) {
+            this.type = type;
+            this.offsetNanos = offsetNanos;
+            this.transactions = transactions;
+            this.mined = mined;
+            this.blockTimestamp = blockTimestamp;
+            this.blockHash = blockHash;
+        }
+    }
+
+    private final Path file;
+    private final String networkName;
+    private final String genesisHash;
+    private final boolean requireSignatures;
+    private final List<Event> events;
+    private final long transactionCount;
+
+    private WorkloadReplayer(Path file, String networkName, String genesisHash, boolean requireSignatures,
+                             List<Event> events) {
+        this.file = file;
+        this.networkName = networkName;
+        this.genesisHash = genesisHash;
+        this.requireSignatures = requireSignatures;
+        this.events = events;
+        this.transactionCount = events.stream().mapToLong(e -> e.transactions.size()).sum();
+    }
+
+    /**
+     * Read a workload log
+     *
+     * A log cut short (the recording process was killed) is read up to
+     * its last complete event.
+     *
+     * @throws IOException if the file cannot be read or is not a workload log
+     */
+    public static WorkloadReplayer load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != WorkloadRecorder.MAGIC) {
+                throw new IOException("Not a workload log: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version < 1 || version > WorkloadRecorder.VERSION) {
+                throw new IOException("Unsupported workload log version " + version + ": " + file);
+            }
+            String networkName = in.readUTF();
+            String genesisHash = WorkloadRecorder.readHash(in);
+            // Version 1 logs come from chains that accepted unsigned transactions
+            boolean requireSignatures = version >= 2 && in.readBoolean();
+
+            List<Event> events = new ArrayList<>();
+            long[] previousTimeStamp = {0};
+            long offsetMicros = 0;
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                try {
+                    offsetMicros += WorkloadRecorder.readVarLong(in);
+                    events.add(readEvent(in, type, offsetMicros * 1_000, previousTimeStamp));
+                } catch (EOFException e) {
+                    System.out.println("[WARNING] Workload log ends mid-event, replaying "
+                            + events.size() + " complete events: " + file);
+                    break;
+                }
+            }
+            return new WorkloadReplayer(file, networkName.isEmpty() ? null : networkName, genesisHash,
+                    requireSignatures, events);
+        }
+    }
+
+    private static Event readEvent(DataInputStream in, int type, long offsetNanos, long[] previousTimeStamp)
+            throws IOException {
+        switch (type) {
+            case WorkloadRecorder.SUBMIT:
+                return new Event(type, offsetNanos,
+                        List.of(WorkloadRecorder.readTransaction(in, previousTimeStamp)), false, 0, null);
+            case WorkloadRecorder.SUBMIT_BATCH:
+                int count = (int) WorkloadRecorder.readVarLong(in);
+                List<Transaction> batch = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    batch.add(WorkloadRecorder.readTransaction(in, previousTimeStamp));
+                }
+                return new Event(type, offsetNanos, batch, false, 0, null);
+            case WorkloadRecorder.MINE:
+                if (!in.readBoolean()) {
+                    return new Event(type, offsetNanos, List.of(), false, 0, null);
+                }
+                long timestamp = in.readLong();
+                return new Event(type, offsetNanos, List.of(), true, timestamp, WorkloadRecorder.readHash(in));
+            default:
+                throw new IOException("Unknown workload event type " + type);
+        }
+    }
+
+    /**
+     * A fresh chain of the recorded network, requiring signatures only if
+     * the recorded chain did
+     *
+     * @throws IllegalStateException if the log was recorded on a chain with
+     *         a custom genesis (build that chain and use replay(chain, pace))
+     */
+    public Blockchain createChain() {
+        if (networkName == null) {
+            throw new IllegalStateException("Workload was recorded without a network; replay it on a chain "
+                    + "with genesis " + genesisHash);
+        }
+        Blockchain blockchain = new Blockchain(NetworkParams.forName(networkName));
+        blockchain.setRequireSignatures(requireSignatures);
+        return blockchain;
+    }
+
+    /**
+     * Replay on a fresh chain of the recorded network
+     */
+    public Report replay(Pace pace) {
+        return replay(createChain(), pace);
+    }
+
+    /**
+     * Replay on the given chain
+     *
+     * The chain should be new (only its genesis block): the recorded
+     * blocks were mined on top of the genesis. Its clock is replaced
+     * during the replay and restored afterwards. Set it up like the
+     * recorded chain (isRequireSignatures), or recorded unsigned
+     * transactions are rejected.
+     *
+     * @throws IllegalArgumentException if the chain's genesis is not the recorded one
+     */
+    public Report replay(Blockchain blockchain, Pace pace) {
+        String genesis = blockchain.getChain().get(0).getHash();
+        if (!genesis.equals(genesisHash)) {
+            throw new IllegalArgumentException("Chain genesis " + genesis + " is not the recorded " + genesisHash);
+        }
+
+        Clock previousClock = blockchain.getClock();
+        ReplayClock clock = new ReplayClock(previousClock.millis());
+        blockchain.setClock(clock);
+
+        Latencies submitLatencies = new Latencies();
+        Latencies mineLatencies = new Latencies();
+        long added = 0;
+        int blocks = 0;
+        int reproduced = 0;
+        long start = System.nanoTime();
+        try {
+            for (Event event : events) {
+                if (pace == Pace.ORIGINAL) {
+                    waitUntil(start + event.offsetNanos);
+                }
+                long callStart = System.nanoTime();
+                if (event.type == WorkloadRecorder.MINE) {
+                    if (event.mined) {
+                        clock.set(event.blockTimestamp);
+                    }
+                    Block before = blockchain.getLatestBlock();
+                    blockchain.minePendingTransactions();
+                    mineLatencies.add(System.nanoTime() - callStart);
+                    Block after = blockchain.getLatestBlock();
+                    boolean mined = after != before;
+                    blocks += mined ? 1 : 0;
+                    if (mined == event.mined && (!mined || after.getHash().equals(event.blockHash))) {
+                        reproduced++;
+                    }
+                } else if (event.type == WorkloadRecorder.SUBMIT) {
+                    added += blockchain.addTransaction(event.transactions.get(0)) ? 1 : 0;
+                    submitLatencies.add(System.nanoTime() - callStart);
+                } else {
+                    added += blockchain.addTransactions(event.transactions);
+                    submitLatencies.add(System.nanoTime() - callStart);
+                }
+            }
+        } finally {
+            blockchain.setClock(previousClock);
+        }
+        long nanos = System.nanoTime() - start;
+
+        Block tip = blockchain.getLatestBlock();
+        long recordedNanos = events.isEmpty() ? 0 : events.get(events.size() - 1).offsetNanos;
+        return new Report(file, pace, events.size(), transactionCount, added, mineLatencies.count, blocks,
+                reproduced, tip.getIndex(), tip.getHash(), recordedNanos, nanos, submitLatencies, mineLatencies);
+    }
+
+    // Sleep off the time until a recorded call is due (no-op if it is late)
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    public Path getFile() { return file; }
+    public String getNetworkName() { return networkName; }
+    public String getGenesisHash() { return genesisHash; }
+    public boolean isRequireSignatures() { return requireSignatures; }
+    public int getEventCount() { return events.size(); }
+    public long getTransactionCount() { return transactionCount; }
+
+    /**
+     * Clock that stands still at a set time
+     *
+     * Set to each recorded block timestamp just before its mining call, so
+     * the block template gets exactly that timestamp.
+     */
+    private static final class ReplayClock extends Clock {
+        private volatile long millis;
+
+        ReplayClock(long millis) {
+            this.millis = millis;
+        }
+
+        void set(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            // Only epoch milliseconds are ever read
+            return this;
+        }
+    }
+
+    /**
+     * Call durations of one kind
+     */
+    private static final class Latencies {
+        private long[] nanos = new long[64];
+        private int count;
+
+        void add(long duration) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = duration;
+        }
+
+        // count, mean, p50, p90, p99, max - in milliseconds
+        String summary() {
+            if (count == 0) {
+                return String.format(Locale.ROOT, "%,8d %10s %10s %10s %10s %10s", 0, "-", "-", "-", "-", "-");
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            double mean = Arrays.stream(sorted).average().orElse(0);
+            return String.format(Locale.ROOT, "%,8d %10.3f %10.3f %10.3f %10.3f %10.3f", count, mean / 1e6,
+                    percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6,
+                    percentile(sorted, 99) / 1e6, sorted[count - 1] / 1e6);
+        }
+
+        // Nearest-rank percentile of sorted values
+        private static long percentile(long[] sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    /**
+     * What a replay did, and how fast
+     *
+     * toString() is a fixed-layout text report: the lines above "wall
+     * time" only change when the chain's behaviour does, the ones below
+     * with its speed - so two builds' reports diff cleanly.
+     */
+    public static final class Report {
+        private final Path file;
+        private final Pace pace;
+        private final int events;
+        private final long transactions;
+        private final long added;
+        private final int mineCalls;
+        private final int blocks;
+        private final int reproduced;
+        private final int tipHeight;
+        private final String tipHash;
+        private final long recordedNanos;
+        private final long nanos;
+        private final Latencies submitLatencies;
+        private final Latencies mineLatencies;
+
+        Report(Path file, Pace pace, int events, long transactions, long added, int mineCalls, int blocks,
+               int reproduced, int tipHeight, String tipHash, long recordedNanos, long nanos,
+               Latencies submitLatencies, Latencies mineLatencies) {
+            this.file = file;
+            this.pace = pace;
+            this.events = events;
+            this.transactions = transactions;
+            this.added = added;
+            this.mineCalls = mineCalls;
+            this.blocks = blocks;
+            this.reproduced = reproduced;
+            this.tipHeight = tipHeight;
+            this.tipHash = tipHash;
+            this.recordedNanos = recordedNanos;
+            this.nanos = nanos;
+            this.submitLatencies = submitLatencies;
+            this.mineLatencies = mineLatencies;
+        }
+
+        public int getEvents() { return events; }
+        public long getTransactions() { return transactions; }
+        public long getAdded() { return added; }
+        public int getBlocks() { return blocks; }
+        public String getTipHash() { return tipHash; }
+        public double getSeconds() { return nanos / 1e9; }
+        public double getRecordedSeconds() { return recordedNanos / 1e9; }
+
+        // True if every mining call produced the recorded block (or none, as recorded)
+        public boolean isReproduced() {
+            return reproduced == mineCalls;
+        }
+
+        public double getTransactionsPerSecond() {
+            return transactions / getSeconds();
+        }
+
+        public double getBlocksPerSecond() {
+            return blocks / getSeconds();
+        }
+
+        /**
+         * Save the report (e.g. per build, to diff later)
+         */
+        public void writeTo(Path path) throws IOException {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.writeString(path, toString());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.ROOT, "workload       %s%n", file.getFileName()));
+            report.append(String.format(Locale.ROOT, "pace           %s%n", pace));
+            report.append(String.format(Locale.ROOT, "events         %,d%n", events));
+            report.append(String.format(Locale.ROOT, "transactions   %,d submitted, %,d added to the pool%n",
+                    transactions, added));
+            report.append(String.format(Locale.ROOT, "mining calls   %,d, %,d blocks, %,d/%,d reproduced%n",
+                    mineCalls, blocks, reproduced, mineCalls));
+            report.append(String.format(Locale.ROOT, "final tip      #%d %s%n", tipHeight, tipHash));
+            report.append(String.format(Locale.ROOT, "wall time      %.3f s (recorded over %.3f s)%n",
+                    getSeconds(), getRecordedSeconds()));
+            report.append(String.format(Locale.ROOT, "throughput     %.1f tx/s, %.2f blocks/s%n",
+                    getTransactionsPerSecond(), getBlocksPerSecond()));
+            report.append(String.format(Locale.ROOT, "latency (ms)   %8s %10s %10s %10s %10s %10s%n",
+                    "calls", "mean", "p50", "p90", "p99", "max"));
+            report.append(String.format(Locale.ROOT, "  submit       %s%n", submitLatencies.summary()));
+            report.append(String.format(Locale.ROOT, "  mine         %s%n", mineLatencies.summary()));
+            return report.toString();
+        }
+    }
+}
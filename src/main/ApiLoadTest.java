@@ -0,0 +1,214 @@
+package main;
+
+import blockchain.Blockchain;
+import models.Block;
+import models.Transaction;
+import network.ApiServer;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ApiLoadTest - Requests/second and latency of the HTTP API on this machine
+ *
+ * Builds a chain, starts an ApiServer on a free local port and lets several
+ * client threads hammer it with a mix of requests for a fixed time:
+ *
+ *   50%  GET /blocks/{height}          (served from the block cache)
+ *   15%  GET /blocks/{hash} with If-None-Match (answered 304, no body)
+ *   15%  GET /transactions/{id}
+ *   10%  GET /addresses/{address}/transactions
+ *    5%  GET /stats
+ *    5%  POST /transactions            (batches of 10)
+ *
+ * Meanwhile the main thread keeps mining, so reads run against a chain
+ * that is growing. Every response status is checked.
+ *
+ * Usage: java main.ApiLoadTest [clients] [seconds] [blocks]
+ */
+public class ApiLoadTest {
+
+    private static final String[] KINDS = {"block/height", "block/304", "tx", "address", "stats", "post"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        int blocks = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        // The chain reports every transaction and block; keep stdout for results
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Blockchain blockchain = new Blockchain(2);
+        blockchain.setRequireSignatures(false);
+        for (int b = 0; b < blocks; b++) {
+            for (int t = 0; t < 20; t++) {
+                blockchain.addTransaction(new Transaction("user" + (b * 7 + t) % 50, "user" + (b + t) % 50, t + 1));
+            }
+            blockchain.minePendingTransactions();
+        }
+        List<Block> chain = blockchain.snapshot().asList();
+        String[] txIds = chain.stream().flatMap(block -> block.getTransactions().stream())
+                .map(Transaction::getTransactionId).toArray(String[]::new);
+
+        ApiServer server = new ApiServer(blockchain, 0);
+        String base = "http://127.0.0.1:" + server.getPort();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        out.println("=".repeat(70));
+        out.println("HTTP API LOAD TEST");
+        out.println("=".repeat(70));
+        out.println("Server:  " + base + " (" + chain.size() + " blocks, " + txIds.length + " transactions)");
+        out.println("Clients: " + clients + " for " + seconds + " s, mining in the background");
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        long[][][] latencies = new long[clients][KINDS.length][];
+        int[][] counts = new int[clients][KINDS.length];
+        int[] failures = new int[clients];
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            int id = c;
+            for (int k = 0; k < KINDS.length; k++) {
+                latencies[c][k] = new long[1 << 16];
+            }
+            threads[c] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    int roll = random.nextInt(100);
+                    int kind = roll < 50 ? 0 : roll < 65 ? 1 : roll < 80 ? 2 : roll < 90 ? 3 : roll < 95 ? 4 : 5;
+                    HttpRequest request;
+                    int expected = 200;
+                    switch (kind) {
+                        case 0:
+                            request = get(base + "/blocks/" + random.nextInt(chain.size()));
+                            break;
+                        case 1:
+                            String hash = chain.get(random.nextInt(chain.size())).getHash();
+                            request = HttpRequest.newBuilder(URI.create(base + "/blocks/" + hash))
+                                    .header("If-None-Match", "\"" + hash + "\"").build();
+                            expected = 304;
+                            break;
+                        case 2:
+                            request = get(base + "/transactions/" + txIds[random.nextInt(txIds.length)]);
+                            break;
+                        case 3:
+                            request = get(base + "/addresses/user" + random.nextInt(50) + "/transactions");
+                            break;
+                        case 4:
+                            request = get(base + "/stats");
+                            break;
+                        default:
+                            StringBuilder batch = new StringBuilder("[");
+                            for (int i = 0; i < 10; i++) {
+                                batch.append(i == 0 ? "" : ",").append("{\"sender\":\"client").append(id)
+                                        .append("\",\"recipient\":\"user").append(random.nextInt(50))
+                                        .append("\",\"amount\":").append(1 + random.nextInt(100)).append('}');
+                            }
+                            request = HttpRequest.newBuilder(URI.create(base + "/transactions"))
+                                    .POST(HttpRequest.BodyPublishers.ofString(batch.append(']').toString())).build();
+                            expected = 202;
+                    }
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+                    } catch (Exception e) {
+                        System.err.println("[WARNING] " + request.uri() + ": " + e);
+                        status = -1;
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    if (status != expected) {
+                        if (failures[id]++ == 0) {
+                            System.err.println("[WARNING] " + KINDS[kind] + " " + request.uri() + " -> " + status);
+                        }
+                    }
+                    long[] samples = latencies[id][kind];
+                    if (counts[id][kind] == samples.length) {
+                        latencies[id][kind] = samples = Arrays.copyOf(samples, samples.length * 2);
+                    }
+                    samples[counts[id][kind]++] = elapsed;
+                }
+            }, "client-" + c);
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long deadline = start + (long) (seconds * 1e9);
+        int mined = 0;
+        while (System.nanoTime() < deadline) {
+            blockchain.minePendingTransactions();
+            mined++;
+            Thread.sleep(500);
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.setOut(out);
+
+        out.println();
+        out.printf("%-14s %10s %10s %10s %10s %10s%n", "Request", "Count", "p50 (ms)", "p90 (ms)", "p99 (ms)", "max (ms)");
+        out.println("─".repeat(70));
+        long total = 0;
+        long[] all = new long[0];
+        for (int k = 0; k < KINDS.length; k++) {
+            long[] merged = new long[0];
+            for (int c = 0; c < clients; c++) {
+                int n = counts[c][k];
+                long[] joined = Arrays.copyOf(merged, merged.length + n);
+                System.arraycopy(latencies[c][k], 0, joined, merged.length, n);
+                merged = joined;
+            }
+            Arrays.sort(merged);
+            printRow(out, KINDS[k], merged);
+            total += merged.length;
+            long[] joined = Arrays.copyOf(all, all.length + merged.length);
+            System.arraycopy(merged, 0, joined, all.length, merged.length);
+            all = joined;
+        }
+        Arrays.sort(all);
+        out.println("─".repeat(70));
+        printRow(out, "all", all);
+
+        int failed = Arrays.stream(failures).sum();
+        out.println();
+        out.printf("Throughput:       %,.0f requests/s%n", total / elapsed);
+        out.println("Unexpected status: " + failed);
+        out.println("Blocks mined during the test: " + mined + " (height now " + blockchain.snapshot().height() + ")");
+        out.println("Stats: " + client.send(get(base + "/stats"), HttpResponse.BodyHandlers.ofString()).body());
+        out.println(failed == 0 ? "[SUCCESS] All responses had the expected status" : "[ERROR] Some requests failed");
+        server.close();
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).build();
+    }
+
+    private static void printRow(PrintStream out, String name, long[] sorted) {
+        if (sorted.length == 0) {
+            out.printf("%-14s %10d%n", name, 0);
+            return;
+        }
+        out.printf("%-14s %,10d %10.3f %10.3f %10.3f %10.3f%n", name, sorted.length,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e6;
+    }
+}
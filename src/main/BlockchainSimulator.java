@@ -2,8 +2,19 @@ package main;
 
 import blockchain.Blockchain;
 import models.Transaction;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner;
 
+/**
+ * Interactive simulator
+ *
+ * Usage: java main.BlockchainSimulator [--record session.wlog]
+ *
+ * With --record, every transaction and mining call of the session is
+ * logged; replay it with main.ReplayBenchmark to get the same chain, and
+ * comparable timings, on any build.
+ */
 public class BlockchainSimulator {
 
     private static Blockchain blockchain;
@@ -20,6 +31,14 @@ public class BlockchainSimulator {
         // Initialize blockchain with user-selected difficulty
         int difficulty = getDifficulty();
         blockchain = new Blockchain(difficulty);
+        blockchain.setRequireSignatures(false);
+        if (args.length >= 2 && args[0].equals("--record")) {
+            try {
+                blockchain.startRecording(Path.of(args[1]));
+            } catch (IOException e) {
+                System.out.println("❌ Could not record the session: " + e.getMessage());
+            }
+        }
 
         // Main menu loop
         boolean running = true;
@@ -27,6 +46,7 @@ public class BlockchainSimulator {
             running = showMenu();
         }
 
+        blockchain.stopRecording();
         System.out.println("\n👋 Thank you for using Blockchain Simulator!");
         scanner.close();
     }
@@ -115,7 +135,7 @@ public class BlockchainSimulator {
             return;
         }
 
-        Transaction transaction = new Transaction(sender, recipient, amount);
+        Transaction transaction = new Transaction(sender, recipient, amount, blockchain.getClock().millis());
         blockchain.addTransaction(transaction);
 
         System.out.println("✓ Transaction added successfully!");
@@ -206,7 +226,9 @@ public class BlockchainSimulator {
                 originalTx.getAmount() + 1000.0
         );
 
-        block1.getTransactions().set(0, tamperedTx);
+        // Blocks are immutable, so the forged block replaces the real one
+        // through the test-only API
+        blockchain.replaceBlockForTesting(1, block1.withTamperedTransactionForTesting(0, tamperedTx));
         System.out.println("Tampered transaction: " + tamperedTx);
         System.out.println("\n[ACTION] Revalidating blockchain...\n");
 
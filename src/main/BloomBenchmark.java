@@ -0,0 +1,178 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.ChainIndex;
+import blockchain.ChainSnapshot;
+import blockchain.NetworkParams;
+import models.Block;
+import models.Transaction;
+import utils.BloomFilter;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * BloomBenchmark - Scanning a long chain with and without per-block Bloom filters
+ *
+ * Builds a 100,000-block chain, then answers the same queries two ways:
+ * - full scan: every block's transactions are compared (what a node
+ *   without a ChainIndex had to do)
+ * - filtered: ChainSnapshot.getHistory / findTransaction, which only
+ *   search the blocks whose filter may hold the address or ID
+ *
+ * for several false-positive rates (each on a node configured with that
+ * rate, fed the same blocks), reporting the filters' size, the observed
+ * false-positive rate, and whether both ways agree.
+ *
+ * Usage: java main.BloomBenchmark [blocks] [transactions per block] [addresses]
+ */
+public class BloomBenchmark {
+
+    private static final double[] RATES = {0.1, 0.01, 0.001};
+    private static final int QUERIES = 200;
+
+    public static void main(String[] args) {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int perBlock = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int addressCount = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        PrintStream out = System.out;
+
+        out.println("=".repeat(70));
+        out.printf("BLOOM FILTER SCANS: %,d blocks x %d transactions, %,d addresses%n",
+                blocks, perBlock, addressCount);
+        out.println("=".repeat(70));
+
+        long start = System.nanoTime();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain blockchain = new Blockchain(NetworkParams.fixed(1));
+        blockchain.setRequireSignatures(false);
+        Random random = new Random(42);
+        for (int b = 0; b < blocks; b++) {
+            List<Transaction> transactions = new ArrayList<>(perBlock);
+            for (int t = 0; t < perBlock; t++) {
+                transactions.add(new Transaction("user" + random.nextInt(addressCount),
+                        "user" + random.nextInt(addressCount), 1 + random.nextInt(100)));
+            }
+            blockchain.addTransactions(transactions);
+            blockchain.minePendingTransactions();
+        }
+        System.setOut(out);
+        ChainSnapshot chain = blockchain.snapshot();
+        out.printf("Chain built in %.1f s (height %,d)%n", (System.nanoTime() - start) / 1e9, chain.height());
+
+        // Queries: addresses, and transaction IDs half mined, half unknown
+        List<String> addresses = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int q = 0; q < QUERIES; q++) {
+            addresses.add("user" + random.nextInt(addressCount));
+            Block block = chain.get(1 + random.nextInt(chain.height()));
+            ids.add(q % 2 == 0
+                    ? block.getTransactions().get(random.nextInt(perBlock)).getTransactionId()
+                    : new Transaction("nobody", "nowhere", q).getTransactionId());
+        }
+
+        start = System.nanoTime();
+        List<List<ChainIndex.Location>> expectedHistories = new ArrayList<>();
+        for (String address : addresses) {
+            expectedHistories.add(scanHistory(chain, address));
+        }
+        double historyScanMillis = (System.nanoTime() - start) / 1e6 / QUERIES;
+        start = System.nanoTime();
+        List<Block> expectedBlocks = new ArrayList<>();
+        for (String id : ids) {
+            expectedBlocks.add(scanForTransaction(chain, id));
+        }
+        double lookupScanMillis = (System.nanoTime() - start) / 1e6 / QUERIES;
+
+        out.printf("%nFull scan (no filters):  history %.3f ms/query   lookup %.3f ms/query%n",
+                historyScanMillis, lookupScanMillis);
+        out.printf("%n%9s %12s %10s %14s %9s %14s %9s %7s%n", "FP rate", "Filters KB", "Observed",
+                "History ms/q", "Speedup", "Lookup ms/q", "Speedup", "Same");
+        out.println("-".repeat(92));
+
+        for (double rate : RATES) {
+            // A node configured with this rate, receiving the same blocks
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            Blockchain node = new Blockchain(NetworkParams.fixed(1));
+            node.setRequireSignatures(false);
+            node.setFilterFalsePositiveRate(rate);
+            for (int height = 1; height <= chain.height(); height++) {
+                node.addBlock(chain.get(height));
+            }
+            System.setOut(out);
+            ChainSnapshot filtered = node.snapshot();
+
+            long filterBytes = 0;
+            for (Block block : filtered) {
+                filterBytes += block.getFilter().getSizeInBytes();
+            }
+            double observed = observedFalsePositiveRate(filtered, perBlock);
+
+            // Warm up the filtered paths once before timing them
+            filtered.getHistory(addresses.get(0));
+            filtered.findTransaction(ids.get(1));
+
+            boolean same = true;
+            start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                same &= filtered.getHistory(addresses.get(q)).size() == expectedHistories.get(q).size();
+            }
+            double historyMillis = (System.nanoTime() - start) / 1e6 / QUERIES;
+            start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                ChainIndex.Location found = filtered.findTransaction(ids.get(q));
+                Block expected = expectedBlocks.get(q);
+                same &= found == null ? expected == null
+                        : expected != null && found.getBlock().getHash().equals(expected.getHash());
+            }
+            double lookupMillis = (System.nanoTime() - start) / 1e6 / QUERIES;
+
+            out.printf("%9s %,12d %9.3f%% %14.3f %8.1fx %14.3f %8.1fx %7s%n", rate, filterBytes / 1024,
+                    observed * 100, historyMillis, historyScanMillis / historyMillis,
+                    lookupMillis, lookupScanMillis / lookupMillis, same ? "yes" : "NO");
+        }
+    }
+
+    // The scans the filters replace: look at every transaction of every block
+    private static List<ChainIndex.Location> scanHistory(ChainSnapshot chain, String address) {
+        List<ChainIndex.Location> history = new ArrayList<>();
+        for (Block block : chain) {
+            for (Transaction tx : block.getTransactions()) {
+                if (tx.getSender().equals(address) || tx.getRecipient().equals(address)) {
+                    history.add(null);
+                }
+            }
+        }
+        return history;
+    }
+
+    private static Block scanForTransaction(ChainSnapshot chain, String transactionId) {
+        for (int height = chain.height(); height >= 0; height--) {
+            Block block = chain.get(height);
+            for (Transaction tx : block.getTransactions()) {
+                if (tx.getTransactionId().equals(transactionId)) {
+                    return block;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Share of blocks that claim to hold addresses they never saw
+    private static double observedFalsePositiveRate(ChainSnapshot chain, int perBlock) {
+        long probes = 0;
+        long positives = 0;
+        for (int q = 0; q < 20; q++) {
+            long hash = BloomFilter.hash("absent" + q);
+            for (Block block : chain) {
+                if (block.getTransactions().size() == perBlock) {
+                    probes++;
+                    positives += block.getFilter().mightContain(hash) ? 1 : 0;
+                }
+            }
+        }
+        return (double) positives / probes;
+    }
+}
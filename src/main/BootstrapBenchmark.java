@@ -0,0 +1,138 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.NetworkParams;
+import blockchain.StateSnapshot;
+import models.Block;
+import models.BlockHeader;
+import models.Transaction;
+import network.ProtocolCodec;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * BootstrapBenchmark - Node startup: genesis, then catching up with a chain
+ *
+ * 1. Genesis: mining it with the current time (the old Blockchain(d)) vs
+ *    the network's precomputed genesis - time, and whether two nodes agree
+ * 2. Catching up with chains of growing length, from wire-encoded data:
+ *    - full sync: decode and addBlock every block since genesis
+ *    - bootstrap: decode the headers, start from a trusted checkpoint 10
+ *      blocks below the tip (shipped as JSON), addBlock the last 10
+ *    and check both nodes end up with the same tip and balances.
+ *
+ * Usage: java main.BootstrapBenchmark [genesis difficulty] [transactions per block]
+ */
+public class BootstrapBenchmark {
+
+    private static final int[] CHAIN_LENGTHS = {1_000, 2_000, 4_000};
+    private static final int BLOCKS_AFTER_CHECKPOINT = 10;
+
+    public static void main(String[] args) {
+        int difficulty = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int perBlock = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        PrintStream out = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        out.println("=".repeat(70));
+        out.println("NODE STARTUP BENCHMARK");
+        out.println("=".repeat(70));
+
+        // 1. Genesis
+        System.setOut(quiet);
+        long start = System.nanoTime();
+        Blockchain minedA = new Blockchain(difficulty, System.currentTimeMillis());
+        double minedMillis = (System.nanoTime() - start) / 1e6;
+        Blockchain minedB = new Blockchain(difficulty, System.currentTimeMillis() + 1);
+        start = System.nanoTime();
+        Blockchain fixedA = new Blockchain(difficulty);
+        double fixedMillis = (System.nanoTime() - start) / 1e6;
+        Blockchain fixedB = new Blockchain(difficulty);
+        System.setOut(out);
+        out.printf("Genesis at difficulty %d, mined at startup: %,10.1f ms   two nodes agree: %s%n", difficulty,
+                minedMillis, minedA.getChain().get(0).getHash().equals(minedB.getChain().get(0).getHash()));
+        out.printf("Genesis at difficulty %d, precomputed:      %,10.1f ms   two nodes agree: %s%n", difficulty,
+                fixedMillis, fixedA.getChain().get(0).getHash().equals(fixedB.getChain().get(0).getHash()));
+
+        // 2. Catching up
+        NetworkParams network = NetworkParams.fixed(1);
+        int longest = CHAIN_LENGTHS[CHAIN_LENGTHS.length - 1];
+        out.printf("%nBuilding a %,d-block chain (%d tx each) on %s...%n", longest, perBlock, network);
+        System.setOut(quiet);
+        Blockchain source = new Blockchain(network);
+        source.setRequireSignatures(false);
+        Random random = new Random(42);
+        for (int b = 0; b < longest; b++) {
+            List<Transaction> transactions = new ArrayList<>(perBlock);
+            for (int t = 0; t < perBlock; t++) {
+                transactions.add(new Transaction("user" + random.nextInt(1000), "user" + random.nextInt(1000),
+                        1 + random.nextInt(100)));
+            }
+            source.addTransactions(transactions);
+            source.minePendingTransactions();
+        }
+        List<byte[]> wireBlocks = new ArrayList<>();
+        for (Block block : source.getChain()) {
+            wireBlocks.add(ProtocolCodec.encodeBlock(block));
+        }
+        System.setOut(out);
+
+        out.printf("%n%8s %16s %16s %16s%n", "Blocks", "Full sync (ms)", "Bootstrap (ms)", "Same tip+state");
+        out.println("-".repeat(60));
+        for (int length : CHAIN_LENGTHS) {
+            int checkpointHeight = length - BLOCKS_AFTER_CHECKPOINT;
+            String checkpointJson = source.createCheckpoint(checkpointHeight).toJson();
+            List<BlockHeader> headers = new ArrayList<>();
+            for (Block block : source.getChain().subList(1, checkpointHeight + 1)) {
+                headers.add(BlockHeader.of(block));
+            }
+            byte[] wireHeaders = ProtocolCodec.encodeHeaders(headers);
+
+            System.setOut(quiet);
+            start = System.nanoTime();
+            Blockchain full = new Blockchain(network);
+            full.setRequireSignatures(false);
+            full.getState();
+            for (int height = 1; height <= length; height++) {
+                full.addBlock(ProtocolCodec.decodeBlock(wireBlocks.get(height)));
+            }
+            double fullMillis = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            Blockchain bootstrapped = Blockchain.fromCheckpoint(network, StateSnapshot.fromJson(checkpointJson),
+                    ProtocolCodec.decodeHeaders(wireHeaders));
+            bootstrapped.setRequireSignatures(false);
+            for (int height = checkpointHeight + 1; height <= length; height++) {
+                bootstrapped.addBlock(ProtocolCodec.decodeBlock(wireBlocks.get(height)));
+            }
+            double bootstrapMillis = (System.nanoTime() - start) / 1e6;
+            boolean valid = bootstrapped.isChainValid();
+            System.setOut(out);
+
+            boolean same = valid
+                    && bootstrapped.getLatestBlock().getHash().equals(full.getLatestBlock().getHash())
+                    && bootstrapped.createCheckpoint(length).getBalances()
+                        .equals(full.createCheckpoint(length).getBalances());
+            out.printf("%,8d %,16.1f %,16.1f %16s%n", length, fullMillis, bootstrapMillis, same ? "yes" : "NO");
+        }
+
+        // A header chain that does not lead to the checkpoint is refused
+        StateSnapshot checkpoint = source.createCheckpoint(100);
+        List<BlockHeader> forged = new ArrayList<>();
+        for (Block block : source.getChain().subList(1, 101)) {
+            forged.add(BlockHeader.of(block));
+        }
+        BlockHeader honest = forged.get(50);
+        forged.set(50, new BlockHeader(honest.getIndex(), honest.getPreviousHash(), honest.getTimestamp(),
+                honest.getNonce() + 1, honest.getExtraNonce(), honest.getBits(), honest.getMerkleRoot()));
+        try {
+            Blockchain.fromCheckpoint(network, checkpoint, forged);
+            out.println("\n[ERROR] Forged header chain accepted");
+        } catch (IllegalArgumentException e) {
+            out.println("\n[SUCCESS] Forged header chain refused: " + e.getMessage());
+        }
+    }
+}
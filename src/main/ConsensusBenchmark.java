@@ -0,0 +1,121 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.ConsensusEngine;
+import blockchain.ProofOfStake;
+import blockchain.ProofOfWork;
+import models.Block;
+import models.Transaction;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * ConsensusBenchmark - Proof-of-work vs proof-of-stake on the same workload
+ *
+ * For each engine:
+ * 1. Production: blocks of 50 transactions sealed per second
+ * 2. Seal verification: time to check one block's seal against its parent
+ * 3. Import: a second node (same genesis) receiving the whole chain with
+ *    addBlock - hash, Merkle root, seal and fork-choice checks included
+ *
+ * Proof-of-stake also shows how often each validator proposed, against
+ * its share of the stake.
+ *
+ * Usage: java main.ConsensusBenchmark [blocks] [pow difficulty]
+ */
+public class ConsensusBenchmark {
+
+    private static final Map<String, Double> STAKES = Map.of(
+            "alice", 500.0, "bob", 300.0, "carol", 150.0, "dave", 50.0);
+
+    public static void main(String[] args) {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int difficulty = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long genesisTimestamp = System.currentTimeMillis();
+
+        PrintStream out = System.out;
+        out.println("=".repeat(78));
+        out.println("CONSENSUS BENCHMARK: " + blocks + " blocks of 50 transactions");
+        out.println("=".repeat(78));
+        out.printf("%-26s %14s %16s %16s%n", "Engine", "Produced/s", "Verify seal (us)", "Imported/s");
+        out.println("-".repeat(78));
+
+        List<Supplier<ConsensusEngine>> engines = List.of(
+                () -> new ProofOfWork(difficulty),
+                () -> new ProofOfStake(STAKES, 1000, 10));
+        ProofOfStake pos = null;
+        List<Block> posChain = null;
+        for (Supplier<ConsensusEngine> engine : engines) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            Blockchain producer = new Blockchain(engine.get(), genesisTimestamp);
+            producer.setRequireSignatures(false);
+
+            // 1. Production
+            long start = System.nanoTime();
+            for (int b = 0; b < blocks; b++) {
+                List<Transaction> transactions = new ArrayList<>();
+                for (int t = 0; t < 50; t++) {
+                    String[] names = {"alice", "bob", "carol", "dave"};
+                    transactions.add(new Transaction(names[(b + t) % 4], names[(b + 2 * t + 1) % 4], 1 + t % 5));
+                }
+                producer.addTransactions(transactions);
+                producer.minePendingTransactions();
+            }
+            double produced = blocks / ((System.nanoTime() - start) / 1e9);
+            List<Block> chain = producer.getChain();
+
+            // 2. Seal verification alone, best of several passes
+            ConsensusEngine consensus = producer.getConsensus();
+            double verifyMicros = Double.MAX_VALUE;
+            for (int pass = 0; pass < 20; pass++) {
+                start = System.nanoTime();
+                for (int i = 1; i < chain.size(); i++) {
+                    if (!consensus.verifySeal(chain.get(i), chain.get(i - 1))) {
+                        throw new IllegalStateException("Seal of block #" + i + " rejected");
+                    }
+                }
+                verifyMicros = Math.min(verifyMicros, (System.nanoTime() - start) / 1e3 / blocks);
+            }
+
+            // 3. Import into a fresh node
+            Blockchain importer = new Blockchain(engine.get(), genesisTimestamp);
+            importer.setRequireSignatures(false);
+            start = System.nanoTime();
+            for (Block block : chain.subList(1, chain.size())) {
+                if (importer.addBlock(block) != Blockchain.BlockStatus.CONNECTED) {
+                    throw new IllegalStateException("Import rejected block #" + block.getIndex());
+                }
+            }
+            double imported = blocks / ((System.nanoTime() - start) / 1e9);
+            System.setOut(out);
+
+            String name = consensus.getName() + (consensus instanceof ProofOfWork ? " (difficulty " + difficulty + ")" : "");
+            out.printf("%-26s %,14.1f %,16.2f %,16.0f%n", name, produced, verifyMicros, imported);
+            if (consensus instanceof ProofOfStake) {
+                pos = (ProofOfStake) consensus;
+                posChain = chain;
+            }
+        }
+
+        // Expected share: the proposer's stake in force at each block, averaged
+        out.println("\nProof-of-stake proposers vs stake (stake moves with transfers each epoch):");
+        Map<String, Integer> proposed = new TreeMap<>();
+        Map<String, Double> expected = new TreeMap<>();
+        for (Block block : posChain.subList(1, posChain.size())) {
+            proposed.merge(pos.getProposer(block), 1, Integer::sum);
+            Map<String, Double> stakes = pos.getStakes(block.getIndex());
+            double total = stakes.values().stream().mapToDouble(Double::doubleValue).sum();
+            stakes.forEach((validator, stake) -> expected.merge(validator, stake / total, Double::sum));
+        }
+        for (Map.Entry<String, Double> share : expected.entrySet()) {
+            out.printf("  %-6s stake %5.1f%%  proposed %5.1f%% of blocks%n", share.getKey(),
+                    100 * share.getValue() / blocks,
+                    100.0 * proposed.getOrDefault(share.getKey(), 0) / blocks);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package main;
+
+import models.Block;
+import models.BlockTemplate;
+import models.Transaction;
+import utils.Sha256Kernel;
+import utils.StringUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HashBenchmark - Mining hash rate of the available SHA-256 paths
+ *
+ * 1. Verifies every kernel bit-for-bit against StringUtil.applySha256,
+ *    including runs where the nonce gains a digit (lanes of different
+ *    length) and nonces above 2^63 (printed unsigned)
+ * 2. Measures single-thread hashes per second of:
+ *    - Block.calculateHash (String building + MessageDigest + hex)
+ *    - the scalar kernel
+ *    - the vector kernel, if it was built (src-vector) and
+ *      jdk.incubator.vector is available
+ *
+ * Each path is warmed up before it is timed, then timed over several
+ * rounds; the best round is reported.
+ *
+ * Usage: java --add-modules jdk.incubator.vector main.HashBenchmark [seconds per round]
+ */
+public class HashBenchmark {
+
+    private static final int BATCH = 4096;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+
+        // A typical header: block #1234 with 100 transactions
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            transactions.add(new Transaction("Alice", "Bob", i));
+        }
+        BlockTemplate block = new BlockTemplate(1234, StringUtil.applySha256("parent"), transactions);
+        byte[] prefix = Block.hashPrefix(block.getIndex(), block.getPreviousHash(), block.getTimestamp())
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = Block.hashSuffix(7, 0x1f00ffff, block.getMerkleRoot())
+                .getBytes(StandardCharsets.UTF_8);
+
+        List<Sha256Kernel> kernels = new ArrayList<>();
+        kernels.add(Sha256Kernel.scalar());
+        if (Sha256Kernel.best() != Sha256Kernel.scalar()) {
+            kernels.add(Sha256Kernel.best());
+        }
+
+        System.out.println("=".repeat(70));
+        System.out.println("SHA-256 MINING KERNEL BENCHMARK");
+        System.out.println("=".repeat(70));
+        System.out.println("Best kernel available: " + Sha256Kernel.best().name()
+                + (kernels.size() == 1 ? " (run with --add-modules jdk.incubator.vector for SIMD)" : ""));
+
+        // 1. Correctness
+        long[] starts = {0, 9_990, 99_999_995, Long.MAX_VALUE - 20, -100};
+        for (Sha256Kernel kernel : kernels) {
+            int checked = 0;
+            for (long start : starts) {
+                int[] digests = new int[8 * 50];
+                kernel.hashNonces(prefix, start, 50, suffix, digests);
+                for (int i = 0; i < 50; i++) {
+                    String expected = Block.calculateHash(block.getIndex(), block.getPreviousHash(),
+                            block.getTimestamp(), start + i, 7, 0x1f00ffff, block.getMerkleRoot());
+                    String actual = toHex(digests, i);
+                    if (!expected.equals(actual)) {
+                        System.out.println("[ERROR] " + kernel.name() + " mismatch at nonce "
+                                + Long.toUnsignedString(start + i) + ": " + actual + " != " + expected);
+                        return;
+                    }
+                    checked++;
+                }
+            }
+            System.out.println("[SUCCESS] " + kernel.name() + ": " + checked + " digests match applySha256");
+        }
+
+        // 2. Throughput
+        System.out.println();
+        System.out.printf("%-24s %16s %10s%n", "Path", "Hashes/s/core", "Speedup");
+        double baseline = measure(() -> {
+            for (int i = 0; i < BATCH; i++) {
+                Block.calculateHash(block.getIndex(), block.getPreviousHash(), block.getTimestamp(),
+                        i, 7, 0x1f00ffff, block.getMerkleRoot());
+            }
+        }, seconds);
+        System.out.printf("%-24s %,16.0f %9.2fx%n", "Block.calculateHash", baseline, 1.0);
+
+        for (Sha256Kernel kernel : kernels) {
+            int[] digests = new int[8 * BATCH];
+            double rate = measure(() -> kernel.hashNonces(prefix, 1_000_000, BATCH, suffix, digests), seconds);
+            System.out.printf("%-24s %,16.0f %9.2fx%n", kernel.name() + " kernel", rate, rate / baseline);
+        }
+    }
+
+    // Best hashes/second over ROUNDS timed rounds, after one warm-up round
+    private static double measure(Runnable batch, double seconds) {
+        double best = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long batches = 0;
+            long start = System.nanoTime();
+            long deadline = start + (long) (seconds * 1e9);
+            while (System.nanoTime() < deadline) {
+                batch.run();
+                batches++;
+            }
+            double rate = batches * BATCH / ((System.nanoTime() - start) / 1e9);
+            if (round > 0) {
+                best = Math.max(best, rate);
+            }
+        }
+        return best;
+    }
+
+    private static String toHex(int[] digests, int index) {
+        StringBuilder hex = new StringBuilder();
+        for (int w = 0; w < 8; w++) {
+            hex.append(String.format("%08x", digests[8 * index + w]));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.TransactionLoader;
+import models.Transaction;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * IngestBenchmark - Loading a transaction replay file into the pending pool
+ *
+ * Writes a replay of N transactions (1% duplicated lines, a few malformed)
+ * as CSV and as NDJSON, then compares:
+ *
+ * - one at a time: new Transaction(...) + addTransaction, as clients did
+ * - TransactionLoader: batched, IDs hashed in parallel, addTransactions
+ *
+ * Usage: java main.IngestBenchmark [transactions] [batch size]
+ */
+public class IngestBenchmark {
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : TransactionLoader.DEFAULT_BATCH_SIZE;
+
+        Path dir = Files.createTempDirectory("ingest");
+        Path csv = dir.resolve("replay.csv");
+        Path ndjson = dir.resolve("replay.ndjson");
+        writeReplay(csv, ndjson, count);
+
+        PrintStream out = System.out;
+        out.println("=".repeat(70));
+        out.println("TRANSACTION INGESTION BENCHMARK");
+        out.println("=".repeat(70));
+        out.printf("Replay: %,d lines (%,d KB CSV, %,d KB NDJSON), %d cores, batches of %,d%n",
+                count, Files.size(csv) / 1024, Files.size(ndjson) / 1024,
+                Runtime.getRuntime().availableProcessors(), batchSize);
+
+        // Baseline on a slice: per-transaction path with its println per call
+        int baselineCount = Math.min(count, 100_000);
+        List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8).subList(1, baselineCount + 1);
+        Blockchain blockchain = quietChain();
+        long start = System.nanoTime();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        for (String line : lines) {
+            String[] fields = line.split(",");
+            if (fields.length == 4) {
+                try {
+                    blockchain.addTransaction(new Transaction(fields[0], fields[1],
+                            Double.parseDouble(fields[2]), Long.parseLong(fields[3])));
+                } catch (NumberFormatException e) {
+                    // malformed line
+                }
+            }
+        }
+        System.setOut(out);
+        double baseline = baselineCount / ((System.nanoTime() - start) / 1e9);
+        out.printf("%nOne at a time (%,d lines):  %,12.0f tx/s%n", baselineCount, baseline);
+
+        for (Path file : new Path[] {csv, ndjson}) {
+            blockchain = quietChain();
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            TransactionLoader.LoadReport report = new TransactionLoader(blockchain, batchSize).load(file);
+            System.setOut(out);
+            out.printf("Loader, %-19s %,12.0f tx/s  (%.1fx)%n", file.getFileName() + ":",
+                    report.getThroughput(), report.getThroughput() / baseline);
+            out.println("  " + report + "; pool now " + blockchain.getPendingCount());
+        }
+
+        Files.delete(csv);
+        Files.delete(ndjson);
+        Files.delete(dir);
+    }
+
+    private static Blockchain quietChain() {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain blockchain = new Blockchain(1, 0);
+        blockchain.setRequireSignatures(false);
+        System.setOut(out);
+        return blockchain;
+    }
+
+    private static void writeReplay(Path csv, Path ndjson, int count) throws IOException {
+        Random random = new Random(42);
+        long timestamp = 1_700_000_000_000L;
+        String previousCsv = null;
+        String previousJson = null;
+        try (BufferedWriter c = Files.newBufferedWriter(csv); BufferedWriter j = Files.newBufferedWriter(ndjson)) {
+            c.write("sender,recipient,amount,timestamp\n");
+            for (int i = 0; i < count; i++) {
+                String csvLine;
+                String jsonLine;
+                if (previousCsv != null && random.nextInt(100) == 0) {
+                    csvLine = previousCsv;          // replayed twice
+                    jsonLine = previousJson;
+                } else if (random.nextInt(10_000) == 0) {
+                    csvLine = "garbage";
+                    jsonLine = "{\"sender\":";
+                } else {
+                    String sender = "user" + random.nextInt(100_000);
+                    String recipient = "user" + random.nextInt(100_000);
+                    int amount = 1 + random.nextInt(1000);
+                    timestamp += random.nextInt(5);
+                    csvLine = sender + "," + recipient + "," + amount + "," + timestamp;
+                    jsonLine = "{\"sender\":\"" + sender + "\",\"recipient\":\"" + recipient
+                            + "\",\"amount\":" + amount + ",\"timeStamp\":" + timestamp + "}";
+                }
+                c.write(csvLine);
+                c.write('\n');
+                j.write(jsonLine);
+                j.write('\n');
+                previousCsv = csvLine;
+                previousJson = jsonLine;
+            }
+        }
+    }
+}
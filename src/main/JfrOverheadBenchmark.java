@@ -0,0 +1,127 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.NetworkParams;
+import models.Transaction;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * JfrOverheadBenchmark - What the Flight Recorder events cost
+ *
+ * Runs the same workload (mine a chain, validate it, export it) three ways:
+ * 1. no recording                 - events disabled, as in production
+ * 2. JDK "default" recording      - our events still off (not in that profile)
+ * 3. config/blockchain.jfc        - our events on
+ * and prints the best of a few runs for each (the three take turns, so JIT
+ * warm-up and heap growth favour none of them), plus how many of our
+ * events the last recording captured. Run from the project root (or pass the
+ * path of blockchain.jfc).
+ *
+ * Usage: java main.JfrOverheadBenchmark [path to blockchain.jfc] [blocks] [transactions per block]
+ */
+public class JfrOverheadBenchmark {
+
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException, ParseException {
+        Path profile = Path.of(args.length > 0 ? args[0] : "config/blockchain.jfc");
+        int blocks = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int perBlock = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        PrintStream out = System.out;
+
+        out.println("=".repeat(70));
+        out.printf("JFR EVENT OVERHEAD: %,d blocks x %d transactions, best of %d%n", blocks, perBlock, RUNS);
+        out.println("=".repeat(70));
+
+        Configuration ours = Configuration.create(profile);
+        Configuration jdkDefault = Configuration.getConfiguration("default");
+        Path exportFile = Files.createTempFile("chain", ".json");
+        Path recordingFile = Files.createTempFile("blockchain", ".jfr");
+
+        // Warm up the JIT on the workload first
+        workload(blocks, perBlock, exportFile);
+
+        Configuration[] configurations = {null, jdkDefault, ours};
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        for (int run = 0; run < RUNS; run++) {
+            for (int c = 0; c < configurations.length; c++) {
+                best[c] = Math.min(best[c], timed(configurations[c], blocks, perBlock, exportFile, recordingFile));
+            }
+        }
+        double baseline = best[0];
+        double withDefault = best[1];
+        double withOurs = best[2];
+
+        out.printf("%-36s %10.1f ms%n", "No recording (events disabled)", baseline);
+        out.printf("%-36s %10.1f ms  (%+.1f%%)%n", "JDK default profile (events off)", withDefault,
+                (withDefault / baseline - 1) * 100);
+        out.printf("%-36s %10.1f ms  (%+.1f%%)%n", "blockchain.jfc (events on)", withOurs,
+                (withOurs / baseline - 1) * 100);
+
+        Map<String, Integer> counts = new TreeMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            String name = event.getEventType().getName();
+            if (name.startsWith("blockchain.")) {
+                counts.merge(name, 1, Integer::sum);
+            }
+        }
+        out.println("\nEvents in the last blockchain.jfc recording (after thresholds):");
+        counts.forEach((name, count) -> out.printf("  %-30s %,8d%n", name, count));
+
+        Files.deleteIfExists(exportFile);
+        Files.deleteIfExists(recordingFile);
+    }
+
+    // One workload run in milliseconds, under its own recording (none if null)
+    private static double timed(Configuration configuration, int blocks, int perBlock, Path exportFile,
+                                Path recordingFile) throws IOException {
+        Recording recording = configuration == null ? null : new Recording(configuration);
+        if (recording != null) {
+            recording.start();
+        }
+        long start = System.nanoTime();
+        workload(blocks, perBlock, exportFile);
+        double millis = (System.nanoTime() - start) / 1e6;
+        if (recording != null) {
+            recording.stop();
+            recording.dump(recordingFile);
+            recording.close();
+        }
+        return millis;
+    }
+
+    // Mine a chain, validate it, export it (output silenced)
+    private static void workload(int blocks, int perBlock, Path exportFile) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain blockchain = new Blockchain(NetworkParams.fixed(1));
+        blockchain.setRequireSignatures(false);
+        Random random = new Random(42);
+        for (int b = 0; b < blocks; b++) {
+            List<Transaction> transactions = new ArrayList<>(perBlock);
+            for (int t = 0; t < perBlock; t++) {
+                transactions.add(new Transaction("user" + random.nextInt(1000), "user" + random.nextInt(1000),
+                        1 + random.nextInt(100), b * 1_000L + t));
+            }
+            blockchain.addTransactions(transactions);
+            blockchain.minePendingTransactions();
+        }
+        blockchain.isChainValid();
+        blockchain.exportToJSON(exportFile.toString());
+        System.setOut(out);
+    }
+}
@@ -0,0 +1,205 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NetworkBenchmark - Measures transaction and block propagation between
+ * separate node processes talking over localhost sockets
+ *
+ * For each network size, N NodeProcess instances are started and wired
+ * into a binary tree (node i connects to node (i-1)/2). Node 0 then:
+ * 1. creates a batch of transactions  -> time until every node has them all
+ * 2. mines several blocks, one by one -> time from node 0 finding a block
+ *                                       until every node has connected it
+ *
+ * Blocks travel as compact blocks, so the last column reports how many
+ * bytes compact relay saved compared with sending every block in full.
+ *
+ * Usage: java main.NetworkBenchmark [txCount] [blockCount] [sizes...]
+ * Defaults: 5000 transactions, 10 blocks, sizes 2 4 8 16 32
+ */
+public class NetworkBenchmark {
+
+    private static final int BASE_PORT = 19000;
+    private static final int DIFFICULTY = 2;
+
+    public static void main(String[] args) throws Exception {
+        int txCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int blockCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            sizes.add(Integer.parseInt(args[i]));
+        }
+        if (sizes.isEmpty()) {
+            sizes.addAll(List.of(2, 4, 8, 16, 32));
+        }
+
+        System.out.println("=".repeat(70));
+        System.out.println("NETWORK PROPAGATION BENCHMARK");
+        System.out.println("=".repeat(70));
+        System.out.printf("%-6s %12s %14s %14s %14s %12s%n",
+                "Nodes", "Tx time(ms)", "Tx relay/s", "Block p50(ms)", "Block max(ms)", "Bytes saved");
+
+        for (int size : sizes) {
+            runRound(size, txCount, blockCount);
+        }
+    }
+
+    private static void runRound(int size, int txCount, int blockCount) throws Exception {
+        long genesisTimestamp = System.currentTimeMillis();
+        List<Node> nodes = new ArrayList<>();
+        try {
+            for (int i = 0; i < size; i++) {
+                List<String> peers = new ArrayList<>();
+                if (i > 0) {
+                    peers.add(Integer.toString(BASE_PORT + (i - 1) / 2));
+                }
+                nodes.add(Node.launch(BASE_PORT + i, genesisTimestamp, peers));
+            }
+
+            // Wait until every link finished its handshake
+            waitUntil(nodes, status -> status[2] >= 1);
+
+            // Transaction propagation
+            long start = System.nanoTime();
+            nodes.get(0).send("tx " + txCount);
+            waitUntil(nodes, status -> status[1] >= txCount);
+            double txMillis = (System.nanoTime() - start) / 1e6;
+            double relayRate = (double) txCount * (size - 1) / (txMillis / 1000.0);
+
+            // Block propagation, measured from the moment node 0 has the block
+            List<Double> blockMillis = new ArrayList<>();
+            for (int height = 1; height <= blockCount; height++) {
+                int target = height;
+                nodes.get(0).send("mine");
+                waitUntil(List.of(nodes.get(0)), status -> status[0] >= target);
+                long mined = System.nanoTime();
+                waitUntil(nodes, status -> status[0] >= target);
+                blockMillis.add((System.nanoTime() - mined) / 1e6);
+
+                // Refill the pools and let the transactions spread before the next block
+                int batch = Math.max(1, txCount / blockCount);
+                nodes.get(0).send("tx " + batch);
+                waitUntil(nodes, status -> status[1] >= batch);
+            }
+            blockMillis.sort(null);
+
+            long compactBytes = 0;
+            long fullBytes = 0;
+            for (Node node : nodes) {
+                long[] relay = node.relay();
+                compactBytes += relay[1];
+                fullBytes += relay[2];
+            }
+            double saved = fullBytes == 0 ? 0 : 100.0 * (fullBytes - compactBytes) / fullBytes;
+
+            System.out.printf("%-6d %12.1f %14.0f %14.2f %14.2f %11.1f%%%n",
+                    size, txMillis, relayRate,
+                    blockMillis.get(blockMillis.size() / 2),
+                    blockMillis.get(blockMillis.size() - 1),
+                    saved);
+        } finally {
+            for (Node node : nodes) {
+                node.stop();
+            }
+        }
+    }
+
+    private interface StatusCheck {
+        boolean test(int[] status);
+    }
+
+    // Poll nodes until every one satisfies the check
+    private static void waitUntil(List<Node> nodes, StatusCheck check) throws Exception {
+        long deadline = System.currentTimeMillis() + 120_000;
+        for (Node node : nodes) {
+            while (!check.test(node.status())) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Timed out waiting for node on port " + node.port);
+                }
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    /**
+     * Handle to a running NodeProcess
+     */
+    private static class Node {
+        final int port;
+        final Process process;
+        final PrintWriter commands;
+        final BufferedReader replies;
+
+        Node(int port, Process process) {
+            this.port = port;
+            this.process = process;
+            this.commands = new PrintWriter(process.getOutputStream(), true);
+            this.replies = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        }
+
+        static Node launch(int port, long genesisTimestamp, List<String> peers) throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add("main.NodeProcess");
+            command.add(Integer.toString(port));
+            command.add(Integer.toString(DIFFICULTY));
+            command.add(Long.toString(genesisTimestamp));
+            command.addAll(peers);
+
+            Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            Node node = new Node(port, process);
+            String ready = node.replies.readLine();
+            if (ready == null || !ready.startsWith("READY")) {
+                throw new IOException("Node on port " + port + " failed to start");
+            }
+            return node;
+        }
+
+        void send(String command) {
+            commands.println(command);
+        }
+
+        // Returns {height, pending, peers}
+        int[] status() throws IOException {
+            send("status");
+            String[] parts = replies.readLine().split(" ");
+            return new int[] {
+                    Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3])
+            };
+        }
+
+        // Returns {blocks, compactBytes, fullBytes, fromPool, requested}
+        long[] relay() throws IOException {
+            send("relay");
+            String[] parts = replies.readLine().split(" ");
+            long[] values = new long[parts.length - 1];
+            for (int i = 1; i < parts.length; i++) {
+                values[i - 1] = Long.parseLong(parts[i]);
+            }
+            return values;
+        }
+
+        void stop() {
+            send("quit");
+            try {
+                if (!process.waitFor(5, java.util.concurrent.TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+}
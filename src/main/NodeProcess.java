@@ -0,0 +1,84 @@
+package main;
+
+import blockchain.Blockchain;
+import models.Transaction;
+import network.PeerNode;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * NodeProcess - Runs one PeerNode as a standalone process
+ *
+ * Started by NetworkBenchmark, one process per node. Usage:
+ *   java main.NodeProcess <port> <difficulty> <genesisTimestamp> [peerPort...]
+ *
+ * Commands are read line by line from stdin:
+ *   tx <count>   create and announce <count> transactions
+ *   mine         mine the pending pool into a block
+ *   status       print "STATUS <height> <pending> <peers>"
+ *   relay        print "RELAY <blocks> <compactBytes> <fullBytes> <fromPool> <requested>"
+ *   quit         shut the node down
+ *
+ * The blockchain's own console output is discarded so stdout only carries
+ * replies to the controlling process.
+ */
+public class NodeProcess {
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+        int difficulty = Integer.parseInt(args[1]);
+        long genesisTimestamp = Long.parseLong(args[2]);
+
+        PrintStream control = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Blockchain blockchain = new Blockchain(difficulty, genesisTimestamp);
+        blockchain.setRequireSignatures(false);
+        PeerNode node = new PeerNode(blockchain, port);
+        node.start();
+        for (int i = 3; i < args.length; i++) {
+            node.connect("127.0.0.1", Integer.parseInt(args[i]));
+        }
+        control.println("READY " + node.getPort());
+        control.flush();
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        int created = 0;
+        while ((line = in.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            switch (parts[0]) {
+                case "tx":
+                    int count = Integer.parseInt(parts[1]);
+                    for (int i = 0; i < count; i++) {
+                        created++;
+                        node.submitTransaction(new Transaction("node" + port, "user" + created, created));
+                    }
+                    break;
+                case "mine":
+                    node.mineBlock().join();
+                    break;
+                case "status":
+                    control.println("STATUS " + node.getHeight() + " " + node.getPendingCount() + " " + node.getPeerCount());
+                    control.flush();
+                    break;
+                case "relay":
+                    control.println("RELAY " + node.getCompactBlocksReceived()
+                            + " " + node.getCompactBytesReceived()
+                            + " " + node.getFullBlockBytesEquivalent()
+                            + " " + node.getTransactionsFromPool()
+                            + " " + node.getTransactionsRequested());
+                    control.flush();
+                    break;
+                case "quit":
+                    node.close();
+                    return;
+                default:
+                    break;
+            }
+        }
+        node.close();
+    }
+}
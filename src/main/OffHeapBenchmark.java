@@ -0,0 +1,238 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.NetworkParams;
+import blockchain.OffHeapBlockStore;
+import models.Block;
+import models.Transaction;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * OffHeapBenchmark - The same chain on the heap (ArrayList<Block>) and off it
+ *
+ * For each model, with a 100,000-block chain loaded:
+ * 1. Heap retained by the chain (and bytes held off-heap)
+ * 2. Time of a full garbage collection (System.gc)
+ * 3. GC pauses while the application allocates: short-lived garbage plus
+ *    a window of longer-lived objects, as a node serving requests would
+ * 4. Time to read every transaction's amount (objects vs views)
+ * Then checks that the views rebuild the exact blocks, and that a pruning
+ * node with off-heap storage still serves full pruned blocks.
+ *
+ * Usage: java main.OffHeapBenchmark [blocks] [transactions per block]
+ */
+public class OffHeapBenchmark {
+
+    private static final int CHURN_ROUNDS = 60;
+    private static final int CHURN_OBJECTS = 200_000;
+
+    public static void main(String[] args) {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int perBlock = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        PrintStream out = System.out;
+        GcPauses pauses = new GcPauses();
+
+        out.println("=".repeat(70));
+        out.printf("OFF-HEAP STORAGE: %,d blocks x %d transactions, GC: %s%n", blocks, perBlock, pauses.collectors());
+        out.println("=".repeat(70));
+
+        // Model 1: every Block and Transaction on the heap
+        long base = usedHeap();
+        List<Block> heapChain = new ArrayList<>();
+        generate(blocks, perBlock, heapChain::add);
+        long heapModel = usedHeap() - base;
+        Result heap = measure(pauses, () -> {
+            double sum = 0;
+            for (Block block : heapChain) {
+                for (Transaction tx : block.getTransactions()) {
+                    sum += tx.getAmount();
+                }
+            }
+            return sum;
+        });
+        Block sampleBlock = heapChain.get(blocks / 2);
+        heapChain.clear();
+
+        // Model 2: the same blocks streamed into the store; nothing kept on the heap
+        base = usedHeap();
+        OffHeapBlockStore store = new OffHeapBlockStore();
+        generate(blocks, perBlock, store::append);
+        long storeModel = usedHeap() - base;
+        Result offHeap = measure(pauses, () -> {
+            double sum = 0;
+            for (int height = 0; height < store.size(); height++) {
+                OffHeapBlockStore.BlockView block = store.getBlock(height);
+                for (int i = 0, n = block.getTransactionCount(); i < n; i++) {
+                    sum += block.getTransaction(i).getAmount();
+                }
+            }
+            return sum;
+        });
+
+        out.printf("%n%-34s %16s %16s%n", "", "ArrayList<Block>", "Off-heap store");
+        out.println("-".repeat(68));
+        out.printf("%-34s %,13d KB %,13d KB%n", "Heap retained by the chain", heapModel / 1024, storeModel / 1024);
+        out.printf("%-34s %16s %,13d KB%n", "Off-heap bytes", "-", store.getStoredBytes() / 1024);
+        out.printf("%-34s %13.1f ms %13.1f ms%n", "Full GC (System.gc)", heap.fullGcMillis, offHeap.fullGcMillis);
+        out.printf("%-34s %,16d %,16d%n", "GC pauses while allocating", heap.pauses, offHeap.pauses);
+        out.printf("%-34s %13.1f ms %13.1f ms%n", "  total", heap.pauseMillis, offHeap.pauseMillis);
+        out.printf("%-34s %13.1f ms %13.1f ms%n", "  longest", heap.maxPauseMillis, offHeap.maxPauseMillis);
+        out.printf("%-34s %13.1f ms %13.1f ms%n", "Read every amount", heap.scanMillis, offHeap.scanMillis);
+
+        out.println("\nChecks");
+        Block rebuilt = store.getBlock(sampleBlock.getIndex()).toBlock();
+        check("View rebuilds block #" + sampleBlock.getIndex() + " with the same hash",
+                rebuilt.getHash().equals(sampleBlock.getHash()));
+        check("Views read the same amounts (sum " + (long) offHeap.checksum + ")", heap.checksum == offHeap.checksum);
+        check("Pruning node serves a pruned block in full from off-heap storage", prunedBlockServed());
+    }
+
+    // Same seeded blocks every time, linked by hash (not mined: storage is what is measured)
+    private static void generate(int blocks, int perBlock, Consumer<Block> sink) {
+        Random random = new Random(42);
+        String previousHash = "0";
+        for (int b = 0; b < blocks; b++) {
+            List<Transaction> transactions = new ArrayList<>(perBlock);
+            for (int t = 0; b > 0 && t < perBlock; t++) {
+                transactions.add(new Transaction("user" + random.nextInt(10_000), "user" + random.nextInt(10_000),
+                        1 + random.nextInt(100), 1_700_000_000_000L + b * 1_000L + t));
+            }
+            Block block = new Block(b, previousHash, 1_700_000_000_000L + b * 1_000L, b, 0, 0, transactions);
+            sink.accept(block);
+            previousHash = block.getHash();
+        }
+    }
+
+    private static final class Result {
+        double fullGcMillis;
+        long pauses;
+        double pauseMillis;
+        double maxPauseMillis;
+        double scanMillis;
+        double checksum;
+    }
+
+    private static Result measure(GcPauses pauses, DoubleSupplier scan) {
+        Result result = new Result();
+        long start = System.nanoTime();
+        System.gc();
+        result.fullGcMillis = (System.nanoTime() - start) / 1e6;
+
+        pauses.reset();
+        churn();
+        result.pauses = pauses.count.get();
+        result.pauseMillis = pauses.totalMillis.get();
+        result.maxPauseMillis = pauses.maxMillis.get();
+
+        scan.getAsDouble();
+        start = System.nanoTime();
+        result.checksum = scan.getAsDouble();
+        result.scanMillis = (System.nanoTime() - start) / 1e6;
+        return result;
+    }
+
+    // Allocate like a busy node: mostly garbage, some objects living a while
+    private static void churn() {
+        Object[] window = new Object[CHURN_OBJECTS / 4];
+        Random random = new Random(7);
+        for (int round = 0; round < CHURN_ROUNDS; round++) {
+            for (int i = 0; i < CHURN_OBJECTS; i++) {
+                byte[] garbage = new byte[32 + random.nextInt(96)];
+                if ((i & 7) == 0) {
+                    window[random.nextInt(window.length)] = garbage;
+                }
+            }
+        }
+    }
+
+    private static boolean prunedBlockServed() {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain node = new Blockchain(NetworkParams.fixed(1));
+        node.setRequireSignatures(false);
+        node.enableOffHeapStorage(null);
+        node.enablePruning(5, 5);
+        for (int b = 0; b < 30; b++) {
+            node.addTransaction(new Transaction("alice", "bob", b + 1));
+            node.minePendingTransactions();
+        }
+        System.setOut(out);
+        Block pruned = node.getChain().get(3);
+        Block full = node.getFullBlock(pruned.getHash());
+        return pruned.isPruned() && full != null && !full.isPruned()
+                && full.getHash().equals(pruned.getHash()) && full.getTransactions().size() == 1;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "  ✓ " : "  ✗ ") + what);
+    }
+
+    /**
+     * Pause count and durations, from the JVM's GC notifications
+     */
+    private static final class GcPauses {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalMillis = new AtomicLong();
+        final AtomicLong maxMillis = new AtomicLong();
+
+        GcPauses() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                        return;
+                    }
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    // Concurrent cycles are not pauses
+                    if (info.getGcName().contains("Concurrent")) {
+                        return;
+                    }
+                    long millis = info.getGcInfo().getDuration();
+                    count.incrementAndGet();
+                    totalMillis.addAndGet(millis);
+                    maxMillis.accumulateAndGet(millis, Math::max);
+                }, null, null);
+            }
+        }
+
+        void reset() {
+            // Notifications arrive asynchronously; let earlier ones land first
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            count.set(0);
+            totalMillis.set(0);
+            maxMillis.set(0);
+        }
+
+        String collectors() {
+            List<String> names = new ArrayList<>();
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                names.add(collector.getName());
+            }
+            return String.join(" + ", names);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.NetworkParams;
+import models.Block;
+import models.BlockTemplate;
+import models.Transaction;
+import pool.MiningPool;
+import pool.PoolWorker;
+import pool.Share;
+import pool.WorkUnit;
+import utils.Sha256Kernel;
+import utils.Target;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * PoolBenchmark - Pooled mining with shares
+ *
+ * 1. Mining: four workers throttled to different speeds mine on a
+ *    difficulty-4 chain while transactions keep arriving. The pool's
+ *    share-based hashrate estimates are compared with the hashes each
+ *    worker really computed, and the mined chain is validated.
+ * 2. Share flood: with the share target at its maximum every hash is a
+ *    share, so the pool's accounting (verify, de-duplicate, count) is
+ *    the bottleneck - shares per second from several threads at once.
+ * 3. Checks: a repeated share is a DUPLICATE, a nonce that misses the
+ *    share target is INVALID, a share for a job on an old tip is STALE.
+ *
+ * Usage: java main.PoolBenchmark [seconds of mining]
+ */
+public class PoolBenchmark {
+
+    private static final long[] SPEEDS = {10_000, 20_000, 40_000, 80_000};
+    private static final int SHARES_PER_BLOCK = 1024;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        PrintStream out = System.out;
+        Sha256Kernel kernel = Sha256Kernel.best();
+
+        out.println("=".repeat(84));
+        out.printf("MINING POOL: %d workers, 1 block per %,d shares, %s kernel%n", SPEEDS.length,
+                SHARES_PER_BLOCK, kernel.name());
+        out.println("=".repeat(84));
+
+        // 1. Mining at known speeds
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain blockchain = new Blockchain(NetworkParams.fixed(4));
+        blockchain.setRequireSignatures(false);
+        MiningPool pool = new MiningPool(blockchain, SHARES_PER_BLOCK);
+        List<PoolWorker> workers = new ArrayList<>();
+        for (int i = 0; i < SPEEDS.length; i++) {
+            workers.add(new PoolWorker("worker-" + (i + 1), pool, kernel, SPEEDS[i]));
+        }
+        Random random = new Random(42);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            for (int t = 0; t < 5; t++) {
+                blockchain.addTransaction(new Transaction("user" + random.nextInt(100), "user" + random.nextInt(100),
+                        1 + random.nextInt(100)));
+            }
+            Thread.sleep(100);
+        }
+        for (PoolWorker worker : workers) {
+            worker.close();
+        }
+        MiningPool.Report report = pool.getReport();
+        pool.close();
+        boolean chainValid = blockchain.isChainValid();
+        System.setOut(out);
+
+        out.println("\n1. Mining at " + SPEEDS.length + " fixed speeds for " + seconds + " s\n");
+        out.print(report);
+        out.printf("%n%-12s %13s %13s %8s%n", "Worker", "Real H/s", "Est. H/s", "Error");
+        double worstError = 0;
+        for (PoolWorker worker : workers) {
+            double real = worker.getHashrate();
+            double estimated = report.getWorker(worker.getName()).getEstimatedHashrate();
+            double error = (estimated - real) / real;
+            worstError = Math.max(worstError, Math.abs(error));
+            out.printf("%-12s %,13.0f %,13.0f %+7.1f%%%n", worker.getName(), real, estimated, error * 100);
+        }
+        out.printf("Chain height %d, valid: %s%n", blockchain.getLatestBlock().getIndex(), chainValid);
+
+        // 2. Every hash is a share
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain floodChain = new Blockchain(NetworkParams.fixed(4));
+        MiningPool flood = new MiningPool(floodChain, Integer.MAX_VALUE);
+        List<PoolWorker> flooders = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            flooders.add(new PoolWorker("flood-" + (i + 1), flood, kernel, 0));
+        }
+        Thread.sleep(3_000);
+        for (PoolWorker worker : flooders) {
+            worker.close();
+        }
+        MiningPool.Report floodReport = flood.getReport();
+        flood.close();
+        System.setOut(out);
+        out.printf("%n2. Share flood (every hash is a share, %d submitting threads)%n", flooders.size());
+        out.printf("%,d shares in %.1f s: %,.0f shares/s, efficiency %.1f%%, %,d blocks%n",
+                floodReport.getSubmitted(), floodReport.getSeconds(), floodReport.getSharesPerSecond(),
+                floodReport.getEfficiency() * 100, floodReport.getBlocks());
+
+        // 3. Share results
+        out.println("\n3. Checks");
+        check("Mined chain validates", chainValid);
+        check("Pool found blocks (" + report.getBlocks() + ") and the chain has them",
+                report.getBlocks() > 0 && blockchain.getLatestBlock().getIndex() == report.getBlocks());
+        check("Every worker's estimate within 20% of its real hashrate", worstError < 0.20);
+        check("Tens of thousands of shares per second", floodReport.getSharesPerSecond() >= 10_000);
+        shareResultChecks(kernel);
+    }
+
+    private static void shareResultChecks(Sha256Kernel kernel) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain blockchain = new Blockchain(NetworkParams.fixed(3));
+        blockchain.setRequireSignatures(false);
+        MiningPool pool = new MiningPool(blockchain, 16);
+        WorkUnit work = pool.getWork("tester", 1 << 16);
+        long good = findNonce(kernel, work, true);
+        long bad = findNonce(kernel, work, false);
+        MiningPool.ShareResult first = pool.submitShare(new Share("tester", work.getJobId(), good));
+        MiningPool.ShareResult again = pool.submitShare(new Share("tester", work.getJobId(), good));
+        MiningPool.ShareResult invalid = pool.submitShare(new Share("tester", work.getJobId(), bad));
+
+        // Someone else's block moves the tip: the old job is retired
+        blockchain.addTransaction(new Transaction("alice", "bob", 1));
+        blockchain.minePendingTransactions();
+        long other = findNonce(kernel, work, true);
+        MiningPool.ShareResult stale = pool.submitShare(new Share("tester", work.getJobId(), other));
+        boolean active = pool.isActive(work);
+        pool.close();
+        System.setOut(out);
+
+        check("First submission counted: " + first, first == MiningPool.ShareResult.ACCEPTED
+                || first == MiningPool.ShareResult.BLOCK);
+        check("Same nonce again: " + again, again == MiningPool.ShareResult.DUPLICATE);
+        check("Nonce above the share target: " + invalid, invalid == MiningPool.ShareResult.INVALID);
+        check("Share for a job on the old tip: " + stale + " (job active: " + active + ")",
+                stale == MiningPool.ShareResult.STALE && !active);
+    }
+
+    // Last nonce of the unit that does (or does not) meet its share target
+    private static long findNonce(Sha256Kernel kernel, WorkUnit work, boolean meets) {
+        BlockTemplate template = work.getTemplate();
+        byte[] prefix = Block.hashPrefix(template.getIndex(), template.getPreviousHash(), template.getTimestamp())
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = Block.hashSuffix(0, work.getBlockBits(), template.getMerkleRoot())
+                .getBytes(StandardCharsets.UTF_8);
+        int[] target = Target.toWords(Target.decodeCompact(work.getShareBits()));
+        int[] digest = new int[8];
+        for (long nonce = work.getNonceStart() + work.getNonceCount() - 1; nonce >= work.getNonceStart(); nonce--) {
+            kernel.hashNonces(prefix, nonce, 1, suffix, digest);
+            if (Target.meets(digest, 0, target) == meets) {
+                return nonce;
+            }
+        }
+        throw new IllegalStateException("No such nonce in " + work);
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "  ✓ " : "  ✗ ") + what);
+    }
+}
@@ -0,0 +1,137 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.NetworkParams;
+import blockchain.WorkloadReplayer;
+import models.Transaction;
+import models.Wallet;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ReplayBenchmark - Replays a recorded workload and reports how this build did
+ *
+ * Given a log (e.g. from BlockchainSimulator --record), replays it as fast
+ * as possible - after one warm-up replay - and prints the report; with
+ * --paced the calls keep their recorded timing instead. --report saves
+ * the report, to diff against another build's.
+ *
+ * Without a log it first records a session of its own (single and batched
+ * submissions, some signed, mining calls - one with nothing to mine - at
+ * irregular intervals), then checks that fast and paced replays both
+ * rebuild exactly the recorded chain.
+ *
+ * Usage: java main.ReplayBenchmark [workload.wlog] [--paced] [--report report.txt]
+ */
+public class ReplayBenchmark {
+
+    private static final int ROUNDS = 30;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path log = null;
+        Path reportFile = null;
+        boolean paced = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--paced")) {
+                paced = true;
+            } else if (args[i].equals("--report") && i + 1 < args.length) {
+                reportFile = Path.of(args[++i]);
+            } else {
+                log = Path.of(args[i]);
+            }
+        }
+        PrintStream out = System.out;
+
+        out.println("=".repeat(70));
+        out.println("WORKLOAD REPLAY");
+        out.println("=".repeat(70));
+
+        String recordedTip = null;
+        if (log == null) {
+            log = Files.createTempFile("workload", ".wlog");
+            log.toFile().deleteOnExit();
+            long start = System.nanoTime();
+            recordedTip = record(log);
+            out.printf("Recorded a %d-round session in %.1f s: %,d bytes%n", ROUNDS,
+                    (System.nanoTime() - start) / 1e9, Files.size(log));
+        }
+
+        WorkloadReplayer replayer = WorkloadReplayer.load(log);
+        out.printf("Loaded %s: %,d events, %,d transactions, network %s%n%n", log.getFileName(),
+                replayer.getEventCount(), replayer.getTransactionCount(), replayer.getNetworkName());
+
+        WorkloadReplayer.Pace pace = paced ? WorkloadReplayer.Pace.ORIGINAL : WorkloadReplayer.Pace.FAST;
+        WorkloadReplayer.Report warmUp = silently(replayer, WorkloadReplayer.Pace.FAST);
+        WorkloadReplayer.Report report = silently(replayer, pace);
+        out.print(report);
+        if (reportFile != null) {
+            report.writeTo(reportFile);
+            out.println("\nReport saved to " + reportFile);
+        }
+
+        if (recordedTip != null) {
+            WorkloadReplayer.Report pacedReport = paced ? report : silently(replayer, WorkloadReplayer.Pace.ORIGINAL);
+            out.println("\nChecks");
+            check("Every mining call reproduced its recorded block",
+                    warmUp.isReproduced() && pacedReport.isReproduced());
+            check("Fast replay ends on the recorded tip", warmUp.getTipHash().equals(recordedTip));
+            check("Paced replay ends on the recorded tip", pacedReport.getTipHash().equals(recordedTip));
+            check("Paced replay took at least the recorded time",
+                    pacedReport.getSeconds() >= pacedReport.getRecordedSeconds());
+        }
+    }
+
+    // A session with real timestamps and irregular gaps; returns the tip hash
+    private static String record(Path log) throws IOException, InterruptedException {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain blockchain = new Blockchain(NetworkParams.fixed(3));
+        blockchain.setRequireSignatures(false);
+        blockchain.startRecording(log);
+        Random random = new Random(42);
+        Wallet alice = new Wallet();
+
+        blockchain.minePendingTransactions();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int t = 0; t < 10; t++) {
+                blockchain.addTransaction(new Transaction("user" + random.nextInt(100), "user" + random.nextInt(100),
+                        1 + random.nextInt(100)));
+                if (t % 5 == 0) {
+                    blockchain.addTransaction(alice.send("user" + random.nextInt(100), 1 + random.nextInt(10)));
+                }
+                Thread.sleep(random.nextInt(3));
+            }
+            List<Transaction> batch = new ArrayList<>();
+            for (int t = 0; t < 40; t++) {
+                batch.add(new Transaction("user" + random.nextInt(100), "user" + random.nextInt(100),
+                        1 + random.nextInt(100)));
+            }
+            blockchain.addTransactions(batch);
+            blockchain.minePendingTransactions();
+            Thread.sleep(random.nextInt(20));
+        }
+        blockchain.stopRecording();
+        System.setOut(out);
+        return blockchain.getLatestBlock().getHash();
+    }
+
+    private static WorkloadReplayer.Report silently(WorkloadReplayer replayer, WorkloadReplayer.Pace pace) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return replayer.replay(pace);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "  ✓ " : "  ✗ ") + what);
+    }
+}
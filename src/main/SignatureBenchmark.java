@@ -0,0 +1,175 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.NetworkParams;
+import blockchain.SignatureVerifier;
+import models.Block;
+import models.BlockTemplate;
+import models.Transaction;
+import models.Wallet;
+import network.ProtocolCodec;
+import utils.SignatureUtil;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SignatureBenchmark - What signing transactions costs, and what the verifier saves
+ *
+ * 1. Signing rate (Ed25519)
+ * 2. Verification throughput: one thread vs a parallel batch vs the cache
+ * 3. The node pipeline: pending pool -> mined block (signatures cached),
+ *    a second node receiving that block (nothing cached), and chain
+ *    validation with a warm and a cleared cache
+ * 4. Forgeries are rejected: wrong sender, altered amount, a block
+ *    carrying a forged transaction, unsigned when signatures are required
+ *
+ * Usage: java main.SignatureBenchmark [transactions] [wallets]
+ */
+public class SignatureBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 4_000;
+        int walletCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        PrintStream out = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        out.println("=".repeat(70));
+        out.printf("SIGNATURES: %,d transactions from %d wallets, %d cores%n",
+                count, walletCount, Runtime.getRuntime().availableProcessors());
+        out.println("=".repeat(70));
+
+        List<Wallet> wallets = new ArrayList<>();
+        for (int i = 0; i < walletCount; i++) {
+            wallets.add(new Wallet());
+        }
+        Random random = new Random(42);
+        warmUp(wallets.get(0));
+
+        // 1. Signing
+        long start = System.nanoTime();
+        List<Transaction> signed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Wallet from = wallets.get(random.nextInt(walletCount));
+            Wallet to = wallets.get(random.nextInt(walletCount));
+            signed.add(from.send(to.getAddress(), 1 + random.nextInt(100), 1_700_000_000_000L + i));
+        }
+        report(out, "Sign", count, System.nanoTime() - start);
+
+        // 2. Verification
+        SignatureVerifier sequential = new SignatureVerifier();
+        start = System.nanoTime();
+        int valid = 0;
+        for (Transaction tx : signed) {
+            valid += sequential.isValid(tx) ? 1 : 0;
+        }
+        report(out, "Verify, one thread", count, System.nanoTime() - start);
+
+        SignatureVerifier parallel = new SignatureVerifier();
+        start = System.nanoTime();
+        valid = Math.min(valid, parallel.filterValid(signed).size());
+        report(out, "Verify, parallel batch", count, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        valid = Math.min(valid, parallel.filterValid(signed).size());
+        report(out, "Verify again, cached", count, System.nanoTime() - start);
+        out.printf("  all %,d valid: %s   %s%n", count, valid == count, parallel);
+
+        // 3. Node pipeline
+        System.setOut(quiet);
+        Blockchain node = new Blockchain(NetworkParams.fixed(1));
+        long poolNanos = timed(() -> node.addTransactions(signed));
+        long mineNanos = timed(node::minePendingTransactions);
+        Block block = node.getLatestBlock();
+        Block received = ProtocolCodec.decodeBlock(ProtocolCodec.encodeBlock(block));
+        Blockchain peer = new Blockchain(NetworkParams.fixed(1));
+        long peerNanos = timed(() -> peer.addBlock(received));
+        long warmNanos = timed(node::isChainValid);
+        node.getSignatureVerifier().clearCache();
+        long coldNanos = timed(node::isChainValid);
+        System.setOut(out);
+
+        out.printf("%nNode pipeline (block #%d, %,d transactions)%n", block.getIndex(), block.getTransactions().size());
+        report(out, "addTransactions (verifies)", count, poolNanos);
+        report(out, "mine + addBlock (cached)", count, mineNanos);
+        report(out, "peer addBlock (verifies)", count, peerNanos);
+        report(out, "isChainValid, warm cache", count, warmNanos);
+        report(out, "isChainValid, cleared", count, coldNanos);
+        out.printf("  peer accepted the block: %s%n", peer.getLatestBlock().getHash().equals(block.getHash()));
+
+        // 4. Forgeries
+        out.println("\nForgeries");
+        Wallet alice = wallets.get(0);
+        Wallet bob = wallets.get(1);
+        Transaction honest = alice.send(bob.getAddress(), 10);
+        Transaction wrongSender = new Transaction(bob.getAddress(), alice.getAddress(), 10, honest.getTimeStamp(),
+                honest.getPublicKey(), alice.send(alice.getAddress(), 10, honest.getTimeStamp()).getSignature());
+        Transaction altered = new Transaction(honest.getSender(), honest.getRecipient(), 1_000,
+                honest.getTimeStamp(), honest.getPublicKey(), honest.getSignature());
+        // Same characters, different field boundaries: the recipient's first
+        // character moved to the sender, and the "1" of "10.0" to the recipient
+        String sender = honest.getSender();
+        String recipient = honest.getRecipient();
+        Transaction resplit = new Transaction(sender + recipient.charAt(0), recipient.substring(1), 10,
+                honest.getTimeStamp());
+        boolean resplitVerifies = SignatureUtil.verify(honest.getPublicKey(), resplit.getSigningData(),
+                honest.getSignature());
+        Transaction shifted = new Transaction(sender, recipient + "1", 0.0, honest.getTimeStamp(),
+                honest.getPublicKey(), honest.getSignature());
+
+        System.setOut(quiet);
+        boolean honestAdded = node.addTransaction(honest);
+        boolean wrongSenderAdded = node.addTransaction(wrongSender);
+        boolean alteredAdded = node.addTransaction(altered);
+        boolean shiftedAdded = node.addTransaction(shifted);
+        Block parent = peer.getLatestBlock();
+        Block forgedBlock = new BlockTemplate(parent.getIndex() + 1, parent.getHash(), List.of(altered))
+                .mineBlockToTarget(peer.getNextBits());
+        Blockchain.BlockStatus forgedStatus = peer.addBlock(forgedBlock);
+        boolean unsignedAdded = peer.addTransaction(new Transaction("alice", "bob", 1));
+        // Pooled while unsigned ones were allowed, mined after they no longer are
+        Blockchain strict = new Blockchain(NetworkParams.fixed(1));
+        strict.setRequireSignatures(false);
+        strict.addTransaction(new Transaction("alice", "bob", 1));
+        strict.setRequireSignatures(true);
+        Blockchain.BlockStatus minedStatus = strict.minePendingTransactions();
+        System.setOut(out);
+
+        check("Honest transaction accepted", honestAdded);
+        check("Signed by alice, spending from bob: rejected", !wrongSenderAdded);
+        check("Amount changed after signing: rejected", !alteredAdded);
+        check("Sender/recipient boundary moved: signature does not verify, new ID",
+                !resplitVerifies && !resplit.getTransactionId().equals(new Transaction(sender, recipient, 10,
+                        honest.getTimeStamp()).getTransactionId()));
+        check("Recipient/amount boundary moved: rejected, new ID",
+                !shiftedAdded && !shifted.getTransactionId().equals(honest.getTransactionId()));
+        check("Block carrying the altered transaction: " + forgedStatus, forgedStatus == Blockchain.BlockStatus.INVALID);
+        check("Unsigned transaction (signatures required by default): rejected", !unsignedAdded);
+        check("Mining a pooled unsigned transaction once they are required: " + minedStatus,
+                minedStatus == Blockchain.BlockStatus.INVALID && strict.getLatestBlock().getIndex() == 0);
+    }
+
+    // Let the JIT compile the signature code before anything is timed
+    private static void warmUp(Wallet wallet) {
+        SignatureVerifier verifier = new SignatureVerifier();
+        for (int i = 0; i < 500; i++) {
+            verifier.isValid(wallet.send(wallet.getAddress(), 1, i));
+        }
+    }
+
+    private static long timed(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(PrintStream out, String what, int transactions, long nanos) {
+        out.printf("  %-30s %,10.1f ms %,12.0f tx/s%n", what, nanos / 1e6, transactions / (nanos / 1e9));
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "  ✓ " : "  ✗ ") + what);
+    }
+}
@@ -0,0 +1,101 @@
+package main;
+
+import blockchain.Blockchain;
+import models.Block;
+import models.Transaction;
+import network.PeerNode;
+import network.SyncProgress;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SyncBenchmark - Time-to-tip for a node joining a long chain
+ *
+ * Builds a chain of the requested length once, loads it into several
+ * serving nodes, then starts an empty node and measures how long it takes
+ * to reach the tip:
+ * - BLOCKS mode from one peer (GETBLOCKS, full blocks in order)
+ * - HEADERS_FIRST mode from one peer and from all serving peers
+ *
+ * Usage: java main.SyncBenchmark [blocks] [txPerBlock] [servingPeers]
+ * Defaults: 100000 blocks, 4 transactions per block, 4 peers
+ */
+public class SyncBenchmark {
+
+    // Difficulty 1 keeps building the test chain cheap
+    private static final int DIFFICULTY = 1;
+
+    public static void main(String[] args) throws Exception {
+        int blockCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int txPerBlock = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int servingPeers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        console.println("=".repeat(70));
+        console.println("HEADERS-FIRST SYNC BENCHMARK");
+        console.println("=".repeat(70));
+        console.println("Building a chain of " + blockCount + " blocks (" + txPerBlock + " tx each)...");
+
+        long genesisTimestamp = System.currentTimeMillis();
+        Blockchain source = new Blockchain(DIFFICULTY, genesisTimestamp);
+        source.setRequireSignatures(false);
+        for (int height = 1; height <= blockCount; height++) {
+            for (int i = 0; i < txPerBlock; i++) {
+                source.addTransaction(new Transaction("miner", "user" + height, i + 1));
+            }
+            source.minePendingTransactions();
+        }
+
+        // Serving nodes all hold a copy of the same chain
+        List<PeerNode> servers = new ArrayList<>();
+        for (int i = 0; i < servingPeers; i++) {
+            Blockchain copy = new Blockchain(DIFFICULTY, genesisTimestamp);
+            copy.setRequireSignatures(false);
+            for (Block block : source.getChain().subList(1, source.getChain().size())) {
+                copy.addBlock(block);
+            }
+            PeerNode server = new PeerNode(copy, 0);
+            server.start();
+            servers.add(server);
+        }
+
+        console.printf("%-26s %12s %14s%n", "Mode", "Time (s)", "Blocks/s");
+        try {
+            run(console, "BLOCKS, 1 peer", PeerNode.SyncMode.BLOCKS, servers.subList(0, 1), genesisTimestamp, blockCount);
+            run(console, "HEADERS_FIRST, 1 peer", PeerNode.SyncMode.HEADERS_FIRST, servers.subList(0, 1), genesisTimestamp, blockCount);
+            run(console, "HEADERS_FIRST, " + servingPeers + " peers", PeerNode.SyncMode.HEADERS_FIRST, servers, genesisTimestamp, blockCount);
+        } finally {
+            for (PeerNode server : servers) {
+                server.close();
+            }
+        }
+    }
+
+    private static void run(PrintStream console, String label, PeerNode.SyncMode mode,
+                            List<PeerNode> servers, long genesisTimestamp, int blockCount) throws Exception {
+        Blockchain blockchain = new Blockchain(DIFFICULTY, genesisTimestamp);
+        blockchain.setRequireSignatures(false);
+        PeerNode node = new PeerNode(blockchain, 0);
+        node.setSyncMode(mode);
+        node.start();
+        long start = System.nanoTime();
+        for (PeerNode server : servers) {
+            node.connect("127.0.0.1", server.getPort());
+        }
+        while (node.getHeight() < blockCount) {
+            Thread.sleep(5);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        node.close();
+
+        console.printf("%-26s %12.2f %14.0f%n", label, seconds, blockCount / seconds);
+        SyncProgress progress = node.getSyncProgress();
+        if (mode == PeerNode.SyncMode.HEADERS_FIRST) {
+            console.println("  " + progress);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.Miner;
+import models.Block;
+import models.BlockTemplate;
+import models.Transaction;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class TestAsyncMining {
+    public static void main(String[] args) throws Exception {
+        long genesisTimestamp = System.currentTimeMillis();
+        Blockchain blockchain = new Blockchain(5, genesisTimestamp);
+        blockchain.setRequireSignatures(false);
+        Blockchain rival = new Blockchain(5, genesisTimestamp);
+        rival.setRequireSignatures(false);
+
+        try (Miner miner = new Miner(Runtime.getRuntime().availableProcessors())) {
+            System.out.println("\nTEST 1: A late transaction joins the block being mined");
+            System.out.println("─".repeat(70));
+            blockchain.addTransaction(new Transaction("Alice", "Bob", 50.0));
+            CompletableFuture<Block> pending = blockchain.minePendingTransactionsAsync(miner);
+
+            // A late transaction is folded into the block being mined
+            blockchain.addTransaction(new Transaction("Bob", "Charlie", 25.0));
+            Block mined = pending.join();
+            System.out.println("Mined " + mined + " with " + mined.getTransactions().size() + " transactions");
+            System.out.println("Chain height: " + (blockchain.getChain().size() - 1));
+
+            System.out.println("\nTEST 2: Cancel a job");
+            System.out.println("─".repeat(70));
+            blockchain.addTransaction(new Transaction("Charlie", "Dave", 10.0));
+            pending = blockchain.minePendingTransactionsAsync(miner);
+            pending.cancel(false);
+            try {
+                pending.join();
+            } catch (CancellationException | CompletionException e) {
+                System.out.println("Job cancelled: " + pending.isCancelled());
+            }
+            System.out.println("Chain height: " + (blockchain.getChain().size() - 1));
+
+            System.out.println("\nTEST 3: Competing block arrives while mining");
+            System.out.println("─".repeat(70));
+            // The rival branch is one block longer, so it takes over while we mine
+            for (int i = 1; i <= 2; i++) {
+                rival.addTransaction(new Transaction("Eve", "Frank", i));
+                rival.minePendingTransactions();
+            }
+            pending = blockchain.minePendingTransactionsAsync(miner);
+            for (Block block : rival.getChain().subList(1, rival.getChain().size())) {
+                System.out.println("Rival " + block + " -> " + blockchain.addBlock(block));
+            }
+            mined = pending.join();
+            System.out.println("Mined " + mined + " on top of the rival tip: "
+                    + mined.getPreviousHash().equals(rival.getLatestBlock().getHash()));
+            System.out.println("Chain height: " + (blockchain.getChain().size() - 1));
+
+            System.out.println("\nTEST 4: Suspend and resume a raw job");
+            System.out.println("─".repeat(70));
+            BlockTemplate template = new BlockTemplate(99, "0".repeat(64), blockchain.getPendingTransactions());
+            var job = miner.submit(template, blockchain.getNextBits());
+            job.suspend();
+            Thread.sleep(100);
+            long before = job.getHashCount();
+            Thread.sleep(200);
+            System.out.println("Hashes while suspended: " + (job.getHashCount() - before));
+            job.resume();
+            Block found = job.result().join();
+            System.out.println("Resumed and found nonce " + Long.toUnsignedString(found.getNonce())
+                    + " after " + job.getHashCount() + " hashes, valid=" + found.hasValidProofOfWork());
+        }
+    }
+}
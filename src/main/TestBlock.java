@@ -1,6 +1,7 @@
 package main;
 
 import models.Block;
+import models.BlockTemplate;
 import models.Transaction;
 import java.util.ArrayList;
 import java.util.List;
@@ -24,21 +25,21 @@ public class TestBlock {
         }
         System.out.println();
         
-        // Create block
-        Block block1 = new Block(1, "0000abcd1234ef567890", transactions);
+        // Create block template
+        BlockTemplate template1 = new BlockTemplate(1, "0000abcd1234ef567890", transactions);
         
-        System.out.println("Block created (before mining):");
-        System.out.println("  Index: " + block1.getIndex());
-        System.out.println("  Previous Hash: " + block1.getPreviousHash());
-        System.out.println("  Merkle Root: " + block1.getMerkleRoot().substring(0, 20) + "...");
-        System.out.println("  Initial Hash: " + block1.getHash().substring(0, 20) + "...");
-        System.out.println("  Initial Nonce: " + block1.getNonce());
+        System.out.println("Block template created (before mining):");
+        System.out.println("  Index: " + template1.getIndex());
+        System.out.println("  Previous Hash: " + template1.getPreviousHash());
+        System.out.println("  Merkle Root: " + template1.getMerkleRoot().substring(0, 20) + "...");
+        System.out.println("  Initial Hash: " + template1.calculateHash().substring(0, 20) + "...");
+        System.out.println("  Initial Nonce: " + template1.getNonce());
         System.out.println();
         
         // Test 2: Mine the block with difficulty 3 (easier, faster)
         System.out.println("\nTEST 2: Mining Block (Difficulty 3)");
         System.out.println("─".repeat(70));
-        block1.mineBlock(3);
+        Block block1 = template1.mineBlock(3);
         
         System.out.println("Block after mining:");
         System.out.println("  Hash starts with: " + block1.getHash().substring(0, 10));
@@ -49,12 +50,12 @@ public class TestBlock {
         System.out.println("\nTEST 3: Creating Genesis Block (No Transactions)");
         System.out.println("─".repeat(70));
         
-        Block genesisBlock = new Block(0, "0", new ArrayList<>());
-        System.out.println("Genesis block created:");
-        System.out.println("  " + genesisBlock);
+        BlockTemplate genesisTemplate = new BlockTemplate(0, "0", new ArrayList<>());
+        System.out.println("Genesis template created:");
+        System.out.println("  " + genesisTemplate);
         System.out.println();
         
-        genesisBlock.mineBlock(4); // Mine with difficulty 4
+        Block genesisBlock = genesisTemplate.mineBlock(4); // Mine with difficulty 4
         
         System.out.println("Genesis block mined:");
         System.out.println("  Hash: " + genesisBlock.getHash());
@@ -64,11 +65,45 @@ public class TestBlock {
         System.out.println("\nTEST 4: Demonstrating How Nonce Affects Hash");
         System.out.println("─".repeat(70));
         
-        Block testBlock = new Block(2, "0000xyz", new ArrayList<>());
+        Block testBlock = new BlockTemplate(2, "0000xyz", new ArrayList<>()).toBlock();
+        Block nextNonce = new Block(testBlock.getIndex(), testBlock.getPreviousHash(), testBlock.getTimestamp(),
+                1, 0, 0, testBlock.getTransactions());
         System.out.println("Block with nonce 0:");
         System.out.println("  Hash: " + testBlock.getHash().substring(0, 20) + "...");
+        System.out.println("Same block with nonce 1:");
+        System.out.println("  Hash: " + nextNonce.getHash().substring(0, 20) + "...");
         System.out.println();
         
+        // Test 5: Parallel workers search disjoint nonce ranges
+        System.out.println("\nTEST 5: Four Workers, Disjoint Nonce Ranges");
+        System.out.println("─".repeat(70));
+
+        long timestamp = System.currentTimeMillis();
+        Block[] mined = new Block[4];
+        Thread[] workers = new Thread[mined.length];
+        for (int w = 0; w < mined.length; w++) {
+            // Same template contents for everyone; only the nonce range differs
+            BlockTemplate copy = new BlockTemplate(3, genesisBlock.getHash(), timestamp, transactions);
+            int worker = w;
+            workers[w] = new Thread(() -> mined[worker] = copy.mineBlock(3, worker, mined.length));
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int w = 0; w < mined.length; w++) {
+            Block block = mined[w];
+            Block rebuilt = new Block(block.getIndex(), block.getPreviousHash(), block.getTimestamp(),
+                    block.getNonce(), block.getExtraNonce(), block.getBits(), block.getTransactions());
+            System.out.println("  Worker " + w + ": nonce=" + Long.toUnsignedString(block.getNonce())
+                    + " valid=" + (rebuilt.getHash().equals(block.getHash()) && rebuilt.hasValidProofOfWork()));
+        }
+        System.out.println();
+
         System.out.println("✅ ALL TESTS COMPLETED SUCCESSFULLY!");
         System.out.println("✅ Block class is working perfectly!");
         System.out.println("✅ Mining (Proof-of-Work) is functional!");
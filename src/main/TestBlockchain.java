@@ -6,6 +6,7 @@ import models.Transaction;
 public class TestBlockchain {
     public static void main(String[] args) {
         Blockchain blockchain = new Blockchain(4); // Set your difficulty (3 = faster, 4 = harder)
+        blockchain.setRequireSignatures(false);
         
         // Add transactions for first block
         blockchain.addTransaction(new Transaction("Alice", "Bob", 50.0));
@@ -0,0 +1,186 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.ChainEvents;
+import blockchain.ChainReorg;
+import models.Block;
+import models.Transaction;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * TestChainEvents - Flow subscriptions to blocks, transactions and reorgs
+ *
+ * 1. A fast and a slow block subscriber: the miner does not wait for
+ *    the slow one, which still receives every block in order
+ * 2. Resuming from a height catches up on blocks already in the chain
+ * 3. A slow transaction subscriber with a small buffer: excess
+ *    transactions are dropped for it instead of piling up
+ * 4. A reorganization: reported on the reorg stream, and block
+ *    subscribers receive the new branch from the fork point
+ */
+public class TestChainEvents {
+
+    /**
+     * Collects items, requesting `batch` at a time and pausing `delayMs` on each
+     */
+    static final class Collector<T> implements Flow.Subscriber<T> {
+        final List<T> items = new ArrayList<>();
+        final int batch;
+        final long delayMs;
+        Flow.Subscription subscription;
+        int outstanding;
+        volatile boolean complete;
+
+        Collector(int batch, long delayMs) {
+            this.batch = batch;
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            outstanding = batch;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(T item) {
+            synchronized (items) {
+                items.add(item);
+            }
+            if (delayMs > 0) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (--outstanding == 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            System.err.println("[ERROR] " + throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+
+        int size() {
+            synchronized (items) {
+                return items.size();
+            }
+        }
+
+        List<T> snapshot() {
+            synchronized (items) {
+                return new ArrayList<>(items);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        long genesisTimestamp = System.currentTimeMillis();
+        Blockchain blockchain = new Blockchain(2, genesisTimestamp);
+        blockchain.setRequireSignatures(false);
+        ChainEvents events = new ChainEvents(blockchain, null, 8);
+
+        out.println("TEST 1: Fast and slow block subscribers");
+        out.println("─".repeat(70));
+        Collector<Block> fast = new Collector<>(Integer.MAX_VALUE, 0);
+        Collector<Block> slow = new Collector<>(1, 100);
+        events.blocks().subscribe(fast);
+        events.blocks().subscribe(slow);
+        long start = System.nanoTime();
+        for (int i = 1; i <= 10; i++) {
+            blockchain.addTransaction(new Transaction("Alice", "Bob", i));
+            blockchain.minePendingTransactions();
+        }
+        out.printf("Mined 10 blocks in %d ms; fast has %d, slow has %d so far%n",
+                (System.nanoTime() - start) / 1_000_000, fast.size(), slow.size());
+        waitFor(() -> slow.size() == 10);
+        out.println("Slow subscriber caught up: " + heights(slow.snapshot()));
+
+        out.println("\nTEST 2: Resume from height 4");
+        out.println("─".repeat(70));
+        Collector<Block> resumed = new Collector<>(3, 0);
+        events.blocksFrom(4).subscribe(resumed);
+        waitFor(() -> resumed.size() == 7);
+        blockchain.addTransaction(new Transaction("Alice", "Carol", 1));
+        blockchain.minePendingTransactions();
+        waitFor(() -> resumed.size() == 8);
+        out.println("Received: " + heights(resumed.snapshot()) + " (4-10 from the chain, 11 live)");
+
+        out.println("\nTEST 3: Slow transaction subscriber, buffer of 8");
+        out.println("─".repeat(70));
+        Collector<Transaction> txs = new Collector<>(1, 20);
+        events.transactions().subscribe(txs);
+        start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            blockchain.addTransaction(new Transaction("Dave", "Eve", i + 1));
+        }
+        out.printf("Added 100 transactions in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        waitFor(() -> txs.size() + events.getDroppedTransactionCount() == 100);
+        out.println("Delivered: " + txs.size() + ", dropped: " + events.getDroppedTransactionCount());
+
+        out.println("\nTEST 4: Reorganization");
+        out.println("─".repeat(70));
+        Collector<ChainReorg> reorgs = new Collector<>(Integer.MAX_VALUE, 0);
+        events.reorgs().subscribe(reorgs);
+        int before = fast.size();
+
+        // A competing node with the same genesis builds a longer branch
+        Blockchain rival = new Blockchain(2, genesisTimestamp);
+        rival.setRequireSignatures(false);
+        for (int i = 0; i < 15; i++) {
+            rival.addTransaction(new Transaction("Mallory", "Trent", i + 1));
+            rival.minePendingTransactions();
+        }
+        for (Block block : rival.getChain().subList(1, rival.getChain().size())) {
+            blockchain.addBlock(block);
+        }
+        waitFor(() -> reorgs.size() == 1);
+        ChainReorg reorg = reorgs.snapshot().get(0);
+        out.println("Reorg: " + reorg);
+        waitFor(() -> fast.size() == before + 15);
+        List<Block> after = fast.snapshot().subList(before, fast.size());
+        out.println("Fast subscriber then received heights " + heights(after)
+                + " - the new branch from the fork point");
+        out.println("Ends on the active tip: "
+                + after.get(after.size() - 1).getHash().equals(blockchain.getLatestBlock().getHash()));
+
+        events.close();
+        waitFor(() -> fast.complete && slow.complete && txs.complete);
+        out.println("\n[SUCCESS] All subscribers completed on close");
+    }
+
+    private static List<Integer> heights(List<Block> blocks) {
+        List<Integer> heights = new ArrayList<>();
+        for (Block block : blocks) {
+            heights.add(block.getIndex());
+        }
+        return heights;
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Timed out waiting for subscribers");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.ChainIndex;
+import models.Block;
+import models.BlockTemplate;
+import models.Transaction;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * TestConfirmations - Waiting for transactions with futures instead of polling
+ *
+ * 1. Inclusion and 3 confirmations of a transaction while blocks are mined
+ * 2. A transaction that is never mined times out
+ * 3. A cancelled future is forgotten by the index
+ * 4. A reorg that drops the block puts its waiters back to waiting
+ * 5. Adding a block with 200,000 other waiters registered costs the same
+ *    as with none (only the block's own transactions are looked up)
+ */
+public class TestConfirmations {
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        long genesisTimestamp = System.currentTimeMillis();
+        Blockchain blockchain = new Blockchain(2, genesisTimestamp);
+        blockchain.setRequireSignatures(false);
+        ChainIndex index = blockchain.getIndex();
+
+        out.println("TEST 1: Inclusion and 3 confirmations");
+        out.println("─".repeat(70));
+        Transaction payment = new Transaction("Alice", "Bob", 10);
+        blockchain.addTransaction(payment);
+        CompletableFuture<ChainIndex.Location> included = index.awaitInclusion(payment.getTransactionId());
+        CompletableFuture<ChainIndex.Location> deep = blockchain.awaitConfirmations(
+                payment.getTransactionId(), 3, Duration.ofSeconds(10));
+        for (int i = 1; i <= 3; i++) {
+            blockchain.minePendingTransactions();
+            Thread.sleep(20);
+            out.println("After block #" + i + ": included=" + included.isDone() + ", 3 confirmations=" + deep.isDone());
+            if (i < 3) {
+                blockchain.addTransaction(new Transaction("Carol", "Dave", i));
+            }
+        }
+        out.println("Mined in block #" + deep.get().getHeight() + " at position " + deep.get().getPosition());
+
+        out.println("\nTEST 2: Timeout");
+        out.println("─".repeat(70));
+        try {
+            blockchain.awaitConfirmations("no-such-transaction", 1, Duration.ofMillis(200)).get();
+        } catch (ExecutionException e) {
+            out.println("Failed with " + (e.getCause() instanceof TimeoutException ? "TimeoutException" : e.getCause()));
+        }
+
+        out.println("\nTEST 3: Cancellation");
+        out.println("─".repeat(70));
+        CompletableFuture<ChainIndex.Location> abandoned = index.awaitInclusion("another-unknown-transaction");
+        out.println("Waiters before cancel: " + index.getWaiterCount());
+        abandoned.cancel(false);
+        out.println("Waiters after cancel:  " + index.getWaiterCount());
+
+        out.println("\nTEST 4: Reorg drops the block");
+        out.println("─".repeat(70));
+        Blockchain rival = new Blockchain(2, genesisTimestamp);
+        rival.setRequireSignatures(false);
+        for (int i = 0; i < 6; i++) {
+            rival.addTransaction(new Transaction("Eve", "Frank", i + 1));
+            rival.minePendingTransactions();
+        }
+        CompletableFuture<ChainIndex.Location> five = index.awaitConfirmations(payment.getTransactionId(), 5);
+        for (Block block : rival.getChain().subList(1, rival.getChain().size())) {
+            blockchain.addBlock(block);
+        }
+        out.println("Payment back in the pending pool: " + (blockchain.getPendingTransaction(payment.getTransactionId()) != null));
+        out.println("5-confirmation future done: " + five.isDone() + " (still waiting)");
+        for (int i = 1; i <= 5; i++) {
+            blockchain.minePendingTransactions();
+            if (i < 5) {
+                blockchain.addTransaction(new Transaction("Grace", "Heidi", i));
+            }
+        }
+        out.println("Re-mined in block #" + five.get().getHeight() + " of the new branch");
+
+        out.println("\nTEST 5: Cost of a block with many waiters registered");
+        out.println("─".repeat(70));
+        out.printf("Block add with      0 other waiters: %.3f ms%n", timeBlockAdd(blockchain));
+        List<CompletableFuture<ChainIndex.Location>> others = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            others.add(index.awaitInclusion("unknown-" + i));
+        }
+        out.printf("Block add with %,d other waiters: %.3f ms%n", others.size(), timeBlockAdd(blockchain));
+        others.forEach(future -> future.cancel(false));
+        out.println("Waiters left after cancelling: " + index.getWaiterCount());
+
+        try {
+            abandoned.join();
+        } catch (CancellationException e) {
+            out.println("\n[SUCCESS] Confirmation futures behave as expected");
+        }
+    }
+
+    // Time to add one already-mined block of 50 transactions
+    private static double timeBlockAdd(Blockchain blockchain) {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                blockchain.addTransaction(new Transaction("Ivan", "Judy", i + 1));
+            }
+            Block tip = blockchain.getLatestBlock();
+            Block block = new BlockTemplate(tip.getIndex() + 1, tip.getHash(), blockchain.getPendingTransactions())
+                    .mineBlockToTarget(blockchain.getNextBits());
+            long start = System.nanoTime();
+            blockchain.addBlock(block);
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        return best;
+    }
+}
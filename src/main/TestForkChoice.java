@@ -0,0 +1,67 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.ChainListener;
+import models.Block;
+import models.Transaction;
+import java.util.List;
+
+public class TestForkChoice {
+    public static void main(String[] args) {
+        long genesisTimestamp = System.currentTimeMillis();
+
+        // Two nodes sharing a genesis block, mining separately
+        Blockchain nodeA = new Blockchain(3, genesisTimestamp);
+        nodeA.setRequireSignatures(false);
+        Blockchain nodeB = new Blockchain(3, genesisTimestamp);
+        nodeB.setRequireSignatures(false);
+
+        nodeA.addChainListener(new ChainListener() {
+            @Override
+            public void blockConnected(Block block) {
+                System.out.println("[LISTENER] connected    " + block);
+            }
+
+            @Override
+            public void blockDisconnected(Block block) {
+                System.out.println("[LISTENER] disconnected " + block);
+            }
+        });
+
+        // Node A: 2 blocks
+        nodeA.addTransaction(new Transaction("Alice", "Bob", 50.0));
+        nodeA.minePendingTransactions();
+        nodeA.addTransaction(new Transaction("Bob", "Charlie", 25.0));
+        nodeA.minePendingTransactions();
+
+        // Node B: 3 blocks on a competing branch
+        for (int i = 1; i <= 3; i++) {
+            nodeB.addTransaction(new Transaction("Dave", "Eve", i));
+            nodeB.minePendingTransactions();
+        }
+
+        System.out.println("\nTEST 1: Orphans - deliver B's blocks to A in reverse order");
+        System.out.println("─".repeat(70));
+        List<Block> branchB = nodeB.getChain().subList(1, nodeB.getChain().size());
+        for (int i = branchB.size() - 1; i >= 0; i--) {
+            Block block = branchB.get(i);
+            System.out.println("Block #" + block.getIndex() + " -> " + nodeA.addBlock(block)
+                    + " (orphans: " + nodeA.getOrphanCount() + ")");
+        }
+
+        System.out.println("\nTEST 2: Fork choice - heavier branch B is now active");
+        System.out.println("─".repeat(70));
+        System.out.println("A tip == B tip: " + nodeA.getLatestBlock().getHash().equals(nodeB.getLatestBlock().getHash()));
+        System.out.println("Known blocks (all branches): " + nodeA.getKnownBlockCount());
+        System.out.println("Cumulative work: " + nodeA.getCumulativeWork());
+
+        System.out.println("\nTEST 3: Mempool rollback - A's abandoned transactions are pending again");
+        System.out.println("─".repeat(70));
+        for (Transaction tx : nodeA.getPendingTransactions()) {
+            System.out.println("  • " + tx);
+        }
+
+        System.out.println();
+        nodeA.isChainValid();
+    }
+}
@@ -0,0 +1,137 @@
+package main;
+
+import blockchain.Blockchain;
+import blockchain.ChainIndex;
+import blockchain.StateSnapshot;
+import models.Block;
+import models.BlockTemplate;
+import models.Transaction;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * TestPruning - A pruning node against an archive node on the same workload
+ *
+ * Both nodes mine the same transfers (seeded random); one keeps every
+ * block, the other runs with enablePruning. Then:
+ * 1. Heap each node retains once the chain is built
+ * 2. The pruned chain still validates
+ * 3. The checkpoint's balances equal a full replay on the archive node
+ * 4. The index still answers queries about recent blocks
+ * 5. A branch forking below the pruned height is rejected
+ * 6. New blocks are still mined and accepted
+ *
+ * Usage: java main.TestPruning [blocks] [transactions per block]
+ */
+public class TestPruning {
+
+    private static final int KEEP_DEPTH = 50;
+    private static final int CHECKPOINT_INTERVAL = 25;
+
+    public static void main(String[] args) {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int perBlock = args.length > 1 ? Integer.parseInt(args[1]) : 250;
+        PrintStream out = System.out;
+
+        out.println("=".repeat(70));
+        out.printf("PRUNING: %d blocks of %d transactions, keep %d, checkpoint every %d%n",
+                blocks, perBlock, KEEP_DEPTH, CHECKPOINT_INTERVAL);
+        out.println("=".repeat(70));
+
+        long base = usedHeap();
+        Blockchain archive = run(blocks, perBlock, false);
+        long archiveHeap = usedHeap() - base;
+
+        Blockchain pruned = run(blocks, perBlock, true);
+        long bothHeap = usedHeap() - base;
+        out.printf("Archive node heap: %,8d KB%n", archiveHeap / 1024);
+        out.printf("Pruning node heap: %,8d KB  (pruned up to #%d of #%d)%n",
+                (bothHeap - archiveHeap) / 1024, pruned.getPrunedHeight(), pruned.getLatestBlock().getIndex());
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        boolean valid = pruned.isChainValid();
+        System.setOut(out);
+        check("Pruned chain validates (headers and Merkle roots kept)", valid);
+
+        StateSnapshot checkpoint = pruned.getLatestCheckpoint();
+        Map<String, Double> replayed = new HashMap<>();
+        for (Block block : archive.getChain().subList(0, checkpoint.getHeight() + 1)) {
+            for (Transaction tx : block.getTransactions()) {
+                replayed.merge(tx.getSender(), -tx.getAmount(), Double::sum);
+                replayed.merge(tx.getRecipient(), tx.getAmount(), Double::sum);
+            }
+        }
+        replayed.values().removeIf(balance -> balance == 0);
+        check(checkpoint + " matches a full replay", replayed.equals(checkpoint.getBalances()));
+        boolean sameBalances = true;
+        for (String address : replayed.keySet()) {
+            sameBalances &= pruned.getState().getBalance(address) == archive.getState().getBalance(address);
+        }
+        check("Current balances match the archive node", sameBalances);
+
+        ChainIndex index = pruned.getIndex();
+        Transaction recent = pruned.getLatestBlock().getTransactions().get(0);
+        Transaction old = archive.getChain().get(1).getTransactions().get(0);
+        check("Index finds a transaction in the tip block", index.findTransaction(recent.getTransactionId()) != null);
+        check("Index no longer holds one from block #1 (" + index.getTransactionCount() + " indexed)",
+                index.findTransaction(old.getTransactionId()) == null);
+
+        Block forkParent = pruned.getChain().get(pruned.getPrunedHeight() - 1);
+        BlockTemplate deepForkTemplate = new BlockTemplate(forkParent.getIndex() + 1, forkParent.getHash(),
+                List.of(new Transaction("mallory", "mallory", 1)));
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Block deepFork = deepForkTemplate.mineBlockToTarget(forkParent.getBits());
+        System.setOut(out);
+        Blockchain.BlockStatus status = pruned.addBlock(deepFork);
+        check("Block forking below the pruned height: " + status, status == Blockchain.BlockStatus.INVALID);
+
+        int height = pruned.getLatestBlock().getIndex();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        pruned.addTransaction(new Transaction("alice", "bob", 5));
+        pruned.minePendingTransactions();
+        System.setOut(out);
+        check("New block mined on the pruning node", pruned.getLatestBlock().getIndex() == height + 1);
+    }
+
+    // Mine the seeded workload on a fresh node (output silenced)
+    private static Blockchain run(int blocks, int perBlock, boolean pruning) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Blockchain blockchain = new Blockchain(1, 0);
+        blockchain.setRequireSignatures(false);
+        if (pruning) {
+            blockchain.enablePruning(KEEP_DEPTH, CHECKPOINT_INTERVAL);
+        }
+        blockchain.getIndex();
+        blockchain.getState();
+        Random random = new Random(42);
+        for (int b = 0; b < blocks; b++) {
+            List<Transaction> transactions = new ArrayList<>(perBlock);
+            for (int t = 0; t < perBlock; t++) {
+                transactions.add(new Transaction("user" + random.nextInt(1000), "user" + random.nextInt(1000),
+                        1 + random.nextInt(100)));
+            }
+            blockchain.addTransactions(transactions);
+            blockchain.minePendingTransactions();
+        }
+        System.setOut(out);
+        return blockchain;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "  ✓ " : "  ✗ ") + what);
+    }
+}
@@ -0,0 +1,46 @@
+package main;
+
+import blockchain.Blockchain;
+import models.Block;
+import models.BlockTemplate;
+import models.Transaction;
+import utils.Target;
+import java.util.List;
+
+public class TestRetarget {
+    public static void main(String[] args) {
+        // Aim for one block every 100 ms, adjusting every 8 blocks.
+        // Difficulty 2 is far too easy for that, so the target should tighten.
+        Blockchain blockchain = new Blockchain(2, System.currentTimeMillis(), 100, 8);
+        blockchain.setRequireSignatures(false);
+
+        for (int i = 1; i <= 40; i++) {
+            blockchain.addTransaction(new Transaction("Alice", "Bob", i));
+            blockchain.minePendingTransactions();
+        }
+
+        System.out.println("\nTEST 1: Target per retarget period");
+        System.out.println("─".repeat(70));
+        List<Block> chain = blockchain.getChain();
+        for (int i = 0; i < chain.size(); i += 8) {
+            Block block = chain.get(i);
+            long span = i + 7 < chain.size() ? chain.get(i + 7).getTimestamp() - block.getTimestamp() : -1;
+            System.out.printf("Blocks %2d-%2d: bits=%08x difficulty=%10.2f span=%d ms%n",
+                    i, Math.min(i + 7, chain.size() - 1), block.getBits(),
+                    Target.relativeDifficulty(block.getBits()), span);
+        }
+
+        System.out.println("\nTEST 2: Each block validated against its own target");
+        System.out.println("─".repeat(70));
+        System.out.println("Chain valid: " + blockchain.isChainValid());
+
+        System.out.println("\nTEST 3: A block claiming an easier target is rejected");
+        System.out.println("─".repeat(70));
+        Block tip = blockchain.getLatestBlock();
+        Block cheat = new BlockTemplate(tip.getIndex() + 1, tip.getHash(),
+                List.of(new Transaction("Mallory", "Mallory", 1))).mineBlock(1);
+        System.out.println("Expected bits: " + Integer.toHexString(blockchain.getNextBits())
+                + ", claimed: " + Integer.toHexString(cheat.getBits()));
+        System.out.println("Result: " + blockchain.addBlock(cheat));
+    }
+}
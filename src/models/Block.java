@@ -1,8 +1,10 @@
 package models;
 
+import profiling.MerkleEvent;
+import utils.BloomFilter;
 import utils.StringUtil;
+import utils.Target;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -16,8 +18,17 @@ import java.util.List;
  *
  * This immutable link creates an unbreakable chain - changing one block
  * would require recalculating all subsequent blocks!
+ *
+ * IMMUTABLE:
+ * Every field is final and the transaction list is unmodifiable. Hash,
+ * Merkle root, Bloom filter and serialized size are computed once, in the
+ * constructor, so a block can be shared between threads without locking.
+ * Mining, which has to change nonce, extraNonce, timestamp and bits many
+ * times, runs on a BlockTemplate; only the winning values become a Block.
+ * (Tampering, for demos, goes through withTamperedTransactionForTesting,
+ * which makes a new block.)
  */
-public class Block {
+public final class Block {
 
     // ============================================================
     // BLOCK HEADER - Meta information about the block
@@ -28,14 +39,14 @@ public class Block {
      * Example: Block #0 (Genesis), Block #1, Block #2, etc.
      * Like page numbers in a book - helps maintain order
      */
-    private int index;
+    private final int index;
 
     /**
      * timestamp: When this block was created (in milliseconds since 1970)
      * Important for: ordering events, calculating mining time, auditing
      * Example: 1698234567890 (represents a specific date/time)
      */
-    private long timestamp;
+    private final long timestamp;
 
     /**
      * hash: This block's unique fingerprint/identifier
@@ -43,7 +54,7 @@ public class Block {
      * Example: "000012ab34cd..." (64 characters in hexadecimal)
      * If ANYTHING in the block changes, this hash changes completely!
      */
-    private String hash;
+    private final String hash;
 
     /**
      * previousHash: The hash of the block that came before this one
@@ -51,15 +62,36 @@ public class Block {
      * Example: Block #5 contains the hash of Block #4
      * Special case: Genesis block (first block) has previousHash = "0"
      */
-    private String previousHash;
+    private final String previousHash;
 
     /**
      * nonce: "Number used ONCE" - a random number for mining
      * Miners keep changing this number until the block's hash meets difficulty
      * Example: After trying nonce = 0, 1, 2, ... 47,582, we finally get valid hash
      * This is the "proof" in "proof-of-work" - proof that work was done!
+     *
+     * 64 bits wide (treated as unsigned), so a search never wraps around in
+     * practice; an int would be exhausted after ~4 billion attempts.
      */
-    private int nonce;
+    private final long nonce;
+
+    /**
+     * extraNonce: Second search counter, bumped when a nonce range runs out
+     * Part of the hash, so each extraNonce value opens a completely new
+     * nonce space. Parallel workers can also start from different
+     * extraNonce values to search disjoint spaces without talking to
+     * each other.
+     */
+    private final int extraNonce;
+
+    /**
+     * bits: The proof-of-work target this block was mined against, in
+     * compact form (see utils.Target)
+     * The hash, read as a 256-bit number, must be <= the decoded target.
+     * Recorded in the block (and covered by its hash) so every block can
+     * be validated against its own target, even after difficulty changes.
+     */
+    private final int bits;
 
     // ============================================================
     // BLOCK BODY - The actual content/data of the block
@@ -70,7 +102,7 @@ public class Block {
      * Example: ["Alice pays Bob 5 BTC", "Carol pays Dave 2 BTC"]
      * Like entries on a ledger page - once written, cannot be erased
      */
-    private List<Transaction> transactions;
+    private final List<Transaction> transactions;
 
     /**
      * merkleRoot: A single hash representing ALL transactions
@@ -84,43 +116,123 @@ public class Block {
      *
      * Benefit: Can verify a transaction is in block without downloading all transactions!
      */
-    private String merkleRoot;
+    private final String merkleRoot;
+
+    // Bytes in the network encoding; see getSerializedSize()
+    private final transient int serializedSize;
+
+    // Transactions dropped by a pruning node; see withoutTransactions()
+    private final transient boolean pruned;
+
+    // Which addresses and transaction IDs may be in this block; see getFilter()
+    // Derived from the transactions, so not part of the hash or the encoding
+    private final transient BloomFilter filter;
 
     /**
-     * Constructor - Create a new block (like starting a new page in ledger)
+     * Constructor - Build a block from all of its header fields
      *
      * @param index - Position in blockchain (0 for genesis, 1 for next, etc.)
      * @param previousHash - Hash of the previous block (creates the chain link)
-     * @param transactions - List of transactions to include in this block
+     * @param timestamp - Creation time of the block
+     * @param nonce - Nonce found when the block was mined
+     * @param extraNonce - Extra nonce found when the block was mined
+     * @param bits - Compact proof-of-work target the block was mined against
+     * @param transactions - Transactions included in the block
      *
      * Process:
-     * 1. Record the block number (index)
-     * 2. Link to previous block (previousHash)
-     * 3. Copy transactions safely (defensive programming)
-     * 4. Record creation time (timestamp)
-     * 5. Start nonce at 0 (will be incremented during mining)
-     * 6. Calculate merkle root (fingerprint of all transactions)
-     * 7. Calculate initial hash (will change during mining)
+     * 1. Copy transactions into an unmodifiable list (defensive programming)
+     * 2. Calculate merkle root (fingerprint of all transactions)
+     * 3. Calculate the hash from all header fields
+     * 4. Build the Bloom filter over the transactions
+     *
+     * Merkle root and hash are recomputed from the data, so a block that was
+     * altered in transit (e.g. received from a peer) will not match the hash
+     * its sender announced. New blocks are mined from a BlockTemplate.
      */
-    public Block(int index, String previousHash, List<Transaction> transactions) {
+    public Block(int index, String previousHash, long timestamp, long nonce, int extraNonce, int bits,
+                 List<Transaction> transactions) {
+        this(index, previousHash, timestamp, nonce, extraNonce, bits, transactions, null);
+    }
+
+    /**
+     * Constructor - Block mined from a BlockTemplate
+     *
+     * @param merkleRoot - Root the template already computed for these
+     *                     transactions, or null to compute it here
+     */
+    Block(int index, String previousHash, long timestamp, long nonce, int extraNonce, int bits,
+          List<Transaction> transactions, String merkleRoot) {
         this.index = index;
         this.previousHash = previousHash;
 
-        // Create a COPY of transactions (not just reference)
-        // Why? Prevents external code from modifying our block's data
-        this.transactions = new ArrayList<>(transactions);
-
-        // Get current time in milliseconds (Unix epoch time)
-        this.timestamp = new Date().getTime();
+        // Create an unmodifiable COPY of transactions (not just reference)
+        // Why? Prevents anyone - including code holding the block - from
+        // modifying our block's data
+        this.transactions = List.copyOf(transactions);
+        this.timestamp = timestamp;
+        this.nonce = nonce;
+        this.extraNonce = extraNonce;
+        this.bits = bits;
+        this.merkleRoot = merkleRoot != null ? merkleRoot : calculateMerkleRoot(index, this.transactions);
+        this.hash = calculateHash(index, previousHash, timestamp, nonce, extraNonce, bits, this.merkleRoot);
+        this.pruned = false;
+        this.filter = buildFilter(this.transactions, BloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+        this.serializedSize = serializedSize(previousHash, this.transactions);
+    }
 
-        // Start with nonce = 0, will increment during mining
-        this.nonce = 0;
+    /**
+     * Constructor - Copy of a block with a different body, filter or hash
+     * (see withoutTransactions, withFilterRate and withTamperedTransactionForTesting)
+     *
+     * Every header field except the Merkle root and hash is taken from the
+     * source block; nothing is recomputed.
+     */
+    private Block(Block source, List<Transaction> transactions, String merkleRoot, String hash,
+                  boolean pruned, BloomFilter filter) {
+        this.index = source.index;
+        this.previousHash = source.previousHash;
+        this.timestamp = source.timestamp;
+        this.nonce = source.nonce;
+        this.extraNonce = source.extraNonce;
+        this.bits = source.bits;
+        this.transactions = transactions;
+        this.merkleRoot = merkleRoot;
+        this.hash = hash;
+        this.pruned = pruned;
+        this.filter = filter;
+        this.serializedSize = serializedSize(previousHash, transactions);
+    }
 
-        // Calculate merkle root (represents all transactions as single hash)
-        this.merkleRoot = calculateMerkleRoot();
+    /**
+     * Constructor - Header-only block (see fromHeader)
+     *
+     * Merkle root and hash are taken as given, not recomputed: they still
+     * commit to the transactions this block does not have.
+     */
+    private Block(BlockHeader header) {
+        this.index = header.getIndex();
+        this.previousHash = header.getPreviousHash();
+        this.transactions = List.of();
+        this.timestamp = header.getTimestamp();
+        this.nonce = header.getNonce();
+        this.extraNonce = header.getExtraNonce();
+        this.bits = header.getBits();
+        this.merkleRoot = header.getMerkleRoot();
+        this.hash = header.getHash();
+        this.pruned = true;
+        this.filter = buildFilter(transactions, BloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+        this.serializedSize = serializedSize(previousHash, transactions);
+    }
 
-        // Calculate initial hash (will be recalculated many times during mining)
-        this.hash = calculateHash();
+    /**
+     * Header-only block built from a header alone (as if pruned)
+     *
+     * For a node that starts from a trusted checkpoint: it needs every
+     * header to link and validate new blocks, but never had the older
+     * transactions.
+     */
+    public static Block fromHeader(BlockHeader header) {
+        return new Block(header);
     }
 
     /**
@@ -141,18 +253,30 @@ public class Block {
      * - index: Block number
      * - previousHash: Link to previous block
      * - timestamp: When block was created
-     * - nonce: Random number (changes during mining)
+     * - nonce, extraNonce: Search counters (changed by mining, see BlockTemplate)
+     * - bits: Proof-of-work target
      * - merkleRoot: Fingerprint of all transactions
      *
      * @return 64-character hash string (e.g., "000012ab34cd...")
      */
     public String calculateHash() {
+        return calculateHash(index, previousHash, timestamp, nonce, extraNonce, bits, merkleRoot);
+    }
+
+    /**
+     * Calculate a block hash from header fields alone
+     *
+     * Lets a node check a header (e.g. one relayed without its transactions)
+     * before it has the block body.
+     *
+     * @return 64-character hash string
+     */
+    public static String calculateHash(int index, String previousHash, long timestamp, long nonce,
+                                       int extraNonce, int bits, String merkleRoot) {
         // Concatenate all block data into single string
-        String data = Integer.toString(index) +
-                previousHash +
-                Long.toString(timestamp) +
-                Integer.toString(nonce) +
-                merkleRoot;
+        String data = hashPrefix(index, previousHash, timestamp) +
+                Long.toUnsignedString(nonce) +
+                hashSuffix(extraNonce, bits, merkleRoot);
 
         // Apply SHA-256 cryptographic hash function
         // Returns 64-character hexadecimal string
@@ -160,85 +284,100 @@ public class Block {
     }
 
     /**
-     * Mine this block using Proof-of-Work algorithm
-     * ============================================
-     *
-     * WHAT IS MINING?
-     * Mining is the process of finding a hash that meets difficulty requirements.
-     * It's like a lottery where miners keep trying different numbers (nonces)
-     * until they find one that produces a hash starting with enough zeros.
-     *
-     * WHY MINE?
-     * - Secures the blockchain (makes tampering extremely expensive)
-     * - Controls block creation rate (Bitcoin: ~10 minutes per block)
-     * - Prevents spam (costs real computational power)
-     *
-     * HOW IT WORKS:
-     * 1. Set target (e.g., difficulty=4 means hash must start with "0000")
-     * 2. Try nonce = 0, calculate hash
-     * 3. Hash doesn't match? Try nonce = 1, calculate hash
-     * 4. Repeat until hash starts with "0000..."
-     * 5. Success! Block is mined
-     *
-     * DIFFICULTY EXAMPLES:
-     * - Difficulty 1: Hash starts with "0" (easy, ~16 attempts average)
-     * - Difficulty 2: Hash starts with "00" (~256 attempts average)
-     * - Difficulty 4: Hash starts with "0000" (~65,536 attempts average)
-     * - Difficulty 10: Hash starts with "0000000000" (billions of attempts!)
-     *
-     * Real Bitcoin uses difficulty ~19 (takes specialized hardware!)
-     *
-     * @param difficulty - Number of leading zeros required in hash
+     * The part of the hashed data that comes before the nonce
+     *
+     * Split out so that fast mining kernels (utils.Sha256Kernel) can hash
+     * prefix + nonce + suffix for many nonces without building a String
+     * for each one.
      */
-    public void mineBlock(int difficulty) {
-        // Create target string: difficulty=4 → target="0000"
-        // This is what the start of our hash must match
-        String target = StringUtil.getDifficultyString(difficulty);
-
-        // Print mining header (visual feedback for user)
-        System.out.println("=".repeat(70));
-        System.out.println("⛏️  MINING BLOCK #" + index + " (Difficulty: " + difficulty + ")");
-        System.out.println("=".repeat(70));
-        System.out.println("Target: Hash must start with " + target);
-        System.out.println("Transactions in block: " + transactions.size());
-        System.out.println();
-
-        // Record start time (so we can calculate how long mining took)
-        long startTime = System.currentTimeMillis();
-
-        // THE MINING LOOP - This is where the "work" happens!
-        // Keep trying different nonces until we find valid hash
-        while (!hash.substring(0, difficulty).equals(target)) {
-            // Increment nonce (try next number)
-            nonce++;
-
-            // Recalculate hash with new nonce
-            // Remember: changing nonce changes hash completely!
-            hash = calculateHash();
-
-            // Print progress every 10,000 attempts (so user knows it's working)
-            // Without this, screen would be blank for a long time
-            if (nonce % 10000 == 0) {
-                System.out.println("[MINING] Trying nonce: " + nonce + " | Hash: " + hash.substring(0, 10) + "...");
-            }
+    public static String hashPrefix(int index, String previousHash, long timestamp) {
+        return Integer.toString(index) + previousHash + Long.toString(timestamp);
+    }
+
+    /**
+     * The part of the hashed data that comes after the nonce
+     * (extraNonce is separated by ':' so that e.g. nonce 12 / extraNonce 3
+     * and nonce 1 / extraNonce 23 cannot produce the same string)
+     */
+    public static String hashSuffix(int extraNonce, int bits, String merkleRoot) {
+        return ":" + Integer.toString(extraNonce) + Integer.toHexString(bits) + merkleRoot;
+    }
+
+    /**
+     * Copy of this block without its transactions, for pruning nodes
+     *
+     * Keeps every header field, including merkleRoot, so the copy still has
+     * the same hash, still links to its neighbours and still passes
+     * validation - only the bulky body is gone. Old blocks on a long-running
+     * node are swapped for such copies to bound memory.
+     *
+     * @return A pruned copy (this block if it is already pruned)
+     */
+    public Block withoutTransactions() {
+        if (pruned) {
+            return this;
         }
-        // Loop exits when: hash starts with required number of zeros!
-
-        // Calculate how long mining took
-        long endTime = System.currentTimeMillis();
-        double miningTime = (endTime - startTime) / 1000.0; // Convert to seconds
-
-        // Print success message with mining statistics
-        System.out.println();
-        System.out.println("✅✅✅ BLOCK MINED SUCCESSFULLY! ✅✅✅");
-        System.out.println("━".repeat(70));
-        System.out.println("📦 Block #" + index + " Details:");
-        System.out.println("   Nonce Found:     " + nonce);
-        System.out.println("   Final Hash:      " + hash);
-        System.out.println("   Mining Time:     " + miningTime + " seconds");
-        System.out.println("   Total Attempts:  " + nonce);
-        System.out.println("━".repeat(70));
-        System.out.println();
+        // The filter is kept with the header: it still tells what the block contained
+        return new Block(this, List.of(), merkleRoot, hash, true, filter);
+    }
+
+    /**
+     * Whether the transactions were dropped (getTransactions() is then empty,
+     * although merkleRoot commits to the original ones)
+     */
+    public boolean isPruned() {
+        return pruned;
+    }
+
+    /**
+     * Size of this block in the network encoding (ProtocolCodec.encodeBlock)
+     *
+     * Computed once, in the constructor; a block never changes size.
+     */
+    public int getSerializedSize() {
+        return serializedSize;
+    }
+
+    // Mirrors the encoder field by field:
+    // index, previousHash, timestamp, nonce, extraNonce, bits, count, transactions
+    private static int serializedSize(String previousHash, List<Transaction> transactions) {
+        int size = 4 + StringUtil.utfLength(previousHash) + 8 + 8 + 4 + 4 + 4;
+        for (Transaction transaction : transactions) {
+            size += transaction.getSerializedSize();
+        }
+        return size;
+    }
+
+    // ============================================================
+    // TEST-ONLY API - Simulate an attacker editing a block
+    // ============================================================
+
+    /**
+     * Copy of this block with one transaction swapped, keeping the OLD hash
+     *
+     * This is what an attacker editing a stored block would end up with:
+     * the data changed but the recorded hash did not. Validation notices
+     * because calculateHash() no longer matches getHash().
+     *
+     * For demonstrations and tests only - real code never needs it.
+     *
+     * @param position Which transaction to replace
+     * @param replacement The forged transaction
+     * @return A new, tampered block; this block is unchanged
+     */
+    public Block withTamperedTransactionForTesting(int position, Transaction replacement) {
+        List<Transaction> forged = new ArrayList<>(transactions);
+        forged.set(position, replacement);
+        forged = List.copyOf(forged);
+        return new Block(this, forged, calculateMerkleRoot(index, forged), hash, false,
+                buildFilter(forged, BloomFilter.DEFAULT_FALSE_POSITIVE_RATE));
+    }
+
+    /**
+     * Check that the hash meets the target recorded in this block
+     */
+    public boolean hasValidProofOfWork() {
+        return Target.meets(hash, bits);
     }
 
     /**
@@ -271,14 +410,18 @@ public class Block {
      * 3. If odd number, duplicate last node
      * 4. Repeat until only one hash remains (the root)
      *
+     * @param index Height of the block, for the Flight Recorder event
+     * @param transactions The block's transactions
      * @return Merkle root hash (single hash representing all transactions)
      */
-    private String calculateMerkleRoot() {
+    static String calculateMerkleRoot(int index, List<Transaction> transactions) {
         // Edge case: If no transactions, return "0"
         // (Genesis block might have no transactions)
         if (transactions == null || transactions.isEmpty()) {
             return "0";
         }
+        MerkleEvent event = new MerkleEvent();
+        event.begin();
 
         // STEP 1: Start with transaction IDs as the bottom layer (leaves)
         // Each transaction has a unique ID (its hash)
@@ -312,6 +455,13 @@ public class Block {
             treeLayer = newTreeLayer;
         }
 
+        event.end();
+        if (event.shouldCommit()) {
+            event.blockIndex = index;
+            event.transactionCount = transactions.size();
+            event.commit();
+        }
+
         // Return the final hash (top of tree - the merkle root)
         // This single hash represents ALL transactions in block
         return treeLayer.get(0);
@@ -320,8 +470,7 @@ public class Block {
     // ============================================================
     // GETTER METHODS - Allow controlled access to block data
     // ============================================================
-    // Note: No setters! Once created, blocks should be immutable
-    // (except for nonce and hash during mining)
+    // Note: No setters! Blocks are immutable
 
     public int getIndex() {
         return index;
@@ -339,10 +488,19 @@ public class Block {
         return previousHash;
     }
 
-    public int getNonce() {
+    public long getNonce() {
         return nonce;
     }
 
+    public int getExtraNonce() {
+        return extraNonce;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    // Unmodifiable: add/set/remove throw UnsupportedOperationException
     public List<Transaction> getTransactions() {
         return transactions;
     }
@@ -351,6 +509,52 @@ public class Block {
         return merkleRoot;
     }
 
+    /**
+     * Bloom filter over this block's sender and recipient addresses and
+     * transaction IDs
+     *
+     * Lets a scan for an address or a transaction skip this block without
+     * looking at its transactions: mightContain false means definitely not
+     * here. Built in the constructor with the default false-positive
+     * rate (see withFilterRate for others). A header-only block
+     * (fromHeader) that never had its transactions gets an empty filter.
+     */
+    public BloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Copy of this block whose filter has another false-positive rate
+     *
+     * Blockchain uses this as blocks arrive when it is configured with a
+     * rate other than the default. Lower rates skip more blocks but take
+     * more bits per item (9.6 at 1%, 14.4 at 0.1%). A pruned block has no
+     * transactions to rebuild from, so it is returned as it is.
+     *
+     * @return A block equal to this one apart from its filter
+     */
+    public Block withFilterRate(double falsePositiveRate) {
+        if (pruned) {
+            return this;
+        }
+        return new Block(this, transactions, merkleRoot, hash, false, buildFilter(transactions, falsePositiveRate));
+    }
+
+    /**
+     * Bloom filter over the transaction IDs, senders and recipients of a
+     * list of transactions
+     */
+    public static BloomFilter buildFilter(List<Transaction> transactions, double falsePositiveRate) {
+        // Upper bound: addresses repeat across transactions
+        BloomFilter built = new BloomFilter(3 * transactions.size(), falsePositiveRate);
+        for (Transaction transaction : transactions) {
+            built.add(transaction.getTransactionId());
+            built.add(transaction.getSender());
+            built.add(transaction.getRecipient());
+        }
+        return built;
+    }
+
     /**
      * String representation for printing (human-readable format)
      *
@@ -367,8 +571,8 @@ public class Block {
         return "Block #" + index + " [" +
                 "hash=" + hashShort + "..." +
                 ", prevHash=" + prevHashShort + "..." +
-                ", txCount=" + transactions.size() +
-                ", nonce=" + nonce +
+                (pruned ? ", pruned" : ", txCount=" + transactions.size()) +
+                ", nonce=" + Long.toUnsignedString(nonce) +
                 "]";
     }
 
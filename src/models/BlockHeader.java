@@ -0,0 +1,111 @@
+package models;
+
+import utils.Target;
+
+/**
+ * BlockHeader - A block without its transactions
+ *
+ * Everything that goes into a block's hash is in the header: index,
+ * previousHash, timestamp, nonce, extraNonce, bits and merkleRoot. The
+ * transactions are only
+ * represented through merkleRoot. That makes headers small (around a
+ * hundred bytes), so a node can download and check the whole chain of
+ * headers first and fetch the bulky transaction lists afterwards.
+ */
+public final class BlockHeader {
+
+    private final int index;
+    private final String previousHash;
+    private final long timestamp;
+    private final long nonce;
+    private final int extraNonce;
+    private final int bits;
+    private final String merkleRoot;
+    private final String hash;
+
+    public BlockHeader(int index, String previousHash, long timestamp, long nonce, int extraNonce,
+                       int bits, String merkleRoot) {
+        this.index = index;
+        this.previousHash = previousHash;
+        this.timestamp = timestamp;
+        this.nonce = nonce;
+        this.extraNonce = extraNonce;
+        this.bits = bits;
+        this.merkleRoot = merkleRoot;
+
+        // The hash is always recomputed, never trusted from the sender
+        this.hash = Block.calculateHash(index, previousHash, timestamp, nonce, extraNonce, bits, merkleRoot);
+    }
+
+    /**
+     * Extract the header of a full block
+     */
+    public static BlockHeader of(Block block) {
+        return new BlockHeader(block.getIndex(), block.getPreviousHash(), block.getTimestamp(),
+                block.getNonce(), block.getExtraNonce(), block.getBits(), block.getMerkleRoot());
+    }
+
+    /**
+     * Check that this header directly follows another one
+     *
+     * @param previous The header at the preceding height
+     * @return true if index and previousHash link up
+     */
+    public boolean follows(BlockHeader previous) {
+        return index == previous.index + 1 && previousHash.equals(previous.hash);
+    }
+
+    /**
+     * Check that the hash meets the target recorded in the header
+     */
+    public boolean hasValidProofOfWork() {
+        return Target.meets(hash, bits);
+    }
+
+    /**
+     * Check that a full block matches this header
+     *
+     * The block's merkleRoot is computed from its transactions, so an equal
+     * root proves the body is exactly what the header committed to.
+     */
+    public boolean matches(Block block) {
+        return block.getMerkleRoot().equals(merkleRoot) && block.getHash().equals(hash);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getPreviousHash() {
+        return previousHash;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public int getExtraNonce() {
+        return extraNonce;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "Header #" + index + " [hash=" + hash.substring(0, 16) + "...]";
+    }
+}
@@ -0,0 +1,311 @@
+package models;
+
+import profiling.MiningEvent;
+import utils.Target;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * BlockTemplate - A block that is still being mined
+ * =================================================
+ * Mining means changing nonce, extraNonce, timestamp and bits over and
+ * over until the hash meets the target. A Block never changes once it is
+ * built, so the search runs on a template instead, and only the winning
+ * combination becomes a Block:
+ *
+ *   BlockTemplate template = new BlockTemplate(1, parent.getHash(), transactions);
+ *   Block block = template.mineBlock(4);      // sealed, immutable
+ *
+ * Index, previousHash, transactions and merkleRoot are fixed when the
+ * template is made, so the Merkle root is computed once however long the
+ * search takes. The search state (nonce, extraNonce, timestamp, bits)
+ * belongs to whoever is mining: a template is not thread-safe, and
+ * parallel workers each mine their own copy (or, like blockchain.MiningJob,
+ * keep their search state themselves and only call toBlock).
+ */
+public final class BlockTemplate {
+
+    private final int index;
+    private final String previousHash;
+    private final List<Transaction> transactions;
+    private final String merkleRoot;
+
+    // Search state; changes while mining
+    private long timestamp;
+    private long nonce;
+    private int extraNonce;
+    private int bits;
+
+    /**
+     * Template stamped with the current time
+     *
+     * @param index - Position in blockchain (0 for genesis, 1 for next, etc.)
+     * @param previousHash - Hash of the previous block (creates the chain link)
+     * @param transactions - Transactions to include; copied into an unmodifiable list
+     */
+    public BlockTemplate(int index, String previousHash, List<Transaction> transactions) {
+        this(index, previousHash, new Date().getTime(), transactions);
+    }
+
+    /**
+     * Template with a given timestamp (e.g. from the chain's clock)
+     *
+     * @param index - Position in blockchain
+     * @param previousHash - Hash of the previous block
+     * @param timestamp - Creation time; mining only ever moves it forward
+     * @param transactions - Transactions to include; copied into an unmodifiable list
+     */
+    public BlockTemplate(int index, String previousHash, long timestamp, List<Transaction> transactions) {
+        this.index = index;
+        this.previousHash = previousHash;
+        this.timestamp = timestamp;
+        this.transactions = List.copyOf(transactions);
+        this.merkleRoot = Block.calculateMerkleRoot(index, this.transactions);
+    }
+
+    /**
+     * Mine this template using Proof-of-Work algorithm
+     * ===============================================
+     *
+     * WHAT IS MINING?
+     * Mining is the process of finding a hash that meets difficulty requirements.
+     * It's like a lottery where miners keep trying different numbers (nonces)
+     * until they find one that produces a hash starting with enough zeros.
+     *
+     * WHY MINE?
+     * - Secures the blockchain (makes tampering extremely expensive)
+     * - Controls block creation rate (Bitcoin: ~10 minutes per block)
+     * - Prevents spam (costs real computational power)
+     *
+     * HOW IT WORKS:
+     * 1. Set target (e.g., difficulty=4 means hash must start with "0000")
+     * 2. Try nonce = 0, calculate hash
+     * 3. Hash doesn't match? Try nonce = 1, calculate hash
+     * 4. Repeat until hash starts with "0000..."
+     * 5. Success! The winning nonce becomes a Block
+     *
+     * DIFFICULTY EXAMPLES:
+     * - Difficulty 1: Hash starts with "0" (easy, ~16 attempts average)
+     * - Difficulty 2: Hash starts with "00" (~256 attempts average)
+     * - Difficulty 4: Hash starts with "0000" (~65,536 attempts average)
+     * - Difficulty 10: Hash starts with "0000000000" (billions of attempts!)
+     *
+     * Real Bitcoin uses difficulty ~19 (takes specialized hardware!)
+     *
+     * @param difficulty - Number of leading zeros required in hash
+     * @return The mined block
+     */
+    public Block mineBlock(int difficulty) {
+        return mineBlock(difficulty, 0, 1);
+    }
+
+    /**
+     * Mine one worker's share of the search space (see mineBlockToTarget)
+     *
+     * @param difficulty - Number of leading zeros required in hash
+     * @param worker - This worker's number, 0 to workers - 1
+     * @param workers - Total number of workers searching the same block
+     * @return The mined block
+     */
+    public Block mineBlock(int difficulty, int worker, int workers) {
+        // difficulty=4 → target 0000ffff...: any hash starting with "0000" is below it
+        return mineBlockToTarget(Target.encodeCompact(Target.fromLeadingZeros(difficulty)), worker, workers);
+    }
+
+    /**
+     * Mine this template against a compact proof-of-work target
+     *
+     * Same loop as above, but the hash is compared with a full 256-bit
+     * target instead of a count of zeros, so difficulty can move in small
+     * steps rather than factors of 16.
+     *
+     * @param bits - Compact target (see utils.Target); recorded in the block
+     * @return The mined block
+     */
+    public Block mineBlockToTarget(int bits) {
+        return mineBlockToTarget(bits, 0, 1);
+    }
+
+    /**
+     * Mine one worker's share of the search space
+     *
+     * The 2^64 nonce values are cut into `workers` equal ranges and this
+     * worker only tries its own:
+     *
+     *   worker 0: [0, R)   worker 1: [R, 2R)   ...   R = 2^64 / workers
+     *
+     * Workers therefore never repeat each other's attempts, without any
+     * shared counter or locking. When a range is used up, extraNonce is
+     * bumped and the timestamp refreshed - both change the hash, so the
+     * same range can be searched again from its start.
+     *
+     * @param bits - Compact target (see utils.Target); recorded in the block
+     * @param worker - This worker's number, 0 to workers - 1
+     * @param workers - Total number of workers searching the same block
+     * @return The mined block; the template is left at the winning values
+     */
+    public Block mineBlockToTarget(int bits, int worker, int workers) {
+        if (workers < 1 || worker < 0 || worker >= workers) {
+            throw new IllegalArgumentException("worker " + worker + " of " + workers);
+        }
+        this.bits = bits;
+
+        // Unsigned 2^64 / workers (the last worker's range is a few values short)
+        long rangeSize = Long.divideUnsigned(-1L, workers);
+        long rangeStart = rangeSize * worker;
+        long rangeEnd = rangeStart + rangeSize;
+
+        // Compare hashes as hex strings against the target padded to 64 chars
+        String target = Target.toHex(Target.decodeCompact(bits));
+        nonce = rangeStart;
+        String hash = calculateHash();
+
+        // Print mining header (visual feedback for user)
+        System.out.println("=".repeat(70));
+        System.out.printf("⛏️  MINING BLOCK #%d (Difficulty: %.2f)%n", index, Target.relativeDifficulty(bits));
+        System.out.println("=".repeat(70));
+        System.out.println("Target: Hash must be <= " + target.substring(0, 16) + "...");
+        System.out.println("Transactions in block: " + transactions.size());
+        System.out.println();
+
+        // Record start time (so we can calculate how long mining took)
+        long startTime = System.currentTimeMillis();
+        long attempts = 1;
+        MiningEvent event = new MiningEvent();
+        event.begin();
+
+        // THE MINING LOOP - This is where the "work" happens!
+        // Keep trying different nonces until we find valid hash
+        while (hash.compareTo(target) > 0) {
+            // Increment nonce (try next number)
+            nonce++;
+
+            // Range used up: open a fresh search space
+            if (nonce == rangeEnd) {
+                rollExtraNonce();
+                nonce = rangeStart;
+            }
+
+            // Recalculate hash with new nonce
+            // Remember: changing nonce changes hash completely!
+            hash = calculateHash();
+            attempts++;
+
+            // Print progress every 10,000 attempts (so user knows it's working)
+            // Without this, screen would be blank for a long time
+            if (attempts % 10000 == 0) {
+                System.out.println("[MINING] Trying nonce: " + Long.toUnsignedString(nonce)
+                        + " | Hash: " + hash.substring(0, 10) + "...");
+            }
+        }
+        // Loop exits when: hash is at or below the target!
+
+        // Report the search to Flight Recorder (nothing happens unless recording)
+        event.end();
+        if (event.shouldCommit()) {
+            event.blockIndex = index;
+            event.difficulty = Target.relativeDifficulty(bits);
+            event.attempts = attempts;
+            event.transactionCount = transactions.size();
+            event.threads = 1;
+            event.commit();
+        }
+
+        // Calculate how long mining took
+        long endTime = System.currentTimeMillis();
+        double miningTime = (endTime - startTime) / 1000.0; // Convert to seconds
+
+        // Print success message with mining statistics
+        System.out.println();
+        System.out.println("✅✅✅ BLOCK MINED SUCCESSFULLY! ✅✅✅");
+        System.out.println("━".repeat(70));
+        System.out.println("📦 Block #" + index + " Details:");
+        System.out.println("   Nonce Found:     " + Long.toUnsignedString(nonce));
+        System.out.println("   Extra Nonce:     " + extraNonce);
+        System.out.println("   Final Hash:      " + hash);
+        System.out.println("   Mining Time:     " + miningTime + " seconds");
+        System.out.println("   Total Attempts:  " + attempts);
+        System.out.println("━".repeat(70));
+        System.out.println();
+
+        // Mined: freeze the winning values into a Block
+        return toBlock();
+    }
+
+    /**
+     * Move to the next search space once a nonce range is exhausted
+     *
+     * The timestamp only moves forward, so it stays close to the real
+     * mining time during a long search without ever going back in time.
+     */
+    private void rollExtraNonce() {
+        extraNonce++;
+        timestamp = Math.max(timestamp, new Date().getTime());
+    }
+
+    /**
+     * Hash of the template with its current search state
+     */
+    public String calculateHash() {
+        return Block.calculateHash(index, previousHash, timestamp, nonce, extraNonce, bits, merkleRoot);
+    }
+
+    /**
+     * Block with the template's current search state (the winning values
+     * after mining; nonce, extraNonce and bits 0 before)
+     */
+    public Block toBlock() {
+        return toBlock(timestamp, nonce, extraNonce, bits);
+    }
+
+    /**
+     * Block from this template with search values found elsewhere
+     *
+     * For miners that keep their own search state (blockchain.MiningJob,
+     * pool.MiningPool) and for seals that are not mined at all (proof-of-
+     * stake). The Merkle root is reused, not recomputed.
+     */
+    public Block toBlock(long timestamp, long nonce, int extraNonce, int bits) {
+        return new Block(index, previousHash, timestamp, nonce, extraNonce, bits, transactions, merkleRoot);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getPreviousHash() {
+        return previousHash;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public int getExtraNonce() {
+        return extraNonce;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    // Unmodifiable: add/set/remove throw UnsupportedOperationException
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockTemplate #" + index + " [prevHash="
+                + (previousHash.length() < 16 ? previousHash : previousHash.substring(0, 16)) + "..."
+                + ", txCount=" + transactions.size() + ", nonce=" + Long.toUnsignedString(nonce) + "]";
+    }
+}
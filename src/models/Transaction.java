@@ -2,26 +2,77 @@ package models;
 
 import utils.StringUtil;
 import java.util.Date;
-public class Transaction {
+// Immutable: every field is final and the ID is computed once, so a
+// transaction can be shared between blocks, pools and threads freely
+//
+// Signed transactions (see Wallet) also carry the sender's public key and
+// a signature of getSigningData(); the sender must be the key's address.
+// Their ID covers key and signature too, so "this ID was verified" means
+// exactly this signature was.
+//
+// Signing data and ID use a canonical encoding: strings carry their
+// length, amount and timestamp are fixed-width hex. Plain concatenation
+// let "A" -> "BC" and "AB" -> "C" (or recipient "bob1", amount 0.0 and
+// recipient "bob", amount 10.0) share a signature and an ID.
+public final class Transaction {
 
-    private String sender;
-    private String recipient;
-    private String transactionId;
-    private double amount;
-    private long timeStamp;
+    private final String sender;
+    private final String recipient;
+    private final String transactionId;
+    private final double amount;
+    private final long timeStamp;
+
+    // Hex; both null for an unsigned transaction
+    private final String publicKey;
+    private final String signature;
 
     public Transaction(String sender,String recipient,double amount){
+        this(sender, recipient, amount, new Date().getTime());
+    }
+
+    // Rebuild a transaction received from another node; the ID is recomputed
+    // from the fields, so it matches the sender's copy exactly
+    public Transaction(String sender,String recipient,double amount,long timeStamp){
+        this(sender, recipient, amount, timeStamp, null, null);
+    }
+
+    // Signed transaction (created by Wallet, or received with its signature)
+    public Transaction(String sender,String recipient,double amount,long timeStamp,String publicKey,String signature){
+        if ((publicKey == null) != (signature == null)) {
+            throw new IllegalArgumentException("Public key and signature come together");
+        }
         this.sender=sender;
         this.amount=amount;
         this.recipient=recipient;
-        this.timeStamp=new Date().getTime();
+        this.timeStamp=timeStamp;
+        this.publicKey=publicKey;
+        this.signature=signature;
         this.transactionId=calculateHash();
     }
 
     private String calculateHash() {
-        String data = sender+recipient+Double.toString(amount)+Long.toString(timeStamp);
-        return StringUtil.applySha256(data);
+        StringBuilder data = new StringBuilder(getSigningData());
+        if (signature != null) {
+            appendField(data, publicKey);
+            appendField(data, signature);
+        }
+        return StringUtil.applySha256(data.toString());
+    }
+
+    // What the sender signs: everything except key and signature, as
+    // length:sender length:recipient amountBits timestamp (both 16 hex digits)
+    public String getSigningData() {
+        StringBuilder data = new StringBuilder(sender.length() + recipient.length() + 48);
+        appendField(data, sender);
+        appendField(data, recipient);
+        data.append(StringUtil.longToHex(Double.doubleToLongBits(amount)));
+        data.append(StringUtil.longToHex(timeStamp));
+        return data.toString();
+    }
 
+    // Length-prefixed, so where one field ends never depends on its contents
+    private static void appendField(StringBuilder data, String field) {
+        data.append(field.length()).append(':').append(field);
     }
     public String getTransactionId() {
         return transactionId;
@@ -42,11 +93,34 @@ public class Transaction {
         return recipient;
     }
 
+    public boolean isSigned() {
+        return signature != null;
+    }
+
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    // Bytes in the network encoding: sender, recipient (UTF), amount, timestamp,
+    // signed flag, then key and signature as length-prefixed raw bytes
+    public int getSerializedSize() {
+        int size = StringUtil.utfLength(sender) + StringUtil.utfLength(recipient) + 8 + 8 + 1;
+        if (signature != null) {
+            size += 2 + publicKey.length() / 2 + 2 + signature.length() / 2;
+        }
+        return size;
+    }
+
    public String  toString(){
         return "Transaction{" +
                 "id='" + transactionId.substring(0, 10) + "...'" +
                 ", " + sender + " -> " + recipient +
                 ", amount=" + amount + " BTC" +
+                (signature != null ? ", signed" : "") +
                 '}';
    }
 }
@@ -0,0 +1,64 @@
+package models;
+
+import utils.SignatureUtil;
+import java.security.KeyPair;
+import java.util.Date;
+
+/**
+ * Wallet - A key pair, and the address that belongs to it
+ *
+ * The private key never leaves the wallet; it signs transactions so that
+ * every node can check, with only the public key, that the owner of the
+ * sending address really sent them. Anyone can still create an unsigned
+ * Transaction naming any sender - a chain that requires signatures simply
+ * refuses those (see blockchain.SignatureVerifier).
+ *
+ * Example:
+ *   Wallet alice = new Wallet();
+ *   Transaction tx = alice.send(bob.getAddress(), 5);   // signed by alice
+ */
+public final class Wallet {
+
+    private final KeyPair keyPair;
+    private final String publicKey;
+    private final String address;
+
+    /**
+     * New wallet with a fresh random key pair
+     */
+    public Wallet() {
+        this.keyPair = SignatureUtil.generateKeyPair();
+        this.publicKey = SignatureUtil.encodePublicKey(keyPair.getPublic());
+        this.address = SignatureUtil.addressOf(publicKey);
+    }
+
+    /**
+     * Signed transaction from this wallet's address, timestamped now
+     */
+    public Transaction send(String recipient, double amount) {
+        return send(recipient, amount, new Date().getTime());
+    }
+
+    /**
+     * Signed transaction from this wallet's address
+     */
+    public Transaction send(String recipient, double amount, long timeStamp) {
+        Transaction unsigned = new Transaction(address, recipient, amount, timeStamp);
+        String signature = SignatureUtil.sign(keyPair.getPrivate(), unsigned.getSigningData());
+        return new Transaction(address, recipient, amount, timeStamp, publicKey, signature);
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    // Hex, X.509 encoded
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    @Override
+    public String toString() {
+        return "Wallet[" + address.substring(0, 10) + "...]";
+    }
+}
@@ -0,0 +1,421 @@
+package network;
+
+import blockchain.Blockchain;
+import blockchain.ChainIndex;
+import blockchain.ChainSnapshot;
+import models.Block;
+import models.Transaction;
+import utils.LruCache;
+import utils.Target;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ApiServer - HTTP/JSON interface to a Blockchain
+ *
+ * Endpoints:
+ *   POST /transactions                   one {"sender","recipient","amount"}
+ *                                        object, or an array of them; signed
+ *                                        ones add "timeStamp","publicKey","signature"
+ *                                        (a bad signature rejects the whole batch,
+ *                                        and so does a missing one unless the
+ *                                        chain accepts unsigned transactions)
+ *   GET  /transactions/{id}              mined (with block and confirmations)
+ *                                        or pending
+ *   GET  /blocks/{height}                block on the active chain
+ *   GET  /blocks/{hash}                  any known block
+ *   GET  /addresses/{address}/transactions
+ *   GET  /stats                          height, tip, target, pool, cache
+ *
+ * Reads never take the chain lock: they work on a ChainSnapshot and a
+ * ChainIndex, so a busy miner or a reorganization does not slow them down.
+ *
+ * A block never changes once it is mined, and its hash identifies its
+ * content exactly. So block responses:
+ * - carry the block hash as a strong ETag; a client that sends it back in
+ *   If-None-Match gets "304 Not Modified" without a body
+ * - are serialized once and served from an LRU cache of JSON bytes
+ * - by hash are cacheable forever; by height must be revalidated, since a
+ *   reorganization can put a different block at that height
+ * - always hold the full block: a block pruned from memory is read back
+ *   from off-heap storage (Blockchain.getFullBlock). When its body is gone
+ *   everywhere the answer is "410 Gone", never the header-only copy - that
+ *   would share the full block's ETag and be cached in its place
+ *
+ * Each request is handled on its own virtual thread. A request that does
+ * wait (POST takes the chain lock to add to the pending pool, and every
+ * response is a blocking socket write) parks only its virtual thread, so
+ * slow clients cannot tie up a fixed set of platform threads.
+ */
+public final class ApiServer implements Closeable {
+
+    // Serialized blocks kept in memory
+    private static final int BLOCK_CACHE_SIZE = 4096;
+
+    // Largest request body and batch accepted
+    private static final int MAX_BODY_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_BATCH = 10_000;
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    static {
+        // The JDK server writes headers and body separately; without
+        // TCP_NODELAY, Nagle's algorithm holds the body back until the client's
+        // delayed ACK (~40 ms) - per request. Must be set before the first
+        // HttpServer is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Blockchain blockchain;
+    private final ChainIndex index;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Gson gson = new Gson();
+    private final LruCache<String, byte[]> blockCache = new LruCache<>(BLOCK_CACHE_SIZE);
+
+    /**
+     * One response; body is already serialized
+     */
+    private static final class Response {
+        final int status;
+        final byte[] body;
+        final String etag;
+        final String cacheControl;
+
+        Response(int status, byte[] body, String etag, String cacheControl) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag;
+            this.cacheControl = cacheControl;
+        }
+    }
+
+    /**
+     * Start serving on a port
+     *
+     * @param blockchain Chain to serve
+     * @param port TCP port, or 0 for any free port (see getPort)
+     */
+    public ApiServer(Blockchain blockchain, int port) throws IOException {
+        this.blockchain = blockchain;
+        this.index = blockchain.getIndex();
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.createContext("/transactions", exchange -> handle(exchange, this::transactions));
+        server.createContext("/blocks", exchange -> handle(exchange, this::blocks));
+        server.createContext("/addresses", exchange -> handle(exchange, this::addresses));
+        server.createContext("/stats", exchange -> handle(exchange, this::stats));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public ChainIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ==================== ROUTES ====================
+
+    private interface Route {
+        Response serve(HttpExchange exchange, String[] path) throws IOException;
+    }
+
+    private Response transactions(HttpExchange exchange, String[] path) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (path.length == 1 && method.equals("POST")) {
+            return submitTransactions(exchange);
+        }
+        if (path.length == 2 && method.equals("GET")) {
+            return getTransaction(path[1]);
+        }
+        return error(path.length <= 2 ? 405 : 404, "Unsupported: " + method + " " + exchange.getRequestURI().getPath());
+    }
+
+    private Response submitTransactions(HttpExchange exchange) throws IOException {
+        JsonElement body;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                return error(413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            body = JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8));
+        } catch (JsonParseException e) {
+            return error(400, "Malformed JSON");
+        }
+
+        List<JsonElement> items = new ArrayList<>();
+        if (body.isJsonArray()) {
+            body.getAsJsonArray().forEach(items::add);
+        } else {
+            items.add(body);
+        }
+        if (items.isEmpty() || items.size() > MAX_BATCH) {
+            return error(400, "Expected 1 to " + MAX_BATCH + " transactions");
+        }
+
+        // Validate everything first, so a bad batch adds nothing
+        List<Transaction> transactions = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Transaction tx = parseTransaction(items.get(i));
+            if (tx == null) {
+                return error(400, "Transaction " + i + ": need non-empty sender and recipient and a positive amount");
+            }
+            transactions.add(tx);
+        }
+        // Signatures in parallel; verified ones are cached, so adding them below is cheap
+        int invalid = blockchain.getSignatureVerifier().firstInvalid(transactions);
+        if (invalid >= 0) {
+            return error(400, "Transaction " + invalid + ": invalid or missing signature");
+        }
+
+        // Transactions already pending are not added again and not counted
+        int added = blockchain.addTransactions(transactions);
+        JsonArray ids = new JsonArray();
+        for (Transaction tx : transactions) {
+            ids.add(tx.getTransactionId());
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("accepted", added);
+        result.add("transactionIds", ids);
+        return json(202, result);
+    }
+
+    private static Transaction parseTransaction(JsonElement element) {
+        if (!element.isJsonObject()) {
+            return null;
+        }
+        JsonObject object = element.getAsJsonObject();
+        try {
+            String sender = object.get("sender").getAsString();
+            String recipient = object.get("recipient").getAsString();
+            double amount = object.get("amount").getAsDouble();
+            if (sender.isEmpty() || recipient.isEmpty() || !(amount > 0) || Double.isInfinite(amount)) {
+                return null;
+            }
+            if (!object.has("signature")) {
+                return new Transaction(sender, recipient, amount);
+            }
+            // Signed: the timestamp is part of what was signed
+            return new Transaction(sender, recipient, amount, object.get("timeStamp").getAsLong(),
+                    object.get("publicKey").getAsString(), object.get("signature").getAsString());
+        } catch (RuntimeException e) {
+            // Missing field (NullPointerException) or wrong type
+            return null;
+        }
+    }
+
+    private Response getTransaction(String id) {
+        ChainSnapshot snapshot = blockchain.snapshot();
+        ChainIndex.Location location = index.findTransaction(id);
+        JsonObject result = new JsonObject();
+        // The index can be a step ahead of our snapshot; only report what the snapshot confirms
+        if (location != null && snapshot.contains(location.getBlock())) {
+            result.addProperty("status", "confirmed");
+            result.addProperty("blockHeight", location.getHeight());
+            result.addProperty("blockHash", location.getBlock().getHash());
+            result.addProperty("confirmations", snapshot.height() - location.getHeight() + 1);
+            result.add("transaction", gson.toJsonTree(location.getTransaction()));
+            return json(200, result);
+        }
+        Transaction pending = blockchain.getPendingTransaction(id);
+        if (pending != null) {
+            result.addProperty("status", "pending");
+            result.add("transaction", gson.toJsonTree(pending));
+            return json(200, result);
+        }
+        return error(404, "Unknown transaction " + id);
+    }
+
+    private Response blocks(HttpExchange exchange, String[] path) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return error(405, "Blocks are read-only");
+        }
+        if (path.length != 2) {
+            return error(404, "Use /blocks/{height} or /blocks/{hash}");
+        }
+        String key = path[1];
+        Block block;
+        String cacheControl;
+        if (isHeight(key)) {
+            ChainSnapshot snapshot = blockchain.snapshot();
+            int height = Integer.parseInt(key);
+            if (height >= snapshot.size()) {
+                return error(404, "No block at height " + height + " (tip is " + snapshot.height() + ")");
+            }
+            block = fullBlock(snapshot.get(height));
+            cacheControl = "no-cache";
+        } else {
+            block = fullBlock(blockchain.getBlockByHash(key));
+            if (block == null) {
+                return error(404, "Unknown block " + key);
+            }
+            cacheControl = "public, max-age=31536000, immutable";
+        }
+        if (block.isPruned()) {
+            return error(410, "Block #" + block.getIndex() + " " + block.getHash() + " is pruned");
+        }
+
+        String etag = "\"" + block.getHash() + "\"";
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            return new Response(304, null, etag, cacheControl);
+        }
+        byte[] body = blockCache.get(block.getHash(), hash -> gson.toJson(block).getBytes(StandardCharsets.UTF_8));
+        return new Response(200, body, etag, cacheControl);
+    }
+
+    // The block with its transactions if any copy still has them; else the pruned header-only block
+    private Block fullBlock(Block block) {
+        if (block == null || !block.isPruned()) {
+            return block;
+        }
+        Block full = blockchain.getFullBlock(block.getHash());
+        return full != null ? full : block;
+    }
+
+    private Response addresses(HttpExchange exchange, String[] path) {
+        if (path.length != 3 || !path[2].equals("transactions")) {
+            return error(404, "Use /addresses/{address}/transactions");
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return error(405, "Address history is read-only");
+        }
+        ChainSnapshot snapshot = blockchain.snapshot();
+        JsonArray history = new JsonArray();
+        for (ChainIndex.Location location : index.getHistory(path[1])) {
+            if (!snapshot.contains(location.getBlock())) {
+                continue;
+            }
+            JsonObject entry = new JsonObject();
+            entry.addProperty("blockHeight", location.getHeight());
+            entry.addProperty("blockHash", location.getBlock().getHash());
+            entry.add("transaction", gson.toJsonTree(location.getTransaction()));
+            history.add(entry);
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("address", path[1]);
+        result.addProperty("count", history.size());
+        result.add("transactions", history);
+        return json(200, result);
+    }
+
+    private Response stats(HttpExchange exchange, String[] path) {
+        if (path.length != 1 || !exchange.getRequestMethod().equals("GET")) {
+            return error(404, "Use GET /stats");
+        }
+        ChainSnapshot snapshot = blockchain.snapshot();
+        Block tip = snapshot.tip();
+        int nextBits = blockchain.getNextBits();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("height", snapshot.height());
+        result.put("tipHash", tip.getHash());
+        result.put("tipTimestamp", tip.getTimestamp());
+        result.put("nextBits", String.format("%08x", nextBits));
+        result.put("nextDifficulty", Target.relativeDifficulty(nextBits));
+        result.put("cumulativeWork", blockchain.getCumulativeWork().toString());
+        result.put("knownBlocks", blockchain.getKnownBlockCount());
+        result.put("indexedTransactions", index.getTransactionCount());
+        result.put("pendingTransactions", blockchain.getPendingCount());
+        result.put("orphans", blockchain.getOrphanCount());
+        result.put("prunedHeight", blockchain.getPrunedHeight());
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("size", blockCache.size());
+        cache.put("hits", blockCache.getHits());
+        cache.put("misses", blockCache.getMisses());
+        result.put("blockCache", cache);
+        return new Response(200, gson.toJson(result).getBytes(StandardCharsets.UTF_8), null, "no-store");
+    }
+
+    // ==================== PLUMBING ====================
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        Response response;
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String[] segments = path.replaceAll("^/+|/+$", "").split("/+");
+            response = route.serve(exchange, segments);
+        } catch (RuntimeException e) {
+            response = error(500, "Internal error: " + e);
+        }
+
+        try (exchange) {
+            if (response.etag != null) {
+                exchange.getResponseHeaders().set("ETag", response.etag);
+            }
+            if (response.cacheControl != null) {
+                exchange.getResponseHeaders().set("Cache-Control", response.cacheControl);
+            }
+            if (response.body == null) {
+                exchange.sendResponseHeaders(response.status, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", JSON);
+            exchange.sendResponseHeaders(response.status, response.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body);
+            }
+        }
+    }
+
+    private Response json(int status, JsonElement body) {
+        return new Response(status, gson.toJson(body).getBytes(StandardCharsets.UTF_8), null, "no-store");
+    }
+
+    private Response error(int status, String message) {
+        JsonObject body = new JsonObject();
+        body.addProperty("error", message);
+        return json(status, body);
+    }
+
+    // Decimal heights are short; block hashes are 64 hex characters
+    private static boolean isHeight(String key) {
+        return !key.isEmpty() && key.length() < 10 && key.chars().allMatch(Character::isDigit);
+    }
+
+    // If-None-Match: "*" or a comma-separated list of (possibly weak) tags
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,125 @@
+package network;
+
+import models.Block;
+import models.Transaction;
+import utils.SipHash;
+import utils.StringUtil;
+import java.util.List;
+
+/**
+ * CompactBlock - A block announced by header plus short transaction IDs
+ *
+ * Peers usually already hold most of a new block's transactions in their
+ * pending pool, because those transactions were relayed earlier. Instead
+ * of sending every Transaction again, the sender transmits:
+ * - the header fields and merkleRoot
+ * - a random salt
+ * - one 6-byte short ID per transaction
+ *
+ * The receiver matches short IDs against its own pending pool, asks only
+ * for the transactions it cannot find (GETBLOCKTXN), and checks that the
+ * rebuilt block has the announced Merkle root.
+ *
+ * Short IDs are SipHash-2-4 of the transaction ID, keyed by
+ * SHA-256(block hash + salt). Because the key changes with every block and
+ * salt, nobody can craft transactions whose short IDs collide on purpose.
+ */
+public final class CompactBlock {
+
+    // Bytes per short transaction ID on the wire
+    public static final int SHORT_ID_BYTES = 6;
+
+    private static final long SHORT_ID_MASK = (1L << (8 * SHORT_ID_BYTES)) - 1;
+
+    final int index;
+    final String previousHash;
+    final long timestamp;
+    final long nonce;
+    final int extraNonce;
+    final int bits;
+    final String merkleRoot;
+    final long salt;
+    final long[] shortIds;
+
+    // Derived from the fields above
+    private final String hash;
+    private final long k0;
+    private final long k1;
+
+    CompactBlock(int index, String previousHash, long timestamp, long nonce, int extraNonce, int bits,
+                 String merkleRoot, long salt, long[] shortIds) {
+        this.index = index;
+        this.previousHash = previousHash;
+        this.timestamp = timestamp;
+        this.nonce = nonce;
+        this.extraNonce = extraNonce;
+        this.bits = bits;
+        this.merkleRoot = merkleRoot;
+        this.salt = salt;
+        this.shortIds = shortIds;
+        this.hash = Block.calculateHash(index, previousHash, timestamp, nonce, extraNonce, bits, merkleRoot);
+
+        byte[] key = StringUtil.hexToBytes(StringUtil.applySha256(hash + salt));
+        this.k0 = readLong(key, 0);
+        this.k1 = readLong(key, 8);
+    }
+
+    /**
+     * Build the compact form of a full block
+     *
+     * @param block The block to announce
+     * @param salt Random value chosen by the sender for this announcement
+     */
+    public static CompactBlock fromBlock(Block block, long salt) {
+        List<Transaction> transactions = block.getTransactions();
+        CompactBlock compact = new CompactBlock(block.getIndex(), block.getPreviousHash(),
+                block.getTimestamp(), block.getNonce(), block.getExtraNonce(), block.getBits(), block.getMerkleRoot(), salt,
+                new long[transactions.size()]);
+        for (int i = 0; i < transactions.size(); i++) {
+            compact.shortIds[i] = compact.shortId(transactions.get(i).getTransactionId());
+        }
+        return compact;
+    }
+
+    /**
+     * Short ID of a transaction under this block's key
+     *
+     * @param transactionId Full 64-character transaction ID
+     * @return 48-bit short ID
+     */
+    public long shortId(String transactionId) {
+        return SipHash.hash(k0, k1, StringUtil.hexToBytes(transactionId)) & SHORT_ID_MASK;
+    }
+
+    /**
+     * Rebuild the full block once every transaction slot is filled
+     *
+     * @param transactions Transactions in block order
+     * @return The block, or null if its Merkle root does not match the
+     *         announced one (a short ID matched the wrong transaction)
+     */
+    public Block toBlock(List<Transaction> transactions) {
+        Block block = new Block(index, previousHash, timestamp, nonce, extraNonce, bits, transactions);
+        return block.getMerkleRoot().equals(merkleRoot) ? block : null;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getTransactionCount() {
+        return shortIds.length;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xffL);
+        }
+        return value;
+    }
+}
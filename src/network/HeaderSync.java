@@ -0,0 +1,286 @@
+package network;
+
+import blockchain.Blockchain;
+import models.Block;
+import models.BlockHeader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * HeaderSync - Bookkeeping for headers-first synchronization
+ *
+ * Phase 1: headers. Headers arrive in batches and are checked cheaply as
+ * they come in: each must link to the previous one, and its recomputed
+ * hash must meet the proof-of-work target. No transaction data is needed.
+ *
+ * Phase 2: bodies. With the header chain known, block bodies for many
+ * heights are requested at once, spread over every peer that has them.
+ * Each body is checked against its header when it arrives (the Merkle root
+ * computed from its transactions must equal the header's merkleRoot) and
+ * parked until all lower heights are present; then it is connected.
+ *
+ * A header chain can pass both cheap checks and still be bad: its blocks
+ * may break the retarget schedule or carry invalid transactions, which
+ * only full validation on connect finds. When that happens the header and
+ * everything above it is dropped, its hash is remembered as bad, and the
+ * peer that sent it is handed back to be disconnected.
+ *
+ * Used only from the PeerNode event-loop thread.
+ */
+final class HeaderSync {
+
+    // Bodies requested from one peer at a time
+    static final int MAX_IN_FLIGHT_PER_PEER = 128;
+
+    // How far past the local tip bodies may be requested; bounds the
+    // memory held by out-of-order bodies
+    static final int DOWNLOAD_WINDOW = 8192;
+
+    private final Blockchain blockchain;
+
+    // Validated header chain; headers.get(h) is the header at height h
+    private final List<BlockHeader> headers = new ArrayList<>();
+
+    // Peer each header came from, parallel to headers (null for our own chain)
+    private final List<PeerConnection> headerSources = new ArrayList<>();
+
+    // Headers whose block failed full validation; never accepted again
+    private final Set<String> badHeaders = new HashSet<>();
+
+    // Sender of a header chain found bad on connect, not yet disconnected
+    private PeerConnection badHeaderPeer;
+
+    // Bodies that arrived ahead of the local tip, by height
+    private final Map<Integer, Block> downloaded = new HashMap<>();
+
+    // Heights requested and not yet received, with the peer asked
+    private final Map<Integer, PeerConnection> inFlight = new HashMap<>();
+
+    // Heights whose request failed and must be asked again
+    private final TreeSet<Integer> retry = new TreeSet<>();
+
+    // Lowest height never requested so far
+    private int nextHeight;
+
+    // The one peer headers are currently downloaded from; bodies come
+    // from everyone, but fetching the same headers from every peer would
+    // only repeat the work
+    PeerConnection headerPeer;
+
+    private final int startHeight;
+    private final long startNanos;
+
+    HeaderSync(Blockchain blockchain) {
+        this.blockchain = blockchain;
+        for (Block block : blockchain.getChain()) {
+            headers.add(BlockHeader.of(block));
+            headerSources.add(null);
+        }
+        this.startHeight = tipHeight();
+        this.nextHeight = startHeight + 1;
+        this.startNanos = System.nanoTime();
+    }
+
+    int getHeaderHeight() {
+        return headers.size() - 1;
+    }
+
+    String getHeaderHash(int height) {
+        return headers.get(height).getHash();
+    }
+
+    boolean isComplete() {
+        return tipHeight() >= getHeaderHeight();
+    }
+
+    SyncProgress progress() {
+        return new SyncProgress(!isComplete(), getHeaderHeight(), tipHeight(), startHeight,
+                System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Append a batch of headers after link and proof-of-work checks
+     *
+     * Headers at or below our best header are skipped; they overlap what
+     * we already validated.
+     *
+     * @param peer The peer that sent the batch
+     * @param batch Headers in ascending height order
+     * @return false if any header is invalid (the peer sent a bad chain)
+     */
+    boolean addHeaders(PeerConnection peer, List<BlockHeader> batch) {
+        for (BlockHeader header : batch) {
+            if (header.getIndex() < 0 || badHeaders.contains(header.getHash())) {
+                return false;
+            }
+            if (header.getIndex() <= getHeaderHeight()) {
+                if (!headers.get(header.getIndex()).getHash().equals(header.getHash())) {
+                    // Competing branch; a single chain cannot follow it
+                    return false;
+                }
+                continue;
+            }
+            BlockHeader previous = headers.get(headers.size() - 1);
+            // Only the header's own target is checked here; whether that
+            // target follows the retarget schedule is checked on connect
+            if (!header.follows(previous) || !header.hasValidProofOfWork()) {
+                return false;
+            }
+            headers.add(header);
+            headerSources.add(peer);
+        }
+        return true;
+    }
+
+    /**
+     * Pick heights for a peer to download, up to its in-flight limit
+     *
+     * @param peer The peer to ask
+     * @return Hashes of the blocks to request (possibly empty)
+     */
+    List<String> assign(PeerConnection peer) {
+        List<String> hashes = new ArrayList<>();
+        int limit = Math.min(getHeaderHeight(), tipHeight() + DOWNLOAD_WINDOW);
+        while (peer.blocksInFlight < MAX_IN_FLIGHT_PER_PEER) {
+            int height;
+            if (!retry.isEmpty() && retry.first() <= peer.remoteHeight) {
+                height = retry.pollFirst();
+            } else if (nextHeight <= limit && nextHeight <= peer.remoteHeight) {
+                height = nextHeight++;
+            } else {
+                break;
+            }
+            inFlight.put(height, peer);
+            peer.blocksInFlight++;
+            hashes.add(headers.get(height).getHash());
+        }
+        return hashes;
+    }
+
+    /**
+     * Outcome of handing a downloaded body to the sync
+     */
+    enum Result {
+        ACCEPTED,    // Matches its header; parked until it can be connected
+        UNEXPECTED,  // Not a body we requested from this peer
+        MISMATCH     // Requested, but does not match its header
+    }
+
+    /**
+     * Check a downloaded body against its header and park it
+     */
+    Result accept(PeerConnection peer, Block block) {
+        int height = block.getIndex();
+        if (inFlight.get(height) != peer) {
+            return Result.UNEXPECTED;
+        }
+        inFlight.remove(height);
+        peer.blocksInFlight--;
+
+        if (!headers.get(height).matches(block)) {
+            retry.add(height);
+            return Result.MISMATCH;
+        }
+        downloaded.put(height, block);
+        return Result.ACCEPTED;
+    }
+
+    /**
+     * Connect every downloaded body that now extends the local tip
+     *
+     * A body that fails validation matched its header, so the header chain
+     * itself is bad: see dropHeaders and pollBadHeaderPeer.
+     *
+     * @return The blocks connected, in order
+     */
+    List<Block> connectReady() {
+        List<Block> connected = new ArrayList<>();
+        Block next;
+        while ((next = downloaded.remove(tipHeight() + 1)) != null) {
+            Blockchain.BlockStatus status = blockchain.addBlock(next);
+            if (status == Blockchain.BlockStatus.INVALID) {
+                dropHeaders(next.getIndex());
+                break;
+            }
+            if (status != Blockchain.BlockStatus.CONNECTED) {
+                retry.add(next.getIndex());
+                break;
+            }
+            connected.add(next);
+        }
+
+        // Connecting a block may also attach orphans above it; their parked
+        // copies are no longer needed
+        downloaded.keySet().removeIf(height -> height <= tipHeight());
+        return connected;
+    }
+
+    /**
+     * Forget the header at a height and every header above it
+     *
+     * The header is marked bad, so the same chain is refused if offered
+     * again, and whatever was requested or parked for those heights is
+     * discarded. Its sender becomes the bad header peer.
+     */
+    private void dropHeaders(int height) {
+        badHeaders.add(headers.get(height).getHash());
+        PeerConnection source = headerSources.get(height);
+        if (source != null) {
+            badHeaderPeer = source;
+        }
+        headers.subList(height, headers.size()).clear();
+        headerSources.subList(height, headerSources.size()).clear();
+
+        downloaded.keySet().removeIf(h -> h >= height);
+        retry.tailSet(height).clear();
+        Iterator<Map.Entry<Integer, PeerConnection>> iterator = inFlight.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, PeerConnection> entry = iterator.next();
+            if (entry.getKey() >= height) {
+                // A late reply for this height is now UNEXPECTED
+                entry.getValue().blocksInFlight--;
+                iterator.remove();
+            }
+        }
+        nextHeight = Math.min(nextHeight, height);
+    }
+
+    /**
+     * The peer whose header chain failed validation since the last call
+     *
+     * @return The peer to disconnect, or null
+     */
+    PeerConnection pollBadHeaderPeer() {
+        PeerConnection peer = badHeaderPeer;
+        badHeaderPeer = null;
+        return peer;
+    }
+
+    /**
+     * Return a disconnected peer's outstanding heights to the queue
+     */
+    void release(PeerConnection peer) {
+        Iterator<Map.Entry<Integer, PeerConnection>> iterator = inFlight.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, PeerConnection> entry = iterator.next();
+            if (entry.getValue() == peer) {
+                retry.add(entry.getKey());
+                iterator.remove();
+            }
+        }
+        peer.blocksInFlight = 0;
+        if (headerPeer == peer) {
+            headerPeer = null;
+        }
+    }
+
+    private int tipHeight() {
+        return blockchain.getChain().size() - 1;
+    }
+}
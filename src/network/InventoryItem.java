@@ -0,0 +1,69 @@
+package network;
+
+import java.util.Objects;
+
+/**
+ * InventoryItem - A hash-only reference to a transaction or block
+ *
+ * Peers announce new data with lists of these items (INV) and only send
+ * the full data when the other side asks for it (GETDATA). This way a
+ * transaction or block crosses each link once, however many peers know it.
+ */
+public final class InventoryItem {
+
+    public static final byte TYPE_TX = 1;
+    public static final byte TYPE_BLOCK = 2;
+
+    // Only used in GETDATA: "send this block as a CMPCTBLOCK"
+    public static final byte TYPE_COMPACT_BLOCK = 3;
+
+    private final byte type;
+    private final String hash;
+
+    public InventoryItem(byte type, String hash) {
+        this.type = type;
+        this.hash = hash;
+    }
+
+    public static InventoryItem tx(String transactionId) {
+        return new InventoryItem(TYPE_TX, transactionId);
+    }
+
+    public static InventoryItem block(String blockHash) {
+        return new InventoryItem(TYPE_BLOCK, blockHash);
+    }
+
+    public static InventoryItem compactBlock(String blockHash) {
+        return new InventoryItem(TYPE_COMPACT_BLOCK, blockHash);
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public boolean isBlock() {
+        return type == TYPE_BLOCK || type == TYPE_COMPACT_BLOCK;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InventoryItem)) return false;
+        InventoryItem other = (InventoryItem) o;
+        return type == other.type && hash.equals(other.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, hash);
+    }
+
+    @Override
+    public String toString() {
+        return (isBlock() ? "block:" : "tx:") + hash.substring(0, Math.min(10, hash.length()));
+    }
+}
@@ -0,0 +1,49 @@
+package network;
+
+/**
+ * MessageType - Commands understood by the peer-to-peer protocol
+ *
+ * Every frame on the wire carries one of these command bytes right after
+ * its length prefix. The code is what is actually transmitted, so existing
+ * codes must never be renumbered.
+ */
+public enum MessageType {
+
+    VERSION(1),     // Handshake: protocol version, genesis hash, chain height
+    VERACK(2),      // Handshake acknowledgement
+    INV(3),         // Announce transaction/block hashes we have
+    GETDATA(4),     // Request full data for announced hashes
+    GETBLOCKS(5),   // Ask for block hashes following a locator
+    BLOCK(6),       // Full block
+    TX(7),          // Full transaction
+    CMPCTBLOCK(8),  // Block header plus short transaction IDs
+    GETBLOCKTXN(9), // Request transactions missing from a compact block
+    BLOCKTXN(10),   // Transactions answering a GETBLOCKTXN
+    GETHEADERS(11), // Ask for block headers following a locator
+    HEADERS(12);    // Block headers (no transactions)
+
+    private final byte code;
+
+    MessageType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Look up a message type from its wire code
+     *
+     * @param code The command byte read from a frame
+     * @return The matching type, or null if the code is unknown
+     */
+    public static MessageType fromCode(byte code) {
+        for (MessageType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,245 @@
+package network;
+
+import models.Transaction;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PeerConnection - State of one connection to a remote node
+ *
+ * Only the owning PeerNode's event-loop thread touches this object, so no
+ * field needs synchronization.
+ *
+ * Backpressure: every queued outbound frame is counted in queuedBytes.
+ * Above HIGH_WATERMARK we stop reading requests from the peer and hold back
+ * new announcements for it; once the socket drains below LOW_WATERMARK
+ * both resume. A slow peer therefore costs a bounded amount of memory and
+ * never holds up the other connections.
+ */
+final class PeerConnection {
+
+    static final int HIGH_WATERMARK = 4 * 1024 * 1024;
+    static final int LOW_WATERMARK = 1024 * 1024;
+
+    // Announcements held for a congested peer beyond this are dropped;
+    // the peer can still catch up later through GETBLOCKS
+    static final int MAX_PENDING_ANNOUNCEMENTS = 100_000;
+
+    // Maximum hashes per INV message
+    static final int MAX_INV_BATCH = 50_000;
+
+    // Minor protocol violations tolerated before the peer is dropped
+    static final int MAX_MISBEHAVIOR = 10;
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    final boolean outbound;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private long queuedBytes;
+
+    // Hashes waiting to be announced in the next INV batch
+    private final Set<InventoryItem> announceQueue = new LinkedHashSet<>();
+
+    // Handshake progress
+    boolean versionReceived;
+    boolean verackReceived;
+    int remoteHeight;
+
+    // Hash of the last block of a full GETBLOCKS reply; when it connects
+    // we ask for the next batch
+    String continueSyncAfter;
+
+    // Set while a GETBLOCKS is outstanding: the block hashes in its reply
+    // are fetched in full, since our pool cannot hold their transactions
+    boolean awaitingBlockInventory;
+
+    // Block bodies requested from this peer during headers-first sync
+    int blocksInFlight;
+
+    // Compact blocks from this peer waiting for a BLOCKTXN reply
+    final Map<String, PartialBlock> partialBlocks = new HashMap<>();
+
+    // Minor protocol violations so far (see PeerNode.misbehaved)
+    int misbehavior;
+
+    /**
+     * A compact block with some transaction slots still empty
+     */
+    static final class PartialBlock {
+        final CompactBlock compact;
+        final Transaction[] slots;
+        final int[] missing;
+        final int fromPool;
+        long bytesReceived;
+
+        PartialBlock(CompactBlock compact, Transaction[] slots, int[] missing, int fromPool) {
+            this.compact = compact;
+            this.slots = slots;
+            this.missing = missing;
+            this.fromPool = fromPool;
+        }
+    }
+
+    PeerConnection(SocketChannel channel, SelectionKey key, boolean outbound) {
+        this.channel = channel;
+        this.key = key;
+        this.outbound = outbound;
+    }
+
+    boolean isHandshakeComplete() {
+        return versionReceived && verackReceived;
+    }
+
+    boolean isCongested() {
+        return queuedBytes > HIGH_WATERMARK;
+    }
+
+    long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    // ============================================================
+    // OUTBOUND
+    // ============================================================
+
+    void send(MessageType type, byte[] payload) {
+        ByteBuffer frame = ProtocolCodec.frame(type, payload);
+        writeQueue.add(frame);
+        queuedBytes += frame.remaining();
+        if (isCongested() && key.isValid()) {
+            // Stop reading new requests until the peer drains what it asked for
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    void announce(InventoryItem item) {
+        if (announceQueue.size() < MAX_PENDING_ANNOUNCEMENTS) {
+            announceQueue.add(item);
+        }
+    }
+
+    /**
+     * Turn queued announcements into INV messages, unless the peer is
+     * congested (then they stay queued until it drains)
+     */
+    void flushAnnouncements() {
+        while (!announceQueue.isEmpty() && !isCongested()) {
+            List<InventoryItem> batch = new ArrayList<>(Math.min(announceQueue.size(), MAX_INV_BATCH));
+            var iterator = announceQueue.iterator();
+            while (iterator.hasNext() && batch.size() < MAX_INV_BATCH) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            send(MessageType.INV, ProtocolCodec.encodeInventory(batch));
+        }
+    }
+
+    /**
+     * Write as much queued data as the socket accepts without blocking
+     */
+    void flushWrites() throws IOException {
+        while (!writeQueue.isEmpty()) {
+            ByteBuffer head = writeQueue.peek();
+            int written = channel.write(head);
+            queuedBytes -= written;
+            if (head.hasRemaining()) {
+                break;
+            }
+            writeQueue.poll();
+        }
+
+        int ops = key.interestOps();
+        ops = writeQueue.isEmpty() ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE;
+        if (queuedBytes < LOW_WATERMARK) {
+            ops |= SelectionKey.OP_READ;
+        }
+        key.interestOps(ops);
+    }
+
+    // ============================================================
+    // INBOUND
+    // ============================================================
+
+    /**
+     * A decoded frame: command plus raw payload
+     */
+    static final class Frame {
+        final MessageType type;
+        final byte[] payload;
+
+        Frame(MessageType type, byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Read available bytes and cut them into complete frames
+     *
+     * @return Frames completed by this read (possibly none)
+     * @throws IOException if the peer closed the connection or broke framing
+     */
+    List<Frame> readFrames() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("Peer closed connection");
+        }
+
+        List<Frame> frames = new ArrayList<>();
+        readBuffer.flip();
+        while (readBuffer.remaining() >= ProtocolCodec.HEADER_SIZE) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length < 1 || length > ProtocolCodec.MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if (readBuffer.remaining() < ProtocolCodec.HEADER_SIZE + length) {
+                break;
+            }
+            readBuffer.getInt();
+            MessageType type = MessageType.fromCode(readBuffer.get());
+            byte[] payload = new byte[length - 1];
+            readBuffer.get(payload);
+            if (type != null) {
+                frames.add(new Frame(type, payload));
+            }
+        }
+        readBuffer.compact();
+
+        // Grow the buffer when a single frame does not fit
+        if (!readBuffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            readBuffer.flip();
+            larger.put(readBuffer);
+            readBuffer = larger;
+        }
+        return frames;
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return "Peer[" + channel.getRemoteAddress() + "]";
+        } catch (IOException e) {
+            return "Peer[closed]";
+        }
+    }
+}
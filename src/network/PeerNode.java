@@ -0,0 +1,950 @@
+package network;
+
+import blockchain.Blockchain;
+import blockchain.ChainListener;
+import models.Block;
+import models.BlockHeader;
+import models.Transaction;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * PeerNode - A blockchain node that talks to other nodes over TCP
+ *
+ * Uses a single java.nio Selector thread (the "event loop") for all
+ * connections. The node's own state - peers, relay pool, known inventory -
+ * belongs to that thread and is not locked; other threads hand work to the
+ * loop through submit(). The Blockchain is thread-safe on its own and may
+ * be shared (a miner, a mining pool or an ApiServer can add blocks from
+ * their threads), so its listener events, which arrive on whichever
+ * thread connected the block, are handed to the loop the same way.
+ *
+ * Protocol flow:
+ * 1. Both sides send VERSION on connect and answer the other's with VERACK
+ * 2. A node that sees a longer chain sends GETBLOCKS with a block locator
+ * 3. New transactions and blocks are announced by hash only (INV)
+ * 4. Peers that lack an announced item request it with GETDATA and
+ *    receive the full TX or BLOCK message
+ * 5. Newly announced blocks are requested in compact form (CMPCTBLOCK)
+ *    and rebuilt from the pending pool; only transactions the pool lacks
+ *    are fetched with GETBLOCKTXN
+ *
+ * A node that is behind catches up in one of two sync modes:
+ * - BLOCKS: GETBLOCKS from one peer, then full blocks one after another
+ * - HEADERS_FIRST: GETHEADERS to validate the header chain cheaply, then
+ *   block bodies downloaded in parallel from every peer (see HeaderSync)
+ */
+public final class PeerNode implements Closeable {
+
+    // Maximum block hashes returned for one GETBLOCKS request
+    private static final int MAX_BLOCKS_PER_INV = 500;
+
+    // Maximum headers returned for one GETHEADERS request
+    private static final int MAX_HEADERS_PER_MESSAGE = 2000;
+
+    // Remember this many recently seen hashes to avoid re-requesting them
+    private static final int KNOWN_INVENTORY_LIMIT = 200_000;
+
+    /**
+     * How a node that is behind catches up with its peers
+     */
+    public enum SyncMode {
+        BLOCKS,
+        HEADERS_FIRST
+    }
+
+    private final Blockchain blockchain;
+    private final int port;
+    private SyncMode syncMode = SyncMode.BLOCKS;
+
+    // Non-null while a headers-first sync is running
+    private HeaderSync headerSync;
+    private volatile SyncProgress syncProgress = SyncProgress.IDLE;
+    private long lastProgressLog;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread loopThread;
+    private volatile boolean running;
+
+    private final List<PeerConnection> peers = new ArrayList<>();
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    // Transactions we can serve to peers (pending pool, keyed by ID); loop thread only
+    private final Map<String, Transaction> relayPool = new HashMap<>();
+
+    // Hashes we already have or have requested
+    private final Set<String> knownInventory = boundedSet(KNOWN_INVENTORY_LIMIT);
+
+    // Recently confirmed transaction IDs, so a late TX is not re-added to the pool
+    private final Set<String> confirmedTransactions = boundedSet(KNOWN_INVENTORY_LIMIT);
+
+    // Source of per-announcement compact block salts
+    private final Random saltSource = new Random();
+
+    // Compact block relay counters (written by the loop thread only)
+    private volatile long compactBlocksReceived;
+    private volatile long compactBytesReceived;
+    private volatile long fullBlockBytesEquivalent;
+    private volatile long transactionsFromPool;
+    private volatile long transactionsRequested;
+
+    // Snapshots published by the loop thread for other threads to read
+    private volatile int height;
+    private volatile int pendingCount;
+    private volatile int handshakePeerCount;
+
+    /**
+     * @param blockchain The chain this node serves; owned by the node from now on
+     * @param port Local TCP port to listen on (0 picks a free port)
+     */
+    public PeerNode(Blockchain blockchain, int port) {
+        this.blockchain = blockchain;
+        this.port = port;
+        this.height = blockchain.getChain().size() - 1;
+
+        // Keep the relay pool in step with the active chain, including reorgs.
+        // Events come from whichever thread changed the chain (the loop too),
+        // so they are queued and applied on the loop thread in order
+        blockchain.addChainListener(new ChainListener() {
+            @Override
+            public void blockConnected(Block block) {
+                submit(() -> {
+                    for (Transaction transaction : block.getTransactions()) {
+                        relayPool.remove(transaction.getTransactionId());
+                        confirmedTransactions.add(transaction.getTransactionId());
+                    }
+                    knownInventory.add(block.getHash());
+                });
+            }
+
+            @Override
+            public void blockDisconnected(Block block) {
+                submit(() -> {
+                    for (Transaction transaction : block.getTransactions()) {
+                        confirmedTransactions.remove(transaction.getTransactionId());
+                        relayPool.put(transaction.getTransactionId(), transaction);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Open the listening socket and start the event loop
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        for (Block block : blockchain.getChain()) {
+            knownInventory.add(block.getHash());
+        }
+
+        running = true;
+        loopThread = new Thread(this::runLoop, "peer-node-" + getPort());
+        loopThread.start();
+    }
+
+    /**
+     * Choose the catch-up strategy; call before start()
+     */
+    public void setSyncMode(SyncMode syncMode) {
+        this.syncMode = syncMode;
+    }
+
+    /**
+     * Progress of the current (or last) headers-first sync
+     */
+    public SyncProgress getSyncProgress() {
+        return syncProgress;
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Connect to another node listening on localhost
+     */
+    public void connect(String host, int remotePort) {
+        submit(() -> {
+            try {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.connect(new InetSocketAddress(host, remotePort));
+                SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT);
+                PeerConnection peer = new PeerConnection(channel, key, true);
+                key.attach(peer);
+                peers.add(peer);
+            } catch (IOException e) {
+                System.out.println("[ERROR] Failed to connect to " + host + ":" + remotePort);
+            }
+        });
+    }
+
+    /**
+     * Add a locally created transaction and announce it to all peers
+     */
+    public void submitTransaction(Transaction transaction) {
+        submit(() -> acceptTransaction(transaction, null));
+    }
+
+    /**
+     * Mine the pending pool into a block and announce it
+     *
+     * Mining runs on the event loop, so the node does not service peers
+     * while it is hashing. Keep the difficulty low in multi-node setups.
+     */
+    public CompletableFuture<Block> mineBlock() {
+        return call(() -> {
+            Block previousTip = blockchain.getLatestBlock();
+            blockchain.minePendingTransactions();
+            Block block = blockchain.getLatestBlock();
+            if (block == previousTip) {
+                return null;
+            }
+            announce(InventoryItem.block(block.getHash()), null);
+            return block;
+        });
+    }
+
+    /**
+     * Run a task on the event loop thread
+     */
+    public void submit(Runnable task) {
+        tasks.add(task);
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Run a task on the event loop thread and get its result
+     */
+    public <T> CompletableFuture<T> call(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(() -> {
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    public int getHeight() { return height; }
+    public int getPendingCount() { return pendingCount; }
+    public int getPeerCount() { return handshakePeerCount; }
+
+    // Compact block relay statistics
+    public long getCompactBlocksReceived() { return compactBlocksReceived; }
+    public long getCompactBytesReceived() { return compactBytesReceived; }
+    public long getFullBlockBytesEquivalent() { return fullBlockBytesEquivalent; }
+    public long getTransactionsFromPool() { return transactionsFromPool; }
+    public long getTransactionsRequested() { return transactionsRequested; }
+
+    @Override
+    public void close() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (loopThread != null) {
+            try {
+                loopThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ============================================================
+    // EVENT LOOP
+    // ============================================================
+
+    private void runLoop() {
+        try {
+            while (running) {
+                selector.select(100);
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // A failing task must not take the event loop down with it
+                        System.out.println("[ERROR] Peer node task failed: " + e);
+                    }
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        PeerConnection peer = (PeerConnection) key.attachment();
+                        try {
+                            if (key.isConnectable()) {
+                                finishConnect(peer);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                for (PeerConnection.Frame frame : peer.readFrames()) {
+                                    if (!key.isValid()) {
+                                        break;
+                                    }
+                                    handleMessage(peer, frame);
+                                }
+                            }
+                        } catch (IOException e) {
+                            disconnect(peer);
+                        } catch (RuntimeException e) {
+                            // Malformed message or a bug while handling it: drop
+                            // this peer, keep serving the others
+                            System.out.println("[ERROR] Dropping peer " + peer + ": " + e);
+                            disconnect(peer);
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                flushPeers();
+                publishStats();
+            }
+        } catch (IOException e) {
+            System.out.println("[ERROR] Peer node event loop failed: " + e.getMessage());
+        } finally {
+            for (PeerConnection peer : new ArrayList<>(peers)) {
+                peer.close();
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {
+                // Shutting down anyway
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        PeerConnection peer = new PeerConnection(channel, key, false);
+        key.attach(peer);
+        peers.add(peer);
+        sendVersion(peer);
+    }
+
+    private void finishConnect(PeerConnection peer) throws IOException {
+        if (peer.channel.finishConnect()) {
+            peer.channel.socket().setTcpNoDelay(true);
+            peer.key.interestOps(SelectionKey.OP_READ);
+            sendVersion(peer);
+        }
+    }
+
+    private void flushPeers() {
+        for (PeerConnection peer : new ArrayList<>(peers)) {
+            if (!peer.isHandshakeComplete()) {
+                // Still connecting or handshaking; only VERSION/VERACK go out
+                if (peer.channel.isConnected()) {
+                    tryFlush(peer);
+                }
+                continue;
+            }
+            peer.flushAnnouncements();
+            tryFlush(peer);
+        }
+    }
+
+    private void tryFlush(PeerConnection peer) {
+        try {
+            peer.flushWrites();
+        } catch (IOException e) {
+            disconnect(peer);
+        }
+    }
+
+    /**
+     * Count a protocol violation that is not worth dropping the peer for
+     * on its own; after MAX_MISBEHAVIOR of them it is dropped anyway
+     *
+     * @return true if the peer was disconnected
+     */
+    private boolean misbehaved(PeerConnection peer, String what) {
+        peer.misbehavior++;
+        System.out.println("[REJECTED] " + what + " from " + peer + " (" + peer.misbehavior + "/"
+                + PeerConnection.MAX_MISBEHAVIOR + ")");
+        if (peer.misbehavior >= PeerConnection.MAX_MISBEHAVIOR) {
+            disconnect(peer);
+            return true;
+        }
+        return false;
+    }
+
+    private void disconnect(PeerConnection peer) {
+        peers.remove(peer);
+        peer.close();
+
+        if (headerSync != null) {
+            boolean wasHeaderPeer = headerSync.headerPeer == peer;
+            headerSync.release(peer);
+            if (wasHeaderPeer) {
+                // Continue fetching headers from another peer that is ahead
+                for (PeerConnection other : peers) {
+                    if (other.isHandshakeComplete() && other.remoteHeight > headerSync.getHeaderHeight()) {
+                        requestHeaders(other);
+                        break;
+                    }
+                }
+            }
+            scheduleDownloads();
+        }
+    }
+
+    private void publishStats() {
+        height = blockchain.getChain().size() - 1;
+        pendingCount = blockchain.getPendingCount();
+        int count = 0;
+        for (PeerConnection peer : peers) {
+            if (peer.isHandshakeComplete()) {
+                count++;
+            }
+        }
+        handshakePeerCount = count;
+
+        if (headerSync != null) {
+            syncProgress = headerSync.progress();
+            long now = System.currentTimeMillis();
+            if (now - lastProgressLog >= 2000) {
+                lastProgressLog = now;
+                System.out.println(syncProgress);
+            }
+        }
+    }
+
+    // ============================================================
+    // MESSAGE HANDLING
+    // ============================================================
+
+    private void handleMessage(PeerConnection peer, PeerConnection.Frame frame) {
+        if (!peer.isHandshakeComplete()
+                && frame.type != MessageType.VERSION && frame.type != MessageType.VERACK) {
+            // Ignore everything until the handshake is done
+            return;
+        }
+
+        switch (frame.type) {
+            case VERSION:
+                handleVersion(peer, ProtocolCodec.decodeVersion(frame.payload));
+                break;
+            case VERACK:
+                peer.verackReceived = true;
+                onHandshakeComplete(peer);
+                break;
+            case INV:
+                handleInventory(peer, ProtocolCodec.decodeInventory(frame.payload));
+                break;
+            case GETDATA:
+                handleGetData(peer, ProtocolCodec.decodeInventory(frame.payload));
+                break;
+            case GETBLOCKS:
+                handleGetBlocks(peer, ProtocolCodec.decodeLocator(frame.payload));
+                break;
+            case BLOCK:
+                if (headerSync != null) {
+                    // Bodies during sync may be connected in any order, so the
+                    // expensive part (decoding and Merkle root) runs in parallel
+                    decodeInBackground(peer, frame.payload);
+                } else {
+                    handleBlock(peer, ProtocolCodec.decodeBlock(frame.payload));
+                }
+                break;
+            case TX:
+                acceptTransaction(ProtocolCodec.decodeTransaction(frame.payload), peer);
+                break;
+            case CMPCTBLOCK:
+                handleCompactBlock(peer, ProtocolCodec.decodeCompactBlock(frame.payload), frame.payload.length);
+                break;
+            case GETBLOCKTXN:
+                handleGetBlockTransactions(peer, ProtocolCodec.decodeBlockTransactionsRequest(frame.payload));
+                break;
+            case BLOCKTXN:
+                handleBlockTransactions(peer, ProtocolCodec.decodeBlockTransactions(frame.payload), frame.payload.length);
+                break;
+            case GETHEADERS:
+                handleGetHeaders(peer, ProtocolCodec.decodeLocator(frame.payload));
+                break;
+            case HEADERS:
+                handleHeaders(peer, ProtocolCodec.decodeHeaders(frame.payload));
+                break;
+        }
+    }
+
+    private void sendVersion(PeerConnection peer) {
+        ProtocolCodec.Version version = new ProtocolCodec.Version(
+                ProtocolCodec.PROTOCOL_VERSION,
+                blockchain.getChain().get(0).getHash(),
+                blockchain.getChain().size() - 1);
+        peer.send(MessageType.VERSION, ProtocolCodec.encodeVersion(version));
+    }
+
+    private void handleVersion(PeerConnection peer, ProtocolCodec.Version version) {
+        // Nodes on a different protocol or genesis cannot share blocks
+        if (version.protocolVersion != ProtocolCodec.PROTOCOL_VERSION
+                || !version.genesisHash.equals(blockchain.getChain().get(0).getHash())) {
+            disconnect(peer);
+            return;
+        }
+        peer.versionReceived = true;
+        peer.remoteHeight = version.height;
+        peer.send(MessageType.VERACK, new byte[0]);
+        onHandshakeComplete(peer);
+    }
+
+    private void onHandshakeComplete(PeerConnection peer) {
+        if (!peer.isHandshakeComplete()) {
+            return;
+        }
+        if (peer.remoteHeight > blockchain.getChain().size() - 1) {
+            startSync(peer);
+        }
+        // Share our pending pool so a new peer's mempool catches up
+        for (String id : relayPool.keySet()) {
+            peer.announce(InventoryItem.tx(id));
+        }
+    }
+
+    private void handleInventory(PeerConnection peer, List<InventoryItem> items) {
+        // Blocks listed in a GETBLOCKS reply are history: fetch them in full.
+        // Freshly announced blocks are fetched compact.
+        boolean syncReply = peer.awaitingBlockInventory && (items.isEmpty() || items.get(0).isBlock());
+        if (syncReply) {
+            peer.awaitingBlockInventory = false;
+        }
+
+        List<InventoryItem> wanted = new ArrayList<>();
+        for (InventoryItem item : items) {
+            if (knownInventory.add(item.getHash())) {
+                wanted.add(item.isBlock() && !syncReply ? InventoryItem.compactBlock(item.getHash()) : item);
+            }
+        }
+        if (!wanted.isEmpty()) {
+            peer.send(MessageType.GETDATA, ProtocolCodec.encodeInventory(wanted));
+        }
+
+        // A full reply to GETBLOCKS means there are more blocks to fetch
+        if (items.size() == MAX_BLOCKS_PER_INV && items.get(items.size() - 1).isBlock()) {
+            peer.continueSyncAfter = items.get(items.size() - 1).getHash();
+        }
+    }
+
+    private void handleGetData(PeerConnection peer, List<InventoryItem> items) {
+        for (InventoryItem item : items) {
+            if (item.getType() == InventoryItem.TYPE_COMPACT_BLOCK) {
+                Block block = blockchain.getFullBlock(item.getHash());
+                if (block != null) {
+                    CompactBlock compact = CompactBlock.fromBlock(block, saltSource.nextLong());
+                    peer.send(MessageType.CMPCTBLOCK, ProtocolCodec.encodeCompactBlock(compact));
+                }
+            } else if (item.isBlock()) {
+                // A pruning node no longer has old bodies to send (unless kept off-heap)
+                Block block = blockchain.getFullBlock(item.getHash());
+                if (block != null) {
+                    peer.send(MessageType.BLOCK, ProtocolCodec.encodeBlock(block));
+                }
+            } else {
+                Transaction transaction = relayPool.get(item.getHash());
+                if (transaction != null) {
+                    peer.send(MessageType.TX, ProtocolCodec.encodeTransaction(transaction));
+                }
+            }
+        }
+    }
+
+    private void handleGetBlocks(PeerConnection peer, List<String> locator) {
+        List<Block> chain = blockchain.getChain();
+        List<InventoryItem> items = new ArrayList<>();
+        // Only offer blocks we can still send in full (headers go out regardless)
+        int from = Math.max(findForkPoint(locator), blockchain.getFirstFullBlockHeight());
+        for (int i = from; i < chain.size() && items.size() < MAX_BLOCKS_PER_INV; i++) {
+            items.add(InventoryItem.block(chain.get(i).getHash()));
+        }
+        // Reply even when empty, so the peer knows its sync request is answered
+        peer.send(MessageType.INV, ProtocolCodec.encodeInventory(items));
+    }
+
+    private void handleBlock(PeerConnection peer, Block block) {
+        if (headerSync != null) {
+            HeaderSync.Result result = headerSync.accept(peer, block);
+            if (result == HeaderSync.Result.ACCEPTED) {
+                connectSyncedBlocks();
+                return;
+            }
+            if (result == HeaderSync.Result.MISMATCH) {
+                // Body does not match the header it was requested for
+                disconnect(peer);
+                scheduleDownloads();
+                return;
+            }
+        }
+
+        knownInventory.add(block.getHash());
+        if (blockchain.getBlockByHash(block.getHash()) != null) {
+            return;
+        }
+
+        switch (blockchain.addBlock(block)) {
+            case CONNECTED:
+                // Announce whatever is now our tip (a reorg may have
+                // attached waiting orphans above this block)
+                announce(InventoryItem.block(blockchain.getLatestBlock().getHash()), peer);
+                if (block.getHash().equals(peer.continueSyncAfter)) {
+                    peer.continueSyncAfter = null;
+                    requestBlocks(peer);
+                }
+                break;
+            case ORPHAN:
+                // We are missing its ancestors; ask this peer for them
+                peer.remoteHeight = Math.max(peer.remoteHeight, block.getIndex());
+                startSync(peer);
+                break;
+            default:
+                // Side branch, duplicate or invalid: nothing to relay
+                break;
+        }
+    }
+
+    /**
+     * Rebuild a compact block from the pending pool
+     *
+     * Every pool transaction is keyed by its short ID under this block's
+     * salt; slots that find no match, or whose short ID is shared by two
+     * pool transactions, are requested from the peer.
+     */
+    private void handleCompactBlock(PeerConnection peer, CompactBlock compact, int payloadBytes) {
+        if (blockchain.getBlockByHash(compact.getHash()) != null) {
+            return;
+        }
+
+        Map<Long, Transaction> byShortId = new HashMap<>();
+        Set<Long> collisions = new HashSet<>();
+        for (Transaction transaction : relayPool.values()) {
+            long shortId = compact.shortId(transaction.getTransactionId());
+            if (byShortId.putIfAbsent(shortId, transaction) != null) {
+                collisions.add(shortId);
+            }
+        }
+
+        int count = compact.getTransactionCount();
+        Transaction[] slots = new Transaction[count];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long shortId = compact.shortIds[i];
+            Transaction match = collisions.contains(shortId) ? null : byShortId.get(shortId);
+            if (match == null) {
+                missing.add(i);
+            } else {
+                slots[i] = match;
+            }
+        }
+
+        PeerConnection.PartialBlock partial = new PeerConnection.PartialBlock(compact, slots,
+                missing.stream().mapToInt(Integer::intValue).toArray(), count - missing.size());
+        partial.bytesReceived = payloadBytes;
+
+        if (missing.isEmpty()) {
+            completeCompactBlock(peer, partial);
+        } else {
+            peer.partialBlocks.put(compact.getHash(), partial);
+            byte[] request = ProtocolCodec.encodeBlockTransactionsRequest(
+                    new ProtocolCodec.BlockTransactionsRequest(compact.getHash(), partial.missing));
+            partial.bytesReceived += request.length;
+            peer.send(MessageType.GETBLOCKTXN, request);
+        }
+    }
+
+    private void handleGetBlockTransactions(PeerConnection peer, ProtocolCodec.BlockTransactionsRequest request) {
+        Block block = blockchain.getFullBlock(request.blockHash);
+        if (block == null) {
+            return;
+        }
+        List<Transaction> transactions = new ArrayList<>(request.indexes.length);
+        for (int index : request.indexes) {
+            if (index < 0 || index >= block.getTransactions().size()) {
+                return;
+            }
+            transactions.add(block.getTransactions().get(index));
+        }
+        peer.send(MessageType.BLOCKTXN, ProtocolCodec.encodeBlockTransactions(
+                new ProtocolCodec.BlockTransactions(request.blockHash, transactions)));
+    }
+
+    private void handleBlockTransactions(PeerConnection peer, ProtocolCodec.BlockTransactions response, int payloadBytes) {
+        PeerConnection.PartialBlock partial = peer.partialBlocks.remove(response.blockHash);
+        if (partial == null) {
+            return;
+        }
+        if (response.transactions.size() != partial.missing.length) {
+            // Not what we asked for: fetch the whole block instead, unless the peer is dropped
+            if (!misbehaved(peer, "BLOCKTXN with " + response.transactions.size() + " transactions, "
+                    + partial.missing.length + " requested")) {
+                peer.send(MessageType.GETDATA, ProtocolCodec.encodeInventory(
+                        List.of(InventoryItem.block(response.blockHash))));
+            }
+            return;
+        }
+        for (int i = 0; i < partial.missing.length; i++) {
+            partial.slots[partial.missing[i]] = response.transactions.get(i);
+        }
+        partial.bytesReceived += payloadBytes;
+        completeCompactBlock(peer, partial);
+    }
+
+    private void completeCompactBlock(PeerConnection peer, PeerConnection.PartialBlock partial) {
+        CompactBlock compact = partial.compact;
+        Block block = compact.toBlock(Arrays.asList(partial.slots));
+        if (block == null) {
+            // Merkle root mismatch: a short ID matched the wrong transaction
+            peer.send(MessageType.GETDATA, ProtocolCodec.encodeInventory(
+                    List.of(InventoryItem.block(compact.getHash()))));
+            return;
+        }
+
+        long fullBytes = block.getSerializedSize();
+        compactBlocksReceived++;
+        compactBytesReceived += partial.bytesReceived;
+        fullBlockBytesEquivalent += fullBytes;
+        transactionsFromPool += partial.fromPool;
+        transactionsRequested += partial.missing.length;
+
+        System.out.printf("[RELAY] Block #%d rebuilt from compact: %d/%d tx from pool, %d bytes vs %d full (%.1f%% saved)%n",
+                block.getIndex(), partial.fromPool, compact.getTransactionCount(),
+                partial.bytesReceived, fullBytes, 100.0 * (fullBytes - partial.bytesReceived) / fullBytes);
+
+        handleBlock(peer, block);
+    }
+
+    private void acceptTransaction(Transaction transaction, PeerConnection source) {
+        String id = transaction.getTransactionId();
+        if (relayPool.containsKey(id) || confirmedTransactions.contains(id)) {
+            return;
+        }
+        knownInventory.add(id);
+        // Bad signature: neither pooled nor relayed
+        if (!blockchain.addTransaction(transaction)) {
+            return;
+        }
+        relayPool.put(id, transaction);
+        announce(InventoryItem.tx(id), source);
+    }
+
+    // ============================================================
+    // HEADERS-FIRST SYNC
+    // ============================================================
+
+    private void startSync(PeerConnection peer) {
+        if (syncMode == SyncMode.HEADERS_FIRST) {
+            requestHeaders(peer);
+        } else {
+            requestBlocks(peer);
+        }
+    }
+
+    private void requestHeaders(PeerConnection peer) {
+        if (headerSync == null) {
+            headerSync = new HeaderSync(blockchain);
+            lastProgressLog = System.currentTimeMillis();
+        }
+        HeaderSync sync = headerSync;
+        if (sync.headerPeer != null && sync.headerPeer != peer) {
+            // Headers already come from another peer; this one serves bodies
+            scheduleDownloads();
+            return;
+        }
+        sync.headerPeer = peer;
+        List<String> locator = buildLocator(sync::getHeaderHash, sync.getHeaderHeight());
+        peer.send(MessageType.GETHEADERS, ProtocolCodec.encodeLocator(locator));
+    }
+
+    private void handleGetHeaders(PeerConnection peer, List<String> locator) {
+        List<Block> chain = blockchain.getChain();
+        List<BlockHeader> headers = new ArrayList<>();
+        for (int i = findForkPoint(locator); i < chain.size() && headers.size() < MAX_HEADERS_PER_MESSAGE; i++) {
+            headers.add(BlockHeader.of(chain.get(i)));
+        }
+        peer.send(MessageType.HEADERS, ProtocolCodec.encodeHeaders(headers));
+    }
+
+    private void handleHeaders(PeerConnection peer, List<BlockHeader> headers) {
+        if (headerSync == null || headers.isEmpty()) {
+            return;
+        }
+        if (!headerSync.addHeaders(peer, headers)) {
+            // Broken link, insufficient proof-of-work or a known bad header
+            disconnect(peer);
+            return;
+        }
+        peer.remoteHeight = Math.max(peer.remoteHeight, headers.get(headers.size() - 1).getIndex());
+
+        // A full batch means the peer has more headers for us
+        if (headers.size() == MAX_HEADERS_PER_MESSAGE) {
+            requestHeaders(peer);
+        }
+        scheduleDownloads();
+    }
+
+    /**
+     * Hand out body downloads to every peer with spare capacity
+     */
+    private void scheduleDownloads() {
+        if (headerSync == null) {
+            return;
+        }
+        for (PeerConnection peer : peers) {
+            if (!peer.isHandshakeComplete()) {
+                continue;
+            }
+            List<String> hashes = headerSync.assign(peer);
+            if (hashes.isEmpty()) {
+                continue;
+            }
+            List<InventoryItem> items = new ArrayList<>(hashes.size());
+            for (String hash : hashes) {
+                knownInventory.add(hash);
+                items.add(InventoryItem.block(hash));
+            }
+            peer.send(MessageType.GETDATA, ProtocolCodec.encodeInventory(items));
+        }
+    }
+
+    private void decodeInBackground(PeerConnection peer, byte[] payload) {
+        ForkJoinPool.commonPool().execute(() -> {
+            try {
+                Block block = ProtocolCodec.decodeBlock(payload);
+                submit(() -> {
+                    if (peers.contains(peer)) {
+                        handleBlock(peer, block);
+                    }
+                });
+            } catch (IllegalArgumentException e) {
+                submit(() -> disconnect(peer));
+            }
+        });
+    }
+
+    private void connectSyncedBlocks() {
+        List<Block> connected = headerSync.connectReady();
+        Block last = connected.isEmpty() ? null : connected.get(connected.size() - 1);
+        PeerConnection badPeer = headerSync.pollBadHeaderPeer();
+
+        if (headerSync.isComplete()) {
+            syncProgress = headerSync.progress();
+            headerSync = null;
+            System.out.println(syncProgress + " - sync complete");
+            if (last != null) {
+                // Only the new tip is announced; peers fetch history themselves
+                announce(InventoryItem.block(last.getHash()), null);
+            }
+        } else {
+            scheduleDownloads();
+        }
+
+        if (badPeer != null) {
+            // Its headers led to a block that failed validation; while the
+            // sync is still running, disconnecting also moves header
+            // download to another peer
+            System.out.println("[REJECTED] Invalid block on the header chain from " + badPeer);
+            if (peers.contains(badPeer)) {
+                disconnect(badPeer);
+            }
+        }
+    }
+
+    private void announce(InventoryItem item, PeerConnection source) {
+        for (PeerConnection peer : peers) {
+            if (peer != source && peer.isHandshakeComplete()) {
+                peer.announce(item);
+            }
+        }
+    }
+
+    private void requestBlocks(PeerConnection peer) {
+        List<Block> chain = blockchain.getChain();
+        peer.awaitingBlockInventory = true;
+        peer.send(MessageType.GETBLOCKS, ProtocolCodec.encodeLocator(
+                buildLocator(height -> chain.get(height).getHash(), chain.size() - 1)));
+    }
+
+    /**
+     * Height right after the most recent locator hash that is on our chain
+     */
+    private int findForkPoint(List<String> locator) {
+        for (String hash : locator) {
+            if (blockchain.isInActiveChain(hash)) {
+                return blockchain.getBlockByHash(hash).getIndex() + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Build a block locator: the last 10 hashes one by one, then doubling
+     * the step back to genesis. Lets the peer find our fork point in
+     * O(log height) hashes.
+     */
+    private List<String> buildLocator(IntFunction<String> hashAt, int tipHeight) {
+        List<String> locator = new ArrayList<>();
+        int step = 1;
+        for (int i = tipHeight; i > 0; i -= step) {
+            locator.add(hashAt.apply(i));
+            if (locator.size() >= 10) {
+                step *= 2;
+            }
+        }
+        locator.add(hashAt.apply(0));
+        return locator;
+    }
+
+    // Insertion-ordered set that forgets its oldest entries beyond a limit
+    private static Set<String> boundedSet(int limit) {
+        return Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > limit;
+            }
+        });
+    }
+}
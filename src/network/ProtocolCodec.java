@@ -0,0 +1,438 @@
+package network;
+
+import models.Block;
+import models.BlockHeader;
+import models.Transaction;
+import utils.StringUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ProtocolCodec - Binary encoding of peer-to-peer messages
+ *
+ * Frame layout (all integers big-endian):
+ *
+ *   +----------------+---------+---------------------+
+ *   | length (int32) | command | payload             |
+ *   +----------------+---------+---------------------+
+ *
+ * "length" counts the command byte plus the payload, so a reader knows
+ * exactly how many bytes to wait for before decoding a message.
+ *
+ * Hashes that are always SHA-256 (transaction IDs, block hashes) travel as
+ * 32 raw bytes instead of 64 hex characters, halving inventory traffic.
+ */
+public final class ProtocolCodec {
+
+    // Version 2: block headers carry a compact proof-of-work target (bits)
+    // Version 3: 64-bit nonce plus extraNonce
+    // Version 4: transactions may carry a public key and signature
+    public static final int PROTOCOL_VERSION = 4;
+
+    // Size of the length prefix in front of every frame
+    public static final int HEADER_SIZE = 4;
+
+    // Frames larger than this are treated as a protocol violation
+    public static final int MAX_FRAME_SIZE = 32 * 1024 * 1024;
+
+    // Smallest encodings of list elements, to bound counts read off the wire
+    private static final int HASH_SIZE = 32;
+    private static final int INVENTORY_ITEM_SIZE = 1 + HASH_SIZE;
+    // Two empty UTF strings, amount, timestamp, signed flag
+    private static final int MIN_TRANSACTION_SIZE = 2 + 2 + 8 + 8 + 1;
+    // Index, previous hash, timestamp, nonce, extraNonce, bits, empty UTF Merkle root
+    private static final int MIN_HEADER_SIZE = 4 + HASH_SIZE + 8 + 8 + 4 + 4 + 2;
+
+    private ProtocolCodec() {
+    }
+
+    // ============================================================
+    // FRAMING
+    // ============================================================
+
+    /**
+     * Wrap a payload into a length-prefixed frame ready to be written
+     *
+     * @param type The message command
+     * @param payload The encoded message body (may be empty)
+     * @return A buffer positioned at 0 containing the whole frame
+     */
+    public static ByteBuffer frame(MessageType type, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 1 + payload.length);
+        buffer.putInt(1 + payload.length);
+        buffer.put(type.getCode());
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    // ============================================================
+    // MESSAGE PAYLOADS
+    // ============================================================
+
+    /**
+     * Handshake data exchanged in VERSION messages
+     */
+    public static final class Version {
+        public final int protocolVersion;
+        public final String genesisHash;
+        public final int height;
+
+        public Version(int protocolVersion, String genesisHash, int height) {
+            this.protocolVersion = protocolVersion;
+            this.genesisHash = genesisHash;
+            this.height = height;
+        }
+    }
+
+    public static byte[] encodeVersion(Version version) {
+        return encode(out -> {
+            out.writeInt(version.protocolVersion);
+            writeHash(out, version.genesisHash);
+            out.writeInt(version.height);
+        });
+    }
+
+    public static Version decodeVersion(byte[] payload) {
+        return decode(payload, in -> new Version(in.readInt(), readHash(in), in.readInt()));
+    }
+
+    public static byte[] encodeInventory(List<InventoryItem> items) {
+        return encode(out -> {
+            out.writeInt(items.size());
+            for (InventoryItem item : items) {
+                out.writeByte(item.getType());
+                writeHash(out, item.getHash());
+            }
+        });
+    }
+
+    public static List<InventoryItem> decodeInventory(byte[] payload) {
+        return decode(payload, in -> {
+            int count = readCount(in, INVENTORY_ITEM_SIZE);
+            List<InventoryItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                items.add(new InventoryItem(type, readHash(in)));
+            }
+            return items;
+        });
+    }
+
+    /**
+     * Encode a block locator: hashes of our chain from the tip backwards,
+     * dense at first and then exponentially sparser down to genesis
+     */
+    public static byte[] encodeLocator(List<String> locator) {
+        return encode(out -> {
+            out.writeInt(locator.size());
+            for (String hash : locator) {
+                writeHash(out, hash);
+            }
+        });
+    }
+
+    public static List<String> decodeLocator(byte[] payload) {
+        return decode(payload, in -> {
+            int count = readCount(in, HASH_SIZE);
+            List<String> locator = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                locator.add(readHash(in));
+            }
+            return locator;
+        });
+    }
+
+    public static byte[] encodeTransaction(Transaction transaction) {
+        return encode(out -> writeTransaction(out, transaction));
+    }
+
+    public static Transaction decodeTransaction(byte[] payload) {
+        return decode(payload, ProtocolCodec::readTransaction);
+    }
+
+    public static byte[] encodeBlock(Block block) {
+        // The block knows its encoded size, so the buffer never has to grow
+        return encode(block.getSerializedSize(), out -> {
+            out.writeInt(block.getIndex());
+            out.writeUTF(block.getPreviousHash());
+            out.writeLong(block.getTimestamp());
+            out.writeLong(block.getNonce());
+            out.writeInt(block.getExtraNonce());
+            out.writeInt(block.getBits());
+            out.writeInt(block.getTransactions().size());
+            for (Transaction transaction : block.getTransactions()) {
+                writeTransaction(out, transaction);
+            }
+        });
+    }
+
+    public static Block decodeBlock(byte[] payload) {
+        return decode(payload, in -> {
+            int index = in.readInt();
+            String previousHash = in.readUTF();
+            long timestamp = in.readLong();
+            long nonce = in.readLong();
+            int extraNonce = in.readInt();
+            int bits = in.readInt();
+            int count = readCount(in, MIN_TRANSACTION_SIZE);
+            List<Transaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                transactions.add(readTransaction(in));
+            }
+            return new Block(index, previousHash, timestamp, nonce, extraNonce, bits, transactions);
+        });
+    }
+
+    public static byte[] encodeCompactBlock(CompactBlock compact) {
+        return encode(out -> {
+            out.writeInt(compact.index);
+            out.writeUTF(compact.previousHash);
+            out.writeLong(compact.timestamp);
+            out.writeLong(compact.nonce);
+            out.writeInt(compact.extraNonce);
+            out.writeInt(compact.bits);
+            out.writeUTF(compact.merkleRoot);
+            out.writeLong(compact.salt);
+            out.writeInt(compact.shortIds.length);
+            for (long shortId : compact.shortIds) {
+                // 6 bytes, most significant first
+                for (int shift = 8 * (CompactBlock.SHORT_ID_BYTES - 1); shift >= 0; shift -= 8) {
+                    out.writeByte((int) (shortId >>> shift));
+                }
+            }
+        });
+    }
+
+    public static CompactBlock decodeCompactBlock(byte[] payload) {
+        return decode(payload, in -> {
+            int index = in.readInt();
+            String previousHash = in.readUTF();
+            long timestamp = in.readLong();
+            long nonce = in.readLong();
+            int extraNonce = in.readInt();
+            int bits = in.readInt();
+            String merkleRoot = in.readUTF();
+            long salt = in.readLong();
+            long[] shortIds = new long[readCount(in, CompactBlock.SHORT_ID_BYTES)];
+            for (int i = 0; i < shortIds.length; i++) {
+                long shortId = 0;
+                for (int b = 0; b < CompactBlock.SHORT_ID_BYTES; b++) {
+                    shortId = (shortId << 8) | in.readUnsignedByte();
+                }
+                shortIds[i] = shortId;
+            }
+            return new CompactBlock(index, previousHash, timestamp, nonce, extraNonce, bits, merkleRoot, salt, shortIds);
+        });
+    }
+
+    /**
+     * Request for transactions of a compact block, by position in the block
+     */
+    public static final class BlockTransactionsRequest {
+        public final String blockHash;
+        public final int[] indexes;
+
+        public BlockTransactionsRequest(String blockHash, int[] indexes) {
+            this.blockHash = blockHash;
+            this.indexes = indexes;
+        }
+    }
+
+    public static byte[] encodeBlockTransactionsRequest(BlockTransactionsRequest request) {
+        return encode(out -> {
+            writeHash(out, request.blockHash);
+            out.writeInt(request.indexes.length);
+            for (int index : request.indexes) {
+                out.writeInt(index);
+            }
+        });
+    }
+
+    public static BlockTransactionsRequest decodeBlockTransactionsRequest(byte[] payload) {
+        return decode(payload, in -> {
+            String blockHash = readHash(in);
+            int[] indexes = new int[readCount(in, Integer.BYTES)];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = in.readInt();
+            }
+            return new BlockTransactionsRequest(blockHash, indexes);
+        });
+    }
+
+    /**
+     * Transactions sent in answer to a BlockTransactionsRequest, in the
+     * order they were requested
+     */
+    public static final class BlockTransactions {
+        public final String blockHash;
+        public final List<Transaction> transactions;
+
+        public BlockTransactions(String blockHash, List<Transaction> transactions) {
+            this.blockHash = blockHash;
+            this.transactions = transactions;
+        }
+    }
+
+    public static byte[] encodeBlockTransactions(BlockTransactions response) {
+        return encode(out -> {
+            writeHash(out, response.blockHash);
+            out.writeInt(response.transactions.size());
+            for (Transaction transaction : response.transactions) {
+                writeTransaction(out, transaction);
+            }
+        });
+    }
+
+    public static BlockTransactions decodeBlockTransactions(byte[] payload) {
+        return decode(payload, in -> {
+            String blockHash = readHash(in);
+            int count = readCount(in, MIN_TRANSACTION_SIZE);
+            List<Transaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                transactions.add(readTransaction(in));
+            }
+            return new BlockTransactions(blockHash, transactions);
+        });
+    }
+
+    public static byte[] encodeHeaders(List<BlockHeader> headers) {
+        return encode(out -> {
+            out.writeInt(headers.size());
+            for (BlockHeader header : headers) {
+                out.writeInt(header.getIndex());
+                writeHash(out, header.getPreviousHash());
+                out.writeLong(header.getTimestamp());
+                out.writeLong(header.getNonce());
+                out.writeInt(header.getExtraNonce());
+                out.writeInt(header.getBits());
+                out.writeUTF(header.getMerkleRoot());
+            }
+        });
+    }
+
+    public static List<BlockHeader> decodeHeaders(byte[] payload) {
+        return decode(payload, in -> {
+            int count = readCount(in, MIN_HEADER_SIZE);
+            List<BlockHeader> headers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int index = in.readInt();
+                String previousHash = readHash(in);
+                long timestamp = in.readLong();
+                long nonce = in.readLong();
+                int extraNonce = in.readInt();
+                int bits = in.readInt();
+                String merkleRoot = in.readUTF();
+                headers.add(new BlockHeader(index, previousHash, timestamp, nonce, extraNonce, bits, merkleRoot));
+            }
+            return headers;
+        });
+    }
+
+    // ============================================================
+    // FIELD HELPERS
+    // ============================================================
+
+    static void writeTransaction(DataOutputStream out, Transaction transaction) throws IOException {
+        out.writeUTF(transaction.getSender());
+        out.writeUTF(transaction.getRecipient());
+        out.writeDouble(transaction.getAmount());
+        out.writeLong(transaction.getTimeStamp());
+        out.writeBoolean(transaction.isSigned());
+        if (transaction.isSigned()) {
+            writeBytes(out, transaction.getPublicKey());
+            writeBytes(out, transaction.getSignature());
+        }
+    }
+
+    static Transaction readTransaction(DataInputStream in) throws IOException {
+        String sender = in.readUTF();
+        String recipient = in.readUTF();
+        double amount = in.readDouble();
+        long timeStamp = in.readLong();
+        if (!in.readBoolean()) {
+            return new Transaction(sender, recipient, amount, timeStamp);
+        }
+        String publicKey = readBytes(in);
+        String signature = readBytes(in);
+        return new Transaction(sender, recipient, amount, timeStamp, publicKey, signature);
+    }
+
+    // Hex string as raw bytes with a 16-bit length (keys, signatures)
+    static void writeBytes(DataOutputStream out, String hex) throws IOException {
+        byte[] bytes = StringUtil.hexToBytes(hex);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return StringUtil.bytesToHex(bytes);
+    }
+
+    // Element count of a list, checked before anything is allocated for it:
+    // negative, or more elements than the rest of the payload can hold at
+    // minElementSize bytes each, means a malformed (or hostile) message
+    static int readCount(DataInputStream in, int minElementSize) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_FRAME_SIZE / minElementSize
+                || (long) count * minElementSize > in.available()) {
+            throw new IllegalArgumentException("Malformed message payload: bad element count " + count);
+        }
+        return count;
+    }
+
+    // Write a 64-character hex hash as 32 raw bytes
+    static void writeHash(DataOutputStream out, String hex) throws IOException {
+        out.write(StringUtil.hexToBytes(hex));
+    }
+
+    // Read 32 raw bytes back into a 64-character hex hash
+    static String readHash(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[32];
+        in.readFully(bytes);
+        return StringUtil.bytesToHex(bytes);
+    }
+
+    interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    static byte[] encode(Writer writer) {
+        return encode(32, writer);
+    }
+
+    static byte[] encode(int expectedSize, Writer writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(expectedSize);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writer.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to memory never fails
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static <T> T decode(byte[] payload, Reader<T> reader) {
+        try {
+            return reader.read(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (IOException e) {
+            // Truncated or malformed payload
+            throw new IllegalArgumentException("Malformed message payload", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package network;
+
+/**
+ * SyncProgress - Snapshot of a headers-first synchronization
+ *
+ * Immutable; PeerNode publishes a fresh instance from its event loop so
+ * any thread can read it without locking.
+ */
+public final class SyncProgress {
+
+    private final boolean active;
+    private final int headerHeight;
+    private final int blockHeight;
+    private final int startHeight;
+    private final long elapsedNanos;
+
+    SyncProgress(boolean active, int headerHeight, int blockHeight, int startHeight, long elapsedNanos) {
+        this.active = active;
+        this.headerHeight = headerHeight;
+        this.blockHeight = blockHeight;
+        this.startHeight = startHeight;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    static final SyncProgress IDLE = new SyncProgress(false, 0, 0, 0, 0);
+
+    // true while blocks are still being downloaded
+    public boolean isActive() { return active; }
+
+    // Height of the best validated header
+    public int getHeaderHeight() { return headerHeight; }
+
+    // Height of the local chain (connected blocks)
+    public int getBlockHeight() { return blockHeight; }
+
+    public double getElapsedSeconds() { return elapsedNanos / 1e9; }
+
+    /**
+     * Fraction of the header chain already connected, from 0.0 to 1.0
+     */
+    public double getFraction() {
+        int total = headerHeight - startHeight;
+        return total <= 0 ? 1.0 : (double) (blockHeight - startHeight) / total;
+    }
+
+    /**
+     * Blocks connected per second since the sync started
+     */
+    public double getBlocksPerSecond() {
+        return elapsedNanos == 0 ? 0 : (blockHeight - startHeight) / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[SYNC] headers %d, blocks %d (%.1f%%), %.0f blocks/s",
+                headerHeight, blockHeight, 100 * getFraction(), getBlocksPerSecond());
+    }
+}
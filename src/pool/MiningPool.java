@@ -0,0 +1,445 @@
+package pool;
+
+import blockchain.Blockchain;
+import blockchain.ChainListener;
+import blockchain.ChainSnapshot;
+import models.Block;
+import models.BlockTemplate;
+import utils.Sha256Kernel;
+import utils.Target;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MiningPool - A coordinator that splits block mining across many workers
+ *
+ * BlockTemplate.mineBlock is one loop that either finds a block or does
+ * not, so it says nothing about how much work a miner did. A pool measures work in
+ * SHARES: hashes that meet an easier target than the block's.
+ *
+ *   block target  <=  share target = block target x sharesPerBlock
+ *
+ * so on average sharesPerBlock shares are found per block, and a share
+ * that happens to meet the block target too IS the block:
+ *
+ *   coordinator                          worker
+ *   job = template + bits + share bits
+ *                    --- getWork ---->   WorkUnit: job + its own nonce range
+ *                                        hash every nonce in the range
+ *                    <-- submitShare --  each nonce meeting the share target
+ *   recompute the hash; count the share
+ *   meets the block target? -> Blockchain.addBlock
+ *
+ * Jobs: a new tip (the pool's own block or anyone else's) starts a new job
+ * and retires the old ones - their shares are STALE from then on. A job
+ * older than JOB_REFRESH_MILLIS is replaced when more transactions are
+ * pending, without retiring it (its shares are still real work).
+ *
+ * Accounting is lock-free: a nonce range is one getAndAdd, duplicate
+ * detection a concurrent set per job, and every counter a LongAdder or
+ * DoubleAdder per worker, so submissions from many threads never wait on
+ * each other. The only shared step is the SHA-256 that checks each share.
+ *
+ * Hashrate estimates come from shares alone: each accepted share stands
+ * for Target.work(share bits) hashes on average, whatever the worker
+ * actually did - which is all a real pool can know.
+ */
+public final class MiningPool implements ChainListener, AutoCloseable {
+
+    /**
+     * What the pool made of a submitted share
+     */
+    public enum ShareResult {
+        ACCEPTED,   // Meets the share target
+        BLOCK,      // Meets the block target too: the block was offered to the chain
+        STALE,      // For a retired job (the tip has moved on)
+        DUPLICATE,  // Nonce already submitted for this job
+        INVALID     // Hash does not meet the share target
+    }
+
+    // A job is replaced for new transactions at most this often
+    public static final long JOB_REFRESH_MILLIS = 1_000;
+
+    // Jobs kept valid for the same tip (older ones are retired)
+    private static final int MAX_JOBS_PER_TIP = 4;
+
+    // Largest 256-bit target: every hash meets it
+    private static final BigInteger MAX_TARGET = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+
+    /**
+     * One template being mined; its nonce space is handed out in ranges
+     */
+    private static final class Job {
+        final long id;
+        final BlockTemplate template;
+        final int blockBits;
+        final int shareBits;
+        final int[] blockTarget;
+        final int[] shareTarget;
+        final double hashesPerShare;
+        final double blocksPerShare;
+        final byte[] prefix;
+        final byte[] suffix;
+        final long createdNanos = System.nanoTime();
+        final AtomicLong nextNonce = new AtomicLong();
+        final Set<Long> nonces = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean solved = new AtomicBoolean();
+
+        Job(long id, BlockTemplate template, int blockBits, int sharesPerBlock) {
+            this.id = id;
+            this.template = template;
+            this.blockBits = blockBits;
+            BigInteger target = Target.decodeCompact(blockBits);
+            this.shareBits = Target.encodeCompact(target.multiply(BigInteger.valueOf(sharesPerBlock)).min(MAX_TARGET));
+            this.blockTarget = Target.toWords(target);
+            this.shareTarget = Target.toWords(Target.decodeCompact(shareBits));
+            this.hashesPerShare = Target.work(shareBits).doubleValue();
+            this.blocksPerShare = hashesPerShare / Target.work(blockBits).doubleValue();
+            this.prefix = WorkUnit.prefixOf(template);
+            this.suffix = WorkUnit.suffixOf(template, blockBits);
+        }
+    }
+
+    /**
+     * Counters of one worker; written concurrently, read for reports
+     */
+    private static final class WorkerStats {
+        final long firstSeenNanos = System.nanoTime();
+        final LongAdder workUnits = new LongAdder();
+        final LongAdder accepted = new LongAdder();
+        final LongAdder stale = new LongAdder();
+        final LongAdder duplicate = new LongAdder();
+        final LongAdder invalid = new LongAdder();
+        final LongAdder blocks = new LongAdder();
+        // Expected hashes behind the accepted shares
+        final DoubleAdder work = new DoubleAdder();
+    }
+
+    private final Blockchain blockchain;
+    private final int sharesPerBlock;
+    private final Sha256Kernel kernel = Sha256Kernel.scalar();
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong nextJobId = new AtomicLong(1);
+    private final AtomicReference<Job> current = new AtomicReference<>();
+    private final ConcurrentHashMap<Long, Job> jobs = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, WorkerStats> workers = new ConcurrentHashMap<>();
+    private final LongAdder blocksRejected = new LongAdder();
+    // Blocks the accepted shares were worth, on average (sum of 1 / shares per block)
+    private final DoubleAdder expectedBlocks = new DoubleAdder();
+
+    /**
+     * Start a pool mining on top of a chain
+     *
+     * @param blockchain Chain to mine for; the pool follows its tip
+     * @param sharesPerBlock How much easier a share is than a block (at least 1)
+     */
+    public MiningPool(Blockchain blockchain, int sharesPerBlock) {
+        if (sharesPerBlock < 1) {
+            throw new IllegalArgumentException("sharesPerBlock must be at least 1: " + sharesPerBlock);
+        }
+        this.blockchain = blockchain;
+        this.sharesPerBlock = sharesPerBlock;
+        startCleanJob();
+        blockchain.addChainListener(this);
+    }
+
+    /**
+     * Next nonce range of the current job for a worker
+     *
+     * @param worker Worker name (first use registers it)
+     * @param nonceCount Size of the range; larger ranges mean fewer requests
+     *                   but a slower switch to a newer job
+     */
+    public WorkUnit getWork(String worker, long nonceCount) {
+        Job job = current.get();
+        if (System.nanoTime() - job.createdNanos > JOB_REFRESH_MILLIS * 1_000_000
+                && blockchain.getPendingCount() > job.template.getTransactions().size()) {
+            job = refreshJob(job);
+        }
+        stats(worker).workUnits.increment();
+        long start = job.nextNonce.getAndAdd(nonceCount);
+        return new WorkUnit(job.id, job.template, job.blockBits, job.shareBits, job.prefix, job.suffix,
+                start, nonceCount);
+    }
+
+    /**
+     * False once a work unit's job is retired: its shares would be stale
+     */
+    public boolean isActive(WorkUnit work) {
+        return jobs.containsKey(work.getJobId());
+    }
+
+    /**
+     * Check and count a share
+     *
+     * The hash is recomputed from the job's template and the nonce. A
+     * share meeting the block target completes the job's block, which is
+     * offered to the chain (only the first such share per job).
+     */
+    public ShareResult submitShare(Share share) {
+        WorkerStats stats = stats(share.getWorker());
+        Job job = jobs.get(share.getJobId());
+        if (job == null) {
+            stats.stale.increment();
+            return ShareResult.STALE;
+        }
+        int[] digest = new int[8];
+        kernel.hashNonces(job.prefix, share.getNonce(), 1, job.suffix, digest);
+        if (!Target.meets(digest, 0, job.shareTarget)) {
+            stats.invalid.increment();
+            return ShareResult.INVALID;
+        }
+        if (!job.nonces.add(share.getNonce())) {
+            stats.duplicate.increment();
+            return ShareResult.DUPLICATE;
+        }
+        stats.accepted.increment();
+        stats.work.add(job.hashesPerShare);
+        expectedBlocks.add(job.blocksPerShare);
+
+        if (!Target.meets(digest, 0, job.blockTarget) || !job.solved.compareAndSet(false, true)) {
+            return ShareResult.ACCEPTED;
+        }
+        BlockTemplate template = job.template;
+        Block block = template.toBlock(template.getTimestamp(), share.getNonce(), 0, job.blockBits);
+        Blockchain.BlockStatus status = blockchain.addBlock(block);
+        if (status == Blockchain.BlockStatus.CONNECTED) {
+            stats.blocks.increment();
+            System.out.println("[POOL] Block #" + block.getIndex() + " found by " + share.getWorker()
+                    + ": " + block.getHash());
+        } else {
+            blocksRejected.increment();
+            System.out.println("[POOL] [REJECTED] Block #" + block.getIndex() + " from " + share.getWorker()
+                    + ": " + status);
+        }
+        return ShareResult.BLOCK;
+    }
+
+    /**
+     * A new tip: mine on top of it, and retire the jobs built on the old one
+     */
+    @Override
+    public void activeChainChanged(ChainSnapshot previous, ChainSnapshot current, int forkHeight) {
+        startCleanJob();
+    }
+
+    // Called with the chain's lock held (or before the pool is listening),
+    // so clean jobs are never started concurrently
+    private void startCleanJob() {
+        Job job = newJob();
+        jobs.clear();
+        jobs.put(job.id, job);
+        current.set(job);
+    }
+
+    // Replace the current job for new transactions, keeping the older ones
+    // valid - unless a clean job was started meanwhile (the template built
+    // here may be on the old tip), in which case that one wins
+    private Job refreshJob(Job seen) {
+        Job job = newJob();
+        jobs.put(job.id, job);
+        if (!current.compareAndSet(seen, job)) {
+            jobs.remove(job.id);
+            return current.get();
+        }
+        jobs.keySet().removeIf(id -> id <= job.id - MAX_JOBS_PER_TIP);
+        return job;
+    }
+
+    private Job newJob() {
+        return new Job(nextJobId.getAndIncrement(), blockchain.createBlockTemplate(), blockchain.getNextBits(),
+                sharesPerBlock);
+    }
+
+    private WorkerStats stats(String worker) {
+        return workers.computeIfAbsent(worker, name -> new WorkerStats());
+    }
+
+    public int getSharesPerBlock() {
+        return sharesPerBlock;
+    }
+
+    /**
+     * Share bits of the current job
+     */
+    public int getShareBits() {
+        return current.get().shareBits;
+    }
+
+    @Override
+    public void close() {
+        blockchain.removeChainListener(this);
+        jobs.clear();
+    }
+
+    /**
+     * Snapshot of the accounting so far
+     */
+    public Report getReport() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        List<WorkerReport> rows = new ArrayList<>();
+        double totalWork = 0;
+        for (WorkerStats stats : workers.values()) {
+            totalWork += stats.work.sum();
+        }
+        for (var entry : workers.entrySet()) {
+            WorkerStats stats = entry.getValue();
+            double active = (System.nanoTime() - stats.firstSeenNanos) / 1e9;
+            double work = stats.work.sum();
+            rows.add(new WorkerReport(entry.getKey(), stats.workUnits.sum(), stats.accepted.sum(),
+                    stats.stale.sum(), stats.duplicate.sum(), stats.invalid.sum(), stats.blocks.sum(),
+                    active > 0 ? work / active : 0, totalWork > 0 ? work / totalWork : 0));
+        }
+        rows.sort((a, b) -> a.getWorker().compareTo(b.getWorker()));
+        return new Report(seconds, sharesPerBlock, rows, blocksRejected.sum(), expectedBlocks.sum());
+    }
+
+    /**
+     * One worker's line of a report
+     */
+    public static final class WorkerReport {
+        private final String worker;
+        private final long workUnits;
+        private final long accepted;
+        private final long stale;
+        private final long duplicate;
+        private final long invalid;
+        private final long blocks;
+        private final double estimatedHashrate;
+        private final double workShare;
+
+        WorkerReport(String worker, long workUnits, long accepted, long stale, long duplicate, long invalid,
+                     long blocks, double estimatedHashrate, double workShare) {
+            this.worker = worker;
+            this.workUnits = workUnits;
+            this.accepted = accepted;
+            this.stale = stale;
+            this.duplicate = duplicate;
+            this.invalid = invalid;
+            this.blocks = blocks;
+            this.estimatedHashrate = estimatedHashrate;
+            this.workShare = workShare;
+        }
+
+        public String getWorker() { return worker; }
+        public long getWorkUnits() { return workUnits; }
+        public long getAccepted() { return accepted; }
+        public long getStale() { return stale; }
+        public long getDuplicate() { return duplicate; }
+        public long getInvalid() { return invalid; }
+        public long getBlocks() { return blocks; }
+        public long getSubmitted() { return accepted + stale + duplicate + invalid; }
+
+        // Hashes per second implied by the accepted shares, since the worker's first request
+        public double getEstimatedHashrate() { return estimatedHashrate; }
+
+        // Fraction of the pool's accepted work (its payout under proportional rewards)
+        public double getWorkShare() { return workShare; }
+    }
+
+    /**
+     * Pool accounting at one moment
+     *
+     * Efficiency is accepted shares over all submitted; luck is blocks
+     * found over blocks the accepted work was worth on average (100% =
+     * exactly as expected).
+     */
+    public static final class Report {
+        private final double seconds;
+        private final int sharesPerBlock;
+        private final List<WorkerReport> workers;
+        private final long blocksRejected;
+        private final double expectedBlocks;
+
+        Report(double seconds, int sharesPerBlock, List<WorkerReport> workers, long blocksRejected,
+               double expectedBlocks) {
+            this.seconds = seconds;
+            this.sharesPerBlock = sharesPerBlock;
+            this.workers = List.copyOf(workers);
+            this.blocksRejected = blocksRejected;
+            this.expectedBlocks = expectedBlocks;
+        }
+
+        public List<WorkerReport> getWorkers() { return workers; }
+        public double getSeconds() { return seconds; }
+        public long getBlocksRejected() { return blocksRejected; }
+        public double getExpectedBlocks() { return expectedBlocks; }
+
+        public WorkerReport getWorker(String name) {
+            for (WorkerReport worker : workers) {
+                if (worker.getWorker().equals(name)) {
+                    return worker;
+                }
+            }
+            return null;
+        }
+
+        public long getSubmitted() {
+            return workers.stream().mapToLong(WorkerReport::getSubmitted).sum();
+        }
+
+        public long getAccepted() {
+            return workers.stream().mapToLong(WorkerReport::getAccepted).sum();
+        }
+
+        public long getStale() {
+            return workers.stream().mapToLong(WorkerReport::getStale).sum();
+        }
+
+        public long getBlocks() {
+            return workers.stream().mapToLong(WorkerReport::getBlocks).sum();
+        }
+
+        public double getEstimatedHashrate() {
+            return workers.stream().mapToDouble(WorkerReport::getEstimatedHashrate).sum();
+        }
+
+        public double getEfficiency() {
+            long submitted = getSubmitted();
+            return submitted == 0 ? 0 : (double) getAccepted() / submitted;
+        }
+
+        public double getLuck() {
+            return expectedBlocks == 0 ? 0 : getBlocks() / expectedBlocks;
+        }
+
+        public double getSharesPerSecond() {
+            return getSubmitted() / seconds;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.ROOT, "%-12s %7s %9s %7s %6s %7s %6s %13s %7s%n", "Worker", "Units",
+                    "Accepted", "Stale", "Dup", "Invalid", "Blocks", "Est. H/s", "Work"));
+            report.append("-".repeat(84)).append(System.lineSeparator());
+            for (WorkerReport w : workers) {
+                report.append(String.format(Locale.ROOT, "%-12s %,7d %,9d %,7d %,6d %,7d %,6d %,13.0f %6.1f%%%n",
+                        w.getWorker(), w.getWorkUnits(), w.getAccepted(), w.getStale(), w.getDuplicate(),
+                        w.getInvalid(), w.getBlocks(), w.getEstimatedHashrate(), w.getWorkShare() * 100));
+            }
+            report.append("-".repeat(84)).append(System.lineSeparator());
+            report.append(String.format(Locale.ROOT, "%-12s %17s %,13.0f%n", "Pool", "",
+                    getEstimatedHashrate()));
+            report.append(String.format(Locale.ROOT,
+                    "%.1f s, %,d shares submitted (%,.0f/s), efficiency %.1f%%, stale %.1f%%%n",
+                    seconds, getSubmitted(), getSharesPerSecond(), getEfficiency() * 100,
+                    getSubmitted() == 0 ? 0 : 100.0 * getStale() / getSubmitted()));
+            report.append(String.format(Locale.ROOT,
+                    "%,d blocks found (%,d rejected), %.1f expected at 1 block per %,d shares: luck %.0f%%%n",
+                    getBlocks(), blocksRejected, expectedBlocks, sharesPerBlock, getLuck() * 100));
+            return report.toString();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package pool;
+
+import utils.Sha256Kernel;
+import utils.Target;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * PoolWorker - A simulated miner that works for a MiningPool
+ *
+ * Its own thread repeatedly takes a WorkUnit, hashes the unit's nonces in
+ * chunks with a Sha256Kernel, and submits every nonce that meets the share
+ * target. Between chunks it checks that the job is still active, so it
+ * drops stale work as soon as the pool moves to a new tip.
+ *
+ * A worker can be throttled to a number of hashes per second, to model
+ * miners of different speeds on one machine. It counts the hashes it
+ * really computed, which the pool never sees - compare with the pool's
+ * share-based estimate.
+ */
+public final class PoolWorker implements AutoCloseable {
+
+    // Nonces per work unit, and per kernel call
+    public static final long DEFAULT_RANGE = 1L << 16;
+    private static final int CHUNK = 1024;
+
+    private final String name;
+    private final MiningPool pool;
+    private final Sha256Kernel kernel;
+    private final long hashesPerSecond;
+    private final Thread thread;
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder submitted = new LongAdder();
+    private volatile boolean running = true;
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Start a worker
+     *
+     * @param name Name the pool accounts it under
+     * @param pool Pool to work for
+     * @param kernel Hashing kernel (e.g. Sha256Kernel.best())
+     * @param hashesPerSecond Speed limit, or 0 for as fast as the kernel goes
+     */
+    public PoolWorker(String name, MiningPool pool, Sha256Kernel kernel, long hashesPerSecond) {
+        this.name = name;
+        this.pool = pool;
+        this.kernel = kernel;
+        this.hashesPerSecond = hashesPerSecond;
+        this.thread = new Thread(this::run, "pool-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        int[] digests = new int[8 * CHUNK];
+        long done = 0;
+        while (running) {
+            WorkUnit work = pool.getWork(name, DEFAULT_RANGE);
+            int[] shareTarget = Target.toWords(Target.decodeCompact(work.getShareBits()));
+            long nonce = work.getNonceStart();
+            long end = nonce + work.getNonceCount();
+            while (running && nonce != end && pool.isActive(work)) {
+                int count = (int) Math.min(CHUNK, end - nonce);
+                kernel.hashNonces(work.prefix(), nonce, count, work.suffix(), digests);
+                for (int i = 0; i < count; i++) {
+                    if (Target.meets(digests, i, shareTarget)) {
+                        submitted.increment();
+                        pool.submitShare(new Share(name, work.getJobId(), nonce + i));
+                    }
+                }
+                nonce += count;
+                hashes.add(count);
+                done += count;
+                throttle(done);
+            }
+        }
+    }
+
+    // Sleep until hashes done so far are within the speed limit
+    private void throttle(long done) {
+        if (hashesPerSecond <= 0) {
+            return;
+        }
+        long due = startNanos + done * 1_000_000_000L / hashesPerSecond;
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Hashes really computed
+    public long getHashCount() {
+        return hashes.sum();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    // Real hashes per second since the worker started
+    public double getHashrate() {
+        return getHashCount() / ((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Stop after the current chunk and wait for the thread
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package pool;
+
+/**
+ * Share - A worker's claim that a nonce meets the share target of a job
+ *
+ * Only the nonce is sent: the pool knows the job's template, so it can
+ * recompute the hash itself - it never trusts the worker's word.
+ */
+public final class Share {
+
+    private final String worker;
+    private final long jobId;
+    private final long nonce;
+
+    public Share(String worker, long jobId, long nonce) {
+        this.worker = worker;
+        this.jobId = jobId;
+        this.nonce = nonce;
+    }
+
+    public String getWorker() { return worker; }
+    public long getJobId() { return jobId; }
+    public long getNonce() { return nonce; }
+
+    @Override
+    public String toString() {
+        return "Share[" + worker + ", job " + jobId + ", nonce " + Long.toUnsignedString(nonce) + "]";
+    }
+}
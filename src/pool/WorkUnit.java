@@ -0,0 +1,67 @@
+package pool;
+
+import models.Block;
+import models.BlockTemplate;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * WorkUnit - A slice of one job's search space, handed to one worker
+ *
+ * The worker hashes the job's block template with every nonce in
+ * [nonceStart, nonceStart + nonceCount) and submits each nonce whose hash
+ * meets the share target. No two work units of a job overlap, so no
+ * hash is computed twice across the pool.
+ *
+ * Immutable. The hashing input (everything before and after the nonce)
+ * is shared by all work units of a job and must not be modified.
+ */
+public final class WorkUnit {
+
+    private final long jobId;
+    private final BlockTemplate template;
+    private final int blockBits;
+    private final int shareBits;
+    private final long nonceStart;
+    private final long nonceCount;
+
+    // Block.hashPrefix / hashSuffix of the template, as kernel input
+    private final byte[] prefix;
+    private final byte[] suffix;
+
+    WorkUnit(long jobId, BlockTemplate template, int blockBits, int shareBits, byte[] prefix, byte[] suffix,
+             long nonceStart, long nonceCount) {
+        this.jobId = jobId;
+        this.template = template;
+        this.blockBits = blockBits;
+        this.shareBits = shareBits;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.nonceStart = nonceStart;
+        this.nonceCount = nonceCount;
+    }
+
+    static byte[] prefixOf(BlockTemplate template) {
+        return Block.hashPrefix(template.getIndex(), template.getPreviousHash(), template.getTimestamp())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] suffixOf(BlockTemplate template, int blockBits) {
+        return Block.hashSuffix(0, blockBits, template.getMerkleRoot()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public long getJobId() { return jobId; }
+    public BlockTemplate getTemplate() { return template; }
+    public int getBlockBits() { return blockBits; }
+    public int getShareBits() { return shareBits; }
+    public long getNonceStart() { return nonceStart; }
+    public long getNonceCount() { return nonceCount; }
+
+    byte[] prefix() { return prefix; }
+    byte[] suffix() { return suffix; }
+
+    @Override
+    public String toString() {
+        return "WorkUnit[job " + jobId + ", block #" + template.getIndex() + ", nonces "
+                + Long.toUnsignedString(nonceStart) + "+" + nonceCount + "]";
+    }
+}
@@ -0,0 +1,37 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * BlockValidationEvent - JFR event: one block checked by Blockchain.isChainValid
+ *
+ * One event per block, so a slow validation shows which blocks (and which
+ * check, if one failed) took the time.
+ */
+@Name("blockchain.BlockValidation")
+@Label("Block Validated")
+@Category({"Blockchain", "Validation"})
+@Description("Hash, linkage, seal and signature checks of one block")
+@StackTrace(false)
+@Enabled(false)
+public final class BlockValidationEvent extends Event {
+
+    @Label("Block Index")
+    public int blockIndex;
+
+    @Label("Transactions")
+    public int transactionCount;
+
+    @Label("Valid")
+    public boolean valid;
+
+    @Label("Failed Check")
+    @Description("Which check failed; empty when the block is valid")
+    public String failure;
+}
@@ -0,0 +1,30 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * ExportEvent - JFR event: the chain written to a JSON file
+ *
+ * Includes the validation exportToJSON runs first.
+ */
+@Name("blockchain.Export")
+@Label("Chain Exported")
+@Category({"Blockchain", "Export"})
+@Description("Blockchain.exportToJSON")
+@Enabled(false)
+public final class ExportEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Blocks")
+    public int blocks;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,32 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * MempoolDrainEvent - JFR event: a connected block took its transactions
+ * out of the pending pool
+ */
+@Name("blockchain.MempoolDrain")
+@Label("Mempool Drained")
+@Category({"Blockchain", "Mempool"})
+@Description("Transactions of a newly connected block removed from the pending pool")
+@StackTrace(false)
+@Enabled(false)
+public final class MempoolDrainEvent extends Event {
+
+    @Label("Block Index")
+    public int blockIndex;
+
+    @Label("Removed")
+    @Description("Transactions that were pending (others came with the block only)")
+    public int removed;
+
+    @Label("Still Pending")
+    public int remaining;
+}
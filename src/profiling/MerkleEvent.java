@@ -0,0 +1,31 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * MerkleEvent - JFR event: one Merkle root computed
+ *
+ * A block computes its root once, when it is built - but mining templates
+ * are rebuilt as transactions arrive, so this can be frequent. No stack
+ * trace is taken, to keep the enabled cost down too.
+ */
+@Name("blockchain.Merkle")
+@Label("Merkle Root Built")
+@Category({"Blockchain", "Blocks"})
+@Description("Merkle tree built over a block's transaction IDs")
+@StackTrace(false)
+@Enabled(false)
+public final class MerkleEvent extends Event {
+
+    @Label("Block Index")
+    public int blockIndex;
+
+    @Label("Transactions")
+    public int transactionCount;
+}
@@ -0,0 +1,45 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * MiningEvent - JFR event: one block mined (proof-of-work search)
+ *
+ * Covers the whole search, from the first hash to the one that met the
+ * target; the duration is the event's own. Emitted by
+ * BlockTemplate.mineBlockToTarget (one thread) and by a background
+ * MiningJob (all of the Miner's threads).
+ *
+ * Like every event in this package it is off unless a recording enables
+ * it (see config/blockchain.jfc). Disabled, begin() and commit() do
+ * nothing and the JIT removes the event object altogether.
+ */
+@Name("blockchain.Mining")
+@Label("Block Mined")
+@Category({"Blockchain", "Mining"})
+@Description("Proof-of-work search for one block")
+@Enabled(false)
+public final class MiningEvent extends Event {
+
+    @Label("Block Index")
+    public int blockIndex;
+
+    @Label("Difficulty")
+    @Description("Target relative to one leading zero (2 zeros = 16, see Target.relativeDifficulty)")
+    public double difficulty;
+
+    @Label("Attempts")
+    @Description("Hashes computed before the target was met")
+    public long attempts;
+
+    @Label("Transactions")
+    public int transactionCount;
+
+    @Label("Threads")
+    public int threads;
+}
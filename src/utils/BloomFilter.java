@@ -0,0 +1,120 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * BloomFilter - Compact "is it possibly in here?" test for a set of strings
+ *
+ * A bit array of m bits and k bit positions per item. Adding an item sets
+ * its k bits; looking one up checks them:
+ *
+ *   some bit clear  -> the item was definitely NOT added
+ *   all bits set    -> the item was probably added (or a false positive)
+ *
+ * So a "no" is always right and lets a scan skip a block without looking
+ * at its transactions; a "yes" still needs the real check. Sizing for n
+ * items and a false-positive rate p (the standard formulas):
+ *
+ *   m = -n ln(p) / (ln 2)^2      about 9.6 bits per item at p = 1%
+ *   k = (m / n) ln 2             7 positions at p = 1%
+ *
+ * The k positions come from one 64-bit SipHash of the item, split into
+ * two halves h1, h2 and combined as h1 + i * h2 (Kirsch-Mitzenmacher) -
+ * as good as k independent hashes. hash() is separate from mightContain()
+ * so a scan over many filters hashes the item it looks for only once.
+ *
+ * Not thread-safe while items are added; immutable in practice once built
+ * (see Block.getFilter), and then safe to share.
+ */
+public final class BloomFilter {
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    // Fixed SipHash key: filters are only compared with hashes from this class
+    private static final long KEY0 = 0x626c6f6f6d66696cL;
+    private static final long KEY1 = 0x7465722d626c6f63L;
+
+    private final long[] words;
+    private final int bitCount;
+    private final int hashCount;
+
+    /**
+     * Empty filter sized for an expected number of items
+     *
+     * @param expectedItems Items that will be added (more raise the false-positive rate)
+     * @param falsePositiveRate Wanted chance that an absent item is reported present, in (0, 1)
+     */
+    public BloomFilter(int expectedItems, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        int items = Math.max(1, expectedItems);
+        double bits = -items * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.bitCount = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 63, Math.ceil(bits)));
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / items * Math.log(2)));
+        this.words = new long[(bitCount + 63) >>> 6];
+    }
+
+    /**
+     * 64-bit hash of an item, for add(long) and mightContain(long)
+     */
+    public static long hash(String item) {
+        return SipHash.hash(KEY0, KEY1, item.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void add(String item) {
+        add(hash(item));
+    }
+
+    public void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = position(h1 + i * h2);
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * False if the item was definitely not added; true if it probably was
+     */
+    public boolean mightContain(String item) {
+        return mightContain(hash(item));
+    }
+
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = position(h1 + i * h2);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Map a 32-bit hash onto [0, bitCount) with a multiply instead of a
+    // division (Lemire's range reduction)
+    private int position(int hash) {
+        return (int) (((hash & 0xffffffffL) * bitCount) >>> 32);
+    }
+
+    public int getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    // Bytes held by the bit array
+    public int getSizeInBytes() {
+        return words.length * 8;
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter[" + bitCount + " bits, " + hashCount + " hashes]";
+    }
+}
@@ -0,0 +1,82 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * LruCache - A bounded map that forgets the least recently used entry
+ *
+ * Built on LinkedHashMap in access order: every get moves the entry to the
+ * back, and once the cache is full, adding an entry drops the one at the
+ * front (the one nobody has asked for the longest).
+ *
+ * Safe to share between threads. The lock is held only for the map
+ * operation itself; computing a missing value happens outside it, so a slow
+ * computation never holds up other readers (two threads missing the same
+ * key at once may both compute it - fine for values that are always equal).
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public final class LruCache<K, V> {
+
+    private final LinkedHashMap<K, V> map;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity Maximum number of entries
+     */
+    public LruCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Cached value for key, computing and caching it on a miss
+     *
+     * @param key Key to look up
+     * @param loader Computes the value on a miss; a null result is not cached
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value;
+        synchronized (map) {
+            value = map.get(key);
+        }
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        value = loader.apply(key);
+        if (value != null) {
+            synchronized (map) {
+                map.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * ScalarSha256Kernel - One nonce at a time through MessageDigest
+ *
+ * The fallback kernel. The message is assembled in a reused byte array
+ * (only the nonce digits are rewritten), so it avoids the String
+ * concatenation and hex encoding of Block.calculateHash, and it still
+ * benefits from the JVM's SHA-256 intrinsics where the CPU has them.
+ */
+final class ScalarSha256Kernel implements Sha256Kernel {
+
+    static final ScalarSha256Kernel INSTANCE = new ScalarSha256Kernel();
+
+    // Chosen once: the vector kernel if it can be loaded, else this one
+    static final Sha256Kernel BEST = loadBest();
+
+    // Digits in 2^64 - 1
+    static final int MAX_NONCE_DIGITS = 20;
+
+    private ScalarSha256Kernel() {
+    }
+
+    @Override
+    public int lanes() {
+        return 1;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void hashNonces(byte[] prefix, long firstNonce, int count, byte[] suffix, int[] digests) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        byte[] message = new byte[prefix.length + MAX_NONCE_DIGITS + suffix.length];
+        byte[] digest = new byte[32];
+        System.arraycopy(prefix, 0, message, 0, prefix.length);
+
+        for (int i = 0; i < count; i++) {
+            int length = writeDecimal(firstNonce + i, message, prefix.length);
+            System.arraycopy(suffix, 0, message, length, suffix.length);
+            length += suffix.length;
+
+            sha256.update(message, 0, length);
+            try {
+                sha256.digest(digest, 0, digest.length);
+            } catch (DigestException e) {
+                throw new RuntimeException(e);
+            }
+            for (int w = 0; w < 8; w++) {
+                digests[8 * i + w] = readInt(digest, 4 * w);
+            }
+        }
+    }
+
+    /**
+     * Write an unsigned long as ASCII decimal digits (as Long.toUnsignedString)
+     *
+     * @return Position just after the last digit
+     */
+    static int writeDecimal(long value, byte[] buffer, int position) {
+        int digits = 1;
+        for (long rest = Long.divideUnsigned(value, 10); rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        int i = end;
+        long v = value;
+        if (v < 0) {
+            // Above 2^63 - 1: peel off one digit unsigned, the rest fits signed
+            long quotient = Long.divideUnsigned(v, 10);
+            buffer[--i] = (byte) ('0' + (v - quotient * 10));
+            v = quotient;
+        }
+        do {
+            buffer[--i] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        return end;
+    }
+
+    static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16
+                | (bytes[offset + 2] & 0xff) << 8 | (bytes[offset + 3] & 0xff);
+    }
+
+    // The vector class (src-vector) is only there when compiled, and only
+    // links when jdk.incubator.vector is present at run time
+    private static Sha256Kernel loadBest() {
+        try {
+            Class<?> type = Class.forName("utils.VectorSha256Kernel");
+            return (Sha256Kernel) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return INSTANCE;
+        }
+    }
+}
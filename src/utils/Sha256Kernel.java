@@ -0,0 +1,52 @@
+package utils;
+
+/**
+ * Sha256Kernel - SHA-256 of many consecutive nonces in one call
+ *
+ * While mining, only the nonce changes from one attempt to the next:
+ *
+ *   prefix (index, previousHash, timestamp) + nonce + suffix (extraNonce, bits, merkleRoot)
+ *
+ * A kernel hashes a whole run of nonces at once, which lets it skip the
+ * String building of Block.calculateHash and, in the vector version, hash
+ * several nonces side by side in SIMD lanes.
+ *
+ * Digests are written as 8 big-endian ints per nonce: nonce i of the run
+ * occupies digests[8*i] .. digests[8*i + 7]. Compare them with a target
+ * using Target.meets(int[], int, int[]).
+ *
+ * Two implementations:
+ * - scalar(): one nonce at a time through MessageDigest; always available
+ * - best():   the vector kernel (jdk.incubator.vector, built from the
+ *             separate src-vector root) when it was compiled and the
+ *             module is present at run time (--add-modules
+ *             jdk.incubator.vector), otherwise the scalar one
+ */
+public interface Sha256Kernel {
+
+    /**
+     * Number of nonces hashed side by side (1 for the scalar kernel)
+     */
+    int lanes();
+
+    String name();
+
+    /**
+     * Hash prefix + decimal(nonce) + suffix for count consecutive nonces
+     *
+     * @param prefix Bytes before the nonce
+     * @param firstNonce First nonce (unsigned); the run must not wrap past 2^64 - 1
+     * @param count Number of nonces
+     * @param suffix Bytes after the nonce
+     * @param digests Output, at least 8 * count ints
+     */
+    void hashNonces(byte[] prefix, long firstNonce, int count, byte[] suffix, int[] digests);
+
+    static Sha256Kernel scalar() {
+        return ScalarSha256Kernel.INSTANCE;
+    }
+
+    static Sha256Kernel best() {
+        return ScalarSha256Kernel.BEST;
+    }
+}
@@ -0,0 +1,113 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * SignatureUtil - Digital signatures for transactions (Ed25519, from the JDK)
+ *
+ * A signature proves that whoever created a transaction holds the private
+ * key behind a public key - without revealing the private key:
+ *
+ *   sign(privateKey, data)              -> signature (64 bytes)
+ *   verify(publicKey, data, signature)  -> true only for the key's owner
+ *
+ * ADDRESSES: an address is derived from the public key (the first 40 hex
+ * characters of its SHA-256), so a signed transaction can only spend from
+ * the address belonging to the key that signed it.
+ *
+ * Ed25519 rather than ECDSA: signatures are deterministic (no random
+ * nonce that could leak the key if reused), keys are small (44 bytes
+ * encoded) and verification is a little faster in the JDK.
+ *
+ * Keys and signatures travel as hex strings, like hashes elsewhere.
+ * Signature and KeyFactory objects are not thread-safe, so each thread
+ * keeps its own.
+ */
+public class SignatureUtil {
+
+    public static final String ALGORITHM = "Ed25519";
+
+    private static final ThreadLocal<Signature> SIGNATURES = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    });
+
+    private static final ThreadLocal<KeyFactory> KEY_FACTORIES = ThreadLocal.withInitial(() -> {
+        try {
+            return KeyFactory.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    });
+
+    /**
+     * Fresh random key pair
+     */
+    public static KeyPair generateKeyPair() {
+        try {
+            return KeyPairGenerator.getInstance(ALGORITHM).generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    /**
+     * Public key as hex (X.509 encoding)
+     */
+    public static String encodePublicKey(PublicKey publicKey) {
+        return StringUtil.bytesToHex(publicKey.getEncoded());
+    }
+
+    /**
+     * Address belonging to a public key: first 40 hex characters of its SHA-256
+     */
+    public static String addressOf(String publicKeyHex) {
+        return StringUtil.applySha256(publicKeyHex).substring(0, 40);
+    }
+
+    /**
+     * Sign data with a private key
+     *
+     * @return Signature as hex
+     */
+    public static String sign(PrivateKey privateKey, String data) {
+        try {
+            Signature signature = SIGNATURES.get();
+            signature.initSign(privateKey);
+            signature.update(data.getBytes(StandardCharsets.UTF_8));
+            return StringUtil.bytesToHex(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Cannot sign with this key", e);
+        }
+    }
+
+    /**
+     * Check a signature
+     *
+     * @return true if signatureHex is publicKeyHex's signature of data;
+     *         false for a wrong signature or a malformed key or signature
+     */
+    public static boolean verify(String publicKeyHex, String data, String signatureHex) {
+        try {
+            PublicKey publicKey = KEY_FACTORIES.get()
+                    .generatePublic(new X509EncodedKeySpec(StringUtil.hexToBytes(publicKeyHex)));
+            Signature signature = SIGNATURES.get();
+            signature.initVerify(publicKey);
+            signature.update(data.getBytes(StandardCharsets.UTF_8));
+            return signature.verify(StringUtil.hexToBytes(signatureHex));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package utils;
+
+/**
+ * SipHash - Fast keyed hash (SipHash-2-4) for short identifiers
+ *
+ * SHA-256 is far more than we need when all we want is a short, keyed
+ * fingerprint of data that is already a hash (e.g. compact block short
+ * transaction IDs). SipHash is a few dozen integer operations per call,
+ * and because it is keyed, an outsider cannot pick inputs that collide.
+ *
+ * Reference: Aumasson and Bernstein, "SipHash: a fast short-input PRF"
+ */
+public final class SipHash {
+
+    private SipHash() {
+    }
+
+    /**
+     * Hash a byte array with SipHash-2-4
+     *
+     * @param k0 First half of the 128-bit key
+     * @param k1 Second half of the 128-bit key
+     * @param data Input bytes
+     * @return 64-bit hash value
+     */
+    public static long hash(long k0, long k1, byte[] data) {
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+
+        int length = data.length;
+        int end = length - (length % 8);
+
+        // Compress full 8-byte little-endian words
+        for (int i = 0; i < end; i += 8) {
+            long m = readLongLE(data, i, 8);
+            v3 ^= m;
+            for (int round = 0; round < 2; round++) {
+                v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+                v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+                v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+                v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+
+        // Last word: remaining bytes plus the length in the top byte
+        long last = readLongLE(data, end, length - end) | ((long) length << 56);
+        v3 ^= last;
+        for (int round = 0; round < 2; round++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= last;
+
+        // Finalization
+        v2 ^= 0xff;
+        for (int round = 0; round < 4; round++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    private static long readLongLE(byte[] data, int offset, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value |= (data[offset + i] & 0xffL) << (8 * i);
+        }
+        return value;
+    }
+}
@@ -111,4 +111,78 @@ public class StringUtil {
         // Result: A string of zeros with length equal to difficulty
         return new String(new char[difficulty]).replace('\0', '0');
     }
-}
\ No newline at end of file
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Converts a hexadecimal string (e.g. a SHA-256 hash) back to raw bytes.
+     *
+     * @param hex Hex string with an even number of characters
+     * @return Byte array half the length of the string
+     *
+     * Example:
+     *   hexToBytes("00ff") → {0x00, 0xff}
+     */
+    public static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (Character.digit(hex.charAt(2 * i), 16) << 4
+                    | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return bytes;
+    }
+
+    /**
+     * Converts raw bytes to a lowercase hexadecimal string.
+     *
+     * @param bytes Bytes to convert
+     * @return Hex string twice the length of the array
+     */
+    public static String bytesToHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >>> 4) & 0x0f];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Converts a long to a 16-character lowercase hex string (leading zeros
+     * kept, so every value has the same width).
+     *
+     * @param value Value to convert, read as unsigned
+     * @return Hex string of exactly 16 characters
+     */
+    public static String longToHex(long value) {
+        char[] hex = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            hex[i] = HEX_DIGITS[(int) value & 0x0f];
+            value >>>= 4;
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Number of bytes DataOutputStream.writeUTF writes for a string:
+     * a 2-byte length, then 1 byte per ASCII character (except '\0'),
+     * 2 bytes up to U+07FF and 3 bytes above.
+     *
+     * @param text String to measure
+     * @return Encoded size in bytes, including the length prefix
+     */
+    public static int utfLength(String text) {
+        int length = 2;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x0001 && c <= 0x007f) {
+                length += 1;
+            } else if (c <= 0x07ff) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,177 @@
+package utils;
+
+import java.math.BigInteger;
+
+/**
+ * Target - 256-bit proof-of-work targets and their compact "bits" form
+ *
+ * A block hash is valid when, read as a 256-bit number, it is less than or
+ * equal to the target. Counting leading hex zeros is the special case
+ * target = 2^(256 - 4*zeros) - 1, which only allows steps of 16x; a full
+ * 256-bit target can be adjusted by any factor.
+ *
+ * Compact "bits" encoding (as in Bitcoin), 32 bits in total:
+ *
+ *   +----------+--------------------------+
+ *   | exponent |  mantissa (3 bytes)      |
+ *   +----------+--------------------------+
+ *
+ *   target = mantissa * 256^(exponent - 3)
+ *
+ * Example: 0x1f00ffff -> 0x00ffff followed by 28 zero bytes
+ * Encoding keeps the 3 most significant bytes, so it rounds the target
+ * down slightly; both miner and validator use the decoded value.
+ *
+ * Not every 32-bit value is a valid target: a large exponent shifts the
+ * mantissa past 256 bits (0xff7fffff would be ~2^2039). Such bits come
+ * only from a broken or hostile peer, and no hash can be compared with
+ * them, so isValidCompact() is false and meets() never accepts them.
+ */
+public final class Target {
+
+    // 2^256, one more than the largest possible hash
+    private static final BigInteger TWO_256 = BigInteger.ONE.shiftLeft(256);
+
+    private Target() {
+    }
+
+    /**
+     * Decode compact bits into a full target
+     *
+     * @param bits Compact representation
+     * @return The 256-bit target
+     * @throws IllegalArgumentException if the target does not fit in 256 bits
+     */
+    public static BigInteger decodeCompact(int bits) {
+        int exponent = bits >>> 24;
+        BigInteger mantissa = BigInteger.valueOf(bits & 0x007fffff);
+        if (exponent <= 3) {
+            return mantissa.shiftRight(8 * (3 - exponent));
+        }
+        // Checked before shifting: an exponent of 255 would build a 2000-bit number
+        if (exponent > 32 + 3 || mantissa.bitLength() + 8 * (exponent - 3) > 256) {
+            throw new IllegalArgumentException(String.format("Compact target 0x%08x exceeds 256 bits", bits));
+        }
+        return mantissa.shiftLeft(8 * (exponent - 3));
+    }
+
+    /**
+     * Check that compact bits decode to a target of at most 256 bits
+     *
+     * @param bits Compact representation
+     * @return true if decodeCompact(bits) succeeds
+     */
+    public static boolean isValidCompact(int bits) {
+        int exponent = bits >>> 24;
+        if (exponent <= 3) {
+            return true;
+        }
+        return exponent <= 32 + 3 && Integer.SIZE - Integer.numberOfLeadingZeros(bits & 0x007fffff)
+                + 8 * (exponent - 3) <= 256;
+    }
+
+    /**
+     * Encode a target into compact bits (rounding down)
+     *
+     * @param target A positive 256-bit target
+     * @return Compact representation
+     */
+    public static int encodeCompact(BigInteger target) {
+        int size = (target.bitLength() + 7) / 8;
+        long mantissa;
+        if (size <= 3) {
+            mantissa = target.longValue() << (8 * (3 - size));
+        } else {
+            mantissa = target.shiftRight(8 * (size - 3)).longValue();
+        }
+        // The top mantissa bit is a sign bit in this format; keep it clear
+        if ((mantissa & 0x00800000L) != 0) {
+            mantissa >>= 8;
+            size++;
+        }
+        return (size << 24) | (int) mantissa;
+    }
+
+    /**
+     * Target equivalent to requiring a number of leading hex zeros
+     *
+     * @param difficulty Number of leading zeros (e.g. 4 means "0000...")
+     * @return 2^(256 - 4*difficulty) - 1
+     */
+    public static BigInteger fromLeadingZeros(int difficulty) {
+        return BigInteger.ONE.shiftLeft(256 - 4 * difficulty).subtract(BigInteger.ONE);
+    }
+
+    /**
+     * Target as a 64-character lowercase hex string
+     *
+     * Hashes are lowercase hex of the same length, so comparing the two
+     * strings gives the same answer as comparing the numbers - without
+     * parsing a BigInteger for every hash tried while mining.
+     */
+    public static String toHex(BigInteger target) {
+        String hex = target.toString(16);
+        return "0".repeat(64 - hex.length()) + hex;
+    }
+
+    /**
+     * Check a hash against compact bits
+     *
+     * @param hash 64-character hex hash
+     * @param bits Compact target the hash must not exceed
+     * @return true if hash <= target; false if bits are not a valid target
+     */
+    public static boolean meets(String hash, int bits) {
+        if (!isValidCompact(bits)) {
+            return false;
+        }
+        return hash.compareTo(toHex(decodeCompact(bits))) <= 0;
+    }
+
+    /**
+     * Target as 8 big-endian 32-bit words, the layout Sha256Kernel uses
+     */
+    public static int[] toWords(BigInteger target) {
+        int[] words = new int[8];
+        for (int i = 0; i < 8; i++) {
+            words[i] = target.shiftRight(32 * (7 - i)).intValue();
+        }
+        return words;
+    }
+
+    /**
+     * Check a digest (8 big-endian words) against a target in the same form
+     *
+     * @param digests Digest array as filled by Sha256Kernel
+     * @param index Which digest in the array
+     * @param target Target from toWords
+     * @return true if digest <= target (compared as unsigned 256-bit numbers)
+     */
+    public static boolean meets(int[] digests, int index, int[] target) {
+        for (int i = 0; i < 8; i++) {
+            int compare = Integer.compareUnsigned(digests[8 * index + i], target[i]);
+            if (compare != 0) {
+                return compare < 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Expected number of hashes needed to meet a target: 2^256 / (target + 1)
+     *
+     * Summing this over a branch gives its cumulative work, which is what
+     * fork choice compares.
+     */
+    public static BigInteger work(int bits) {
+        return TWO_256.divide(decodeCompact(bits).add(BigInteger.ONE));
+    }
+
+    /**
+     * Difficulty relative to one leading zero, for display
+     * (1.0 = "0...", 16.0 = "00...", 65536.0 = "00000...")
+     */
+    public static double relativeDifficulty(int bits) {
+        return fromLeadingZeros(1).doubleValue() / decodeCompact(bits).doubleValue();
+    }
+}